@@ -26,6 +26,7 @@ import com.cubeia.firebase.io.StyxSerializer;
 import com.cubeia.firebase.io.protocol.GameTransportPacket;
 import com.cubeia.firebase.io.protocol.MttTransportPacket;
 import com.cubeia.game.poker.bot.ai.PokerGameHandler;
+import com.cubeia.games.poker.io.MinorUnitAmounts;
 import com.cubeia.games.poker.io.protocol.*;
 import com.cubeia.games.poker.io.protocol.Enums.ActionType;
 import com.cubeia.games.poker.io.protocol.Enums.HandPhaseHoldem;
@@ -49,6 +50,11 @@ public class GameHandler implements PacketVisitor {
 
     private PokerGameHandler pokerHandler;
 
+    /**
+     * Fractional digits of the table currency, used if the bot has asked for amounts in minor units.
+     */
+    private int fractionalDigits;
+
     public GameHandler(AbstractAI bot) {
         this.strategy = new Strategy();
         this.bot = bot;
@@ -462,4 +468,58 @@ public class GameHandler implements PacketVisitor {
     @Override
     public void visit(TournamentTables packet) {
     }
+
+    @Override
+    public void visit(RequestTournamentPlayerListPage packet) {
+    }
+
+    @Override
+    public void visit(TournamentPlayerListPage packet) {
+    }
+
+    @Override
+    public void visit(AmountEncodingRequest packet) {
+    }
+
+    @Override
+    public void visit(AmountEncodingResponse packet) {
+        fractionalDigits = packet.fractionalDigits;
+    }
+
+    @Override
+    public void visit(CompactPlayerAction packet) {
+    }
+
+    @Override
+    public void visit(CompactRequestAction packet) {
+        visit(MinorUnitAmounts.expand(packet, fractionalDigits));
+    }
+
+    @Override
+    public void visit(CompactPerformAction packet) {
+        visit(MinorUnitAmounts.expand(packet, fractionalDigits));
+    }
+
+    @Override
+    public void visit(CompactPlayerBalance packet) {
+        visit(MinorUnitAmounts.expand(packet, fractionalDigits));
+    }
+
+    @Override
+    public void visit(CompactPot packet) {
+    }
+
+    @Override
+    public void visit(CompactPotTransfer packet) {
+    }
+
+    @Override
+    public void visit(CompactPotTransfers packet) {
+        visit(MinorUnitAmounts.expand(packet, fractionalDigits));
+    }
+
+    @Override
+    public void visit(CompactInformFutureAllowedActions packet) {
+        visit(MinorUnitAmounts.expand(packet, fractionalDigits));
+    }
 }
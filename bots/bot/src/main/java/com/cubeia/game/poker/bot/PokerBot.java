@@ -22,7 +22,9 @@ import com.cubeia.firebase.bot.ai.BasicAI;
 import com.cubeia.firebase.bot.ai.LoginCredentials;
 import com.cubeia.firebase.io.protocol.GameTransportPacket;
 import com.cubeia.firebase.io.protocol.ProbePacket;
+import com.cubeia.games.poker.io.protocol.AmountEncodingRequest;
 import com.cubeia.games.poker.io.protocol.BuyInInfoRequest;
+import com.cubeia.games.poker.io.protocol.Enums.AmountEncoding;
 import org.apache.commons.codec.binary.Hex;
 import org.apache.log4j.Logger;
 
@@ -42,6 +44,7 @@ public class PokerBot extends BasicAI implements AiProvider {
     private GameHandler handler;
     private int operatorId = 0;
     private boolean hashPasswd = false;
+    private boolean minorUnitAmounts = false;
 
     private String pokerAi;
 
@@ -62,6 +65,17 @@ public class PokerBot extends BasicAI implements AiProvider {
         return hashPasswd;
     }
 
+    /**
+     * If true the bot asks the table for amounts in minor units when seated.
+     */
+    public void setMinorUnitAmounts(boolean minorUnitAmounts) {
+        this.minorUnitAmounts = minorUnitAmounts;
+    }
+
+    public boolean isMinorUnitAmounts() {
+        return minorUnitAmounts;
+    }
+
     public int getOperatorId() {
         return operatorId;
     }
@@ -131,6 +145,10 @@ public class PokerBot extends BasicAI implements AiProvider {
     @Override
     protected void handleSeated() {
         super.handleSeated();
+        if (minorUnitAmounts) {
+            AmountEncodingRequest encodingRequest = new AmountEncodingRequest(AmountEncoding.MINOR_UNITS);
+            getBot().sendGameData(getTable().getId(), getBot().getPid(), encodingRequest);
+        }
         BuyInInfoRequest buyInInfoRequest = new BuyInInfoRequest();
         getBot().sendGameData(getTable().getId(), getBot().getPid(), buyInInfoRequest);
     }
@@ -0,0 +1,66 @@
+/**
+ * Copyright (C) 2012 Cubeia Ltd <info@cubeia.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.cubeia.backend.cashgame.dto;
+
+import java.io.Serializable;
+
+/**
+ * Response sent to the table when an asynchronous hand settlement
+ * could not be performed by the wallet.
+ * <p/>
+ * If the outcome is unknown the wallet may have settled the hand, it must
+ * then not be sent again.
+ */
+@SuppressWarnings("serial")
+public class BatchHandFailedResponse implements Serializable {
+
+    private final String handId;
+    private final String message;
+    private final boolean outcomeUnknown;
+
+    public BatchHandFailedResponse(String handId, String message) {
+        this(handId, message, false);
+    }
+
+    public BatchHandFailedResponse(String handId, String message, boolean outcomeUnknown) {
+        this.handId = handId;
+        this.message = message;
+        this.outcomeUnknown = outcomeUnknown;
+    }
+
+    public String getHandId() {
+        return handId;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public boolean isOutcomeUnknown() {
+        return outcomeUnknown;
+    }
+
+    @Override
+    public String toString() {
+        return "BatchHandFailedResponse{" +
+                "handId='" + handId + '\'' +
+                ", message='" + message + '\'' +
+                ", outcomeUnknown=" + outcomeUnknown +
+                '}';
+    }
+}
@@ -27,6 +27,8 @@ public class BatchHandResponse implements Serializable {
 
     private final List<TransactionUpdate> resultingBalances;
 
+    private String handId;
+
     public BatchHandResponse() {
         this(new LinkedList<TransactionUpdate>());
     }
@@ -43,11 +45,23 @@ public class BatchHandResponse implements Serializable {
         return new ArrayList<TransactionUpdate>(resultingBalances);
     }
 
+    /**
+     * Returns the id of the settled hand, only set on responses to asynchronous requests.
+     */
+    public String getHandId() {
+        return handId;
+    }
+
+    public void setHandId(String handId) {
+        this.handId = handId;
+    }
+
     @Override
     public String toString() {
         final StringBuilder sb = new StringBuilder();
         sb.append("BatchHandResponse");
-        sb.append("{resultingBalances=").append(resultingBalances);
+        sb.append("{handId=").append(handId);
+        sb.append(", resultingBalances=").append(resultingBalances);
         sb.append('}');
         return sb.toString();
     }
@@ -17,15 +17,35 @@
 
 package com.cubeia.backend.cashgame.exceptions;
 
+/**
+ * Thrown when a hand result could not be reported to the wallet.
+ * <p/>
+ * Unless the outcome is marked as unknown the wallet has rejected the hand and it can be reported
+ * again. With an unknown outcome the wallet may have committed the hand and it must not be resent.
+ */
 public class BatchHandFailedException extends Exception {
 
     private static final long serialVersionUID = 1L;
 
+    private final boolean outcomeUnknown;
+
     public BatchHandFailedException(String message) {
-        super(message);
+        this(message, null, false);
     }
 
     public BatchHandFailedException(String message, Throwable cause) {
+        this(message, cause, false);
+    }
+
+    public BatchHandFailedException(String message, Throwable cause, boolean outcomeUnknown) {
         super(message, cause);
+        this.outcomeUnknown = outcomeUnknown;
+    }
+
+    /**
+     * Returns true if the wallet may have committed the hand although reporting it failed.
+     */
+    public boolean isOutcomeUnknown() {
+        return outcomeUnknown;
     }
 }
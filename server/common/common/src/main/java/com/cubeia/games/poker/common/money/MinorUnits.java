@@ -0,0 +1,177 @@
+/**
+ * Copyright (C) 2012 Cubeia Ltd <info@cubeia.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.cubeia.games.poker.common.money;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+
+/**
+ * Fixed-point money arithmetic on long minor units of a currency.
+ * <p/>
+ * An amount is a plain long holding the value multiplied by 10^fractionalDigits, for example
+ * EUR 12.34 is 1234. Amounts are converted from and to BigDecimal only at the boundaries
+ * (wallet, hand history, protocol), everything in between is done on longs without
+ * creating any objects.
+ * <p/>
+ * Conversion from BigDecimal is exact, an amount with more fractional digits than the
+ * currency allows is rejected.
+ */
+public final class MinorUnits implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final long[] POWERS_OF_TEN = {
+            1L, 10L, 100L, 1000L, 10000L, 100000L, 1000000L, 10000000L, 100000000L, 1000000000L,
+            10000000000L, 100000000000L, 1000000000000L, 10000000000000L, 100000000000000L,
+            1000000000000000L, 10000000000000000L, 100000000000000000L, 1000000000000000000L};
+
+    private final Currency currency;
+
+    private final int fractionalDigits;
+
+    public MinorUnits(Currency currency) {
+        this.currency = currency;
+        this.fractionalDigits = currency.getFractionalDigits();
+    }
+
+    public Currency getCurrency() {
+        return currency;
+    }
+
+    public int getFractionalDigits() {
+        return fractionalDigits;
+    }
+
+    /**
+     * Converts an amount to minor units.
+     *
+     * @param amount amount, null is treated as zero
+     * @return the amount in minor units
+     * @throws ArithmeticException if the amount has more fractional digits than the currency
+     *                             or does not fit in a long
+     */
+    public long toMinorUnits(BigDecimal amount) {
+        if (amount == null || amount.signum() == 0) {
+            return 0L;
+        }
+        return amount.movePointRight(fractionalDigits).longValueExact();
+    }
+
+    /**
+     * Converts an amount to minor units, dropping any fractions of a minor unit.
+     * Amounts outside the range of a long are clamped to Long.MAX_VALUE or Long.MIN_VALUE, which
+     * makes this suitable for limits (e.g. a rake limit of "no limit").
+     *
+     * @param amount amount, null is treated as zero
+     * @return the amount in minor units, rounded towards zero
+     */
+    public long toMinorUnitsRoundedDown(BigDecimal amount) {
+        if (amount == null || amount.signum() == 0) {
+            return 0L;
+        }
+        BigInteger minorUnits = amount.setScale(fractionalDigits, RoundingMode.DOWN).unscaledValue();
+        if (minorUnits.bitLength() > 63) {
+            return minorUnits.signum() > 0 ? Long.MAX_VALUE : Long.MIN_VALUE;
+        }
+        return minorUnits.longValue();
+    }
+
+    /**
+     * Converts minor units to a BigDecimal with the scale of the currency.
+     *
+     * @param minorUnits amount in minor units
+     * @return the amount
+     */
+    public BigDecimal toBigDecimal(long minorUnits) {
+        return BigDecimal.valueOf(minorUnits, fractionalDigits);
+    }
+
+    public Money toMoney(long minorUnits) {
+        return new Money(toBigDecimal(minorUnits), currency);
+    }
+
+    /* ----------------------------------------------------
+      *
+      * 	ARITHMETIC
+      *
+      *  ---------------------------------------------------- */
+
+    /**
+     * Multiplies an amount with a fraction, e.g. a rake fraction, rounding down to whole minor units.
+     *
+     * @param minorUnits amount in minor units, must not be negative
+     * @param fraction   the fraction, must not be negative
+     * @return the product in minor units, rounded down
+     */
+    public static long multiplyRoundDown(long minorUnits, BigDecimal fraction) {
+        long unscaled = fraction.unscaledValue().longValue();
+        int scale = fraction.scale();
+        if (scale >= 0 && scale < POWERS_OF_TEN.length && fraction.precision() < 19
+                && (unscaled == 0 || minorUnits <= Long.MAX_VALUE / unscaled)) {
+            return minorUnits * unscaled / POWERS_OF_TEN[scale];
+        }
+        return BigDecimal.valueOf(minorUnits).multiply(fraction).setScale(0, RoundingMode.DOWN).longValueExact();
+    }
+
+    /**
+     * Returns the equal share of an amount split in a number of parts, the remainder
+     * is given by {@link #remainder(long, int)}.
+     *
+     * @param minorUnits amount in minor units
+     * @param parts      number of parts
+     * @return the share of each part, rounded down
+     */
+    public static long share(long minorUnits, int parts) {
+        return minorUnits / parts;
+    }
+
+    /**
+     * Returns the minor units left over when splitting an amount in equal shares.
+     *
+     * @param minorUnits amount in minor units
+     * @param parts      number of parts
+     * @return the remainder, less than parts
+     */
+    public static long remainder(long minorUnits, int parts) {
+        return minorUnits % parts;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+
+        MinorUnits that = (MinorUnits) o;
+
+        return currency != null ? currency.equals(that.currency) : that.currency == null;
+    }
+
+    @Override
+    public int hashCode() {
+        return currency != null ? currency.hashCode() : 0;
+    }
+
+    @Override
+    public String toString() {
+        return "MinorUnits{" +
+                "currency=" + currency +
+                '}';
+    }
+}
@@ -34,12 +34,14 @@ public class DatabaseStorageConfiguration {
     private String host;
     private int port;
     private String databaseName;
+    private String spillDirectory;
 
     public DatabaseStorageConfiguration load(String configPath) {
         Properties properties = loadProperties(configPath);
         host = properties.getProperty("mongo.host", "localhost");
         port = Integer.parseInt(properties.getProperty("mongo.port", "27017"));
         databaseName = properties.getProperty("mongo.database-name", "hands");
+        spillDirectory = properties.getProperty("mongo.spill-directory");
         return this;
     }
 
@@ -74,4 +76,11 @@ public class DatabaseStorageConfiguration {
     public String getDatabaseName() {
         return databaseName;
     }
+
+    /**
+     * @return directory for files holding data that could not be written to mongo, or null if not configured
+     */
+    public String getSpillDirectory() {
+        return spillDirectory;
+    }
 }
@@ -17,6 +17,7 @@
 
 package com.cubeia.games.poker.common.mongo;
 
+import com.google.code.morphia.AdvancedDatastore;
 import com.google.code.morphia.Datastore;
 import com.google.code.morphia.Morphia;
 import com.google.code.morphia.query.Query;
@@ -47,6 +48,17 @@ public class MongoStorage {
         datastore.save(object);
     }
 
+    /**
+     * Inserts all objects with a single bulk insert. Fails if any of the objects already exist.
+     */
+    public <T> void insertAll(Iterable<T> objects) {
+        if (datastore instanceof AdvancedDatastore) {
+            ((AdvancedDatastore) datastore).insert(objects);
+        } else {
+            datastore.save(objects);
+        }
+    }
+
     public void map(Class classType) {
         if (morphia != null && datastore != null)
         {
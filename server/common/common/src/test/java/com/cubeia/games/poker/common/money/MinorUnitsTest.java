@@ -0,0 +1,68 @@
+/**
+ * Copyright (C) 2012 Cubeia Ltd <info@cubeia.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.cubeia.games.poker.common.money;
+
+import org.junit.Test;
+
+import java.math.BigDecimal;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+public class MinorUnitsTest {
+
+    private MinorUnits eur = new MinorUnits(new Currency("EUR", 2));
+
+    @Test
+    public void testConversion() {
+        assertThat(eur.toMinorUnits(new BigDecimal("12.34")), is(1234L));
+        assertThat(eur.toMinorUnits(new BigDecimal("12.3")), is(1230L));
+        assertThat(eur.toMinorUnits(new BigDecimal("12.000")), is(1200L));
+        assertThat(eur.toMinorUnits(BigDecimal.ZERO), is(0L));
+        assertThat(eur.toMinorUnits(null), is(0L));
+        assertThat(eur.toBigDecimal(1234L), is(new BigDecimal("12.34")));
+        assertThat(eur.toBigDecimal(-5L), is(new BigDecimal("-0.05")));
+        assertThat(eur.toMoney(1234L), is(new Money(new BigDecimal("12.34"), new Currency("EUR", 2))));
+    }
+
+    @Test(expected = ArithmeticException.class)
+    public void testConversionOfFractionsOfMinorUnitsFails() {
+        eur.toMinorUnits(new BigDecimal("12.345"));
+    }
+
+    @Test
+    public void testConversionRoundedDown() {
+        assertThat(eur.toMinorUnitsRoundedDown(new BigDecimal("12.349")), is(1234L));
+        assertThat(new MinorUnits(new Currency("CHIPS", 0)).toMinorUnitsRoundedDown(new BigDecimal("12.9")), is(12L));
+        assertThat(eur.toMinorUnitsRoundedDown(new BigDecimal(Long.MAX_VALUE)), is(Long.MAX_VALUE));
+    }
+
+    @Test
+    public void testMultiplyRoundDown() {
+        assertThat(MinorUnits.multiplyRoundDown(1234L, new BigDecimal("0.05")), is(61L));
+        assertThat(MinorUnits.multiplyRoundDown(1234L, new BigDecimal("0.1")), is(123L));
+        assertThat(MinorUnits.multiplyRoundDown(1234L, BigDecimal.ZERO), is(0L));
+        assertThat(MinorUnits.multiplyRoundDown(Long.MAX_VALUE / 2, new BigDecimal("0.5")), is(Long.MAX_VALUE / 4));
+    }
+
+    @Test
+    public void testShareAndRemainder() {
+        assertThat(MinorUnits.share(101L, 3), is(33L));
+        assertThat(MinorUnits.remainder(101L, 3), is(2L));
+    }
+}
@@ -0,0 +1,101 @@
+/**
+ * Copyright (C) 2012 Cubeia Ltd <info@cubeia.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.cubeia.poker.benchmark;
+
+import com.cubeia.poker.MockServerAdapter;
+import com.cubeia.poker.action.ActionRequest;
+import com.cubeia.poker.action.PokerAction;
+import com.cubeia.poker.adapter.HandEndStatus;
+import com.cubeia.poker.player.PokerPlayer;
+import com.cubeia.poker.result.HandResult;
+
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.Random;
+
+/**
+ * Server adapter for driving a poker state outside of Firebase.
+ * <p/>
+ * Action requests are queued until they are taken by the driver instead of being
+ * kept forever, and all other notifications are dropped, so that a long run
+ * does not accumulate any state.
+ */
+public class BenchmarkServerAdapter extends MockServerAdapter {
+
+    private final Deque<ActionRequest> pendingRequests = new ArrayDeque<ActionRequest>();
+
+    private HandResult lastResult;
+
+    private HandEndStatus lastStatus;
+
+    public BenchmarkServerAdapter(Random random) {
+        this.random = random;
+    }
+
+    @Override
+    public void requestAction(ActionRequest request) {
+        pendingRequests.add(request);
+    }
+
+    @Override
+    public void requestMultipleActions(Collection<ActionRequest> requests) {
+        pendingRequests.addAll(requests);
+    }
+
+    @Override
+    public void notifyActionPerformed(PokerAction action, PokerPlayer pokerPlayer) {
+    }
+
+    @Override
+    public void notifyHandEnd(HandResult result, HandEndStatus status, boolean tournamentTable) {
+        lastResult = result;
+        lastStatus = status;
+    }
+
+    /**
+     * Takes the oldest pending action request.
+     *
+     * @return the request, null if there are no pending requests
+     */
+    public ActionRequest pollRequest() {
+        return pendingRequests.poll();
+    }
+
+    public boolean hasPendingRequests() {
+        return !pendingRequests.isEmpty();
+    }
+
+    public HandResult getLastResult() {
+        return lastResult;
+    }
+
+    public HandEndStatus getLastStatus() {
+        return lastStatus;
+    }
+
+    /**
+     * Clears everything recorded for the previous hand.
+     */
+    public void reset() {
+        clear();
+        pendingRequests.clear();
+        lastResult = null;
+        lastStatus = null;
+    }
+}
@@ -0,0 +1,77 @@
+/**
+ * Copyright (C) 2012 Cubeia Ltd <info@cubeia.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.cubeia.poker.benchmark;
+
+import com.cubeia.poker.hand.Card;
+import com.cubeia.poker.hand.IndexCardIdGenerator;
+import com.cubeia.poker.hand.Shuffler;
+import com.cubeia.poker.hand.StandardDeck;
+import com.cubeia.poker.variant.telesina.TelesinaDeck;
+import com.cubeia.poker.variant.telesina.TelesinaDeckUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Deck construction (which includes shuffling and id assignment) and dealing.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DeckBenchmark {
+
+    private final Random random = new Random(4711);
+
+    private final Shuffler<Card> shuffler = new Shuffler<Card>(random);
+
+    private final TelesinaDeckUtil telesinaDeckUtil = new TelesinaDeckUtil();
+
+    @Benchmark
+    public StandardDeck createStandardDeck() {
+        return new StandardDeck(shuffler, new IndexCardIdGenerator());
+    }
+
+    @Benchmark
+    public void dealStandardDeck(Blackhole blackhole) {
+        StandardDeck deck = new StandardDeck(shuffler, new IndexCardIdGenerator());
+        while (!deck.isEmpty()) {
+            blackhole.consume(deck.deal());
+        }
+    }
+
+    @Benchmark
+    public void dealTelesinaDeck(Blackhole blackhole) {
+        TelesinaDeck deck = new TelesinaDeck(telesinaDeckUtil, random, 4);
+        while (!deck.isEmpty()) {
+            blackhole.consume(deck.deal());
+        }
+    }
+}
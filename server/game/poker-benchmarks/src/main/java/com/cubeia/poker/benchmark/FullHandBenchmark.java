@@ -0,0 +1,69 @@
+/**
+ * Copyright (C) 2012 Cubeia Ltd <info@cubeia.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.cubeia.poker.benchmark;
+
+import com.cubeia.poker.PokerVariant;
+import com.cubeia.poker.result.HandResult;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A complete hand, from blinds to hand result, played through PokerState by random players.
+ *
+ * @see HandDriver
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FullHandBenchmark {
+
+    @Param({"TEXAS_HOLDEM", "OMAHA", "TELESINA", "SEVEN_CARD_STUD"})
+    public PokerVariant variant;
+
+    @Param({"6"})
+    public int players;
+
+    @Param({"false", "true"})
+    public boolean fixedPoint;
+
+    private HandDriver driver;
+
+    @Setup
+    public void setup() {
+        driver = new HandDriver(variant, players, 4711L, fixedPoint);
+    }
+
+    @Benchmark
+    public HandResult playHand() {
+        return driver.playHand();
+    }
+}
@@ -0,0 +1,167 @@
+/**
+ * Copyright (C) 2012 Cubeia Ltd <info@cubeia.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.cubeia.poker.benchmark;
+
+import com.cubeia.games.poker.common.money.Currency;
+import com.cubeia.poker.MockPlayer;
+import com.cubeia.poker.PokerGuiceModule;
+import com.cubeia.poker.PokerState;
+import com.cubeia.poker.PokerVariant;
+import com.cubeia.poker.action.ActionRequest;
+import com.cubeia.poker.betting.BetStrategyType;
+import com.cubeia.poker.model.BlindsLevel;
+import com.cubeia.poker.result.HandResult;
+import com.cubeia.poker.settings.PokerSettings;
+import com.cubeia.poker.settings.RakeSettings;
+import com.cubeia.poker.timing.TimingFactory;
+import com.cubeia.poker.variant.factory.GameTypeFactory;
+import com.google.inject.Guice;
+
+import java.math.BigDecimal;
+import java.util.Random;
+
+/**
+ * Plays complete hands on a {@link PokerState} with a {@link BenchmarkServerAdapter}.
+ * <p/>
+ * Timeouts are triggered by the driver as soon as nothing else can happen, so a hand
+ * runs as fast as the poker logic allows. Actions are picked by a {@link RandomActionStrategy}.
+ * All balances are restored before every hand.
+ */
+public class HandDriver {
+
+    /**
+     * Guards against a hand that never finishes.
+     */
+    private static final int MAX_STEPS_PER_HAND = 1000;
+
+    private final PokerState state;
+
+    private final BenchmarkServerAdapter serverAdapter;
+
+    private final MockPlayer[] players;
+
+    private final BigDecimal startingBalance;
+
+    private final RandomActionStrategy strategy;
+
+    /**
+     * Creates a driver with a 5% rake, no fixed-point amounts and 100 big blinds per player.
+     *
+     * @param variant         poker variant, see {@link GameTypeFactory}
+     * @param numberOfPlayers number of players at the table
+     * @param seed            seed of the deck and of the action choices
+     */
+    public HandDriver(PokerVariant variant, int numberOfPlayers, long seed) {
+        this(variant, numberOfPlayers, seed, false);
+    }
+
+    public HandDriver(PokerVariant variant, int numberOfPlayers, long seed, boolean fixedPointAmounts) {
+        this.strategy = new RandomActionStrategy(new Random(seed));
+        this.serverAdapter = new BenchmarkServerAdapter(new Random(seed + 1));
+        this.startingBalance = new BigDecimal("100.00");
+
+        state = Guice.createInjector(new PokerGuiceModule()).getInstance(PokerState.class);
+        PokerSettings settings = createSettings(variant, numberOfPlayers, "MINIMUM_DELAY", fixedPointAmounts);
+        state.init(GameTypeFactory.createGameType(variant), settings);
+        state.setServerAdapter(serverAdapter);
+
+        players = new MockPlayer[numberOfPlayers];
+        for (int i = 0; i < numberOfPlayers; i++) {
+            players[i] = new MockPlayer(i);
+            players[i].setSeatId(i);
+            players[i].setBalance(startingBalance);
+            players[i].setHasPostedEntryBet(true);
+            state.addPlayer(players[i]);
+        }
+    }
+
+    /**
+     * Plays one hand from start to end.
+     *
+     * @return the result of the hand, null if the hand was not finished normally
+     * @throws IllegalStateException if the hand does not finish
+     */
+    public HandResult playHand() {
+        serverAdapter.reset();
+        for (MockPlayer player : players) {
+            player.setBalance(startingBalance);
+            if (player.isSittingOut()) {
+                state.playerIsSittingIn(player.getId());
+            }
+        }
+
+        // Starts the hand
+        state.timeout();
+
+        int steps = 0;
+        while (!state.isFinished()) {
+            if (++steps > MAX_STEPS_PER_HAND) {
+                throw new IllegalStateException("hand did not finish in " + MAX_STEPS_PER_HAND + " steps: " + state);
+            }
+            ActionRequest request = serverAdapter.pollRequest();
+            if (request == null) {
+                state.timeout();
+            } else if (!state.act(strategy.chooseAction(request, getPlayer(request.getPlayerId())))
+                    && !serverAdapter.hasPendingRequests()) {
+                // The action was rejected, let the player time out
+                state.timeout();
+            }
+        }
+        return serverAdapter.getLastResult();
+    }
+
+    public PokerState getState() {
+        return state;
+    }
+
+    public BenchmarkServerAdapter getServerAdapter() {
+        return serverAdapter;
+    }
+
+    private MockPlayer getPlayer(int playerId) {
+        for (MockPlayer player : players) {
+            if (player.getId() == playerId) {
+                return player;
+            }
+        }
+        throw new IllegalArgumentException("unknown player " + playerId);
+    }
+
+    /**
+     * Creates the settings used for benchmarking: blinds 0.50/1.00 with a 0.10 ante, no limit
+     * (fixed limit for stud), EUR and a 5% rake with a 3.00 limit.
+     *
+     * @param variant           poker variant
+     * @param numberOfPlayers   number of players, the table has at least six seats
+     * @param timingProfile     name of the timing profile, see {@link TimingFactory}
+     * @param fixedPointAmounts true for fixed-point amounts, see {@link PokerSettings#isFixedPointAmounts()}
+     * @return the settings
+     */
+    public static PokerSettings createSettings(PokerVariant variant, int numberOfPlayers, String timingProfile,
+                                               boolean fixedPointAmounts) {
+        boolean stud = variant == PokerVariant.SEVEN_CARD_STUD || variant == PokerVariant.FIVE_CARD_STUD;
+        BlindsLevel blinds = new BlindsLevel(new BigDecimal("0.50"), new BigDecimal("1.00"), new BigDecimal("0.10"));
+        BetStrategyType betStrategy = stud ? BetStrategyType.FIXED_LIMIT : BetStrategyType.NO_LIMIT;
+        RakeSettings rake = new RakeSettings(new BigDecimal("0.05"), new BigDecimal("3.00"), new BigDecimal("1.00"));
+        PokerSettings settings = new PokerSettings(variant, blinds, betStrategy, new BigDecimal("10.00"),
+                new BigDecimal("200.00"), TimingFactory.getRegistry().getTimingProfile(timingProfile),
+                Math.max(numberOfPlayers, 6), rake, new Currency("EUR", 2), null);
+        settings.setFixedPointAmounts(fixedPointAmounts);
+        return settings;
+    }
+}
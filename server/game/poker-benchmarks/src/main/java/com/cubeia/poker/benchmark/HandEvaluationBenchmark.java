@@ -0,0 +1,170 @@
+/**
+ * Copyright (C) 2012 Cubeia Ltd <info@cubeia.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.cubeia.poker.benchmark;
+
+import com.cubeia.poker.hand.Card;
+import com.cubeia.poker.hand.Hand;
+import com.cubeia.poker.hand.HandInfo;
+import com.cubeia.poker.hand.IndexCardIdGenerator;
+import com.cubeia.poker.hand.Rank;
+import com.cubeia.poker.hand.Shuffler;
+import com.cubeia.poker.hand.StandardDeck;
+import com.cubeia.poker.variant.omaha.OmahaHandCalculator;
+import com.cubeia.poker.variant.telesina.TelesinaDeckUtil;
+import com.cubeia.poker.variant.telesina.hand.TelesinaHandStrengthEvaluator;
+import com.cubeia.poker.variant.texasholdem.TexasHoldemHandCalculator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Best hand calculation and hand comparison for Texas Hold'em, Omaha and Telesina.
+ * <p/>
+ * A fixed set of random hands is dealt up front and the benchmarks cycle through them,
+ * so every invocation evaluates a different hand.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HandEvaluationBenchmark {
+
+    private static final int NUMBER_OF_HANDS = 1024;
+
+    private static final int TELESINA_PLAYERS = 4;
+
+    private final TexasHoldemHandCalculator holdemCalculator = new TexasHoldemHandCalculator();
+
+    private final Comparator<Hand> holdemComparator = holdemCalculator.createHandComparator(2);
+
+    private final OmahaHandCalculator omahaCalculator = new OmahaHandCalculator();
+
+    private final Comparator<Hand> omahaComparator = omahaCalculator.createHandComparator(2);
+
+    private TelesinaHandStrengthEvaluator telesinaEvaluator;
+
+    private Comparator<Hand> telesinaComparator;
+
+    private Hand[] holdemHands;
+
+    private Hand[] omahaHands;
+
+    private Hand[] telesinaHands;
+
+    private int index;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(4711);
+        holdemHands = new Hand[NUMBER_OF_HANDS];
+        omahaHands = new Hand[NUMBER_OF_HANDS];
+        telesinaHands = new Hand[NUMBER_OF_HANDS];
+
+        TelesinaDeckUtil telesinaDeckUtil = new TelesinaDeckUtil();
+        Rank telesinaLowestRank = telesinaDeckUtil.calculateLowestRank(TELESINA_PLAYERS);
+        telesinaEvaluator = new TelesinaHandStrengthEvaluator(telesinaLowestRank);
+        telesinaComparator = telesinaEvaluator.createHandComparator(2);
+        List<Card> telesinaCards = new ArrayList<Card>(telesinaDeckUtil.createDeckCards(TELESINA_PLAYERS));
+
+        for (int i = 0; i < NUMBER_OF_HANDS; i++) {
+            StandardDeck deck = new StandardDeck(new Shuffler<Card>(random), new IndexCardIdGenerator());
+            holdemHands[i] = deal(deck, 2, 5);
+            omahaHands[i] = deal(deck, 4, 5);
+
+            Collections.shuffle(telesinaCards, random);
+            telesinaHands[i] = new Hand();
+            telesinaHands[i].addPocketCards(telesinaCards.subList(0, 4));
+            telesinaHands[i].addCommunityCard(telesinaCards.get(4));
+        }
+    }
+
+    @Benchmark
+    public HandInfo texasHoldemBestHandInfo() {
+        return holdemCalculator.getBestHandInfo(holdemHands[next()]);
+    }
+
+    @Benchmark
+    public int texasHoldemBestHandScore() {
+        return holdemCalculator.getBestHandScore(holdemHands[next()]);
+    }
+
+    @Benchmark
+    public int texasHoldemCompare() {
+        int i = next();
+        return holdemComparator.compare(holdemHands[i], holdemHands[(i + 1) % NUMBER_OF_HANDS]);
+    }
+
+    @Benchmark
+    public HandInfo omahaBestHandInfo() {
+        return omahaCalculator.getBestHandInfo(omahaHands[next()]);
+    }
+
+    @Benchmark
+    public int omahaBestHandScore() {
+        return omahaCalculator.getBestHandScore(omahaHands[next()]);
+    }
+
+    @Benchmark
+    public int omahaCompare() {
+        int i = next();
+        return omahaComparator.compare(omahaHands[i], omahaHands[(i + 1) % NUMBER_OF_HANDS]);
+    }
+
+    @Benchmark
+    public HandInfo telesinaBestHandInfo() {
+        return telesinaEvaluator.getBestHandInfo(telesinaHands[next()]);
+    }
+
+    @Benchmark
+    public int telesinaCompare() {
+        int i = next();
+        return telesinaComparator.compare(telesinaHands[i], telesinaHands[(i + 1) % NUMBER_OF_HANDS]);
+    }
+
+    private int next() {
+        index = (index + 1) % NUMBER_OF_HANDS;
+        return index;
+    }
+
+    private Hand deal(StandardDeck deck, int pocketCards, int communityCards) {
+        Hand hand = new Hand();
+        for (int i = 0; i < pocketCards; i++) {
+            hand.addPocketCard(deck.deal());
+        }
+        for (int i = 0; i < communityCards; i++) {
+            hand.addCommunityCard(deck.deal());
+        }
+        return hand;
+    }
+}
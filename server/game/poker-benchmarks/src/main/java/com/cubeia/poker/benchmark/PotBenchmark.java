@@ -0,0 +1,145 @@
+/**
+ * Copyright (C) 2012 Cubeia Ltd <info@cubeia.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.cubeia.poker.benchmark;
+
+import com.cubeia.games.poker.common.money.Currency;
+import com.cubeia.games.poker.common.money.MinorUnits;
+import com.cubeia.poker.player.DefaultPokerPlayer;
+import com.cubeia.poker.player.PokerPlayer;
+import com.cubeia.poker.pot.Pot;
+import com.cubeia.poker.pot.PotHolder;
+import com.cubeia.poker.pot.RakeInfoContainer;
+import com.cubeia.poker.rake.LinearRakeWithLimitCalculator;
+import com.cubeia.poker.settings.RakeSettings;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Side pot creation and rake calculation.
+ * <p/>
+ * Every player is all-in for a different amount, which gives one side pot per player
+ * and is the worst case for {@link PotHolder#moveChipsToPotAndTakeBackUncalledChips(Collection)}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PotBenchmark {
+
+    private static final Currency EUR = new Currency("EUR", 2);
+
+    /**
+     * Number of tables moved to the pot per invocation, so the per-invocation setup is
+     * amortized over enough work for its timestamps not to skew the result.
+     */
+    private static final int BATCH = 1024;
+
+    private static final RakeSettings RAKE_SETTINGS = new RakeSettings(new BigDecimal("0.05"), new BigDecimal("3.00"), new BigDecimal("1.00"));
+
+    @Param({"2", "6", "10"})
+    public int allInLevels;
+
+    @Param({"false", "true"})
+    public boolean fixedPoint;
+
+    private LinearRakeWithLimitCalculator rakeCalculator;
+
+    private MinorUnits minorUnits;
+
+    private List<List<PokerPlayer>> tables;
+
+    private Collection<Pot> pots;
+
+    @Setup(Level.Trial)
+    public void setupTrial() {
+        rakeCalculator = new LinearRakeWithLimitCalculator(RAKE_SETTINGS, EUR, fixedPoint);
+        minorUnits = fixedPoint ? new MinorUnits(EUR) : null;
+
+        PotHolder potHolder = createPotHolder();
+        potHolder.moveChipsToPotAndTakeBackUncalledChips(createPlayers());
+        pots = potHolder.getPots();
+    }
+
+    /**
+     * The pot holder takes the chips from the players' bet stacks, so a batch of tables
+     * is recreated before every invocation.
+     */
+    @Setup(Level.Invocation)
+    public void setupTables() {
+        tables = new ArrayList<List<PokerPlayer>>(BATCH);
+        for (int i = 0; i < BATCH; i++) {
+            tables.add(createPlayers());
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public int moveChipsToPot() {
+        int transitions = 0;
+        for (List<PokerPlayer> players : tables) {
+            transitions += createPotHolder().moveChipsToPotAndTakeBackUncalledChips(players).size();
+        }
+        return transitions;
+    }
+
+    @Benchmark
+    public RakeInfoContainer calculateRakes() {
+        return rakeCalculator.calculateRakes(pots, true);
+    }
+
+    private PotHolder createPotHolder() {
+        return new PotHolder(rakeCalculator, minorUnits);
+    }
+
+    private List<PokerPlayer> createPlayers() {
+        List<PokerPlayer> players = new ArrayList<PokerPlayer>(allInLevels + 1);
+        for (int i = 0; i < allInLevels; i++) {
+            BigDecimal stack = new BigDecimal(10 + i * 7).add(new BigDecimal("0.35"));
+            players.add(createPlayer(i, stack, stack));
+        }
+        // A covering player with uncalled chips
+        players.add(createPlayer(allInLevels, new BigDecimal("500.00"), new BigDecimal("200.00")));
+        return players;
+    }
+
+    private PokerPlayer createPlayer(int id, BigDecimal balance, BigDecimal bet) {
+        PokerPlayer player = new DefaultPokerPlayer(id);
+        player.addChips(balance);
+        player.addBet(bet);
+        return player;
+    }
+}
@@ -0,0 +1,92 @@
+/**
+ * Copyright (C) 2012 Cubeia Ltd <info@cubeia.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.cubeia.poker.benchmark;
+
+import com.cubeia.poker.action.ActionRequest;
+import com.cubeia.poker.action.DiscardAction;
+import com.cubeia.poker.action.PokerAction;
+import com.cubeia.poker.action.PokerActionType;
+import com.cubeia.poker.action.PossibleAction;
+import com.cubeia.poker.player.PokerPlayer;
+
+import java.math.BigDecimal;
+import java.util.Collections;
+import java.util.Random;
+
+import static com.cubeia.poker.action.PokerActionType.*;
+
+/**
+ * Picks an action for an action request with a seeded random.
+ * <p/>
+ * Mandatory actions (blinds, antes, bring-in, discards) are always taken, otherwise
+ * players mostly check or call, sometimes bet or raise the minimum, and rarely
+ * fold or go all-in.
+ */
+public class RandomActionStrategy {
+
+    private static final PokerActionType[] MANDATORY_ACTIONS = {
+            SMALL_BLIND, BIG_BLIND, BIG_BLIND_PLUS_DEAD_SMALL_BLIND, ANTE, BRING_IN, ENTRY_BET};
+
+    private final Random random;
+
+    public RandomActionStrategy(Random random) {
+        this.random = random;
+    }
+
+    /**
+     * Picks an action.
+     *
+     * @param request the action request
+     * @param player  the player the request is for, used for picking the cards to discard
+     * @return the action to perform
+     */
+    public PokerAction chooseAction(ActionRequest request, PokerPlayer player) {
+        int playerId = request.getPlayerId();
+        for (PokerActionType mandatory : MANDATORY_ACTIONS) {
+            if (request.isOptionEnabled(mandatory)) {
+                return createAction(playerId, request.getOption(mandatory), request.getOption(mandatory).getMinAmount());
+            }
+        }
+        if (request.isOptionEnabled(DISCARD)) {
+            Integer cardId = player.getPocketCards().getCards().get(0).getId();
+            return new DiscardAction(playerId, Collections.singletonList(cardId));
+        }
+
+        int roll = random.nextInt(100);
+        PossibleAction betOrRaise = request.isOptionEnabled(RAISE) ? request.getOption(RAISE) : request.getOption(BET);
+        if (roll < 3 && betOrRaise != null) {
+            return createAction(playerId, betOrRaise, betOrRaise.getMaxAmount());
+        } else if (roll < 20 && betOrRaise != null) {
+            return createAction(playerId, betOrRaise, betOrRaise.getMinAmount());
+        } else if (roll < 28 && request.isOptionEnabled(FOLD) && !request.isOptionEnabled(CHECK)) {
+            return new PokerAction(playerId, FOLD);
+        } else if (request.isOptionEnabled(CHECK)) {
+            return new PokerAction(playerId, CHECK);
+        } else if (request.isOptionEnabled(CALL)) {
+            return createAction(playerId, request.getOption(CALL), request.getOption(CALL).getMinAmount());
+        }
+        PossibleAction first = request.getOptions().iterator().next();
+        return createAction(playerId, first, first.getMinAmount());
+    }
+
+    private PokerAction createAction(int playerId, PossibleAction option, BigDecimal amount) {
+        PokerAction action = new PokerAction(playerId, option.getActionType());
+        action.setBetAmount(amount);
+        return action;
+    }
+}
@@ -0,0 +1,238 @@
+/**
+ * Copyright (C) 2012 Cubeia Ltd <info@cubeia.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.cubeia.poker.simulator;
+
+import com.cubeia.poker.PokerGuiceModule;
+import com.cubeia.poker.PokerVariant;
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import com.sampullara.cli.Args;
+import com.sampullara.cli.Argument;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Headless multi-table hand simulator for measuring how many hands per second the poker
+ * logic can run on one node, without Firebase.
+ * <p/>
+ * Each worker thread drives its share of the tables on its own {@link VirtualClock}, so
+ * timeouts and player think times cost no real time. Players pick random legal actions.
+ * After the warm-up hands, the simulator reports hands per second, allocated bytes per
+ * hand and latency percentiles of the calls into the poker logic per step type.
+ * <p/>
+ * Example:
+ * <pre>
+ * java -cp target/poker-benchmarks.jar com.cubeia.poker.simulator.HandSimulator -variant OMAHA -tables 200 -threads 4
+ * </pre>
+ */
+public class HandSimulator {
+
+    public static void main(String[] args) {
+        HandSimulator simulator = new HandSimulator();
+        try {
+            Args.parse(simulator, args);
+            simulator.getPokerVariant();
+        } catch (IllegalArgumentException e) {
+            System.out.println(e.getMessage());
+            Args.usage(simulator);
+            return;
+        }
+        try {
+            simulator.run().print(System.out);
+        } catch (Exception e) {
+            System.out.println("!!! FAILURE !!!");
+            e.printStackTrace();
+        }
+    }
+
+    @Argument(alias = "v", description = "poker variant, defaults to TEXAS_HOLDEM", required = false)
+    private String variant = PokerVariant.TEXAS_HOLDEM.name();
+
+    @Argument(alias = "t", description = "number of tables, defaults to 100", required = false)
+    private Integer tables = 100;
+
+    @Argument(alias = "p", description = "players per table, defaults to 6", required = false)
+    private Integer players = 6;
+
+    @Argument(alias = "n", description = "number of measured hands, defaults to 100000", required = false)
+    private Long hands = 100000L;
+
+    @Argument(alias = "w", description = "number of warm-up hands, defaults to 20000", required = false)
+    private Long warmup = 20000L;
+
+    @Argument(alias = "th", description = "number of worker threads, defaults to 1", required = false)
+    private Integer threads = 1;
+
+    @Argument(alias = "s", description = "random seed, defaults to 4711", required = false)
+    private Long seed = 4711L;
+
+    @Argument(alias = "fp", description = "use fixed-point amounts, defaults to false", required = false)
+    private Boolean fixedPoint = false;
+
+    @Argument(alias = "tp", description = "timing profile, defaults to DEFAULT", required = false)
+    private String timing = "DEFAULT";
+
+    @Argument(description = "minimum player think time in virtual millis, defaults to 500", required = false)
+    private Long minThink = 500L;
+
+    @Argument(description = "maximum player think time in virtual millis, defaults to 3000", required = false)
+    private Long maxThink = 3000L;
+
+    @Argument(alias = "pt", description = "percentage of action requests the player times out on, defaults to 1", required = false)
+    private Integer playerTimeouts = 1;
+
+    /**
+     * Runs the simulation.
+     *
+     * @return the statistics of all workers added together
+     * @throws Exception if a worker fails
+     */
+    public SimulationStatistics run() throws Exception {
+        int workers = Math.max(1, Math.min(threads, tables));
+        ExecutorService executor = Executors.newFixedThreadPool(workers);
+        try {
+            List<Future<SimulationStatistics>> results = new ArrayList<Future<SimulationStatistics>>();
+            for (int i = 0; i < workers; i++) {
+                int workerTables = tables / workers + (i < tables % workers ? 1 : 0);
+                long workerHands = hands / workers + (i < hands % workers ? 1 : 0);
+                long workerWarmup = warmup / workers + (i < warmup % workers ? 1 : 0);
+                results.add(executor.submit(new Worker(i, workerTables, workerHands, workerWarmup)));
+            }
+            SimulationStatistics total = new SimulationStatistics();
+            for (Future<SimulationStatistics> result : results) {
+                total.add(result.get());
+            }
+            return total;
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    public PokerVariant getPokerVariant() {
+        try {
+            return PokerVariant.valueOf(variant);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("unknown poker variant: " + variant);
+        }
+    }
+
+    public int getPlayers() {
+        return players;
+    }
+
+    public boolean getFixedPoint() {
+        return fixedPoint;
+    }
+
+    public String getTiming() {
+        return timing;
+    }
+
+    public long getMinThinkMillis() {
+        return minThink;
+    }
+
+    public long getMaxThinkMillis() {
+        return maxThink;
+    }
+
+    public int getPlayerTimeoutPercent() {
+        return playerTimeouts;
+    }
+
+    /**
+     * Plays the hands of a set of tables on one thread.
+     */
+    private class Worker implements Callable<SimulationStatistics> {
+
+        private final int workerId;
+
+        private final int numberOfTables;
+
+        private final long hands;
+
+        private final long warmupHands;
+
+        private Worker(int workerId, int numberOfTables, long hands, long warmupHands) {
+            this.workerId = workerId;
+            this.numberOfTables = numberOfTables;
+            this.hands = hands;
+            this.warmupHands = warmupHands;
+        }
+
+        @Override
+        public SimulationStatistics call() {
+            VirtualClock clock = new VirtualClock();
+            SimulationStatistics warmupStatistics = new SimulationStatistics();
+            SimulationStatistics statistics = new SimulationStatistics();
+
+            Injector injector = Guice.createInjector(new PokerGuiceModule());
+            List<SimulatedTable> simulatedTables = new ArrayList<SimulatedTable>(numberOfTables);
+            for (int i = 0; i < numberOfTables; i++) {
+                int tableId = workerId * tables + i;
+                simulatedTables.add(new SimulatedTable(tableId, injector, clock, warmupStatistics, HandSimulator.this,
+                        seed + 31L * tableId));
+            }
+
+            runUntil(clock, warmupStatistics, warmupHands);
+
+            for (SimulatedTable table : simulatedTables) {
+                table.setStatistics(statistics);
+            }
+            long startVirtualMillis = clock.now();
+            long startAllocated = allocatedBytes();
+            long startNanos = System.nanoTime();
+
+            runUntil(clock, statistics, hands);
+
+            statistics.setWallNanos(System.nanoTime() - startNanos);
+            long endAllocated = allocatedBytes();
+            statistics.setAllocatedBytes(startAllocated < 0 || endAllocated < 0 ? -1 : endAllocated - startAllocated);
+            statistics.setVirtualMillis(clock.now() - startVirtualMillis);
+            return statistics;
+        }
+
+        private void runUntil(VirtualClock clock, SimulationStatistics statistics, long targetHands) {
+            while (statistics.getHands() < targetHands) {
+                VirtualClock.Event event = clock.next();
+                if (event == null) {
+                    throw new IllegalStateException("all tables stopped after " + statistics.getHands() + " hands");
+                }
+                event.getTable().execute(event);
+            }
+        }
+
+        private long allocatedBytes() {
+            ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+            if (threadBean instanceof com.sun.management.ThreadMXBean) {
+                com.sun.management.ThreadMXBean sunThreadBean = (com.sun.management.ThreadMXBean) threadBean;
+                if (sunThreadBean.isThreadAllocatedMemorySupported() && sunThreadBean.isThreadAllocatedMemoryEnabled()) {
+                    return sunThreadBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+                }
+            }
+            return -1L;
+        }
+    }
+}
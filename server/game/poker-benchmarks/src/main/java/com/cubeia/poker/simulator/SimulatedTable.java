@@ -0,0 +1,257 @@
+/**
+ * Copyright (C) 2012 Cubeia Ltd <info@cubeia.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.cubeia.poker.simulator;
+
+import com.cubeia.poker.MockPlayer;
+import com.cubeia.poker.PokerGuiceModule;
+import com.cubeia.poker.PokerState;
+import com.cubeia.poker.PokerVariant;
+import com.cubeia.poker.action.ActionRequest;
+import com.cubeia.poker.action.PokerAction;
+import com.cubeia.poker.adapter.HandEndStatus;
+import com.cubeia.poker.benchmark.HandDriver;
+import com.cubeia.poker.benchmark.RandomActionStrategy;
+import com.cubeia.poker.settings.PokerSettings;
+import com.cubeia.poker.simulator.VirtualClock.EventType;
+import com.cubeia.poker.states.WaitingToStartSTM;
+import com.cubeia.poker.variant.factory.GameTypeFactory;
+import com.google.inject.Injector;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Random;
+
+import static com.cubeia.poker.action.PokerActionType.*;
+
+/**
+ * A poker table driven by a {@link VirtualClock}.
+ * <p/>
+ * Scheduled timeouts and player actions are verified against the current request sequence
+ * the same way the Firebase adapter does it, so stale timeouts are ignored. Every action
+ * request schedules a player timeout, which is canceled when the player acts, and the
+ * player's action after a random think time. All balances are restored and all players
+ * are sat in again after every hand.
+ */
+public class SimulatedTable {
+
+    private static final int NO_SEQUENCE = -1;
+
+    private final int tableId;
+
+    private final PokerState state;
+
+    private final VirtualClock clock;
+
+    private SimulationStatistics statistics;
+
+    private final MockPlayer[] players;
+
+    private final BigDecimal startingBalance = new BigDecimal("100.00");
+
+    private final RandomActionStrategy strategy;
+
+    private final Random random;
+
+    private final long minThinkMillis;
+
+    private final long maxThinkMillis;
+
+    private final int playerTimeoutPercent;
+
+    /**
+     * Request sequence of each player's pending player timeout, indexed like the players.
+     */
+    private final int[] pendingTimeouts;
+
+    private int requestSequence;
+
+    private int currentSequence = NO_SEQUENCE;
+
+    private long handNanos;
+
+    private boolean handEnded;
+
+    public SimulatedTable(int tableId, Injector injector, VirtualClock clock, SimulationStatistics statistics,
+                          HandSimulator settings, long seed) {
+        this.tableId = tableId;
+        this.clock = clock;
+        this.statistics = statistics;
+        this.random = new Random(seed);
+        this.strategy = new RandomActionStrategy(new Random(seed + 1));
+        this.minThinkMillis = settings.getMinThinkMillis();
+        this.maxThinkMillis = Math.max(settings.getMinThinkMillis(), settings.getMaxThinkMillis());
+        this.playerTimeoutPercent = settings.getPlayerTimeoutPercent();
+
+        PokerVariant variant = settings.getPokerVariant();
+        int numberOfPlayers = settings.getPlayers();
+        PokerSettings pokerSettings = HandDriver.createSettings(variant, numberOfPlayers, settings.getTiming(),
+                settings.getFixedPoint());
+
+        state = injector.getInstance(PokerState.class);
+        state.init(GameTypeFactory.createGameType(variant), pokerSettings);
+        state.setTableId(tableId);
+        state.setServerAdapter(new SimulatorServerAdapter(this, new Random(seed + 2)));
+
+        players = new MockPlayer[numberOfPlayers];
+        pendingTimeouts = new int[numberOfPlayers];
+        Arrays.fill(pendingTimeouts, NO_SEQUENCE);
+        for (int i = 0; i < numberOfPlayers; i++) {
+            players[i] = new MockPlayer(i);
+            players[i].setSeatId(i);
+            players[i].setBalance(startingBalance);
+            players[i].setHasPostedEntryBet(true);
+            // Joining players start the table, which schedules the first hand
+            state.addPlayer(players[i]);
+        }
+    }
+
+    public int getTableId() {
+        return tableId;
+    }
+
+    /**
+     * Sets the statistics to record to, e.g. after the warm-up.
+     *
+     * @param statistics statistics of the worker running this table
+     */
+    public void setStatistics(SimulationStatistics statistics) {
+        this.statistics = statistics;
+    }
+
+    /**
+     * Executes a scheduled event.
+     *
+     * @param event event for this table
+     */
+    public void execute(VirtualClock.Event event) {
+        StepType stepType;
+        long start;
+        switch (event.getType()) {
+            case TIMEOUT:
+                if (event.getSequence() != currentSequence) {
+                    statistics.staleEvent();
+                    return;
+                }
+                stepType = state.getGameState() instanceof WaitingToStartSTM ? StepType.HAND_START : StepType.ROUND_TIMEOUT;
+                start = System.nanoTime();
+                state.timeout();
+                break;
+
+            case PLAYER_TIMEOUT:
+                int index = indexOf(event.getRequest().getPlayerId());
+                if (event.getSequence() != currentSequence || pendingTimeouts[index] != event.getSequence()) {
+                    statistics.staleEvent();
+                    return;
+                }
+                pendingTimeouts[index] = NO_SEQUENCE;
+                currentSequence = NO_SEQUENCE;
+                stepType = StepType.PLAYER_TIMEOUT;
+                start = System.nanoTime();
+                state.timeout();
+                break;
+
+            default:
+                ActionRequest request = event.getRequest();
+                if (currentSequence == NO_SEQUENCE || event.getSequence() != currentSequence) {
+                    statistics.staleEvent();
+                    return;
+                }
+                int playerIndex = indexOf(request.getPlayerId());
+                PokerAction action = strategy.chooseAction(request, players[playerIndex]);
+                stepType = classify(request);
+                start = System.nanoTime();
+                if (state.act(action)) {
+                    if (pendingTimeouts[playerIndex] == event.getSequence()) {
+                        pendingTimeouts[playerIndex] = NO_SEQUENCE;
+                    }
+                } else {
+                    // The pending player timeout takes care of it
+                    statistics.rejectedAction();
+                }
+                break;
+        }
+        long elapsed = System.nanoTime() - start;
+        statistics.recordStep(stepType, elapsed);
+        handNanos += elapsed;
+
+        if (handEnded) {
+            statistics.recordHand(handNanos);
+            handNanos = 0;
+            handEnded = false;
+            preparePlayersForNextHand();
+        }
+    }
+
+    void scheduleTimeout(long millis) {
+        currentSequence = NO_SEQUENCE;
+        clock.schedule(millis, this, EventType.TIMEOUT, NO_SEQUENCE, null);
+    }
+
+    void requestActions(Collection<ActionRequest> requests) {
+        int sequence = ++requestSequence;
+        for (ActionRequest request : requests) {
+            pendingTimeouts[indexOf(request.getPlayerId())] = sequence;
+            clock.schedule(request.getTimeToAct(), this, EventType.PLAYER_TIMEOUT, sequence, request);
+            if (random.nextInt(100) >= playerTimeoutPercent) {
+                long thinkMillis = minThinkMillis + (long) (random.nextDouble() * (maxThinkMillis - minThinkMillis));
+                clock.schedule(thinkMillis, this, EventType.ACTION, sequence, request);
+            }
+        }
+        currentSequence = sequence;
+    }
+
+    void handEnded(HandEndStatus status) {
+        handEnded = true;
+        if (status != HandEndStatus.NORMAL) {
+            statistics.canceledHand();
+        }
+    }
+
+    private void preparePlayersForNextHand() {
+        for (MockPlayer player : players) {
+            player.setBalance(startingBalance);
+            if (player.isSittingOut()) {
+                state.playerIsSittingIn(player.getId());
+            }
+        }
+    }
+
+    private StepType classify(ActionRequest request) {
+        if (request.isOptionEnabled(SMALL_BLIND) || request.isOptionEnabled(BIG_BLIND)
+                || request.isOptionEnabled(BIG_BLIND_PLUS_DEAD_SMALL_BLIND) || request.isOptionEnabled(ENTRY_BET)) {
+            return StepType.BLINDS;
+        } else if (request.isOptionEnabled(ANTE)) {
+            return StepType.ANTE;
+        } else if (request.isOptionEnabled(BRING_IN)) {
+            return StepType.BRING_IN;
+        } else if (request.isOptionEnabled(DISCARD)) {
+            return StepType.DISCARD;
+        }
+        return StepType.BETTING;
+    }
+
+    private int indexOf(int playerId) {
+        for (int i = 0; i < players.length; i++) {
+            if (players[i].getId() == playerId) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException("unknown player " + playerId + " at table " + tableId);
+    }
+}
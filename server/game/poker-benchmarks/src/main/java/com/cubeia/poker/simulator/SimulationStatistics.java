@@ -0,0 +1,147 @@
+/**
+ * Copyright (C) 2012 Cubeia Ltd <info@cubeia.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.cubeia.poker.simulator;
+
+import java.io.PrintStream;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Counters and latency histograms of a simulation run. Not thread safe, every worker thread
+ * has its own statistics which are added together at the end.
+ */
+public class SimulationStatistics {
+
+    private final Map<StepType, LatencyHistogram> stepLatencies = new EnumMap<StepType, LatencyHistogram>(StepType.class);
+
+    private final LatencyHistogram handLatency = new LatencyHistogram();
+
+    private long hands;
+
+    private long canceledHands;
+
+    private long rejectedActions;
+
+    private long staleEvents;
+
+    private long wallNanos;
+
+    private long virtualMillis;
+
+    /**
+     * Allocated bytes, -1 if allocation measurement is not supported by the JVM.
+     */
+    private long allocatedBytes;
+
+    public SimulationStatistics() {
+        for (StepType type : StepType.values()) {
+            stepLatencies.put(type, new LatencyHistogram());
+        }
+    }
+
+    public void recordStep(StepType type, long nanos) {
+        stepLatencies.get(type).record(nanos);
+    }
+
+    /**
+     * Records a finished hand.
+     *
+     * @param nanos time spent in the poker logic for the hand, i.e. the sum of its step latencies
+     */
+    public void recordHand(long nanos) {
+        hands++;
+        handLatency.record(nanos);
+    }
+
+    public void canceledHand() {
+        canceledHands++;
+    }
+
+    public void rejectedAction() {
+        rejectedActions++;
+    }
+
+    public void staleEvent() {
+        staleEvents++;
+    }
+
+    public long getHands() {
+        return hands;
+    }
+
+    public void setWallNanos(long wallNanos) {
+        this.wallNanos = wallNanos;
+    }
+
+    public void setVirtualMillis(long virtualMillis) {
+        this.virtualMillis = virtualMillis;
+    }
+
+    public void setAllocatedBytes(long allocatedBytes) {
+        this.allocatedBytes = allocatedBytes;
+    }
+
+    /**
+     * Adds the statistics of another worker. Wall and virtual time are the maximum of the two
+     * since the workers run in parallel.
+     *
+     * @param other statistics to add
+     */
+    public void add(SimulationStatistics other) {
+        for (StepType type : StepType.values()) {
+            stepLatencies.get(type).add(other.stepLatencies.get(type));
+        }
+        handLatency.add(other.handLatency);
+        hands += other.hands;
+        canceledHands += other.canceledHands;
+        rejectedActions += other.rejectedActions;
+        staleEvents += other.staleEvents;
+        wallNanos = Math.max(wallNanos, other.wallNanos);
+        virtualMillis = Math.max(virtualMillis, other.virtualMillis);
+        allocatedBytes = allocatedBytes < 0 || other.allocatedBytes < 0 ? -1 : allocatedBytes + other.allocatedBytes;
+    }
+
+    public void print(PrintStream out) {
+        double seconds = wallNanos / 1e9;
+        out.printf("hands:            %d (%d canceled)%n", hands, canceledHands);
+        out.printf("wall time:        %.2f s%n", seconds);
+        out.printf("virtual time:     %.1f h%n", virtualMillis / 3600000.0);
+        out.printf("hands/sec:        %.0f%n", seconds == 0 ? 0.0 : hands / seconds);
+        if (allocatedBytes >= 0 && hands > 0) {
+            out.printf("allocation/hand:  %d bytes%n", allocatedBytes / hands);
+        } else {
+            out.printf("allocation/hand:  n/a%n");
+        }
+        out.printf("rejected actions: %d, stale events: %d%n", rejectedActions, staleEvents);
+        out.println();
+        out.printf("%-15s %10s %10s %10s %10s %10s %10s%n", "latency (us)", "count", "mean", "p50", "p99", "p99.9", "max");
+        for (StepType type : StepType.values()) {
+            printLatency(out, type.name(), stepLatencies.get(type));
+        }
+        printLatency(out, "HAND", handLatency);
+    }
+
+    private void printLatency(PrintStream out, String name, LatencyHistogram histogram) {
+        if (histogram.getCount() == 0) {
+            return;
+        }
+        out.printf("%-15s %10d %10.1f %10.1f %10.1f %10.1f %10.1f%n", name, histogram.getCount(),
+                histogram.getMean() / 1000.0, histogram.getPercentile(50) / 1000.0, histogram.getPercentile(99) / 1000.0,
+                histogram.getPercentile(99.9) / 1000.0, histogram.getMax() / 1000.0);
+    }
+}
@@ -0,0 +1,67 @@
+/**
+ * Copyright (C) 2012 Cubeia Ltd <info@cubeia.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.cubeia.poker.simulator;
+
+import com.cubeia.poker.MockServerAdapter;
+import com.cubeia.poker.action.ActionRequest;
+import com.cubeia.poker.action.PokerAction;
+import com.cubeia.poker.adapter.HandEndStatus;
+import com.cubeia.poker.player.PokerPlayer;
+import com.cubeia.poker.result.HandResult;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Random;
+
+/**
+ * Server adapter of a simulated table. Timeouts and action requests are handed to the
+ * table, which schedules them on the virtual clock. Other notifications are dropped.
+ */
+public class SimulatorServerAdapter extends MockServerAdapter {
+
+    private final SimulatedTable table;
+
+    public SimulatorServerAdapter(SimulatedTable table, Random random) {
+        this.table = table;
+        this.random = random;
+    }
+
+    @Override
+    public void scheduleTimeout(long millis) {
+        table.scheduleTimeout(millis);
+    }
+
+    @Override
+    public void requestAction(ActionRequest request) {
+        table.requestActions(Collections.singletonList(request));
+    }
+
+    @Override
+    public void requestMultipleActions(Collection<ActionRequest> requests) {
+        table.requestActions(requests);
+    }
+
+    @Override
+    public void notifyActionPerformed(PokerAction action, PokerPlayer pokerPlayer) {
+    }
+
+    @Override
+    public void notifyHandEnd(HandResult result, HandEndStatus status, boolean tournamentTable) {
+        table.handEnded(status);
+    }
+}
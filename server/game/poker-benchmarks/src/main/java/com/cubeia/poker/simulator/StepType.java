@@ -0,0 +1,56 @@
+/**
+ * Copyright (C) 2012 Cubeia Ltd <info@cubeia.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.cubeia.poker.simulator;
+
+/**
+ * Kind of a simulation step, i.e. a single call into the poker state.
+ * Player actions are classified by the action request they answer.
+ */
+public enum StepType {
+
+    /**
+     * Start new hand timeout.
+     */
+    HAND_START,
+
+    /**
+     * Small blind, big blind or entry bet.
+     */
+    BLINDS,
+
+    ANTE,
+
+    BRING_IN,
+
+    DISCARD,
+
+    /**
+     * Check, call, bet, raise or fold.
+     */
+    BETTING,
+
+    /**
+     * Any other scheduled timeout, e.g. dealing the next street or ending the hand.
+     */
+    ROUND_TIMEOUT,
+
+    /**
+     * A player did not act in time.
+     */
+    PLAYER_TIMEOUT
+}
@@ -0,0 +1,120 @@
+/**
+ * Copyright (C) 2012 Cubeia Ltd <info@cubeia.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.cubeia.poker.simulator;
+
+import com.cubeia.poker.action.ActionRequest;
+
+import java.util.PriorityQueue;
+
+/**
+ * Virtual time for a set of simulated tables.
+ * <p/>
+ * Scheduled timeouts and player actions are queued with their virtual due time and
+ * executed in order, jumping directly to the next due time instead of waiting.
+ * Events due at the same time are executed in the order they were scheduled.
+ */
+public class VirtualClock {
+
+    private final PriorityQueue<Event> events = new PriorityQueue<Event>();
+
+    private long now;
+
+    private long scheduledEvents;
+
+    /**
+     * Returns the current virtual time.
+     *
+     * @return virtual milliseconds since the start of the simulation
+     */
+    public long now() {
+        return now;
+    }
+
+    public void schedule(long delayMillis, SimulatedTable table, EventType type, int sequence, ActionRequest request) {
+        events.add(new Event(now + Math.max(0L, delayMillis), scheduledEvents++, table, type, sequence, request));
+    }
+
+    /**
+     * Takes the next event and advances the time to its due time.
+     *
+     * @return the next event, null if nothing is scheduled
+     */
+    public Event next() {
+        Event event = events.poll();
+        if (event != null) {
+            now = event.time;
+        }
+        return event;
+    }
+
+    public enum EventType {
+        TIMEOUT, PLAYER_TIMEOUT, ACTION
+    }
+
+    /**
+     * A scheduled event. The sequence is the request sequence of the table at the time
+     * the event was scheduled, -1 for timeouts not related to an action request.
+     */
+    public static class Event implements Comparable<Event> {
+
+        private final long time;
+
+        private final long order;
+
+        private final SimulatedTable table;
+
+        private final EventType type;
+
+        private final int sequence;
+
+        private final ActionRequest request;
+
+        private Event(long time, long order, SimulatedTable table, EventType type, int sequence, ActionRequest request) {
+            this.time = time;
+            this.order = order;
+            this.table = table;
+            this.type = type;
+            this.sequence = sequence;
+            this.request = request;
+        }
+
+        public SimulatedTable getTable() {
+            return table;
+        }
+
+        public EventType getType() {
+            return type;
+        }
+
+        public int getSequence() {
+            return sequence;
+        }
+
+        public ActionRequest getRequest() {
+            return request;
+        }
+
+        @Override
+        public int compareTo(Event other) {
+            if (time != other.time) {
+                return time < other.time ? -1 : 1;
+            }
+            return order < other.order ? -1 : (order == other.order ? 0 : 1);
+        }
+    }
+}
@@ -0,0 +1,118 @@
+/**
+ * Copyright (C) 2012 Cubeia Ltd <info@cubeia.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.cubeia.poker.simulator;
+
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void testEmptyHistogram() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertThat(histogram.getCount(), is(0L));
+        assertThat(histogram.getPercentile(50), is(0L));
+        assertThat(histogram.getMean(), is(0.0));
+    }
+
+    @Test
+    public void testSmallValuesAreExact() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long value = 1; value <= 20; value++) {
+            histogram.record(value);
+        }
+        assertThat(histogram.getPercentile(0), is(1L));
+        assertThat(histogram.getPercentile(50), is(10L));
+        assertThat(histogram.getPercentile(90), is(18L));
+        assertThat(histogram.getPercentile(100), is(20L));
+        assertThat(histogram.getMean(), is(10.5));
+    }
+
+    @Test
+    public void testValueReportedAsUpperBoundOfItsBucket() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(31);
+        histogram.record(32);
+        histogram.record(1000);
+
+        // 31 is the last exact value, 32 and 33 share a bucket
+        assertThat(histogram.getPercentile(33), is(31L));
+        assertThat(histogram.getPercentile(66), is(33L));
+    }
+
+    @Test
+    public void testBucketBoundaryAtPowerOfTwo() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(63);
+        histogram.record(64);
+        histogram.record(1000);
+
+        // 63 closes the [62, 63] bucket, 64 opens the [64, 67] bucket
+        assertThat(histogram.getPercentile(33), is(63L));
+        assertThat(histogram.getPercentile(50), is(67L));
+    }
+
+    @Test
+    public void testPercentileNeverAboveMax() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(64);
+        assertThat(histogram.getPercentile(100), is(64L));
+        assertThat(histogram.getMax(), is(64L));
+    }
+
+    @Test
+    public void testLargeValuesWithinBucketPrecision() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(1000000L);
+        histogram.record(Long.MAX_VALUE);
+
+        long median = histogram.getPercentile(50);
+        assertTrue(median >= 1000000L);
+        assertTrue(median < 1000000L + 1000000L / 16);
+        assertThat(histogram.getPercentile(100), is(Long.MAX_VALUE));
+    }
+
+    @Test
+    public void testNegativeValuesRecordedAsZero() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(-5);
+        assertThat(histogram.getCount(), is(1L));
+        assertThat(histogram.getPercentile(100), is(0L));
+    }
+
+    @Test
+    public void testAdd() {
+        LatencyHistogram a = new LatencyHistogram();
+        a.record(10);
+        a.record(20);
+        LatencyHistogram b = new LatencyHistogram();
+        b.record(5);
+        b.record(100);
+
+        a.add(b);
+
+        assertThat(a.getCount(), is(4L));
+        assertThat(a.getMax(), is(100L));
+        assertThat(a.getMean(), is(33.75));
+        assertThat(a.getPercentile(25), is(5L));
+        assertThat(a.getPercentile(75), is(20L));
+    }
+}
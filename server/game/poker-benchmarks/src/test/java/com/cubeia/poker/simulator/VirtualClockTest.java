@@ -0,0 +1,88 @@
+/**
+ * Copyright (C) 2012 Cubeia Ltd <info@cubeia.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.cubeia.poker.simulator;
+
+import com.cubeia.poker.simulator.VirtualClock.Event;
+import com.cubeia.poker.simulator.VirtualClock.EventType;
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+public class VirtualClockTest {
+
+    @Test
+    public void testEventsTakenInTimeOrder() {
+        VirtualClock clock = new VirtualClock();
+        clock.schedule(300, null, EventType.ACTION, 3, null);
+        clock.schedule(100, null, EventType.TIMEOUT, 1, null);
+        clock.schedule(200, null, EventType.PLAYER_TIMEOUT, 2, null);
+
+        assertThat(clock.next().getSequence(), is(1));
+        assertThat(clock.now(), is(100L));
+        assertThat(clock.next().getSequence(), is(2));
+        assertThat(clock.now(), is(200L));
+        Event last = clock.next();
+        assertThat(last.getType(), is(EventType.ACTION));
+        assertThat(clock.now(), is(300L));
+    }
+
+    @Test
+    public void testEventsDueAtTheSameTimeTakenInScheduleOrder() {
+        VirtualClock clock = new VirtualClock();
+        for (int sequence = 0; sequence < 5; sequence++) {
+            clock.schedule(50, null, EventType.ACTION, sequence, null);
+        }
+        for (int sequence = 0; sequence < 5; sequence++) {
+            assertThat(clock.next().getSequence(), is(sequence));
+        }
+    }
+
+    @Test
+    public void testDelayIsRelativeToCurrentTime() {
+        VirtualClock clock = new VirtualClock();
+        clock.schedule(100, null, EventType.TIMEOUT, 1, null);
+        clock.next();
+
+        clock.schedule(50, null, EventType.TIMEOUT, 2, null);
+        clock.next();
+        assertThat(clock.now(), is(150L));
+    }
+
+    @Test
+    public void testNegativeDelayDueNow() {
+        VirtualClock clock = new VirtualClock();
+        clock.schedule(100, null, EventType.TIMEOUT, 1, null);
+        clock.next();
+
+        clock.schedule(-20, null, EventType.TIMEOUT, 2, null);
+        clock.next();
+        assertThat(clock.now(), is(100L));
+    }
+
+    @Test
+    public void testNextWithoutEvents() {
+        VirtualClock clock = new VirtualClock();
+        clock.schedule(100, null, EventType.TIMEOUT, 1, null);
+        clock.next();
+
+        assertThat(clock.next(), nullValue());
+        assertThat(clock.now(), is(100L));
+    }
+}
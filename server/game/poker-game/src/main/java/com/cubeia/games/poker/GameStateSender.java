@@ -21,10 +21,11 @@ import com.cubeia.firebase.api.action.GameAction;
 import com.cubeia.firebase.api.action.GameDataAction;
 import com.cubeia.firebase.api.game.table.Table;
 import com.cubeia.firebase.io.ProtocolObject;
-import com.cubeia.firebase.io.StyxSerializer;
 import com.cubeia.games.poker.cache.ActionCache;
 import com.cubeia.games.poker.cache.ActionContainer;
+import com.cubeia.games.poker.cache.WatcherReplay;
 import com.cubeia.games.poker.common.time.SystemTime;
+import com.cubeia.games.poker.io.PokerProtocolCodec;
 import com.cubeia.games.poker.io.protocol.*;
 import com.cubeia.games.poker.util.ProtocolFactory;
 import com.google.common.annotations.VisibleForTesting;
@@ -33,6 +34,8 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.LinkedList;
 import java.util.List;
@@ -74,6 +77,54 @@ public class GameStateSender {
         }
     }
 
+    /**
+     * Sends the game state to a player joining the table as a watcher.
+     * <p/>
+     * The actions are taken from the {@link WatcherReplay} of the table, which is already filtered,
+     * and are sent as cached. Only the action requests and disconnect packets are packed again with
+     * the time left to act, into new actions so the cached packets are left as they were for the
+     * next watcher. A watcher with actions of their own in the hand, e.g. a player who folded and
+     * left the seat, gets the game state built by {@link #sendGameState(Table, int)}.
+     *
+     * @param table    the table
+     * @param playerId id of the watching player
+     */
+    public void sendGameStateToWatcher(Table table, int playerId) {
+        int tableId = table.getId();
+        WatcherReplay replay = actionCache.getWatcherReplay(tableId);
+        if (replay.hasActionsFor(playerId)) {
+            sendGameState(table, playerId);
+            return;
+        }
+
+        try {
+            ProtocolFactory protocolFactory = new ProtocolFactory();
+
+            log.debug("sending watcher replay to client, player id = {}, replay version = {}", playerId, replay.getVersion());
+            List<ActionContainer> containers = replay.getActions();
+            List<GameAction> actions = new ArrayList<GameAction>(containers.size() + 3);
+            actions.add(protocolFactory.createGameAction(new StartHandHistory(), playerId, tableId));
+
+            for (ActionContainer container : containers) {
+                if (container.getTimedPacket() != null) {
+                    actions.add(copyWithTimeLeft(container, container.getTimeToAct(), container.getTimestamp()));
+                } else {
+                    actions.add(container.getGameAction());
+                }
+            }
+            ActionContainer pendingRequest = replay.getPendingRequest();
+            if (pendingRequest != null) {
+                actions.add(copyWithTimeLeft(pendingRequest, replay.getPendingTimeToAct(), replay.getPendingTimestamp()));
+            }
+
+            actions.add(protocolFactory.createGameAction(new StopHandHistory(), playerId, tableId));
+
+            table.getNotifier().notifyPlayer(playerId, actions);
+        } catch (Exception e) {
+            log.error("Failed to create and send game state to watcher " + playerId, e);
+        }
+    }
+
     /**
      * 1. Filter the game actions list by removing all GameDataActions containing RequestAction packets
      * that have been answered by a PerformAction.
@@ -84,6 +135,9 @@ public class GameStateSender {
      * <p/>
      * If there is one last action request and a disconnect after that we will adjust the
      * time out for that action request.
+     * <p/>
+     * The packet types and times to act are read from the containers, only the packets
+     * with an adjusted time to act are packed again.
      *
      * @param actions   actions to filter
      * @param playerId, player id to check for exclusion.
@@ -92,109 +146,93 @@ public class GameStateSender {
      */
     @VisibleForTesting
     protected List<GameAction> filterRequestActions(Collection<ActionContainer> actions, int playerId) throws IOException {
-        LinkedList<GameAction> filteredActions = new LinkedList<GameAction>();
-        StyxSerializer styxalizer = new StyxSerializer(new ProtocolObjectFactory());
+        List<GameAction> filteredActions = new ArrayList<GameAction>(actions.size());
 
-        ActionContainer lastContainer = null;
-        Long lastRequestTimeStamp = null;
-        RequestAction lastRequest = null;
+        ActionContainer lastRequest = null;
+        int lastRequestTimeToAct = 0;
+        long lastRequestTimeStamp = 0;
 
         for (ActionContainer container : actions) {
             if (container.getExcludedPlayerId() != null && container.getExcludedPlayerId() == playerId) {
                 continue; // Exclude this action from the list
             }
 
-            GameAction ga = container.getGameAction();
-            if (ga instanceof GameDataAction) {
-                GameDataAction gda = (GameDataAction) ga;
-                ProtocolObject packet;
-                try {
-                    packet = styxalizer.unpack(gda.getData());
-
-                    if (packet instanceof RequestAction) {
-
-                        // special case for ante since that can be sent out of order
-                        // we need to always send all ante
-                        RequestAction requestAction = (RequestAction) packet;
-
-                        boolean anteAllowed = false;
-
-                        for (PlayerAction playerAction : requestAction.allowedActions) {
-                            if (playerAction.type == Enums.ActionType.ANTE) {
-                                anteAllowed = true;
-                            }
-                        }
-
-                        if (anteAllowed) {
-                            ga = adjustTimeToAct(styxalizer, container, requestAction, container.getTimestamp());
-                            filteredActions.add(ga);
-                        } else {
-                            lastRequest = requestAction;
-                            lastContainer = container;
-                            lastRequestTimeStamp = container.getTimestamp();
-                        }
-
-                    } else if (packet instanceof PlayerDisconnectedPacket) {
-                        PlayerDisconnectedPacket disconnect = (PlayerDisconnectedPacket) packet;
-                        // Store and send packet, but also adjust the time out for this disconnect
-                        // and the last found action request to make it easier for the client.
-                        if (lastRequest != null) {
-                            lastRequest.timeToAct = disconnect.timebank;
-                            lastRequestTimeStamp = container.getTimestamp();
-                        }
-                        // ordering is important here, the adjust time method will change the time allows on
-                        // the disconnect which is also used above. So, we change it after we have modified last request action
-                        ga = adjustTimeToAct(styxalizer, container, disconnect);
-                        filteredActions.add(ga);
-
-                    } else if (packet instanceof PerformAction) {
-                        lastRequest = null;
-                        lastContainer = null;
-                        lastRequestTimeStamp = null;
-                        filteredActions.add(ga);
-
-                    } else {
-                        filteredActions.add(ga);
-                    }
-                } catch (IOException e) {
-                    log.error("error unpacking cached packet", e);
+            int classId = container.getPacketClassId();
+            if (classId == ActionContainer.REQUEST_ACTION) {
+                // special case for ante since that can be sent out of order
+                // we need to always send all ante
+                if (container.isAnteRequest()) {
+                    filteredActions.add(adjustTimeToAct(container, container.getTimeToAct(), container.getTimestamp()));
+                } else {
+                    lastRequest = container;
+                    lastRequestTimeToAct = container.getTimeToAct();
+                    lastRequestTimeStamp = container.getTimestamp();
+                }
+
+            } else if (classId == ActionContainer.PLAYER_DISCONNECTED) {
+                // Store and send packet, but also adjust the time out for this disconnect
+                // and the last found action request to make it easier for the client.
+                if (lastRequest != null) {
+                    lastRequestTimeToAct = container.getTimeToAct();
+                    lastRequestTimeStamp = container.getTimestamp();
                 }
+                filteredActions.add(adjustTimeToAct(container, container.getTimeToAct(), container.getTimestamp()));
+
+            } else if (classId == ActionContainer.PERFORM_ACTION) {
+                lastRequest = null;
+                filteredActions.add(container.getGameAction());
+
             } else {
-                filteredActions.add(ga);
+                filteredActions.add(container.getGameAction());
             }
         }
 
         // If we have an unanswered request then adjust the time left to act and add it last
         if (lastRequest != null) {
-            GameDataAction requestAction = adjustTimeToAct(styxalizer, lastContainer, lastRequest, lastRequestTimeStamp);
-            filteredActions.add(requestAction);
+            filteredActions.add(adjustTimeToAct(lastRequest, lastRequestTimeToAct, lastRequestTimeStamp));
         }
 
         return filteredActions;
     }
 
-    private GameDataAction adjustTimeToAct(StyxSerializer styxalizer, ActionContainer lastContainer, RequestAction lastRequest, Long timerTimeStamp) throws IOException {
-        long elapsed = dateFetcher.date().getMillis() - timerTimeStamp;
-        int timeToAct = lastRequest.timeToAct - (int) elapsed;
-        if (timeToAct < 0) {
-            timeToAct = 0;
-        }
-        lastRequest.timeToAct = timeToAct;
-        GameDataAction requestAction = (GameDataAction) lastContainer.getGameAction();
-        requestAction.setData(styxalizer.pack(lastRequest));
-        return requestAction;
+    /**
+     * Packs the action request or disconnect packet of the container with the time left to act.
+     *
+     * @param container     container of a request or disconnect packet
+     * @param timeToAct     time to act when the timer started
+     * @param timerTimeStamp when the timer started
+     * @return the cached action with the adjusted packet
+     */
+    private GameDataAction adjustTimeToAct(ActionContainer container, int timeToAct, long timerTimeStamp) {
+        GameDataAction action = (GameDataAction) container.getGameAction();
+        action.setData(packTimeLeft(container, timeToAct, timerTimeStamp));
+        return action;
     }
 
-    private GameDataAction adjustTimeToAct(StyxSerializer styxalizer, ActionContainer container, PlayerDisconnectedPacket disconnect) throws IOException {
-        long elapsed = dateFetcher.date().getMillis() - container.getTimestamp();
-        int timeToAct = disconnect.timebank - (int) elapsed;
-        if (timeToAct < 0) {
-            timeToAct = 0;
+    /**
+     * Packs the action request or disconnect packet of the container with the time left to act
+     * into a new action, the cached action is not changed.
+     */
+    private GameDataAction copyWithTimeLeft(ActionContainer container, int timeToAct, long timerTimeStamp) {
+        GameDataAction cached = (GameDataAction) container.getGameAction();
+        GameDataAction action = new GameDataAction(cached.getPlayerId(), cached.getTableId());
+        action.setData(packTimeLeft(container, timeToAct, timerTimeStamp));
+        return action;
+    }
+
+    private ByteBuffer packTimeLeft(ActionContainer container, int timeToAct, long timerTimeStamp) {
+        long elapsed = dateFetcher.date().getMillis() - timerTimeStamp;
+        int timeLeft = timeToAct - (int) elapsed;
+        if (timeLeft < 0) {
+            timeLeft = 0;
+        }
+        ProtocolObject packet = container.getTimedPacket();
+        if (packet instanceof RequestAction) {
+            ((RequestAction) packet).timeToAct = timeLeft;
+        } else {
+            ((PlayerDisconnectedPacket) packet).timebank = timeLeft;
         }
-        disconnect.timebank = timeToAct;
-        GameDataAction disconnectAction = (GameDataAction) container.getGameAction();
-        disconnectAction.setData(styxalizer.pack(disconnect));
-        return disconnectAction;
+        return PokerProtocolCodec.pack(packet);
     }
 
 }
@@ -27,6 +27,7 @@ import com.cubeia.games.poker.common.time.DefaultSystemTime;
 import com.cubeia.games.poker.handler.ActionTransformer;
 import com.cubeia.games.poker.handler.BackendCallHandler;
 import com.cubeia.games.poker.handler.BackendPlayerSessionHandler;
+import com.cubeia.games.poker.handler.HandSettlementHandler;
 import com.cubeia.games.poker.handler.PokerHandler;
 import com.cubeia.games.poker.logic.TimeoutCache;
 import com.google.inject.AbstractModule;
@@ -40,8 +41,10 @@ public class IntegrationGuiceModule extends AbstractModule {
         bind(ActionCache.class).in(Singleton.class);
         bind(HandHistoryReporter.class).in(EventScoped.class);
         bind(FirebaseServerAdapter.class).in(EventScoped.class);
+        bind(OutboundPacketBuffer.class).in(EventScoped.class);
         bind(GameStateSender.class).in(Singleton.class);
         bind(BackendCallHandler.class).in(EventScoped.class);
+        bind(HandSettlementHandler.class).in(EventScoped.class);
         bind(PokerHandler.class).in(EventScoped.class);
         bind(TournamentProcessor.class).to(Processor.class);
         bind(TournamentTableListener.class).to(PokerTableListener.class);
@@ -92,6 +92,7 @@ public class PokerTableListener implements TournamentTableListener {
         if (state.isPlayerSeated(player.getPlayerId())) {
             // rejoin
             // TODO Possibly add reconnect event to action cache?
+            resetAmountEncoding(player.getPlayerId());
             sitInPlayer(table, player);
         } else {
             addPlayer(table, player, false);
@@ -115,6 +116,7 @@ public class PokerTableListener implements TournamentTableListener {
     public void playerLeft(Table table, int playerId) {
         log.debug("Player left: " + playerId);
         stateInjector.injectAdapter(table);
+        resetAmountEncoding(playerId);
         removePlayer(table, playerId, false);
     }
 
@@ -131,12 +133,14 @@ public class PokerTableListener implements TournamentTableListener {
     public void tournamentPlayerRejoined(Table table, GenericPlayer player) {
         stateInjector.injectAdapter(table);
         log.debug("Tournament player rejoined: " + player);
+        resetAmountEncoding(player.getPlayerId());
         sendGameStateToSittingInPlayerIfNeeded(table, player);
     }
 
     @Override
     public void tournamentPlayerRemoved(Table table, int playerId, Reason reason) {
         stateInjector.injectAdapter(table);
+        resetAmountEncoding(playerId);
         removePlayer(table, playerId, true);
     }
 
@@ -154,7 +158,7 @@ public class PokerTableListener implements TournamentTableListener {
     @VisibleForTesting
     private void sendGameStateToWatcherIfNeeded(PokerState state, Table table, int playerId) {
         if (state.getPlayerInCurrentHand(playerId) == null) {
-            gameStateSender.sendGameState(table, playerId);
+            gameStateSender.sendGameStateToWatcher(table, playerId);
             state.sendGameStateTo(playerId);
         }
     }
@@ -181,6 +185,18 @@ public class PokerTableListener implements TournamentTableListener {
 
     public void watcherLeft(Table table, int playerId) {
         state.removeAsWatcher(playerId);
+        resetAmountEncoding(playerId);
+    }
+
+    /**
+     * A client that asked for amounts in minor units has to ask again after reconnecting
+     * or coming back to the table, the new client may not handle them.
+     */
+    private void resetAmountEncoding(int playerId) {
+        FirebaseState fbState = (FirebaseState) state.getAdapterState();
+        if (fbState != null) {
+            fbState.setMinorUnitAmounts(playerId, false);
+        }
     }
 
     private void sitInPlayer(Table table, GenericPlayer player) {
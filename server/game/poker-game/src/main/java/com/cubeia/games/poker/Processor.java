@@ -24,6 +24,8 @@ import org.slf4j.LoggerFactory;
 
 import com.cubeia.backend.cashgame.dto.AnnounceTableFailedResponse;
 import com.cubeia.backend.cashgame.dto.AnnounceTableResponse;
+import com.cubeia.backend.cashgame.dto.BatchHandFailedResponse;
+import com.cubeia.backend.cashgame.dto.BatchHandResponse;
 import com.cubeia.backend.cashgame.dto.CloseTableRequest;
 import com.cubeia.backend.cashgame.dto.OpenSessionFailedResponse;
 import com.cubeia.backend.cashgame.dto.OpenSessionResponse;
@@ -35,14 +37,16 @@ import com.cubeia.firebase.api.game.GameProcessor;
 import com.cubeia.firebase.api.game.TournamentProcessor;
 import com.cubeia.firebase.api.game.table.Table;
 import com.cubeia.firebase.io.ProtocolObject;
-import com.cubeia.firebase.io.StyxSerializer;
+import com.cubeia.games.poker.adapter.OutboundPacketBuffer;
 import com.cubeia.games.poker.cache.ActionCache;
 import com.cubeia.games.poker.common.time.SystemTime;
 import com.cubeia.games.poker.handler.BackendCallHandler;
+import com.cubeia.games.poker.handler.HandSettlementHandler;
+import com.cubeia.games.poker.handler.HandSettlementTimeout;
 import com.cubeia.games.poker.handler.PokerHandler;
 import com.cubeia.games.poker.handler.Trigger;
+import com.cubeia.games.poker.io.PokerProtocolCodec;
 import com.cubeia.games.poker.io.protocol.AchievementNotificationPacket;
-import com.cubeia.games.poker.io.protocol.ProtocolObjectFactory;
 import com.cubeia.games.poker.jmx.PokerStats;
 import com.cubeia.games.poker.logic.TimeoutCache;
 import com.cubeia.games.poker.state.FirebaseState;
@@ -70,11 +74,6 @@ import com.google.inject.Inject;
  */
 public class Processor implements GameProcessor, TournamentProcessor {
 
-    /**
-     * Serializer for poker packets
-     */
-    private static StyxSerializer serializer = new StyxSerializer(new ProtocolObjectFactory());
-
     private static Logger log = LoggerFactory.getLogger(Processor.class);
 
     @Inject
@@ -97,6 +96,10 @@ public class Processor implements GameProcessor, TournamentProcessor {
     @VisibleForTesting
     BackendCallHandler backendHandler;
 
+    @Inject
+    @VisibleForTesting
+    HandSettlementHandler handSettlement;
+
     @Inject
     @VisibleForTesting
     TimeoutCache timeoutCache;
@@ -113,12 +116,17 @@ public class Processor implements GameProcessor, TournamentProcessor {
     @VisibleForTesting
     SystemTime dateFetcher;
 
+    @Inject
+    @VisibleForTesting
+    OutboundPacketBuffer outbound = new OutboundPacketBuffer();
+
     /**
-     * Handles a wrapped game packet.
+     * Handles a wrapped game packet. The packets sent to the players
+     * while handling it are buffered and sent when done.
      */
     public void handle(GameDataAction action, Table table) {
         stateInjector.injectAdapter(table);
-
+        startBuffering();
         try {
             ProtocolObject packet = safeUnpack(action);
             if (packet != null) {
@@ -128,13 +136,16 @@ public class Processor implements GameProcessor, TournamentProcessor {
             }
         } catch (Throwable t) {
             log.error("Unhandled error on table", t);
+            flushBuffer(table);
             tableCloseHandler.handleUnexpectedExceptionOnTable(action, table, t);
+        } finally {
+            flushBuffer(table);
         }
     }
 
     private ProtocolObject safeUnpack(GameDataAction action) {
         try {
-            return serializer.unpack(action.getData());
+            return PokerProtocolCodec.unpack(action.getData());
         } catch (Exception e) {
             log.warn("Failed unpacking action from player " + action.getPlayerId() + ". Is he using an old version of the protocol?", e);
         }
@@ -145,9 +156,11 @@ public class Processor implements GameProcessor, TournamentProcessor {
      * Handle a wrapped object.
      *
      * <p/>
+     * The packets sent to the players while handling it are buffered and sent when done.
      */
     public void handle(GameObjectAction action, Table table) {
         stateInjector.injectAdapter(table);
+        startBuffering();
         try {
             Object attachment = action.getAttachment();
             if (attachment instanceof Trigger) {
@@ -170,6 +183,15 @@ public class Processor implements GameProcessor, TournamentProcessor {
             } else if (attachment instanceof AnnounceTableFailedResponse) {
                 log.debug("got announce table failed response: {}", attachment);
                 backendHandler.handleAnnounceTableFailedResponse();
+            } else if (attachment instanceof BatchHandResponse) {
+                log.debug("got batch hand response: {}", attachment);
+                handSettlement.handleBatchHandResponse((BatchHandResponse) attachment);
+            } else if (attachment instanceof BatchHandFailedResponse) {
+                log.debug("got batch hand failed response: {}", attachment);
+                handSettlement.handleBatchHandFailedResponse((BatchHandFailedResponse) attachment);
+            } else if (attachment instanceof HandSettlementTimeout) {
+                log.debug("got hand settlement timeout: {}", attachment);
+                handSettlement.handleSettlementTimeout((HandSettlementTimeout) attachment);
             } else if (attachment instanceof CloseTableRequest) {
                 log.debug("got close table request: {}", attachment);
                 CloseTableRequest closeTableRequest = (CloseTableRequest) attachment;
@@ -203,10 +225,28 @@ public class Processor implements GameProcessor, TournamentProcessor {
             }
         } catch (SystemShutdownException t) {
             log.debug("System is shutting down, closing table " + table.getId());
+            flushBuffer(table);
             tableCloseHandler.closeTable(table, true);
         } catch (Throwable t) {
             log.error("Failed handling game object action.", t);
+            flushBuffer(table);
             tableCloseHandler.handleUnexpectedExceptionOnTable(action, table, t);
+        } finally {
+            flushBuffer(table);
+        }
+    }
+
+    private void startBuffering() {
+        outbound.start();
+    }
+
+    /**
+     * Sends the packets buffered while handling an event, before the table
+     * is closed on errors and when done.
+     */
+    private void flushBuffer(Table table) {
+        if (outbound.isBuffering()) {
+            outbound.flush(table.getNotifier());
         }
     }
     
@@ -224,10 +264,10 @@ public class Processor implements GameProcessor, TournamentProcessor {
 		
 		if (wrapper.broadcast) {
 			log.info("Notify all players at table["+tableId+"] with event ["+notification.message+"] for player["+playerId+"]");
-			table.getNotifier().notifyAllPlayers(action);
+			outbound.notifyAllPlayers(table.getNotifier(), action, -1);
 		} else {
 			log.info("Notify player["+playerId+"] at table["+tableId+"] with event ["+notification.message+"]");
-			table.getNotifier().notifyPlayer(playerId, action);
+			outbound.notifyPlayer(table.getNotifier(), playerId, action);
 		}
 	}
 
@@ -279,7 +319,9 @@ public class Processor implements GameProcessor, TournamentProcessor {
             case TIMEOUT:
                 boolean verified = pokerHandler.verifySequence(command);
                 if (verified) {
-                    state.timeout();
+                    if (!handSettlement.deferHandStartIfWindowFull()) {
+                        state.timeout();
+                    }
                 } else {
                     log.warn("Invalid sequence detected");
                     tableCloseHandler.printActionsToErrorLog(null,
@@ -17,7 +17,6 @@
 
 package com.cubeia.games.poker;
 
-import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
@@ -34,15 +33,15 @@ import com.cubeia.firebase.api.game.player.GenericPlayer;
 import com.cubeia.firebase.api.game.table.Table;
 import com.cubeia.firebase.api.util.UnmodifiableSet;
 import com.cubeia.firebase.io.ProtocolObject;
-import com.cubeia.firebase.io.StyxSerializer;
 import com.cubeia.games.poker.adapter.FirebaseServerAdapter;
+import com.cubeia.games.poker.adapter.OutboundPacketBuffer;
 import com.cubeia.games.poker.cache.ActionCache;
 import com.cubeia.games.poker.common.lobby.PokerLobbyAttributes;
 import com.cubeia.games.poker.handler.BackendPlayerSessionHandler;
 import com.cubeia.games.poker.handler.TableCloseHandler;
+import com.cubeia.games.poker.io.PokerProtocolCodec;
 import com.cubeia.games.poker.io.protocol.Enums;
 import com.cubeia.games.poker.io.protocol.ErrorPacket;
-import com.cubeia.games.poker.io.protocol.ProtocolObjectFactory;
 import com.cubeia.games.poker.state.FirebaseState;
 import com.cubeia.poker.PokerState;
 import com.cubeia.poker.adapter.SystemShutdownException;
@@ -55,13 +54,16 @@ import com.google.inject.Inject;
 public class TableCloseHandlerImpl implements TableCloseHandler {
 
     private static Logger log = LoggerFactory.getLogger(TableCloseHandlerImpl.class);
-    private static StyxSerializer serializer = new StyxSerializer(new ProtocolObjectFactory());
 
     private final PokerState state;
     private final ActionCache actionCache;
     private final BackendPlayerSessionHandler backendPlayerSessionHandler;
     private final FirebaseServerAdapter serverAdapter;
 
+    @Inject
+    @VisibleForTesting
+    OutboundPacketBuffer outbound = new OutboundPacketBuffer();
+
     @Inject
     public TableCloseHandlerImpl(PokerState state, ActionCache actionCache, BackendPlayerSessionHandler backendPlayerSessionHandler,
                                  FirebaseServerAdapter serverAdapter) {
@@ -77,7 +79,10 @@ public class TableCloseHandlerImpl implements TableCloseHandler {
     @Override
     public void closeTable(Table table, boolean force) {
         log.debug("Close table command received; table id = {}, force = {}", table.getId(), force);
-        if (countSeated(table) == 0 || force) {
+        if ((countSeated(table) == 0 || force) && serverAdapter.hasPendingHandSettlements()) {
+            log.debug("Table {} has hands waiting for the wallet, will close it when they are settled", table.getId());
+            serverAdapter.closeTableAfterHandsSettled(force);
+        } else if (countSeated(table) == 0 || force) {
             log.info("Closing table {} with {} seated players", table.getId(), countSeated(table));
             doCloseTable(table, false, getHandId());
         } else {
@@ -134,11 +139,22 @@ public class TableCloseHandlerImpl implements TableCloseHandler {
         // 4. remove players from table
         Collection<PokerPlayer> removedPokerPlayers = removePlayersFromTable(table, players);
 
-        // 5. close player sessions
+        // 5. settle hands not yet sent to the wallet and close player sessions, sessions
+        //    of players in a hand still in flight are closed when it is settled
+        try {
+            serverAdapter.flushHandSettlements();
+        } catch (Exception e) {
+            log.error("Failed settling pending hands on table " + table.getId(), e);
+        }
         closePlayerSessions(table, removedPokerPlayers);
 
-        // 6. mark table as closed and let the activator take care of destroying it
-        markTableReadyForClose(table);
+        // 6. mark table as closed and let the activator take care of destroying it,
+        //    a table with a hand in flight is marked when the hand is settled
+        if (serverAdapter.hasPendingHandSettlements()) {
+            serverAdapter.closeTableWhenHandsSettled();
+        } else {
+            markTableReadyForClose(table);
+        }
     }
 
     private void markTableReadyForClose(Table table) {
@@ -154,6 +170,10 @@ public class TableCloseHandlerImpl implements TableCloseHandler {
     }
 
     protected void sendMessageToClient(Table table, Enums.ErrorCode errorCode, String handId) {
+        // packets buffered while handling the event must reach the players before the close message
+        if (outbound.isBuffering()) {
+            outbound.flush(table.getNotifier());
+        }
 
         // find all watchers and all players and add them to one list so we can send to all the connected players
         UnmodifiableSet<GenericPlayer> players = table.getPlayerSet().getPlayers();
@@ -172,9 +192,7 @@ public class TableCloseHandlerImpl implements TableCloseHandler {
             ErrorPacket errorPacket = new ErrorPacket(errorCode, handId);
             log.debug("Sending {} message to player: {}", errorCode, playerId);
             GameDataAction errorAction = new GameDataAction(playerId, table.getId());
-            ByteBuffer packetBuffer;
-            packetBuffer = serializer.pack(errorPacket);
-            errorAction.setData(packetBuffer);
+            errorAction.setData(PokerProtocolCodec.pack(errorPacket));
             table.getNotifier().notifyPlayer(playerId, errorAction);
         }
     }
@@ -223,7 +241,7 @@ public class TableCloseHandlerImpl implements TableCloseHandler {
     private void printToErrorLog(AbstractGameAction action, Table table, Throwable throwable) {
         if (action instanceof GameDataAction) {
             GameDataAction gda = (GameDataAction) action;
-            ProtocolObject packet = serializer.unpack(gda.getData());
+            ProtocolObject packet = PokerProtocolCodec.unpack(gda.getData());
             printActionsToErrorLog(throwable, "error handling game action: " + action + " Table: " + table.getId() + " Packet: " + packet, table);
         } else if (action instanceof GameObjectAction) {
             printActionsToErrorLog(throwable, "error handling command action: " + action + " on table: " + table, table);
@@ -248,7 +266,7 @@ public class TableCloseHandlerImpl implements TableCloseHandler {
             ProtocolObject packet = null;
             if (history instanceof GameDataAction) {
                 GameDataAction dataAction = (GameDataAction) history;
-                packet = serializer.unpack(dataAction.getData());
+                packet = PokerProtocolCodec.unpack(dataAction.getData());
             }
             error.append("\n\t" + packet);
         }
@@ -19,6 +19,8 @@ package com.cubeia.games.poker.activator;
 
 import com.cubeia.backend.firebase.CashGamesBackendService;
 import com.cubeia.firebase.guice.inject.Service;
+import com.cubeia.game.poker.config.api.PokerConfigurationService;
+import com.cubeia.game.poker.config.api.PokerSystemConfig;
 import com.cubeia.games.poker.entity.TableConfigTemplate;
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
@@ -32,6 +34,9 @@ public class ParticipantFactoryImpl implements ParticipantFactory {
     @Service
     private CashGamesBackendService backend;
 
+    @Service
+    private PokerConfigurationService configService;
+
     @Inject
     private LobbyDomainSelector domainSelector;
 
@@ -45,6 +50,12 @@ public class ParticipantFactoryImpl implements ParticipantFactory {
                 template == null ? null : domainSelector.selectLobbyDomainFor(template),
                 stateCreator,
                 backend,
-                tableNamer);
+                tableNamer,
+                useFixedPointAmounts());
+    }
+
+    private boolean useFixedPointAmounts() {
+        PokerSystemConfig config = (configService == null ? null : configService.getSystemConfig());
+        return config != null && config.useFixedPointAmounts();
     }
 }
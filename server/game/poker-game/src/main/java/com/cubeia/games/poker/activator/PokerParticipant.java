@@ -72,13 +72,19 @@ public class PokerParticipant extends DefaultCreationParticipant {
 
     private final TableNameManager tableNamer;
 
+    private final boolean fixedPointAmounts;
+
+    /**
+     * @param fixedPointAmounts true if created tables use fixed-point amounts, see {@link PokerSettings#isFixedPointAmounts()}
+     */
     public PokerParticipant(TableConfigTemplate template, String domain, PokerStateCreator stateCreator,
-            CashGamesBackendService cashGameBackendService, TableNameManager tableNamer) {
+            CashGamesBackendService cashGameBackendService, TableNameManager tableNamer, boolean fixedPointAmounts) {
         this.domain = domain;
         this.template = template;
         this.stateCreator = stateCreator;
         this.cashGameBackendService = cashGameBackendService;
         this.tableNamer = tableNamer;
+        this.fixedPointAmounts = fixedPointAmounts;
     }
 
     @Override
@@ -140,7 +146,9 @@ public class PokerParticipant extends DefaultCreationParticipant {
         BigDecimal bigBlindAmount = template.getBigBlind();
         BlindsLevel level = new BlindsLevel(smallBlindAmount, bigBlindAmount, template.getAnte());
         Currency currency = cashGameBackendService.getCurrency(template.getCurrency());
-        return new PokerSettings(template.getVariant(),level, template.getBetStrategy(), minBuyIn, maxBuyIn, template.getTiming(), seats, rake, currency, attributes);
+        PokerSettings settings = new PokerSettings(template.getVariant(),level, template.getBetStrategy(), minBuyIn, maxBuyIn, template.getTiming(), seats, rake, currency, attributes);
+        settings.setFixedPointAmounts(fixedPointAmounts);
+        return settings;
     }
 
     @Override
@@ -160,6 +168,10 @@ public class PokerParticipant extends DefaultCreationParticipant {
         return template;
     }
 
+    public boolean isFixedPointAmounts() {
+        return fixedPointAmounts;
+    }
+
     @Override
     public String toString() {
         return "PokerParticipant [domain=" + domain + ", template=" + template + "]";
@@ -34,18 +34,20 @@ import com.cubeia.firebase.api.game.table.TableType;
 import com.cubeia.firebase.api.util.UnmodifiableSet;
 import com.cubeia.firebase.guice.inject.Service;
 import com.cubeia.firebase.io.ProtocolObject;
-import com.cubeia.firebase.io.StyxSerializer;
 import com.cubeia.firebase.service.random.api.RandomService;
 import com.cubeia.game.poker.config.api.PokerConfigurationService;
 import com.cubeia.games.poker.adapter.BuyInCalculator.MinAndMaxBuyInResult;
 import com.cubeia.games.poker.adapter.domainevents.DomainEventAdapter;
 import com.cubeia.games.poker.cache.ActionCache;
+import com.cubeia.games.poker.common.money.MinorUnits;
 import com.cubeia.games.poker.common.money.Money;
 import com.cubeia.games.poker.common.time.SystemTime;
 import com.cubeia.games.poker.entity.HandIdentifier;
 import com.cubeia.games.poker.handler.ActionTransformer;
+import com.cubeia.games.poker.handler.HandSettlementHandler;
 import com.cubeia.games.poker.handler.Trigger;
 import com.cubeia.games.poker.handler.TriggerType;
+import com.cubeia.games.poker.io.PokerProtocolCodec;
 import com.cubeia.games.poker.io.protocol.*;
 import com.cubeia.games.poker.io.protocol.Currency;
 import com.cubeia.games.poker.io.protocol.Enums.BuyInInfoResultCode;
@@ -168,6 +170,15 @@ public class FirebaseServerAdapter implements ServerAdapter {
     @VisibleForTesting
     HandHistoryReporter handHistory;
 
+    @Inject
+    @VisibleForTesting
+    HandSettlementHandler handSettlement;
+
+    /**
+     * Converts amounts for players that asked for minor units, created on first use.
+     */
+    private MinorUnits minorUnits;
+
     @Service
     @VisibleForTesting
     RandomService randomService;
@@ -182,6 +193,10 @@ public class FirebaseServerAdapter implements ServerAdapter {
     @Inject
     DomainEventAdapter achievements;
 
+    @Inject
+    @VisibleForTesting
+    OutboundPacketBuffer outbound = new OutboundPacketBuffer();
+
     /*------------------------------------------------
 
          ADAPTER METHODS
@@ -367,7 +382,12 @@ public class FirebaseServerAdapter implements ServerAdapter {
         RequestAction packet = actionTransformer.transform(request, sequenceNumber);
         GameDataAction action = protocolFactory.createGameAction(packet, request.getPlayerId(), table.getId());
         log.trace("--> Send RequestAction[" + packet + "] to everyone");
-        sendPublicPacket(action, -1);
+        if (hasMinorUnitAmountPlayers()) {
+            CompactRequestAction compact = actionTransformer.transformCompact(request, sequenceNumber, getMinorUnits());
+            sendPublicPacket(action, protocolFactory.createGameAction(compact, request.getPlayerId(), table.getId()), -1);
+        } else {
+            sendPublicPacket(action, -1);
+        }
     }
 
     @Override
@@ -392,7 +412,12 @@ public class FirebaseServerAdapter implements ServerAdapter {
         PerformAction packet = actionTransformer.transform(pokerAction, pokerPlayer);
         GameDataAction action = protocolFactory.createGameAction(packet, pokerAction.getPlayerId(), table.getId());
         log.trace("--> Send PerformAction[" + packet + "] to everyone");
-        sendPublicPacket(action, -1);
+        if (hasMinorUnitAmountPlayers()) {
+            CompactPerformAction compact = actionTransformer.transformCompact(pokerAction, pokerPlayer, getMinorUnits());
+            sendPublicPacket(action, protocolFactory.createGameAction(compact, pokerAction.getPlayerId(), table.getId()), -1);
+        } else {
+            sendPublicPacket(action, -1);
+        }
         handHistory.notifyActionPerformed(pokerAction, pokerPlayer);
     }
 
@@ -402,14 +427,28 @@ public class FirebaseServerAdapter implements ServerAdapter {
         packet.cardsToDiscard = Ints.toArray(discardAction.getCardsToDiscard());
         GameDataAction action = protocolFactory.createGameAction(packet, discardAction.getPlayerId(), table.getId());
         log.trace("--> Send PerformAction[" + packet + "] to everyone");
-        sendPublicPacket(action, -1);
+        if (hasMinorUnitAmountPlayers()) {
+            CompactPerformAction compact = actionTransformer.transformCompact(discardAction, pokerPlayer, getMinorUnits());
+            compact.cardsToDiscard = packet.cardsToDiscard;
+            sendPublicPacket(action, protocolFactory.createGameAction(compact, discardAction.getPlayerId(), table.getId()), -1);
+        } else {
+            sendPublicPacket(action, -1);
+        }
         handHistory.notifyActionPerformed(discardAction, pokerPlayer);
     }
 
     @Override
     public void notifyFutureAllowedActions(PokerPlayer player, List<PokerActionType> optionList, BigDecimal callAmount, BigDecimal minBet) {
         InformFutureAllowedActions packet = new InformFutureAllowedActions(getFuturePlayerActions(optionList), callAmount.toPlainString(), minBet.toPlainString());
-        sendPrivatePacket(player.getId(), packet);
+        if (usesMinorUnitAmounts(player.getId())) {
+            MinorUnits units = getMinorUnits();
+            CompactInformFutureAllowedActions compact = new CompactInformFutureAllowedActions(packet.actions,
+                    units.toMinorUnitsRoundedDown(callAmount), units.toMinorUnitsRoundedDown(minBet));
+            sendPrivatePacket(player.getId(), protocolFactory.createGameAction(packet, player.getId(), table.getId()),
+                    protocolFactory.createGameAction(compact, player.getId(), table.getId()));
+        } else {
+            sendPrivatePacket(player.getId(), packet);
+        }
     }
 
     private List<FuturePlayerAction> getFuturePlayerActions(List<PokerActionType> optionList) {
@@ -517,6 +556,16 @@ public class FirebaseServerAdapter implements ServerAdapter {
         }
     }
 
+    /**
+     * Sets the encoding of amounts sent to a player and answers with the number of
+     * fractional digits of the table currency. The answer is not cached.
+     */
+    public void notifyAmountEncoding(int playerId, Enums.AmountEncoding encoding) {
+        getFirebaseState().setMinorUnitAmounts(playerId, encoding == Enums.AmountEncoding.MINOR_UNITS);
+        AmountEncodingResponse response = new AmountEncodingResponse(encoding, state.getSettings().getCurrency().getFractionalDigits());
+        sendToClient(playerId, protocolFactory.createGameAction(response, playerId, table.getId()));
+    }
+
     @Override
     public void notifyBuyInInfo(int playerId, boolean mandatoryBuyin) {
         try {
@@ -555,10 +604,9 @@ public class FirebaseServerAdapter implements ServerAdapter {
             log.trace("Sending buyin information to player[" + playerId + "]: " + resp);
 
             GameDataAction gda = new GameDataAction(playerId, table.getId());
-            StyxSerializer styx = new StyxSerializer(null);
-            gda.setData(styx.pack(resp));
+            gda.setData(PokerProtocolCodec.pack(resp));
 
-            table.getNotifier().notifyPlayer(playerId, gda);
+            notifyPlayer(playerId, gda);
         } catch (Exception e) {
             log.error("Failed to create buy in info response for player[" + playerId + "], mandatory[" + mandatoryBuyin + "]", e);
         }
@@ -639,18 +687,67 @@ public class FirebaseServerAdapter implements ServerAdapter {
         TableId externalTableId = getIntegrationTableId();
         Map<Integer, String> transactionIds = new HashMap<Integer, String>();
         if (!isTournament) {
-            BatchHandResponse batchHandResult = batchHand(handResult, handId, externalTableId);
+            BatchHandRequest batchHandRequest = createBatchHandRequest(handResult, handId, externalTableId);
+            if (handSettlement.isAsynchronous()) {
+                // The transaction ids are not known until the wallet has confirmed the hand,
+                // the hand history is stored with them when it is settled.
+                handSettlement.settleAsynchronously(batchHandRequest, getGameBalances());
+                handHistory.notifyHandEndPendingSettlement(handResult, handEndStatus);
+                return;
+            }
+            BatchHandResponse batchHandResult = doBatchHandResult(batchHandRequest);
             transactionIds = getTransactionIds(batchHandResult);
             validateAndUpdateBalances(batchHandResult);
         }
         handHistory.notifyHandEnd(handResult, handEndStatus, transactionIds);
     }
 
-    private BatchHandResponse batchHand(HandResult handResult, String handId, TableId externalTableId) {
+    private BatchHandRequest createBatchHandRequest(HandResult handResult, String handId, TableId externalTableId) {
         BatchHandRequest batchHandRequest = handResultBatchFactory.createAndValidateBatchHandRequest(handResult, handId, externalTableId);
         batchHandRequest.setStartTime(state.getStartTime());
         batchHandRequest.setEndTime(System.currentTimeMillis());
-        return doBatchHandResult(batchHandRequest);
+        return batchHandRequest;
+    }
+
+    private Map<Integer, BigDecimal> getGameBalances() {
+        Map<Integer, BigDecimal> balances = new HashMap<Integer, BigDecimal>();
+        for (PokerPlayer player : state.getCurrentHandPlayerMap().values()) {
+            balances.put(player.getId(), player.getBalance().add(player.getBalanceNotInHand()));
+        }
+        return balances;
+    }
+
+    /**
+     * Returns true if there are hands on this table not yet confirmed by the wallet.
+     */
+    public boolean hasPendingHandSettlements() {
+        return handSettlement != null && handSettlement.hasPendingSettlements();
+    }
+
+    /**
+     * Settles the hands not yet sent to the wallet synchronously, see
+     * {@link HandSettlementHandler#flushSynchronously(boolean)}.
+     */
+    public void flushHandSettlements() {
+        if (handSettlement != null) {
+            handSettlement.flushSynchronously(false);
+        }
+    }
+
+    /**
+     * Marks the table as ready for close when the hand in flight is settled, see
+     * {@link HandSettlementHandler#closeTableWhenSettled()}.
+     */
+    public void closeTableWhenHandsSettled() {
+        handSettlement.closeTableWhenSettled();
+    }
+
+    /**
+     * Closes the table when the pending hands are settled, see
+     * {@link HandSettlementHandler#closeTableAfterSettlement(boolean)}.
+     */
+    public void closeTableAfterHandsSettled(boolean forced) {
+        handSettlement.closeTableAfterSettlement(forced);
     }
 
     private BatchHandResponse doBatchHandResult(BatchHandRequest batchHandRequest) {
@@ -712,13 +809,23 @@ public class FirebaseServerAdapter implements ServerAdapter {
         // First send public packet to all the other players but exclude the pending balance.
         GameDataAction publicAction = actionTransformer.createPlayerBalanceAction(
                 player.getBalance(), BigDecimal.ZERO, playersTotalContributionToPot, player.getId(), table.getId());
-        sendPublicPacket(publicAction, player.getId());
+        if (hasMinorUnitAmountPlayers()) {
+            sendPublicPacket(publicAction, actionTransformer.createCompactPlayerBalanceAction(
+                    player.getBalance(), BigDecimal.ZERO, playersTotalContributionToPot, player.getId(), table.getId(), getMinorUnits()), player.getId());
+        } else {
+            sendPublicPacket(publicAction, player.getId());
+        }
 
         // Then send private packet to the player.
         GameDataAction privateAction = actionTransformer.createPlayerBalanceAction(
                 player.getBalance(), player.getPendingBalanceSum(),  playersTotalContributionToPot, player.getId(), table.getId());
         log.trace("Send private PBA: " + privateAction);
-        sendPrivatePacket(player.getId(), privateAction);
+        if (usesMinorUnitAmounts(player.getId())) {
+            sendPrivatePacket(player.getId(), privateAction, actionTransformer.createCompactPlayerBalanceAction(
+                    player.getBalance(), player.getPendingBalanceSum(), playersTotalContributionToPot, player.getId(), table.getId(), getMinorUnits()));
+        } else {
+            sendPrivatePacket(player.getId(), privateAction);
+        }
     }
 
     /**
@@ -733,6 +840,7 @@ public class FirebaseServerAdapter implements ServerAdapter {
         // Map the report to a server specific round report
         PokerTournamentRoundReport.Level currentLevel = new PokerTournamentRoundReport.Level(report.getSmallBlindAmount(), report.getBigBlindAmount(), report.getAnteAmount());
         PokerTournamentRoundReport pokerReport = new PokerTournamentRoundReport(report.getBalanceMap(), currentLevel);
+        pokerReport.setBigBlindOrder(report.getBigBlindOrder());
         MttRoundReportAction action = new MttRoundReportAction(table.getMetaData().getMttId(), table.getId());
         action.setAttachment(pokerReport);
         table.getTournamentNotifier().sendToTournament(action);
@@ -779,7 +887,12 @@ public class FirebaseServerAdapter implements ServerAdapter {
         // notify bet stacks to pots
         PotTransfers potTransfers = new PotTransfers(fromPlayerToPot, transfers, clientPots,totalPotSize.toPlainString());
         GameDataAction action = protocolFactory.createGameAction(potTransfers, 0, table.getId());
-        sendPublicPacket(action, -1);
+        if (hasMinorUnitAmountPlayers()) {
+            CompactPotTransfers compact = createCompactPotTransfers(pots, potTransitions, fromPlayerToPot, totalPotSize);
+            sendPublicPacket(action, protocolFactory.createGameAction(compact, 0, table.getId()), -1);
+        } else {
+            sendPublicPacket(action, -1);
+        }
 
         handHistory.notifyPotUpdates(pots, potTransitions);
     }
@@ -888,6 +1001,10 @@ public class FirebaseServerAdapter implements ServerAdapter {
         boolean participatingInCurrentHand = state.getPlayerInCurrentHand(playerId) != null && state.isPlaying();
 
         if (!pokerPlayer.isBuyInRequestActive() && !participatingInCurrentHand) {
+            // the unseater and the table listener send directly to the notifier
+            if (outbound.isBuffering()) {
+                outbound.flush(table.getNotifier());
+            }
             playerUnseater.unseatPlayer(table, playerId, setAsWatcher);
         }
     }
@@ -900,12 +1017,64 @@ public class FirebaseServerAdapter implements ServerAdapter {
      *
      */
     private void sendPublicPacket(GameAction action, int skipPlayerId) {
-        if (skipPlayerId < 0) {
-            table.getNotifier().notifyAllPlayers(action);
+        outbound.notifyAllPlayers(table.getNotifier(), action, skipPlayerId);
+        // Add to state cache
+        if (cache != null) {
+            cache.addPublicActionWithExclusion(table.getId(), action, skipPlayerId);
+        }
+    }
+
+    /**
+     * Sends an action with amounts in minor units to the players that asked for it and
+     * the action with decimal amounts to everyone else. Only the decimal action is cached,
+     * clients that use minor units handle both.
+     * <p/>
+     * The variant most recipients use is broadcast. The notifier can only leave out one
+     * player, so when the other group is a single player, and no player is skipped, that
+     * player is left out of the broadcast and gets its variant alone. Only when both groups
+     * are larger is the action sent to each recipient separately.
+     *
+     * @param action        action with decimal amounts
+     * @param compactAction action with amounts in minor units
+     * @param skipPlayerId  player not to send the action to, or -1 to send to all
+     */
+    private void sendPublicPacket(GameAction action, GameAction compactAction, int skipPlayerId) {
+        FirebaseState fbState = getFirebaseState();
+        List<Integer> recipients = new ArrayList<Integer>();
+        for (GenericPlayer player : table.getPlayerSet().getPlayers()) {
+            recipients.add(player.getPlayerId());
+        }
+        for (Integer watcherId : table.getWatcherSet().getWatchers()) {
+            recipients.add(watcherId);
+        }
+        recipients.remove(Integer.valueOf(skipPlayerId));
+
+        List<Integer> minorUnitRecipients = new ArrayList<Integer>();
+        List<Integer> decimalRecipients = new ArrayList<Integer>();
+        for (Integer playerId : recipients) {
+            if (fbState.usesMinorUnitAmounts(playerId)) {
+                minorUnitRecipients.add(playerId);
+            } else {
+                decimalRecipients.add(playerId);
+            }
+        }
+
+        boolean decimalMajority = decimalRecipients.size() >= minorUnitRecipients.size();
+        GameAction broadcast = decimalMajority ? action : compactAction;
+        GameAction minorityAction = decimalMajority ? compactAction : action;
+        List<Integer> minority = decimalMajority ? minorUnitRecipients : decimalRecipients;
+
+        if (minority.isEmpty()) {
+            outbound.notifyAllPlayers(table.getNotifier(), broadcast, skipPlayerId);
+        } else if (minority.size() == 1 && skipPlayerId < 0) {
+            int playerId = minority.get(0);
+            outbound.notifyAllPlayers(table.getNotifier(), broadcast, playerId);
+            notifyPlayer(playerId, minorityAction);
         } else {
-            table.getNotifier().notifyAllPlayersExceptOne(action, skipPlayerId);
+            for (Integer playerId : recipients) {
+                notifyPlayer(playerId, minority.contains(playerId) ? minorityAction : broadcast);
+            }
         }
-        // Add to state cache
         if (cache != null) {
             cache.addPublicActionWithExclusion(table.getId(), action, skipPlayerId);
         }
@@ -928,7 +1097,19 @@ public class FirebaseServerAdapter implements ServerAdapter {
      * @param action   action
      */
     private void sendPrivatePacket(int playerId, GameAction action) {
-        table.getNotifier().notifyPlayer(playerId, action);
+        notifyPlayer(playerId, action);
+
+        if (cache != null) {
+            cache.addPrivateAction(table.getId(), playerId, action);
+        }
+    }
+
+    /**
+     * Sends the action with amounts in minor units to a player that asked for it and
+     * caches the action with decimal amounts.
+     */
+    private void sendPrivatePacket(int playerId, GameAction action, GameAction compactAction) {
+        notifyPlayer(playerId, compactAction);
 
         if (cache != null) {
             cache.addPrivateAction(table.getId(), playerId, action);
@@ -940,10 +1121,57 @@ public class FirebaseServerAdapter implements ServerAdapter {
         sendPrivatePacket(playerId, action);
     }
 
+    /**
+     * Actions are buffered while the processor handles an event, see {@link OutboundPacketBuffer}.
+     */
+    private void notifyPlayer(int playerId, GameAction action) {
+        outbound.notifyPlayer(table.getNotifier(), playerId, action);
+    }
+
+    /**
+     * Sends an action to a client, whether at the table or not.
+     */
+    private void sendToClient(int playerId, GameAction action) {
+        outbound.sendToClient(table.getNotifier(), playerId, action);
+    }
+
     private FirebaseState getFirebaseState() {
         return (FirebaseState) state.getAdapterState();
     }
 
+    private boolean hasMinorUnitAmountPlayers() {
+        FirebaseState fbState = getFirebaseState();
+        return fbState != null && fbState.hasMinorUnitAmountPlayers();
+    }
+
+    private boolean usesMinorUnitAmounts(int playerId) {
+        FirebaseState fbState = getFirebaseState();
+        return fbState != null && fbState.usesMinorUnitAmounts(playerId);
+    }
+
+    private MinorUnits getMinorUnits() {
+        if (minorUnits == null) {
+            minorUnits = new MinorUnits(state.getSettings().getCurrency());
+        }
+        return minorUnits;
+    }
+
+    private CompactPotTransfers createCompactPotTransfers(Collection<com.cubeia.poker.pot.Pot> pots, Collection<PotTransition> potTransitions,
+                                                          boolean fromPlayerToPot, BigDecimal totalPotSize) {
+        MinorUnits units = getMinorUnits();
+        List<CompactPot> clientPots = new ArrayList<CompactPot>();
+        for (com.cubeia.poker.pot.Pot pot : pots) {
+            clientPots.add(actionTransformer.createCompactPotUpdatePacket(pot.getId(), pot.getPotSize(), units));
+        }
+        List<CompactPotTransfer> transfers = new ArrayList<CompactPotTransfer>();
+        for (PotTransition potTransition : potTransitions) {
+            if (!potTransition.isFromBetStackToPlayer()) {
+                transfers.add(actionTransformer.createCompactPotTransferPacket(potTransition, units));
+            }
+        }
+        return new CompactPotTransfers(fromPlayerToPot, transfers, clientPots, units.toMinorUnitsRoundedDown(totalPotSize));
+    }
+
     private void setRequestSequence(int seq) {
         getFirebaseState().setCurrentRequestSequence(seq);
     }
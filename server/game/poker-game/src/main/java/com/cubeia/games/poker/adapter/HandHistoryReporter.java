@@ -23,6 +23,7 @@ import static com.cubeia.poker.adapter.HandEndStatus.CANCELED_TOO_FEW_PLAYERS;
 import java.math.BigDecimal;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -106,6 +107,29 @@ public class HandHistoryReporter {
     }
 
     public void notifyHandEnd(HandResult handResult, HandEndStatus handEndStatus, Map<Integer, String> playerTransactions) {
+        reportHandEnd(handResult, handEndStatus, playerTransactions, false);
+    }
+
+    /**
+     * Reports the end of a hand not yet settled with the wallet. The hand is stored when
+     * the wallet transactions are reported with {@link #notifyHandSettled(String, Map)}.
+     */
+    public void notifyHandEndPendingSettlement(HandResult handResult, HandEndStatus handEndStatus) {
+        reportHandEnd(handResult, handEndStatus, Collections.<Integer, String>emptyMap(), true);
+    }
+
+    /**
+     * @param handId             integration id of a hand reported with {@link #notifyHandEndPendingSettlement(HandResult, HandEndStatus)}
+     * @param playerTransactions wallet transaction id by player id, empty if the hand could not be settled
+     */
+    public void notifyHandSettled(String handId, Map<Integer, String> playerTransactions) {
+        if (!checkHasService()) {
+            return; // SANITY CHECK
+        }
+        service.reportTransactions(handId, playerTransactions);
+    }
+
+    private void reportHandEnd(HandResult handResult, HandEndStatus handEndStatus, Map<Integer, String> playerTransactions, boolean pendingSettlement) {
         ThreadLocalProfiler.add("HandHistoryReportAdapter.notifyHandEnd.start");
         if (!checkHasService()) {
             return; // SANITY CHECK
@@ -142,7 +166,11 @@ public class HandHistoryReporter {
             ThreadLocalProfiler.add("HandHistoryReportAdapter.notifyHandEnd.reportResults");
             service.reportResults(table.getId(), res);
             ThreadLocalProfiler.add("HandHistoryReportAdapter.notifyHandEnd.stopHand");
-            service.stopHand(table.getId());
+            if (pendingSettlement) {
+                service.stopHandPendingTransactions(table.getId());
+            } else {
+                service.stopHand(table.getId());
+            }
         }
         ThreadLocalProfiler.add("HandHistoryReportAdapter.notifyHandEnd.stop");
     }
@@ -0,0 +1,216 @@
+/**
+ * Copyright (C) 2010 Cubeia Ltd <info@cubeia.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.cubeia.games.poker.adapter;
+
+import com.cubeia.firebase.api.action.GameAction;
+import com.cubeia.firebase.api.game.GameNotifier;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Collects the game actions sent to the players while one event is handled,
+ * so that they are handed to the notifier as lists instead of one by one.
+ * <p/>
+ * The buffer is event scoped. The processor starts buffering before an event
+ * is handled and flushes the buffer when it is done, actions sent when the
+ * buffer is not started go straight to the notifier.
+ * <p/>
+ * Consecutive actions with the same recipients, i.e. public actions skipping
+ * the same player or private actions to the same player, are sent as one list.
+ * The lists are sent in the order the actions were added, so every player
+ * receives the actions in the same order as without buffering. To keep that
+ * order all actions sent while handling an event must go through the buffer,
+ * or the buffer must be flushed before an action is sent to the notifier.
+ * The notify methods buffer an action while buffering and send it to the
+ * notifier otherwise, so senders do not need to know which is the case.
+ */
+public class OutboundPacketBuffer {
+
+    private static final int ALL_PLAYERS = -1;
+
+    private enum Kind { PUBLIC, PRIVATE, CLIENT }
+
+    private final List<Outbound> buffer = new ArrayList<Outbound>();
+
+    private boolean buffering;
+
+    /**
+     * Starts buffering actions.
+     */
+    public void start() {
+        buffering = true;
+    }
+
+    public boolean isBuffering() {
+        return buffering;
+    }
+
+    /**
+     * Adds an action to all players.
+     *
+     * @param action       action to send
+     * @param skipPlayerId player not to send the action to, or -1 to send to all
+     */
+    public void addPublic(GameAction action, int skipPlayerId) {
+        buffer.add(new Outbound(action, skipPlayerId < 0 ? ALL_PLAYERS : skipPlayerId, Kind.PUBLIC));
+    }
+
+    /**
+     * Adds an action to one player.
+     *
+     * @param playerId player to send the action to
+     * @param action   action to send
+     */
+    public void addPrivate(int playerId, GameAction action) {
+        buffer.add(new Outbound(action, playerId, Kind.PRIVATE));
+    }
+
+    /**
+     * Adds an action to the client of a player, see {@link GameNotifier#sendToClient(int, GameAction)}.
+     * Unlike private actions these are sent one by one.
+     *
+     * @param playerId player to send the action to
+     * @param action   action to send
+     */
+    public void addToClient(int playerId, GameAction action) {
+        buffer.add(new Outbound(action, playerId, Kind.CLIENT));
+    }
+
+    /**
+     * Sends an action to all players, or buffers it while buffering.
+     *
+     * @param notifier     notifier of the table
+     * @param action       action to send
+     * @param skipPlayerId player not to send the action to, or -1 to send to all
+     */
+    public void notifyAllPlayers(GameNotifier notifier, GameAction action, int skipPlayerId) {
+        if (buffering) {
+            addPublic(action, skipPlayerId);
+        } else if (skipPlayerId < 0) {
+            notifier.notifyAllPlayers(action);
+        } else {
+            notifier.notifyAllPlayersExceptOne(action, skipPlayerId);
+        }
+    }
+
+    /**
+     * Sends an action to one player, or buffers it while buffering.
+     *
+     * @param notifier notifier of the table
+     * @param playerId player to send the action to
+     * @param action   action to send
+     */
+    public void notifyPlayer(GameNotifier notifier, int playerId, GameAction action) {
+        if (buffering) {
+            addPrivate(playerId, action);
+        } else {
+            notifier.notifyPlayer(playerId, action);
+        }
+    }
+
+    /**
+     * Sends an action to the client of a player, or buffers it while buffering,
+     * see {@link #addToClient(int, GameAction)}.
+     *
+     * @param notifier notifier of the table
+     * @param playerId player to send the action to
+     * @param action   action to send
+     */
+    public void sendToClient(GameNotifier notifier, int playerId, GameAction action) {
+        if (buffering) {
+            addToClient(playerId, action);
+        } else {
+            notifier.sendToClient(playerId, action);
+        }
+    }
+
+    /**
+     * Sends the buffered actions and stops buffering.
+     *
+     * @param notifier notifier of the table
+     */
+    public void flush(GameNotifier notifier) {
+        buffering = false;
+        int start = 0;
+        for (int i = 1; i <= buffer.size(); i++) {
+            if (i == buffer.size() || !buffer.get(start).hasSameRecipients(buffer.get(i))) {
+                send(notifier, buffer.subList(start, i));
+                start = i;
+            }
+        }
+        buffer.clear();
+    }
+
+    // --- PRIVATE METHODS --- //
+
+    private void send(GameNotifier notifier, List<Outbound> run) {
+        if (run.isEmpty()) {
+            return;
+        }
+        Outbound first = run.get(0);
+        if (first.kind == Kind.CLIENT) {
+            for (Outbound outbound : run) {
+                notifier.sendToClient(outbound.recipient, outbound.action);
+            }
+        } else if (run.size() == 1) {
+            if (first.kind == Kind.PRIVATE) {
+                notifier.notifyPlayer(first.recipient, first.action);
+            } else if (first.recipient == ALL_PLAYERS) {
+                notifier.notifyAllPlayers(first.action);
+            } else {
+                notifier.notifyAllPlayersExceptOne(first.action, first.recipient);
+            }
+        } else {
+            List<GameAction> actions = new ArrayList<GameAction>(run.size());
+            for (Outbound outbound : run) {
+                actions.add(outbound.action);
+            }
+            if (first.kind == Kind.PRIVATE) {
+                notifier.notifyPlayer(first.recipient, actions);
+            } else if (first.recipient == ALL_PLAYERS) {
+                notifier.notifyAllPlayers(actions);
+            } else {
+                notifier.notifyAllPlayersExceptOne(actions, first.recipient);
+            }
+        }
+    }
+
+    /**
+     * A buffered action and its recipients, the player id for private and client actions
+     * or the skipped player id, or -1, for public actions.
+     */
+    private static class Outbound {
+
+        private final GameAction action;
+
+        private final int recipient;
+
+        private final Kind kind;
+
+        private Outbound(GameAction action, int recipient, Kind kind) {
+            this.action = action;
+            this.recipient = recipient;
+            this.kind = kind;
+        }
+
+        private boolean hasSameRecipients(Outbound other) {
+            return kind == other.kind && recipient == other.recipient;
+        }
+    }
+}
@@ -17,18 +17,19 @@
 
 package com.cubeia.games.poker.cache;
 
+import java.util.ArrayList;
 import java.util.Collection;
-import java.util.LinkedList;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.cubeia.firebase.api.action.GameAction;
 import com.cubeia.games.poker.common.time.SystemTime;
-import com.google.common.collect.LinkedListMultimap;
-import com.google.common.collect.Multimap;
-import com.google.common.collect.Multimaps;
+import com.cubeia.games.poker.jmx.PokerStats;
 import com.google.inject.Inject;
 
 /**
@@ -36,6 +37,9 @@ import com.google.inject.Inject;
  * Maps actions to tables. It is important that this cache is properly cleared since there is no inherent
  * house-keeping in this implementation.
  * <p/>
+ * Each table has its own {@link TableActionLog}. Since events on the same table are never concurrent
+ * actions are appended without locking and tables never contend with each other.
+ * <p/>
  * NOTE: this cache is not replicated: fail over won't work
  *
  * @author Fredrik Johansson, Cubeia Ltd
@@ -43,7 +47,7 @@ import com.google.inject.Inject;
 public class ActionCache {
     private static Logger log = LoggerFactory.getLogger(ActionCache.class);
 
-    private final Multimap<Integer, ActionContainer> cache;
+    private final ConcurrentMap<Integer, TableActionLog> cache = new ConcurrentHashMap<Integer, TableActionLog>();
 
     private SystemTime dateFetcher;
 
@@ -53,9 +57,7 @@ public class ActionCache {
     @Inject
     public ActionCache(SystemTime dateFetcher) {
         this.dateFetcher = dateFetcher;
-        LinkedListMultimap<Integer, ActionContainer> linkedListMultimap = LinkedListMultimap.create();
-        // TODO: this map is fully synchronized but we only need to synchronize on table id (events on the same table are never concurrent)
-        cache = Multimaps.synchronizedListMultimap(linkedListMultimap);
+        PokerStats.getInstance().setActionCache(this);
     }
 
     /**
@@ -71,9 +73,10 @@ public class ActionCache {
      *
      */
     public void addPublicActionWithExclusion(int tableId, GameAction action, int excludedPlayerId) {
-        cache.put(tableId, ActionContainer.createPublic(action, excludedPlayerId, dateFetcher.date().getMillis()));
+        TableActionLog actions = getOrCreateLog(tableId);
+        actions.append(ActionContainer.createPublic(action, excludedPlayerId, dateFetcher.date().getMillis()));
         log.trace("added public action to cache, tableId = {}, action type = {}, new cache size = {}",
-                new Object[]{tableId, action.getClass().getSimpleName(), cache.get(tableId).size()});
+                new Object[]{tableId, action.getClass().getSimpleName(), actions.size()});
 
 //        if (handDebugger != null) {
 //            handDebugger.addPublicAction(tableId, action);
@@ -85,9 +88,10 @@ public class ActionCache {
      *
      */
     public void addPrivateAction(int tableId, int playerId, GameAction action) {
-        cache.put(tableId, ActionContainer.createPrivate(playerId, action, dateFetcher.date().getMillis()));
+        TableActionLog actions = getOrCreateLog(tableId);
+        actions.append(ActionContainer.createPrivate(playerId, action, dateFetcher.date().getMillis()));
         log.trace("added private action to cache, tableId = {}, playerId = {}, action type = {}, new cache size = {}",
-                new Object[]{tableId, playerId, action.getClass().getSimpleName(), cache.get(tableId).size()});
+                new Object[]{tableId, playerId, action.getClass().getSimpleName(), actions.size()});
 
 //        if (handDebugger != null) {
 //            handDebugger.addPrivateAction(tableId, playerId, action);
@@ -101,8 +105,9 @@ public class ActionCache {
      * @return list of public actions
      */
     public List<GameAction> getPublicActions(int tableId) {
-        List<GameAction> publicActions = new LinkedList<GameAction>();
-        for (ActionContainer ac : cache.get(tableId)) {
+        List<ActionContainer> snapshot = getSnapshot(tableId);
+        List<GameAction> publicActions = new ArrayList<GameAction>(snapshot.size());
+        for (ActionContainer ac : snapshot) {
             if (ac.isPublic()) {
                 publicActions.add(ac.getGameAction());
             }
@@ -120,8 +125,9 @@ public class ActionCache {
      * @return list of both private and public actions
      */
     public Collection<ActionContainer> getPrivateAndPublicActions(int tableId, int playerId) {
-        List<ActionContainer> actions = new LinkedList<ActionContainer>();
-        for (ActionContainer ac : cache.get(tableId)) {
+        List<ActionContainer> snapshot = getSnapshot(tableId);
+        List<ActionContainer> actions = new ArrayList<ActionContainer>(snapshot.size());
+        for (ActionContainer ac : snapshot) {
             if (ac.isPublic() || ac.getPlayerId() == playerId) {
                 actions.add(ac);
             }
@@ -129,12 +135,83 @@ public class ActionCache {
         return actions;
     }
 
+    /**
+     * Retrieves the replay of the current hand for a joining watcher. The replay is
+     * maintained as actions are added, use this instead of filtering the public actions
+     * for every watcher.
+     *
+     * @param tableId table id
+     * @return the replay of the table, empty if nothing is cached for the table
+     */
+    public WatcherReplay getWatcherReplay(int tableId) {
+        TableActionLog actions = cache.get(tableId);
+        return actions == null ? new WatcherReplay() : actions.getWatcherReplay();
+    }
+
     public void clear(int tableId) {
         log.trace("clearing action cache for tableId = {}", tableId);
-        cache.removeAll(tableId);
+        cache.remove(tableId);
 //        if (handDebugger != null) {
 //            handDebugger.clearTable(tableId);
 //        }
     }
 
+    /* ----------------------------------------------------
+      *
+      * 	METRICS
+      *
+      *  ---------------------------------------------------- */
+
+    /**
+     * Returns the number of cached actions for a table.
+     */
+    public int getEntryCount(int tableId) {
+        TableActionLog actions = cache.get(tableId);
+        return actions == null ? 0 : actions.size();
+    }
+
+    /**
+     * Returns the number of bytes of packet data cached for a table.
+     */
+    public long getByteCount(int tableId) {
+        TableActionLog actions = cache.get(tableId);
+        return actions == null ? 0 : actions.getBytes();
+    }
+
+    public int getTableCount() {
+        return cache.size();
+    }
+
+    public long getTotalEntryCount() {
+        long entries = 0;
+        for (TableActionLog actions : cache.values()) {
+            entries += actions.size();
+        }
+        return entries;
+    }
+
+    public long getTotalByteCount() {
+        long bytes = 0;
+        for (TableActionLog actions : cache.values()) {
+            bytes += actions.getBytes();
+        }
+        return bytes;
+    }
+
+    private TableActionLog getOrCreateLog(int tableId) {
+        TableActionLog actions = cache.get(tableId);
+        if (actions == null) {
+            TableActionLog created = new TableActionLog();
+            actions = cache.putIfAbsent(tableId, created);
+            if (actions == null) {
+                actions = created;
+            }
+        }
+        return actions;
+    }
+
+    private List<ActionContainer> getSnapshot(int tableId) {
+        TableActionLog actions = cache.get(tableId);
+        return actions == null ? Collections.<ActionContainer>emptyList() : actions.snapshot();
+    }
 }
@@ -18,9 +18,47 @@
 package com.cubeia.games.poker.cache;
 
 import com.cubeia.firebase.api.action.GameAction;
+import com.cubeia.firebase.api.action.GameDataAction;
+import com.cubeia.firebase.io.ProtocolObject;
+import com.cubeia.games.poker.io.PokerProtocolCodec;
+import com.cubeia.games.poker.io.protocol.Enums;
+import com.cubeia.games.poker.io.protocol.PlayerAction;
+import com.cubeia.games.poker.io.protocol.PerformAction;
+import com.cubeia.games.poker.io.protocol.PlayerDisconnectedPacket;
+import com.cubeia.games.poker.io.protocol.RequestAction;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.ByteBuffer;
 
+/**
+ * A cached action together with what is needed to build the game state for a (re)connecting
+ * player.
+ * <p/>
+ * The class id of a packet is read from its header when the container is created. Only action
+ * requests and disconnect packets, which have their time to act adjusted when sent, are
+ * unpacked, so the cached hand does not have to be deserialized on every reconnect.
+ */
 public class ActionContainer {
 
+    /**
+     * Class id of actions that are not poker packets.
+     */
+    public static final int NO_PACKET = -1;
+
+    public static final int REQUEST_ACTION = new RequestAction().classId();
+
+    public static final int PLAYER_DISCONNECTED = new PlayerDisconnectedPacket().classId();
+
+    public static final int PERFORM_ACTION = new PerformAction().classId();
+
+    /**
+     * Styx packets start with the packet length (an int) followed by the class id (an unsigned byte).
+     */
+    private static final int CLASS_ID_OFFSET = 4;
+
+    private static final Logger log = LoggerFactory.getLogger(ActionContainer.class);
+
     private final Integer playerId;
 
     private final Integer excludedPlayerId;
@@ -29,11 +67,47 @@ public class ActionContainer {
 
     private final Long timestamp;
 
+    private final int packetClassId;
+
+    /**
+     * The unpacked action request or disconnect packet, null for all other packets.
+     */
+    private final ProtocolObject timedPacket;
+
+    /**
+     * Time to act of an action request, or the time bank of a disconnect packet, when cached.
+     */
+    private final int timeToAct;
+
+    private final boolean anteRequest;
+
     private ActionContainer(Integer playerId, GameAction gameAction, Integer excludedPlayerId, Long timestamp) {
         this.playerId = playerId;
         this.gameAction = gameAction;
         this.excludedPlayerId = excludedPlayerId;
         this.timestamp = timestamp;
+
+        int classId = readClassId(gameAction);
+        ProtocolObject packet = null;
+        if (classId == REQUEST_ACTION || classId == PLAYER_DISCONNECTED) {
+            packet = unpack((GameDataAction) gameAction);
+            if (packet == null) {
+                classId = NO_PACKET;
+            }
+        }
+        this.packetClassId = classId;
+        this.timedPacket = packet;
+        if (packet instanceof RequestAction) {
+            RequestAction request = (RequestAction) packet;
+            this.timeToAct = request.timeToAct;
+            this.anteRequest = isAnteAllowed(request);
+        } else if (packet instanceof PlayerDisconnectedPacket) {
+            this.timeToAct = ((PlayerDisconnectedPacket) packet).timebank;
+            this.anteRequest = false;
+        } else {
+            this.timeToAct = 0;
+            this.anteRequest = false;
+        }
     }
 
     private ActionContainer(GameAction gameAction, Integer excludedPlayerId, Long timestamp) {
@@ -79,4 +153,64 @@ public class ActionContainer {
     public boolean isPublic() {
         return playerId == null;
     }
+
+    /**
+     * Returns the class id of the cached poker packet, {@link #NO_PACKET} if the action is
+     * not a poker packet.
+     */
+    public int getPacketClassId() {
+        return packetClassId;
+    }
+
+    /**
+     * Returns the unpacked packet of an action request or a disconnect, null for all other packets.
+     * The time to act of the returned packet may have been changed, use {@link #getTimeToAct()} for
+     * the original value.
+     */
+    public ProtocolObject getTimedPacket() {
+        return timedPacket;
+    }
+
+    /**
+     * Returns the time to act of an action request, or the time bank of a disconnect, as it was when cached.
+     */
+    public int getTimeToAct() {
+        return timeToAct;
+    }
+
+    /**
+     * Returns true if this is an action request allowing an ante.
+     */
+    public boolean isAnteRequest() {
+        return anteRequest;
+    }
+
+    private static int readClassId(GameAction gameAction) {
+        if (!(gameAction instanceof GameDataAction)) {
+            return NO_PACKET;
+        }
+        ByteBuffer data = ((GameDataAction) gameAction).getData();
+        if (data == null || data.remaining() <= CLASS_ID_OFFSET) {
+            return NO_PACKET;
+        }
+        return data.get(data.position() + CLASS_ID_OFFSET) & 0xFF;
+    }
+
+    private static ProtocolObject unpack(GameDataAction action) {
+        try {
+            return PokerProtocolCodec.unpack(action.getData());
+        } catch (RuntimeException e) {
+            log.error("error unpacking cached packet", e);
+            return null;
+        }
+    }
+
+    private static boolean isAnteAllowed(RequestAction request) {
+        for (PlayerAction playerAction : request.allowedActions) {
+            if (playerAction.type == Enums.ActionType.ANTE) {
+                return true;
+            }
+        }
+        return false;
+    }
 }
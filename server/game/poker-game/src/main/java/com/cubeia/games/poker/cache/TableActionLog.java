@@ -0,0 +1,119 @@
+/**
+ * Copyright (C) 2012 Cubeia Ltd <info@cubeia.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.cubeia.games.poker.cache;
+
+import com.cubeia.firebase.api.action.GameAction;
+import com.cubeia.firebase.api.action.GameDataAction;
+
+import java.nio.ByteBuffer;
+import java.util.AbstractList;
+import java.util.List;
+
+/**
+ * Append only log of the actions of one table.
+ * <p/>
+ * Actions on a table are never added concurrently, so appending needs no locking. Reading is
+ * safe from any thread: the array is only appended to and a snapshot is the array and size
+ * read at one point in time, later appends are not visible in it.
+ * <p/>
+ * The log also keeps the {@link WatcherReplay} of the table up to date.
+ */
+public class TableActionLog {
+
+    private static final int INITIAL_CAPACITY = 32;
+
+    private volatile ActionContainer[] actions = new ActionContainer[INITIAL_CAPACITY];
+
+    private volatile int size;
+
+    private volatile long bytes;
+
+    private final WatcherReplay watcherReplay = new WatcherReplay();
+
+    /**
+     * Appends an action. Must only be called by the thread handling the table.
+     *
+     * @param action action to append
+     */
+    public void append(ActionContainer action) {
+        ActionContainer[] current = actions;
+        int index = size;
+        if (index == current.length) {
+            ActionContainer[] grown = new ActionContainer[current.length * 2];
+            System.arraycopy(current, 0, grown, 0, index);
+            current = grown;
+            actions = grown;
+        }
+        current[index] = action;
+        bytes += sizeOf(action.getGameAction());
+        size = index + 1;
+        watcherReplay.append(action);
+    }
+
+    /**
+     * Returns the actions appended so far. The snapshot is not copied and is
+     * not affected by later appends.
+     *
+     * @return read only list of actions, oldest first
+     */
+    public List<ActionContainer> snapshot() {
+        final int snapshotSize = size;
+        final ActionContainer[] snapshotActions = actions;
+        return new AbstractList<ActionContainer>() {
+            @Override
+            public ActionContainer get(int index) {
+                if (index >= snapshotSize) {
+                    throw new IndexOutOfBoundsException("index " + index + ", size " + snapshotSize);
+                }
+                return snapshotActions[index];
+            }
+
+            @Override
+            public int size() {
+                return snapshotSize;
+            }
+        };
+    }
+
+    /**
+     * Returns the replay of the logged actions for joining watchers. Must only be called
+     * by the thread handling the table.
+     */
+    public WatcherReplay getWatcherReplay() {
+        return watcherReplay;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the number of bytes of packet data in the log.
+     */
+    public long getBytes() {
+        return bytes;
+    }
+
+    private static int sizeOf(GameAction action) {
+        if (action instanceof GameDataAction) {
+            ByteBuffer data = ((GameDataAction) action).getData();
+            return data == null ? 0 : data.remaining();
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,125 @@
+/**
+ * Copyright (C) 2012 Cubeia Ltd <info@cubeia.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.cubeia.games.poker.cache;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The public actions of the current hand filtered for a watcher joining the table.
+ * <p/>
+ * The replay is updated as actions are appended to the {@link TableActionLog}, so joining watchers
+ * do not walk and filter the whole hand again. Answered action requests are dropped when the
+ * answer is appended and the last unanswered request is kept aside, since it is sent last. The
+ * cached actions are shared by all watchers joining within the hand, only the action requests and
+ * disconnect packets, which carry the time left to act, have to be packed for each join.
+ * <p/>
+ * Like the log the replay is only appended to by the thread handling the table, and it is only
+ * read by that thread when a watcher joins.
+ */
+public class WatcherReplay {
+
+    private final List<ActionContainer> actions = new ArrayList<ActionContainer>();
+
+    /**
+     * Players with private actions in the hand, or public actions excluded for them.
+     */
+    private final Set<Integer> playersWithOwnActions = new HashSet<Integer>();
+
+    private ActionContainer pendingRequest;
+
+    private int pendingTimeToAct;
+
+    private long pendingTimestamp;
+
+    private int version;
+
+    void append(ActionContainer action) {
+        version++;
+        if (!action.isPublic()) {
+            playersWithOwnActions.add(action.getPlayerId());
+            return;
+        }
+        if (action.getExcludedPlayerId() != null) {
+            playersWithOwnActions.add(action.getExcludedPlayerId());
+        }
+
+        int classId = action.getPacketClassId();
+        if (classId == ActionContainer.REQUEST_ACTION && !action.isAnteRequest()) {
+            pendingRequest = action;
+            pendingTimeToAct = action.getTimeToAct();
+            pendingTimestamp = action.getTimestamp();
+            return;
+        }
+        if (classId == ActionContainer.PLAYER_DISCONNECTED && pendingRequest != null) {
+            pendingTimeToAct = action.getTimeToAct();
+            pendingTimestamp = action.getTimestamp();
+        } else if (classId == ActionContainer.PERFORM_ACTION) {
+            pendingRequest = null;
+        }
+        actions.add(action);
+    }
+
+    /**
+     * Returns true if the given player has actions of their own in the hand, such a player
+     * needs the game state built from the whole log.
+     */
+    public boolean hasActionsFor(int playerId) {
+        return playersWithOwnActions.contains(playerId);
+    }
+
+    /**
+     * Returns the public actions to replay, oldest first, without answered action
+     * requests and without the pending request.
+     */
+    public List<ActionContainer> getActions() {
+        return Collections.unmodifiableList(actions);
+    }
+
+    /**
+     * Returns the last unanswered action request, null if there is none.
+     */
+    public ActionContainer getPendingRequest() {
+        return pendingRequest;
+    }
+
+    /**
+     * Returns the time to act of the pending request, or the time bank if the player to act
+     * has disconnected since the request.
+     */
+    public int getPendingTimeToAct() {
+        return pendingTimeToAct;
+    }
+
+    /**
+     * Returns when the timer of the pending request started.
+     */
+    public long getPendingTimestamp() {
+        return pendingTimestamp;
+    }
+
+    /**
+     * Returns the number of actions appended to the replay, changes with every appended action.
+     */
+    public int getVersion() {
+        return version;
+    }
+}
@@ -19,6 +19,7 @@ package com.cubeia.games.poker.handler;
 
 import com.cubeia.firebase.api.action.GameDataAction;
 import com.cubeia.games.poker.common.money.Currency;
+import com.cubeia.games.poker.common.money.MinorUnits;
 import com.cubeia.games.poker.io.protocol.*;
 import com.cubeia.games.poker.io.protocol.Enums.ActionType;
 import com.cubeia.games.poker.io.protocol.Enums.PotType;
@@ -88,6 +89,36 @@ public class ActionTransformer {
         return packet;
     }
 
+    /**
+     * Creates a request action with amounts in minor units, see {@link #transform(ActionRequest, int)}.
+     */
+    public CompactRequestAction transformCompact(ActionRequest request, int sequenceNumber, MinorUnits units) {
+        CompactRequestAction packet = new CompactRequestAction();
+        packet.timeToAct = (int) request.getTimeToAct();
+        packet.player = request.getPlayerId();
+        packet.seq = sequenceNumber;
+        packet.currentPotSize = units.toMinorUnitsRoundedDown(request.getTotalPotSize());
+
+        List<CompactPlayerAction> allowed = new ArrayList<CompactPlayerAction>(request.getOptions().size());
+        for (PossibleAction option : request.getOptions()) {
+            CompactPlayerAction playerOption = new CompactPlayerAction();
+            if (option instanceof DiscardRequest) {
+                Range<Integer> cardsToDiscard = ((DiscardRequest) option).getCardsToDiscard();
+                playerOption.type = DISCARD;
+                playerOption.minAmount = cardsToDiscard.lowerEndpoint();
+                playerOption.maxAmount = cardsToDiscard.upperEndpoint();
+            } else {
+                playerOption.type = fromPokerActionTypeToProtocolActionType(option.getActionType());
+                playerOption.minAmount = units.toMinorUnitsRoundedDown(option.getMinAmount());
+                playerOption.maxAmount = units.toMinorUnitsRoundedDown(option.getMaxAmount());
+            }
+            allowed.add(playerOption);
+        }
+        packet.allowedActions = allowed;
+
+        return packet;
+    }
+
     public PerformAction transform(PokerAction pokerAction, PokerPlayer pokerPlayer) {
         PerformAction packet = new PerformAction();
         packet.action = createPlayerAction(pokerAction.getActionType());
@@ -99,6 +130,20 @@ public class ActionTransformer {
         return packet;
     }
 
+    /**
+     * Creates a perform action with amounts in minor units, see {@link #transform(PokerAction, PokerPlayer)}.
+     */
+    public CompactPerformAction transformCompact(PokerAction pokerAction, PokerPlayer pokerPlayer, MinorUnits units) {
+        CompactPerformAction packet = new CompactPerformAction();
+        packet.action = new CompactPlayerAction(fromPokerActionTypeToProtocolActionType(pokerAction.getActionType()), 0, 0);
+        packet.betAmount = units.toMinorUnitsRoundedDown(pokerAction.getBetAmount());
+        packet.raiseAmount = units.toMinorUnitsRoundedDown(pokerAction.getRaiseAmount());
+        packet.stackAmount = units.toMinorUnitsRoundedDown(pokerPlayer.getBetStack());
+        packet.player = pokerAction.getPlayerId();
+        packet.timeout = pokerAction.isTimeout();
+        return packet;
+    }
+
     public PokerActionType transform(ActionType actionType) {
         return PokerActionType.valueOf(actionType.name());
     }
@@ -114,6 +159,17 @@ public class ActionTransformer {
         }
     }
 
+    public PokerAction transform(int playerId, CompactPerformAction packet, MinorUnits units) {
+        ActionType actionType = packet.action.type;
+        if (actionType == DISCARD) {
+            return new DiscardAction(playerId, Ints.asList(packet.cardsToDiscard));
+        } else {
+            PokerAction converted = new PokerAction(playerId, transform(actionType));
+            converted.setBetAmount(units.toBigDecimal(packet.betAmount));
+            return converted;
+        }
+    }
+
     private BigDecimal transformAmount(String amount, Currency c) {
         BigDecimal transformedAmount = BigDecimal.ZERO;
         try {
@@ -283,4 +339,22 @@ public class ActionTransformer {
                 potTransition.getPlayer().getId(),
                 potTransition.getAmount().toPlainString());
     }
+
+    public CompactPot createCompactPotUpdatePacket(int id, BigDecimal amount, MinorUnits units) {
+        return new CompactPot((byte) id, id == 0 ? PotType.MAIN : PotType.SIDE, units.toMinorUnitsRoundedDown(amount));
+    }
+
+    public GameDataAction createCompactPlayerBalanceAction(BigDecimal balance, BigDecimal pendingBalance, BigDecimal playersContributionToPot,
+                                                           int playerId, int tableId, MinorUnits units) {
+        CompactPlayerBalance packet = new CompactPlayerBalance(units.toMinorUnitsRoundedDown(balance), units.toMinorUnitsRoundedDown(pendingBalance),
+                playerId, units.toMinorUnitsRoundedDown(playersContributionToPot));
+        return new ProtocolFactory().createGameAction(packet, playerId, tableId);
+    }
+
+    public CompactPotTransfer createCompactPotTransferPacket(PotTransition potTransition, MinorUnits units) {
+        return new CompactPotTransfer(
+                (byte) potTransition.getPot().getId(),
+                potTransition.getPlayer().getId(),
+                units.toMinorUnitsRoundedDown(potTransition.getAmount()));
+    }
 }	
@@ -22,7 +22,6 @@ import static com.cubeia.games.poker.common.money.MoneyFormatter.format;
 import static com.cubeia.games.poker.model.PokerPlayerImpl.ATTR_PLAYER_EXTERNAL_SESSION_ID;
 
 import java.io.Serializable;
-import java.nio.ByteBuffer;
 import java.util.Map;
 
 import org.slf4j.Logger;
@@ -39,9 +38,10 @@ import com.cubeia.firebase.api.action.GameDataAction;
 import com.cubeia.firebase.api.game.lobby.LobbyTableAttributeAccessor;
 import com.cubeia.firebase.api.game.table.Table;
 import com.cubeia.firebase.io.ProtocolObject;
-import com.cubeia.firebase.io.StyxSerializer;
+import com.cubeia.games.poker.adapter.OutboundPacketBuffer;
 import com.cubeia.games.poker.common.lobby.PokerLobbyAttributes;
 import com.cubeia.games.poker.common.money.Money;
+import com.cubeia.games.poker.io.PokerProtocolCodec;
 import com.cubeia.games.poker.io.protocol.BuyInResponse;
 import com.cubeia.games.poker.io.protocol.Enums;
 import com.cubeia.games.poker.io.protocol.Enums.BuyInResultCode;
@@ -51,6 +51,7 @@ import com.cubeia.games.poker.model.PokerPlayerImpl;
 import com.cubeia.games.poker.state.FirebaseState;
 import com.cubeia.poker.PokerState;
 import com.cubeia.poker.player.PokerPlayer;
+import com.google.common.annotations.VisibleForTesting;
 import com.google.inject.Inject;
 
 public class BackendCallHandler {
@@ -64,7 +65,9 @@ public class BackendCallHandler {
 
     private final BackendPlayerSessionHandler backendPlayerSessionHandler;
 
-    private StyxSerializer styx = new StyxSerializer(null);
+    @Inject
+    @VisibleForTesting
+    OutboundPacketBuffer outbound = new OutboundPacketBuffer();
 
     @Inject
     public BackendCallHandler(PokerState state, Table table, BackendPlayerSessionHandler backendPlayerSessionHandler) {
@@ -242,18 +245,16 @@ public class BackendCallHandler {
 
         ErrorPacket errorPacket = new ErrorPacket(errorCode, handId);
         GameDataAction errorAction = new GameDataAction(player.getId(), table.getId());
-        ByteBuffer packetBuffer;
-        packetBuffer = styx.pack(errorPacket);
-        errorAction.setData(packetBuffer);
-        table.getNotifier().notifyPlayer(player.getId(), errorAction);
+        errorAction.setData(PokerProtocolCodec.pack(errorPacket));
+        outbound.notifyPlayer(table.getNotifier(), player.getId(), errorAction);
     }
 
 
     private void sendGameData(int playerId, ProtocolObject resp) {
         GameDataAction action = new GameDataAction(playerId, table.getId());
-        action.setData(styx.pack(resp));
+        action.setData(PokerProtocolCodec.pack(resp));
 
-        table.getNotifier().notifyPlayer(playerId, action);
+        outbound.notifyPlayer(table.getNotifier(), playerId, action);
     }
 
 }
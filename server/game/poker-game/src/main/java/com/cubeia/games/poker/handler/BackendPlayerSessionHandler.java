@@ -37,6 +37,7 @@ import com.cubeia.game.poker.config.api.PokerConfigurationService;
 import com.cubeia.games.poker.adapter.domainevents.DomainEventAdapter;
 import com.cubeia.games.poker.common.money.Money;
 import com.cubeia.games.poker.model.PokerPlayerImpl;
+import com.cubeia.games.poker.state.FirebaseState;
 import com.cubeia.poker.PokerState;
 import com.cubeia.poker.player.PokerPlayer;
 import com.google.common.annotations.VisibleForTesting;
@@ -75,7 +76,14 @@ public class BackendPlayerSessionHandler {
 
         int playerId = pokerPlayer.getId();
 		log.debug("Handle session end for player[" + playerId + "], sessionid[" + sessionId + "]");
-        if (sessionId != null) {
+        FirebaseState firebaseState = (FirebaseState) state.getAdapterState();
+        if (sessionId != null && firebaseState != null && !firebaseState.getPendingHandSettlements().isEmpty()) {
+            // the session must stay open until the wallet has settled the hands the player took part in
+            log.debug("Deferring session close for player[" + playerId + "] until pending hands are settled");
+            firebaseState.getDeferredSessionCloses().add(sessionId);
+            pokerPlayer.clearBalance();
+            pokerPlayerImpl.setPlayerSessionId(null);
+        } else if (sessionId != null) {
             CloseSessionRequest closeSessionRequest = new CloseSessionRequest(sessionId);
             try {
                 cashGameBackend.closeSession(closeSessionRequest);
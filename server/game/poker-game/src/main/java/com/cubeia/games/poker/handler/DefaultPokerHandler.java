@@ -350,4 +350,52 @@ public class DefaultPokerHandler implements PacketVisitor {
     public void visit(TournamentTables packet) {
     }
 
+    @Override
+    public void visit(RequestTournamentPlayerListPage packet) {
+    }
+
+    @Override
+    public void visit(TournamentPlayerListPage packet) {
+    }
+
+    @Override
+    public void visit(AmountEncodingRequest packet) {
+    }
+
+    @Override
+    public void visit(AmountEncodingResponse packet) {
+    }
+
+    @Override
+    public void visit(CompactPlayerAction packet) {
+    }
+
+    @Override
+    public void visit(CompactRequestAction packet) {
+    }
+
+    @Override
+    public void visit(CompactPerformAction packet) {
+    }
+
+    @Override
+    public void visit(CompactPlayerBalance packet) {
+    }
+
+    @Override
+    public void visit(CompactPot packet) {
+    }
+
+    @Override
+    public void visit(CompactPotTransfer packet) {
+    }
+
+    @Override
+    public void visit(CompactPotTransfers packet) {
+    }
+
+    @Override
+    public void visit(CompactInformFutureAllowedActions packet) {
+    }
+
 }
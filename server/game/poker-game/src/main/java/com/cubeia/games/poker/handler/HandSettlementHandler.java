@@ -0,0 +1,400 @@
+/**
+ * Copyright (C) 2012 Cubeia Ltd <info@cubeia.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.cubeia.games.poker.handler;
+
+import com.cubeia.backend.cashgame.PlayerSessionId;
+import com.cubeia.backend.cashgame.dto.BalanceUpdate;
+import com.cubeia.backend.cashgame.dto.BatchHandFailedResponse;
+import com.cubeia.backend.cashgame.dto.BatchHandRequest;
+import com.cubeia.backend.cashgame.dto.BatchHandResponse;
+import com.cubeia.backend.cashgame.dto.CloseSessionRequest;
+import com.cubeia.backend.cashgame.dto.CloseTableRequest;
+import com.cubeia.backend.cashgame.dto.TransactionUpdate;
+import com.cubeia.backend.cashgame.exceptions.BatchHandFailedException;
+import com.cubeia.backend.cashgame.exceptions.CloseSessionFailedException;
+import com.cubeia.backend.firebase.CashGamesBackendService;
+import com.cubeia.firebase.api.action.GameObjectAction;
+import com.cubeia.firebase.api.game.table.Table;
+import com.cubeia.games.poker.adapter.HandHistoryReporter;
+import com.cubeia.games.poker.common.lobby.PokerLobbyAttributes;
+import com.cubeia.firebase.guice.inject.Service;
+import com.cubeia.game.poker.config.api.PokerConfigurationService;
+import com.cubeia.game.poker.config.api.PokerSystemConfig;
+import com.cubeia.games.poker.state.FirebaseState;
+import com.cubeia.games.poker.state.PendingHandSettlement;
+import com.cubeia.poker.PokerState;
+import com.cubeia.poker.states.WaitingToStartSTM;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.inject.Inject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Settles hand results with the wallet without blocking the table.
+ * <p/>
+ * Hands are queued per table in the {@link FirebaseState} and sent one at a time, in the
+ * order they were played, so the wallet never sees hand N+1 before hand N. The table keeps
+ * playing while hands are unconfirmed, but a new hand is not started when the configured
+ * number of hands are waiting for confirmation.
+ * <p/>
+ * Wallet sessions of players leaving the table are not closed until all hands they took part
+ * in are confirmed. If the wallet rejects a hand the queued hands are retried synchronously, and
+ * if that fails too the table is crashed, which closes the sessions with the balances the wallet has.
+ * A hand with an unknown outcome, i.e. the wallet may have settled it, is never sent again. So is a
+ * hand not confirmed within the configured settlement timeout. Hands that could not be settled are
+ * logged and kept in the {@link FirebaseState} for reconciliation with the wallet, and the table is
+ * crashed.
+ * <p/>
+ * The hand history of a hand is stored when the hand is settled, with the wallet transactions
+ * of the players, or without them if the hand could not be settled.
+ */
+public class HandSettlementHandler {
+
+    private static Logger log = LoggerFactory.getLogger(HandSettlementHandler.class);
+
+    private final PokerState state;
+
+    private final Table table;
+
+    @Service
+    @VisibleForTesting
+    protected CashGamesBackendService backend;
+
+    @Service
+    @VisibleForTesting
+    protected PokerConfigurationService configService;
+
+    @Inject
+    @VisibleForTesting
+    protected HandHistoryReporter handHistory;
+
+    @Inject
+    public HandSettlementHandler(PokerState state, Table table) {
+        this.state = state;
+        this.table = table;
+    }
+
+    /**
+     * Returns true if hands should be settled asynchronously.
+     */
+    public boolean isAsynchronous() {
+        PokerSystemConfig config = (configService == null ? null : configService.getSystemConfig());
+        return config != null && config.useAsynchronousHandSettlement();
+    }
+
+    public boolean hasPendingSettlements() {
+        FirebaseState firebaseState = getFirebaseState();
+        return firebaseState != null && !firebaseState.getPendingHandSettlements().isEmpty();
+    }
+
+    /**
+     * Queues a hand for settlement. The request is sent directly if no other hand is in flight.
+     *
+     * @param request          the hand result
+     * @param expectedBalances game balance of each player in the hand, by player id
+     */
+    public void settleAsynchronously(BatchHandRequest request, Map<Integer, BigDecimal> expectedBalances) {
+        LinkedList<PendingHandSettlement> pending = getFirebaseState().getPendingHandSettlements();
+        pending.add(new PendingHandSettlement(request, expectedBalances));
+        log.debug("Queued hand {} for settlement on table {}, {} hands pending", new Object[] {request.getHandId(), table.getId(), pending.size()});
+        if (pending.size() == 1) {
+            send(pending.getFirst());
+        }
+    }
+
+    /**
+     * Checks if the start of a new hand must wait for confirmations. If so the hand will be
+     * started when a confirmation is received.
+     *
+     * @return true if the hand start was deferred
+     */
+    public boolean deferHandStartIfWindowFull() {
+        FirebaseState firebaseState = getFirebaseState();
+        if (!(state.getGameState() instanceof WaitingToStartSTM) || !isWindowFull(firebaseState)) {
+            return false;
+        }
+        log.debug("Deferring hand start on table {}, {} hands waiting for the wallet", table.getId(), firebaseState.getPendingHandSettlements().size());
+        firebaseState.setHandStartDeferred(true);
+        return true;
+    }
+
+    public void handleBatchHandResponse(BatchHandResponse response) {
+        LinkedList<PendingHandSettlement> pending = getFirebaseState().getPendingHandSettlements();
+        PendingHandSettlement settled = pending.peekFirst();
+        if (settled == null || !settled.getHandId().equals(response.getHandId())) {
+            log.warn("Got settlement of hand {} on table {} which is not in flight, ignoring", response.getHandId(), table.getId());
+            return;
+        }
+        pending.removeFirst();
+        confirm(settled, response);
+        onSettled();
+    }
+
+    /**
+     * Handles a failed settlement. If the wallet rejected the hand, the failed hand and the hands
+     * queued after it are retried synchronously. If the outcome is unknown the hand is not sent
+     * again, the hands queued after it are settled and the table is crashed.
+     *
+     * @throws IllegalStateException if the hands could not be settled, this will crash the table
+     */
+    public void handleBatchHandFailedResponse(BatchHandFailedResponse response) {
+        FirebaseState firebaseState = getFirebaseState();
+        PendingHandSettlement failed = firebaseState.getPendingHandSettlements().peekFirst();
+        if (failed == null || !failed.getHandId().equals(response.getHandId())) {
+            log.warn("Got failed settlement of hand {} on table {} which is not in flight, ignoring", response.getHandId(), table.getId());
+            return;
+        }
+        if (response.isOutcomeUnknown()) {
+            abandonInFlight("unknown outcome: " + response.getMessage());
+            return;
+        }
+        log.warn("Settlement of hand {} was rejected on table {}: {}, retrying synchronously", new Object[] {response.getHandId(), table.getId(), response.getMessage()});
+        flushSynchronously(true);
+        onSettled();
+    }
+
+    /**
+     * Handles the settlement timeout of a hand. If the hand is still in flight it is handled as
+     * having an unknown outcome, the hands queued after it are settled and the table is crashed.
+     *
+     * @throws IllegalStateException if the hand was not confirmed in time, this will crash the table
+     */
+    public void handleSettlementTimeout(HandSettlementTimeout timeout) {
+        PendingHandSettlement inFlight = getFirebaseState().getPendingHandSettlements().peekFirst();
+        if (inFlight == null || !inFlight.getHandId().equals(timeout.getHandId())) {
+            log.trace("Hand {} on table {} was settled before its timeout", timeout.getHandId(), table.getId());
+            return;
+        }
+        abandonInFlight("not confirmed within " + getSettlementTimeout() + " ms");
+    }
+
+    /**
+     * Settles the queued hands synchronously. The deferred wallet sessions are closed when no
+     * hand is left unconfirmed.
+     * <p/>
+     * When the table is crashed the hand in flight is left to its asynchronous call, sending
+     * it again could settle it twice. The hand stays pending, so sessions of players leaving
+     * the table are kept open until it is confirmed or its settlement times out.
+     * <p/>
+     * If the wallet fails a hand, that hand and the hands queued after it are moved to the
+     * unreconciled hands of the {@link FirebaseState}, none of them are sent again.
+     *
+     * @param includeInFlight true if the first hand should be settled as well, i.e. the wallet rejected it
+     * @throws IllegalStateException if a hand could not be settled
+     */
+    public void flushSynchronously(boolean includeInFlight) {
+        FirebaseState firebaseState = getFirebaseState();
+        if (firebaseState == null) {
+            return;
+        }
+        LinkedList<PendingHandSettlement> pending = firebaseState.getPendingHandSettlements();
+        PendingHandSettlement inFlight = null;
+        if (!includeInFlight && !pending.isEmpty()) {
+            inFlight = pending.removeFirst();
+        }
+        try {
+            while (!pending.isEmpty()) {
+                PendingHandSettlement settlement = pending.getFirst();
+                confirm(settlement, backend.batchHand(settlement.getRequest()));
+                pending.removeFirst();
+            }
+        } catch (BatchHandFailedException e) {
+            String handId = pending.getFirst().getHandId();
+            log.error("Failed settling hand " + handId + " on table " + table.getId() + ", it and the " + (pending.size() - 1)
+                    + " hands queued after it must be reconciled with the wallet", e);
+            keepForReconciliation(pending.removeFirst(), (e.isOutcomeUnknown() ? "unknown outcome: " : "failed: ") + e.getMessage());
+            while (!pending.isEmpty()) {
+                keepForReconciliation(pending.removeFirst(), "not sent after hand " + handId + " failed");
+            }
+            throw new IllegalStateException("unable to settle hand " + handId, e);
+        } finally {
+            if (inFlight != null) {
+                pending.addFirst(inFlight);
+            } else {
+                closeDeferredSessions();
+            }
+        }
+    }
+
+    /**
+     * Marks the table as ready for close when the hand in flight is settled. Must be called
+     * instead of marking the table directly while {@link #hasPendingSettlements()} is true.
+     */
+    public void closeTableWhenSettled() {
+        log.debug("Table {} will be closed when hand {} is settled", table.getId(), getFirebaseState().getPendingHandSettlements().getFirst().getHandId());
+        getFirebaseState().setCloseWhenHandsSettled(true);
+    }
+
+    /**
+     * Closes the table when all pending hands are settled, by scheduling the close request
+     * again. Must be called instead of closing the table while {@link #hasPendingSettlements()}
+     * is true, a forced close is kept if requested before.
+     */
+    public void closeTableAfterSettlement(boolean forced) {
+        FirebaseState firebaseState = getFirebaseState();
+        CloseTableRequest previous = firebaseState.getDeferredCloseRequest();
+        boolean force = forced || (previous != null && previous.isForced());
+        log.debug("Table {} will be closed when {} pending hands are settled, forced: {}",
+                new Object[] {table.getId(), firebaseState.getPendingHandSettlements().size(), force});
+        firebaseState.setDeferredCloseRequest(new CloseTableRequest(force));
+    }
+
+    /* ----------------------------------------------------
+      *
+      * 	PRIVATE METHODS
+      *
+      *  ---------------------------------------------------- */
+
+    private void send(PendingHandSettlement settlement) {
+        backend.batchHandForTable(settlement.getRequest(), settlement.getRequest().getTableId());
+        GameObjectAction timeout = new GameObjectAction(table.getId());
+        timeout.setAttachment(new HandSettlementTimeout(settlement.getHandId()));
+        table.getScheduler().scheduleAction(timeout, getSettlementTimeout());
+    }
+
+    private void confirm(PendingHandSettlement settlement, BatchHandResponse response) {
+        validateBalances(settlement, response);
+        handHistory.notifyHandSettled(settlement.getHandId(), getTransactionIds(response));
+    }
+
+    /**
+     * Gives up the hand in flight, it must not be sent again as the wallet may have settled it.
+     * The hands queued after it are settled synchronously.
+     */
+    private void abandonInFlight(String reason) {
+        FirebaseState firebaseState = getFirebaseState();
+        PendingHandSettlement inFlight = firebaseState.getPendingHandSettlements().removeFirst();
+        keepForReconciliation(inFlight, reason);
+        flushSynchronously(true);
+        if (firebaseState.isCloseWhenHandsSettled()) {
+            markTableReadyForClose();
+            return;
+        }
+        throw new IllegalStateException("settlement of hand " + inFlight.getHandId() + " failed, " + reason);
+    }
+
+    /**
+     * Keeps a hand that could not be settled in the table state and stores its hand history
+     * without wallet transactions.
+     */
+    private void keepForReconciliation(PendingHandSettlement settlement, String reason) {
+        log.error("Settlement of hand {} on table {} must be reconciled with the wallet, {}, request: {}, expected balances: {}",
+                new Object[] {settlement.getHandId(), table.getId(), reason, settlement.getRequest(), settlement.getExpectedBalances()});
+        getFirebaseState().getUnreconciledHandSettlements().add(settlement);
+        handHistory.notifyHandSettled(settlement.getHandId(), Collections.<Integer, String>emptyMap());
+    }
+
+    private void onSettled() {
+        FirebaseState firebaseState = getFirebaseState();
+        LinkedList<PendingHandSettlement> pending = firebaseState.getPendingHandSettlements();
+        if (!pending.isEmpty()) {
+            send(pending.getFirst());
+        } else {
+            closeDeferredSessions();
+            if (firebaseState.isCloseWhenHandsSettled()) {
+                markTableReadyForClose();
+                return;
+            }
+            if (firebaseState.getDeferredCloseRequest() != null) {
+                scheduleDeferredClose(firebaseState);
+            }
+        }
+
+        if (firebaseState.isHandStartDeferred() && !isWindowFull(firebaseState)) {
+            firebaseState.setHandStartDeferred(false);
+            log.debug("Starting deferred hand on table {}", table.getId());
+            state.timeout();
+        }
+    }
+
+    private void scheduleDeferredClose(FirebaseState firebaseState) {
+        log.debug("All hands settled on table {}, closing it", table.getId());
+        GameObjectAction close = new GameObjectAction(table.getId());
+        close.setAttachment(firebaseState.getDeferredCloseRequest());
+        firebaseState.setDeferredCloseRequest(null);
+        table.getScheduler().scheduleAction(close, 0);
+    }
+
+    private void markTableReadyForClose() {
+        log.debug("All hands settled on closed table {}, marking it ready for close", table.getId());
+        getFirebaseState().setCloseWhenHandsSettled(false);
+        table.getAttributeAccessor().setIntAttribute(PokerLobbyAttributes.TABLE_READY_FOR_CLOSE.name(), 1);
+    }
+
+    private void closeDeferredSessions() {
+        List<PlayerSessionId> sessions = getFirebaseState().getDeferredSessionCloses();
+        for (PlayerSessionId sessionId : new ArrayList<PlayerSessionId>(sessions)) {
+            try {
+                backend.closeSession(new CloseSessionRequest(sessionId));
+            } catch (CloseSessionFailedException e) {
+                log.error("error ending wallet session: " + sessionId, e);
+            }
+        }
+        sessions.clear();
+    }
+
+    /**
+     * Compares the wallet balances with the game balances the players had when the hand ended.
+     * <p/>
+     * Unlike the synchronous settlement, which crashes the table on a difference, a difference
+     * is only logged here. The game balances have moved on with the hands played since, so the
+     * table cannot be reset to the wallet balances, and the wallet balance legitimately differs
+     * if a buy in was reserved in the wallet after the hand ended but before it was settled.
+     */
+    private void validateBalances(PendingHandSettlement settlement, BatchHandResponse response) {
+        for (TransactionUpdate tup : response.getResultingBalances()) {
+            BalanceUpdate bup = tup.getBalance();
+            BigDecimal expected = settlement.getExpectedBalances().get(bup.getPlayerSessionId().playerId);
+            BigDecimal backendBalance = bup.getBalance().getAmount();
+            if (expected == null || expected.compareTo(backendBalance) != 0) {
+                log.warn("backend balance: {} not equal to game balance: {} after hand {}", new Object[] {backendBalance, expected, settlement.getHandId()});
+            }
+        }
+    }
+
+    private Map<Integer, String> getTransactionIds(BatchHandResponse response) {
+        Map<Integer, String> transactionIds = new HashMap<Integer, String>();
+        for (TransactionUpdate tup : response.getResultingBalances()) {
+            transactionIds.put(tup.getBalance().getPlayerSessionId().playerId, String.valueOf(tup.getTransactionId().transactionId));
+        }
+        return transactionIds;
+    }
+
+    private boolean isWindowFull(FirebaseState firebaseState) {
+        PokerSystemConfig config = (configService == null ? null : configService.getSystemConfig());
+        int maxInFlight = (config == null ? 1 : Math.max(1, config.getMaxHandSettlementsInFlight()));
+        return firebaseState.getPendingHandSettlements().size() >= maxInFlight;
+    }
+
+    private long getSettlementTimeout() {
+        PokerSystemConfig config = (configService == null ? null : configService.getSystemConfig());
+        return (config == null ? 60000 : config.getHandSettlementTimeout());
+    }
+
+    private FirebaseState getFirebaseState() {
+        return (FirebaseState) state.getAdapterState();
+    }
+}
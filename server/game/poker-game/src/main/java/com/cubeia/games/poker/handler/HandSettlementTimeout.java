@@ -0,0 +1,44 @@
+/**
+ * Copyright (C) 2012 Cubeia Ltd <info@cubeia.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.cubeia.games.poker.handler;
+
+import java.io.Serializable;
+
+/**
+ * Scheduled on the table when a hand is sent to the wallet, see
+ * {@link HandSettlementHandler#handleSettlementTimeout(HandSettlementTimeout)}.
+ */
+public class HandSettlementTimeout implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final String handId;
+
+    public HandSettlementTimeout(String handId) {
+        this.handId = handId;
+    }
+
+    public String getHandId() {
+        return handId;
+    }
+
+    @Override
+    public String toString() {
+        return "HandSettlementTimeout{handId='" + handId + "'}";
+    }
+}
@@ -31,12 +31,18 @@ import com.cubeia.backend.firebase.CashGamesBackendService;
 import com.cubeia.firebase.api.action.GameDataAction;
 import com.cubeia.firebase.api.game.table.Table;
 import com.cubeia.firebase.guice.inject.Service;
-import com.cubeia.firebase.io.StyxSerializer;
+import com.cubeia.firebase.io.ProtocolObject;
+import com.cubeia.games.poker.adapter.FirebaseServerAdapter;
+import com.cubeia.games.poker.adapter.OutboundPacketBuffer;
 import com.cubeia.games.poker.cache.ActionCache;
 import com.cubeia.games.poker.common.money.Currency;
+import com.cubeia.games.poker.common.money.MinorUnits;
+import com.cubeia.games.poker.io.PokerProtocolCodec;
+import com.cubeia.games.poker.io.protocol.AmountEncodingRequest;
 import com.cubeia.games.poker.io.protocol.BuyInInfoRequest;
 import com.cubeia.games.poker.io.protocol.BuyInRequest;
 import com.cubeia.games.poker.io.protocol.BuyInResponse;
+import com.cubeia.games.poker.io.protocol.CompactPerformAction;
 import com.cubeia.games.poker.io.protocol.Enums.BuyInResultCode;
 import com.cubeia.games.poker.io.protocol.PerformAction;
 import com.cubeia.games.poker.io.protocol.PerformAddOn;
@@ -93,32 +99,59 @@ public class PokerHandler extends DefaultPokerHandler {
     @VisibleForTesting
     BackendCallHandler callHandler;
 
+    @Inject
+    @VisibleForTesting
+    OutboundPacketBuffer outbound = new OutboundPacketBuffer();
+
+    @Inject
+    @VisibleForTesting
+    FirebaseServerAdapter serverAdapter;
+
     public void setPlayerId(int playerId) {
         this.playerId = playerId;
     }
 
     @Override
     public void visit(PerformAction packet) {
-        if (verifySequence(packet)) {
-            long start = System.currentTimeMillis();
-            ThreadLocalProfiler.start();
-            try {
-                PokerAction action = actionTransformer.transform(playerId, packet, state.getSettings().getCurrency());
-                state.act(action);
-            } finally {
-                // Report profiling if slow
-                long elapsed = System.currentTimeMillis() - start;
-                if (elapsed > SLOW_RESPONSE_TIME_MS) {
-                    ThreadLocalProfiler.stop();
-                    log.warn("Slow response time detected. Perform Action took " + elapsed + "ms, (more than " + SLOW_RESPONSE_TIME_MS + " ms.) " +
-                            "Packet: " + packet + "\n" +
-                            ThreadLocalProfiler.getCallStackAsString());
-                }
-                ThreadLocalProfiler.clear();
+        if (verifySequence(packet.seq, packet)) {
+            act(actionTransformer.transform(playerId, packet, state.getSettings().getCurrency()), packet);
+        }
+    }
+
+    @Override
+    public void visit(CompactPerformAction packet) {
+        if (verifySequence(packet.seq, packet)) {
+            act(actionTransformer.transform(playerId, packet, new MinorUnits(state.getSettings().getCurrency())), packet);
+        }
+    }
+
+    private void act(PokerAction action, ProtocolObject packet) {
+        long start = System.currentTimeMillis();
+        ThreadLocalProfiler.start();
+        try {
+            state.act(action);
+        } finally {
+            // Report profiling if slow
+            long elapsed = System.currentTimeMillis() - start;
+            if (elapsed > SLOW_RESPONSE_TIME_MS) {
+                ThreadLocalProfiler.stop();
+                log.warn("Slow response time detected. Perform Action took " + elapsed + "ms, (more than " + SLOW_RESPONSE_TIME_MS + " ms.) " +
+                        "Packet: " + packet + "\n" +
+                        ThreadLocalProfiler.getCallStackAsString());
             }
+            ThreadLocalProfiler.clear();
         }
     }
 
+    /**
+     * Players and watchers can ask for amounts in minor units, the answer tells the client
+     * the number of fractional digits of the table currency.
+     */
+    @Override
+    public void visit(AmountEncodingRequest packet) {
+        serverAdapter.notifyAmountEncoding(playerId, packet.encoding);
+    }
+
     // player wants to sit out next hand
     @Override
     public void visit(PlayerSitoutRequest packet) {
@@ -223,19 +256,17 @@ public class PokerHandler extends DefaultPokerHandler {
 
     private void sendPongToPlayer(PokerPlayerImpl pokerPlayer, int identifier) throws IOException {
         log.debug("sending pong to player {}", pokerPlayer.getId());
-        StyxSerializer styx = new StyxSerializer(null);
         PongPacket pongPacket = new PongPacket(identifier);
         GameDataAction gameDataAction = new GameDataAction(playerId, table.getId());
-        gameDataAction.setData(styx.pack(pongPacket));
-        table.getNotifier().sendToClient(pokerPlayer.getId(), gameDataAction);
+        gameDataAction.setData(PokerProtocolCodec.pack(pongPacket));
+        outbound.sendToClient(table.getNotifier(), pokerPlayer.getId(), gameDataAction);
     }
 
     private void sendBuyInResponseToPlayer(PokerPlayerImpl pokerPlayer, BuyInResponse buyInResponse) throws IOException {
         log.debug("sending buy in response to player {}: {}", pokerPlayer.getId(), buyInResponse);
-        StyxSerializer styx = new StyxSerializer(null);
         GameDataAction gameDataAction = new GameDataAction(playerId, table.getId());
-        gameDataAction.setData(styx.pack(buyInResponse));
-        table.getNotifier().sendToClient(pokerPlayer.getId(), gameDataAction);
+        gameDataAction.setData(PokerProtocolCodec.pack(buyInResponse));
+        outbound.sendToClient(table.getNotifier(), pokerPlayer.getId(), gameDataAction);
         if (cache != null) {
             /*
              * We're not adding this to the cache as it will never be removed when finished,
@@ -248,14 +279,14 @@ public class PokerHandler extends DefaultPokerHandler {
         }
     }
 
-    private boolean verifySequence(PerformAction packet) {
+    private boolean verifySequence(int seq, ProtocolObject packet) {
         FirebaseState fbState = (FirebaseState) state.getAdapterState();
         int current = fbState.getCurrentRequestSequence();
-        if (current >= 0 && current == packet.seq) {
+        if (current >= 0 && current == seq) {
             return true;
 
         } else {
-            log.warn("Ignoring action. current-seq[" + current + "] packet-seq[" + packet.seq + "] - packet[" + packet + "]");
+            log.warn("Ignoring action. current-seq[" + current + "] packet-seq[" + seq + "] - packet[" + packet + "]");
             return false;
         }
 
@@ -274,4 +305,5 @@ public class PokerHandler extends DefaultPokerHandler {
     }
 
 
+
 }
@@ -17,6 +17,7 @@
 
 package com.cubeia.games.poker.jmx;
 
+import com.cubeia.games.poker.cache.ActionCache;
 import com.cubeia.games.poker.jmx.stats.StatCounter;
 import com.cubeia.games.poker.jmx.stats.StateMap;
 import org.apache.log4j.Logger;
@@ -59,6 +60,11 @@ public class PokerStats implements PokerStatsMBean {
      */
     private boolean stateTrackingEnabled = false;
 
+    /**
+     * Cache of the actions composing the game state of each table, set when created.
+     */
+    private volatile ActionCache actionCache;
+
     /*------------------------------------------------
 
        CONSTRUCTOR(S)
@@ -126,6 +132,35 @@ public class PokerStats implements PokerStatsMBean {
         return stateTrackingEnabled;
     }
 
+    public void setActionCache(ActionCache actionCache) {
+        this.actionCache = actionCache;
+    }
+
+    public int getActionCacheTableCount() {
+        ActionCache cache = actionCache;
+        return cache == null ? 0 : cache.getTableCount();
+    }
+
+    public long getActionCacheEntryCount() {
+        ActionCache cache = actionCache;
+        return cache == null ? 0 : cache.getTotalEntryCount();
+    }
+
+    public long getActionCacheByteCount() {
+        ActionCache cache = actionCache;
+        return cache == null ? 0 : cache.getTotalByteCount();
+    }
+
+    public int getActionCacheEntryCount(int tableId) {
+        ActionCache cache = actionCache;
+        return cache == null ? 0 : cache.getEntryCount(tableId);
+    }
+
+    public long getActionCacheByteCount(int tableId) {
+        ActionCache cache = actionCache;
+        return cache == null ? 0 : cache.getByteCount(tableId);
+    }
+
     /*------------------------------------------------
 
        JMX INITIALIZATION & DESTRUCTION
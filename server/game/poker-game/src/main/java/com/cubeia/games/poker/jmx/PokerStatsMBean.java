@@ -32,4 +32,14 @@ public interface PokerStatsMBean {
     public void setStateTrackingEnabled(boolean enabled);
 
     public boolean isStateTrackingEnabled();
+
+    public int getActionCacheTableCount();
+
+    public long getActionCacheEntryCount();
+
+    public long getActionCacheByteCount();
+
+    public int getActionCacheEntryCount(int tableId);
+
+    public long getActionCacheByteCount(int tableId);
 }
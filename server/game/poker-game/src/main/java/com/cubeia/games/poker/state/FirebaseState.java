@@ -17,9 +17,16 @@
 
 package com.cubeia.games.poker.state;
 
+import com.cubeia.backend.cashgame.PlayerSessionId;
+import com.cubeia.backend.cashgame.dto.CloseTableRequest;
 import com.cubeia.games.poker.entity.HandIdentifier;
 
 import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Set;
 
 public class FirebaseState implements Serializable {
 
@@ -33,6 +40,40 @@ public class FirebaseState implements Serializable {
 
     private HandIdentifier currentHandIdentifier;
 
+    /**
+     * Hands not yet confirmed by the wallet, oldest first. Only the first one is in flight.
+     */
+    private LinkedList<PendingHandSettlement> pendingHandSettlements;
+
+    /**
+     * Wallet sessions of players that left while hands were pending, closed when all are confirmed.
+     */
+    private List<PlayerSessionId> deferredSessionCloses;
+
+    /**
+     * Hands the wallet failed to settle, or may not have settled, with the balances the
+     * players had in the game. They are never sent again and must be reconciled with the wallet.
+     */
+    private List<PendingHandSettlement> unreconciledHandSettlements;
+
+    /**
+     * Close of the table requested while hands were pending, run when they are settled.
+     */
+    private CloseTableRequest deferredCloseRequest;
+
+    private boolean handStartDeferred;
+
+    /**
+     * True if the table has been closed while a hand was in flight, it is marked as ready
+     * for close when all hands are settled.
+     */
+    private boolean closeWhenHandsSettled;
+
+    /**
+     * Players and watchers that have asked for amounts in minor units.
+     */
+    private Set<Integer> minorUnitAmountPlayers;
+
     public int getCurrentRequestSequence() {
         return currentRequestSequence;
     }
@@ -56,4 +97,68 @@ public class FirebaseState implements Serializable {
     public void incrementHandCount() {
         handCount++;
     }
+
+    public LinkedList<PendingHandSettlement> getPendingHandSettlements() {
+        if (pendingHandSettlements == null) {
+            pendingHandSettlements = new LinkedList<PendingHandSettlement>();
+        }
+        return pendingHandSettlements;
+    }
+
+    public List<PlayerSessionId> getDeferredSessionCloses() {
+        if (deferredSessionCloses == null) {
+            deferredSessionCloses = new ArrayList<PlayerSessionId>();
+        }
+        return deferredSessionCloses;
+    }
+
+    public List<PendingHandSettlement> getUnreconciledHandSettlements() {
+        if (unreconciledHandSettlements == null) {
+            unreconciledHandSettlements = new ArrayList<PendingHandSettlement>();
+        }
+        return unreconciledHandSettlements;
+    }
+
+    public CloseTableRequest getDeferredCloseRequest() {
+        return deferredCloseRequest;
+    }
+
+    public void setDeferredCloseRequest(CloseTableRequest deferredCloseRequest) {
+        this.deferredCloseRequest = deferredCloseRequest;
+    }
+
+    public boolean isHandStartDeferred() {
+        return handStartDeferred;
+    }
+
+    public void setHandStartDeferred(boolean handStartDeferred) {
+        this.handStartDeferred = handStartDeferred;
+    }
+
+    public boolean isCloseWhenHandsSettled() {
+        return closeWhenHandsSettled;
+    }
+
+    public void setCloseWhenHandsSettled(boolean closeWhenHandsSettled) {
+        this.closeWhenHandsSettled = closeWhenHandsSettled;
+    }
+
+    public void setMinorUnitAmounts(int playerId, boolean minorUnits) {
+        if (minorUnits) {
+            if (minorUnitAmountPlayers == null) {
+                minorUnitAmountPlayers = new HashSet<Integer>();
+            }
+            minorUnitAmountPlayers.add(playerId);
+        } else if (minorUnitAmountPlayers != null) {
+            minorUnitAmountPlayers.remove(playerId);
+        }
+    }
+
+    public boolean usesMinorUnitAmounts(int playerId) {
+        return minorUnitAmountPlayers != null && minorUnitAmountPlayers.contains(playerId);
+    }
+
+    public boolean hasMinorUnitAmountPlayers() {
+        return minorUnitAmountPlayers != null && !minorUnitAmountPlayers.isEmpty();
+    }
 }
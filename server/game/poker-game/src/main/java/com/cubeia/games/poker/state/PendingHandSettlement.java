@@ -0,0 +1,68 @@
+/**
+ * Copyright (C) 2012 Cubeia Ltd <info@cubeia.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.cubeia.games.poker.state;
+
+import com.cubeia.backend.cashgame.dto.BatchHandRequest;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.util.Map;
+
+/**
+ * A hand result sent, or waiting to be sent, to the wallet but not yet confirmed.
+ * <p/>
+ * The balances the players had in the game when the hand ended are kept so that
+ * the wallet balances in the confirmation can be checked against them even if
+ * later hands have been played.
+ */
+public class PendingHandSettlement implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final BatchHandRequest request;
+
+    private final Map<Integer, BigDecimal> expectedBalances;
+
+    public PendingHandSettlement(BatchHandRequest request, Map<Integer, BigDecimal> expectedBalances) {
+        this.request = request;
+        this.expectedBalances = expectedBalances;
+    }
+
+    public BatchHandRequest getRequest() {
+        return request;
+    }
+
+    public String getHandId() {
+        return request.getHandId();
+    }
+
+    /**
+     * Returns the game balance of each player in the hand, by player id.
+     */
+    public Map<Integer, BigDecimal> getExpectedBalances() {
+        return expectedBalances;
+    }
+
+    @Override
+    public String toString() {
+        return "PendingHandSettlement{" +
+                "handId='" + getHandId() + '\'' +
+                ", expectedBalances=" + expectedBalances +
+                '}';
+    }
+}
@@ -19,23 +19,13 @@ package com.cubeia.games.poker.util;
 
 import com.cubeia.firebase.api.action.GameDataAction;
 import com.cubeia.firebase.io.ProtocolObject;
-import com.cubeia.firebase.io.StyxSerializer;
-
-import java.io.IOException;
-import java.nio.ByteBuffer;
+import com.cubeia.games.poker.io.PokerProtocolCodec;
 
 public class ProtocolFactory {
 
-    /**
-     * We only need writing so no injected factory is needed
-     */
-    private StyxSerializer serializer = new StyxSerializer(null);
-
     public GameDataAction createGameAction(ProtocolObject packet, int playerId, int tableId) {
         GameDataAction action = new GameDataAction(playerId, tableId);
-        ByteBuffer buffer;
-        buffer = serializer.pack(packet);
-        action.setData(buffer);
+        action.setData(PokerProtocolCodec.pack(packet));
         return action;
     }
 
@@ -38,11 +38,14 @@ import org.mockito.Mockito;
 
 import java.io.IOException;
 import java.math.BigDecimal;
+import java.nio.ByteBuffer;
 import java.util.*;
 
 import static java.util.Arrays.asList;
 import static org.hamcrest.CoreMatchers.instanceOf;
 import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.sameInstance;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.*;
@@ -343,6 +346,24 @@ public class GameStateSummaryCreatorTest {
         Assert.assertEquals(0, request.timeToAct);
     }
 
+    @Test
+    public void testAdjustTimeoutIsNotRepeatedOnEveryReconnect() throws Exception {
+        GameStateSender gameStateSummaryCreator = new GameStateSender(null, dateFetcher);
+        StyxSerializer styx = new StyxSerializer(new ProtocolObjectFactory());
+
+        GameDataAction lastRequest = new GameDataAction(333, 1);
+        lastRequest.setData(styx.pack(new RequestAction("0", 1, 111, new ArrayList<PlayerAction>(), 100)));
+        List<ActionContainer> actions = asList(createPrivate(333, lastRequest, timestamp));
+
+        when(dateFetcher.date()).thenReturn(now.plusMillis(20));
+        gameStateSummaryCreator.filterRequestActions(actions, -99);
+        gameStateSummaryCreator.filterRequestActions(actions, -99);
+        List<GameAction> filteredActions = gameStateSummaryCreator.filterRequestActions(actions, -99);
+
+        RequestAction request = (RequestAction) styx.unpack(((GameDataAction) filteredActions.get(0)).getData());
+        Assert.assertEquals(80, request.timeToAct);
+    }
+
     @Test
     public void testAdjustTimeoutWithDisconnect() throws Exception {
         GameStateSender gameStateSummaryCreator = new GameStateSender(null, dateFetcher);
@@ -371,6 +392,82 @@ public class GameStateSummaryCreatorTest {
         assertTrue(request.timeToAct > 100);
     }
 
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    @Test
+    public void testSendGameStateToWatcher() throws IOException {
+        int tableId = 234;
+        int watcherId = 1337;
+        ActionCache actionCache = new ActionCache(dateFetcher);
+        GameStateSender gameStateSender = new GameStateSender(actionCache, dateFetcher);
+        StyxSerializer styx = new StyxSerializer(new ProtocolObjectFactory());
+
+        GameDataAction answeredRequest = new GameDataAction(222, tableId);
+        answeredRequest.setData(styx.pack(new RequestAction("0", 1, 222, new ArrayList<PlayerAction>(), 1000)));
+        actionCache.addPublicAction(tableId, answeredRequest);
+        GameDataAction perform = new GameDataAction(222, tableId);
+        perform.setData(styx.pack(new PerformAction(1, 222, new PlayerAction(), "10", "10", "10", false, new int[]{})));
+        actionCache.addPublicAction(tableId, perform);
+        GameDataAction cards = new GameDataAction(222, tableId);
+        cards.setData(styx.pack(new DealPublicCards(new ArrayList<GameCard>())));
+        actionCache.addPublicAction(tableId, cards);
+        GameDataAction pendingRequest = new GameDataAction(333, tableId);
+        pendingRequest.setData(styx.pack(new RequestAction("0", 2, 333, new ArrayList<PlayerAction>(), 1000)));
+        ByteBuffer cachedData = pendingRequest.getData();
+        actionCache.addPublicAction(tableId, pendingRequest);
+        actionCache.addPrivateAction(tableId, 333, new GameDataAction(333, tableId));
+
+        Table table = mock(Table.class);
+        GameNotifier gameNotifier = mock(GameNotifier.class);
+        when(table.getNotifier()).thenReturn(gameNotifier);
+        when(table.getId()).thenReturn(tableId);
+
+        gameStateSender.sendGameStateToWatcher(table, watcherId);
+
+        ArgumentCaptor<Collection> gameStateCaptor = ArgumentCaptor.forClass(Collection.class);
+        verify(gameNotifier).notifyPlayer(Mockito.eq(watcherId), gameStateCaptor.capture());
+        List<GameAction> gameState = new ArrayList<GameAction>(gameStateCaptor.getValue());
+
+        assertThat(gameState.size(), is(5));
+        assertThat(extractProtocolObject((GameDataAction) gameState.get(0)), instanceOf(StartHandHistory.class));
+        assertThat(gameState.get(1), sameInstance((GameAction) perform));
+        assertThat(gameState.get(2), sameInstance((GameAction) cards));
+        assertThat(gameState.get(3), not(sameInstance((GameAction) pendingRequest)));
+        RequestAction request = (RequestAction) extractProtocolObject((GameDataAction) gameState.get(3));
+        assertThat(request.seq, is(2));
+        assertThat(request.timeToAct, is(1000));
+        assertThat(extractProtocolObject((GameDataAction) gameState.get(4)), instanceOf(StopHandHistory.class));
+        assertThat(pendingRequest.getData(), sameInstance(cachedData));
+    }
+
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    @Test
+    public void testSendGameStateToWatcherWithOwnActions() throws IOException {
+        int tableId = 234;
+        int playerId = 1337;
+        ActionCache actionCache = new ActionCache(dateFetcher);
+        GameStateSender gameStateSender = new GameStateSender(actionCache, dateFetcher);
+
+        GameAction publicAction = new GameDataAction(222, tableId);
+        actionCache.addPublicAction(tableId, publicAction);
+        GameAction privateAction = new GameDataAction(playerId, tableId);
+        actionCache.addPrivateAction(tableId, playerId, privateAction);
+
+        Table table = mock(Table.class);
+        GameNotifier gameNotifier = mock(GameNotifier.class);
+        when(table.getNotifier()).thenReturn(gameNotifier);
+        when(table.getId()).thenReturn(tableId);
+
+        gameStateSender.sendGameStateToWatcher(table, playerId);
+
+        ArgumentCaptor<Collection> gameStateCaptor = ArgumentCaptor.forClass(Collection.class);
+        verify(gameNotifier).notifyPlayer(Mockito.eq(playerId), gameStateCaptor.capture());
+        List<GameAction> gameState = new ArrayList<GameAction>(gameStateCaptor.getValue());
+
+        assertThat(gameState.size(), is(4));
+        assertThat(gameState.get(1), sameInstance(publicAction));
+        assertThat(gameState.get(2), sameInstance(privateAction));
+    }
+
     private ProtocolObject extractProtocolObject(GameDataAction gda) throws IOException {
         StyxSerializer styx = new StyxSerializer(new ProtocolObjectFactory());
         return styx.unpack(gda.getData());
@@ -17,6 +17,8 @@
 
 package com.cubeia.games.poker.activator;
 
+import com.cubeia.game.poker.config.api.PokerConfigurationService;
+import com.cubeia.game.poker.config.api.PokerSystemConfig;
 import com.cubeia.games.poker.entity.TableConfigTemplate;
 import com.cubeia.poker.timing.TimingFactory;
 import com.google.inject.Guice;
@@ -28,16 +30,20 @@ import org.junit.Test;
 import java.math.BigDecimal;
 
 import static com.cubeia.poker.PokerVariant.TELESINA;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
 
 public class ParticipantFactoryImplTest {
 
 
 	@Inject
 	private ParticipantFactory fact;
+
+	private TestServiceRegistry registry = new TestServiceRegistry();
 	
 	@Before
 	public void setup() throws Exception {
-		Guice.createInjector(new TestActivatorModule()).injectMembers(this);
+		Guice.createInjector(new TestActivatorModule(registry)).injectMembers(this);
 	}
 	
 	@Test
@@ -48,6 +54,16 @@ public class ParticipantFactoryImplTest {
 		Assert.assertNotNull(part.getCashGameBackendService());
 		Assert.assertEquals(templ, part.getTemplate());
 		Assert.assertEquals(6, part.getSeats());
+		Assert.assertFalse(part.isFixedPointAmounts());
+	}
+
+	@Test
+	public void testFixedPointAmountsFromSystemConfig() {
+		PokerSystemConfig systemConfig = mock(PokerSystemConfig.class);
+		when(systemConfig.useFixedPointAmounts()).thenReturn(true);
+		when(registry.getServiceInstance(PokerConfigurationService.class).getSystemConfig()).thenReturn(systemConfig);
+
+		Assert.assertTrue(fact.createParticipantFor(createTemplate()).isFixedPointAmounts());
 	}
 	
 	
@@ -30,12 +30,17 @@ import com.cubeia.firebase.api.action.GameAction;
 import com.cubeia.firebase.api.action.GameDataAction;
 import com.cubeia.firebase.api.action.GameObjectAction;
 import com.cubeia.firebase.api.game.GameNotifier;
+import com.cubeia.firebase.api.game.player.GenericPlayer;
 import com.cubeia.firebase.api.game.table.Table;
 import com.cubeia.firebase.api.game.table.TableMetaData;
+import com.cubeia.firebase.api.game.table.TablePlayerSet;
 import com.cubeia.firebase.api.game.table.TableScheduler;
+import com.cubeia.firebase.api.game.table.TableWatcherSet;
 import com.cubeia.firebase.io.StyxSerializer;
 import com.cubeia.game.poker.config.api.PokerConfigurationService;
+import com.cubeia.games.poker.cache.ActionCache;
 import com.cubeia.games.poker.common.money.Currency;
+import com.cubeia.games.poker.common.money.MinorUnits;
 import com.cubeia.games.poker.common.money.Money;
 import com.cubeia.games.poker.handler.ActionTransformer;
 import com.cubeia.games.poker.handler.Trigger;
@@ -49,6 +54,7 @@ import com.cubeia.games.poker.state.FirebaseState;
 import com.cubeia.games.poker.util.ProtocolFactory;
 import com.cubeia.poker.PokerState;
 import com.cubeia.poker.action.ActionRequest;
+import com.cubeia.poker.action.PokerAction;
 import com.cubeia.poker.action.PossibleAction;
 import com.cubeia.poker.hand.Card;
 import com.cubeia.poker.hand.HandType;
@@ -59,6 +65,7 @@ import com.cubeia.poker.pot.PotTransition;
 import com.cubeia.poker.settings.PokerSettings;
 import com.cubeia.poker.timing.Periods;
 import com.cubeia.poker.timing.TimingProfile;
+import mock.UnmongofiableSet;
 import org.junit.Before;
 import org.junit.Ignore;
 import org.junit.Test;
@@ -114,6 +121,18 @@ public class FirebaseServerAdapterTest {
     private PokerConfigurationService configService;
     private Currency eur = new Currency( "EUR", 2);
 
+    @Mock
+    private PokerAction pokerAction;
+
+    @Mock
+    private PokerPlayer pokerPlayer;
+
+    @Mock
+    private GameDataAction decimalAction;
+
+    @Mock
+    private GameDataAction compactAction;
+
     @Before
     public void setup() {
         initMocks(this);
@@ -782,6 +801,133 @@ public class FirebaseServerAdapterTest {
     }
 
 
+    @Test
+    public void testActionPerformedSentCompactWhenAllRecipientsUseMinorUnits() {
+        FirebaseState firebaseState = setupMinorUnitTable(asList(1, 2), Collections.<Integer>emptyList());
+        firebaseState.setMinorUnitAmounts(1, true);
+        firebaseState.setMinorUnitAmounts(2, true);
+
+        adapter.notifyActionPerformed(pokerAction, pokerPlayer);
+
+        verify(notifier).notifyAllPlayers(compactAction);
+        verify(notifier, never()).notifyAllPlayers(decimalAction);
+        verify(notifier, never()).notifyPlayer(anyInt(), any(GameAction.class));
+        verifyOnlyDecimalActionCached();
+    }
+
+    @Test
+    public void testActionPerformedSentDecimalWhenNoRecipientUsesMinorUnits() {
+        FirebaseState firebaseState = setupMinorUnitTable(asList(1, 2), asList(5));
+        firebaseState.setMinorUnitAmounts(7, true);
+
+        adapter.notifyActionPerformed(pokerAction, pokerPlayer);
+
+        verify(notifier).notifyAllPlayers(decimalAction);
+        verify(notifier, never()).notifyAllPlayers(compactAction);
+        verify(notifier, never()).notifyPlayer(anyInt(), any(GameAction.class));
+        verifyOnlyDecimalActionCached();
+    }
+
+    @Test
+    public void testActionPerformedBroadcastDecimalExceptSingleMinorUnitRecipient() {
+        FirebaseState firebaseState = setupMinorUnitTable(asList(1, 2), asList(5));
+        firebaseState.setMinorUnitAmounts(1, true);
+
+        adapter.notifyActionPerformed(pokerAction, pokerPlayer);
+
+        verify(notifier).notifyAllPlayersExceptOne(decimalAction, 1);
+        verify(notifier).notifyPlayer(1, compactAction);
+        verify(notifier, never()).notifyPlayer(eq(2), any(GameAction.class));
+        verify(notifier, never()).notifyPlayer(eq(5), any(GameAction.class));
+        verifyOnlyDecimalActionCached();
+    }
+
+    @Test
+    public void testActionPerformedBroadcastCompactExceptSingleDecimalRecipient() {
+        FirebaseState firebaseState = setupMinorUnitTable(asList(1, 2), asList(5));
+        firebaseState.setMinorUnitAmounts(1, true);
+        firebaseState.setMinorUnitAmounts(2, true);
+
+        adapter.notifyActionPerformed(pokerAction, pokerPlayer);
+
+        verify(notifier).notifyAllPlayersExceptOne(compactAction, 5);
+        verify(notifier).notifyPlayer(5, decimalAction);
+        verify(notifier, never()).notifyPlayer(eq(1), any(GameAction.class));
+        verify(notifier, never()).notifyPlayer(eq(2), any(GameAction.class));
+        verifyOnlyDecimalActionCached();
+    }
+
+    @Test
+    public void testActionPerformedSentPerPlayerWhenBothGroupsAreLarger() {
+        FirebaseState firebaseState = setupMinorUnitTable(asList(1, 2), asList(5, 6));
+        firebaseState.setMinorUnitAmounts(1, true);
+        firebaseState.setMinorUnitAmounts(5, true);
+
+        adapter.notifyActionPerformed(pokerAction, pokerPlayer);
+
+        verify(notifier).notifyPlayer(1, compactAction);
+        verify(notifier).notifyPlayer(5, compactAction);
+        verify(notifier).notifyPlayer(2, decimalAction);
+        verify(notifier).notifyPlayer(6, decimalAction);
+        verify(notifier, never()).notifyAllPlayers(any(GameAction.class));
+        verify(notifier, never()).notifyAllPlayersExceptOne(any(GameAction.class), anyInt());
+        verifyOnlyDecimalActionCached();
+    }
+
+    @Test
+    public void testNotifyAmountEncoding() {
+        FirebaseState firebaseState = new FirebaseState();
+        when(pokerState.getAdapterState()).thenReturn(firebaseState);
+        adapter.cache = mock(ActionCache.class);
+        GameDataAction response = mock(GameDataAction.class);
+        when(protocolFactory.createGameAction(any(AmountEncodingResponse.class), eq(3), eq(1337))).thenReturn(response);
+
+        adapter.notifyAmountEncoding(3, Enums.AmountEncoding.MINOR_UNITS);
+
+        assertThat(firebaseState.usesMinorUnitAmounts(3), is(true));
+        ArgumentCaptor<AmountEncodingResponse> captor = ArgumentCaptor.forClass(AmountEncodingResponse.class);
+        verify(protocolFactory).createGameAction(captor.capture(), eq(3), eq(1337));
+        assertThat(captor.getValue().encoding, is(Enums.AmountEncoding.MINOR_UNITS));
+        assertThat(captor.getValue().fractionalDigits, is(2));
+        verify(notifier).sendToClient(3, response);
+        verifyZeroInteractions(adapter.cache);
+    }
+
+    private FirebaseState setupMinorUnitTable(List<Integer> playerIds, List<Integer> watcherIds) {
+        FirebaseState firebaseState = new FirebaseState();
+        when(pokerState.getAdapterState()).thenReturn(firebaseState);
+        adapter.cache = mock(ActionCache.class);
+
+        List<GenericPlayer> players = new ArrayList<GenericPlayer>();
+        for (Integer playerId : playerIds) {
+            GenericPlayer player = mock(GenericPlayer.class);
+            when(player.getPlayerId()).thenReturn(playerId);
+            players.add(player);
+        }
+        TablePlayerSet playerSet = mock(TablePlayerSet.class);
+        when(playerSet.getPlayers()).thenReturn(new UnmongofiableSet<GenericPlayer>(players));
+        when(table.getPlayerSet()).thenReturn(playerSet);
+        TableWatcherSet watcherSet = mock(TableWatcherSet.class);
+        when(watcherSet.getWatchers()).thenReturn(new UnmongofiableSet<Integer>(watcherIds));
+        when(table.getWatcherSet()).thenReturn(watcherSet);
+
+        ActionTransformer actionTransformer = mock(ActionTransformer.class);
+        adapter.actionTransformer = actionTransformer;
+        PerformAction performAction = new PerformAction();
+        CompactPerformAction compactPerformAction = new CompactPerformAction();
+        when(pokerAction.getPlayerId()).thenReturn(1);
+        when(actionTransformer.transform(pokerAction, pokerPlayer)).thenReturn(performAction);
+        when(actionTransformer.transformCompact(eq(pokerAction), eq(pokerPlayer), any(MinorUnits.class))).thenReturn(compactPerformAction);
+        when(protocolFactory.createGameAction(performAction, 1, 1337)).thenReturn(decimalAction);
+        when(protocolFactory.createGameAction(compactPerformAction, 1, 1337)).thenReturn(compactAction);
+        return firebaseState;
+    }
+
+    private void verifyOnlyDecimalActionCached() {
+        verify(adapter.cache).addPublicActionWithExclusion(1337, decimalAction, -1);
+        verify(adapter.cache, never()).addPublicActionWithExclusion(anyInt(), eq(compactAction), anyInt());
+    }
+
     @Ignore
     @Test
     public void validateAndUpdateBalances() {
@@ -0,0 +1,150 @@
+/**
+ * Copyright (C) 2010 Cubeia Ltd <info@cubeia.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.cubeia.games.poker.adapter;
+
+import com.cubeia.firebase.api.action.GameAction;
+import com.cubeia.firebase.api.action.GameDataAction;
+import com.cubeia.firebase.api.game.GameNotifier;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.MockitoAnnotations.initMocks;
+
+public class OutboundPacketBufferTest {
+
+    @Mock
+    private GameNotifier notifier;
+
+    private OutboundPacketBuffer buffer = new OutboundPacketBuffer();
+
+    private GameAction a1 = new GameDataAction(0, 1);
+    private GameAction a2 = new GameDataAction(0, 1);
+    private GameAction a3 = new GameDataAction(0, 1);
+    private GameAction a4 = new GameDataAction(0, 1);
+    private GameAction a5 = new GameDataAction(0, 1);
+
+    @Before
+    public void setup() {
+        initMocks(this);
+    }
+
+    @Test
+    public void testSendsConsecutiveActionsToSameRecipientsAsList() {
+        buffer.start();
+        assertTrue(buffer.isBuffering());
+        buffer.addPublic(a1, -1);
+        buffer.addPublic(a2, -1);
+        buffer.addPublic(a3, 5);
+        buffer.addPrivate(5, a4);
+        buffer.addPrivate(5, a5);
+        buffer.flush(notifier);
+
+        InOrder order = inOrder(notifier);
+        order.verify(notifier).notifyAllPlayers(Arrays.asList(a1, a2));
+        order.verify(notifier).notifyAllPlayersExceptOne(a3, 5);
+        order.verify(notifier).notifyPlayer(5, Arrays.asList(a4, a5));
+        verifyNoMoreInteractions(notifier);
+        assertFalse(buffer.isBuffering());
+    }
+
+    @Test
+    public void testKeepsOrderOfInterleavedActions() {
+        buffer.start();
+        buffer.addPublic(a1, -1);
+        buffer.addPrivate(5, a2);
+        buffer.addPublic(a3, -1);
+        buffer.addPrivate(6, a4);
+        buffer.flush(notifier);
+
+        InOrder order = inOrder(notifier);
+        order.verify(notifier).notifyAllPlayers(a1);
+        order.verify(notifier).notifyPlayer(5, a2);
+        order.verify(notifier).notifyAllPlayers(a3);
+        order.verify(notifier).notifyPlayer(6, a4);
+        verifyNoMoreInteractions(notifier);
+    }
+
+    @Test
+    public void testSendsClientActionsOneByOneInOrder() {
+        buffer.start();
+        buffer.addPrivate(5, a1);
+        buffer.addToClient(5, a2);
+        buffer.addToClient(5, a3);
+        buffer.addPrivate(5, a4);
+        buffer.flush(notifier);
+
+        InOrder order = inOrder(notifier);
+        order.verify(notifier).notifyPlayer(5, a1);
+        order.verify(notifier).sendToClient(5, a2);
+        order.verify(notifier).sendToClient(5, a3);
+        order.verify(notifier).notifyPlayer(5, a4);
+        verifyNoMoreInteractions(notifier);
+    }
+
+    @Test
+    public void testNotifyMethodsSendDirectlyWhenNotBuffering() {
+        buffer.notifyAllPlayers(notifier, a1, -1);
+        buffer.notifyAllPlayers(notifier, a2, 5);
+        buffer.notifyPlayer(notifier, 5, a3);
+        buffer.sendToClient(notifier, 5, a4);
+
+        InOrder order = inOrder(notifier);
+        order.verify(notifier).notifyAllPlayers(a1);
+        order.verify(notifier).notifyAllPlayersExceptOne(a2, 5);
+        order.verify(notifier).notifyPlayer(5, a3);
+        order.verify(notifier).sendToClient(5, a4);
+        verifyNoMoreInteractions(notifier);
+    }
+
+    @Test
+    public void testNotifyMethodsBufferWhileBuffering() {
+        buffer.start();
+        buffer.notifyAllPlayers(notifier, a1, -1);
+        buffer.notifyPlayer(notifier, 5, a2);
+        buffer.sendToClient(notifier, 5, a3);
+        verifyNoMoreInteractions(notifier);
+
+        buffer.flush(notifier);
+
+        InOrder order = inOrder(notifier);
+        order.verify(notifier).notifyAllPlayers(a1);
+        order.verify(notifier).notifyPlayer(5, a2);
+        order.verify(notifier).sendToClient(5, a3);
+        verifyNoMoreInteractions(notifier);
+    }
+
+    @Test
+    public void testFlushClearsBuffer() {
+        buffer.start();
+        buffer.addPublic(a1, -1);
+        buffer.flush(notifier);
+        buffer.flush(notifier);
+
+        InOrder order = inOrder(notifier);
+        order.verify(notifier).notifyAllPlayers(a1);
+        verifyNoMoreInteractions(notifier);
+    }
+}
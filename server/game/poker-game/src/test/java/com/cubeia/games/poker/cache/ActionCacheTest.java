@@ -23,6 +23,8 @@ import com.cubeia.games.poker.common.time.DefaultSystemTime;
 
 import org.junit.Test;
 
+import java.nio.ByteBuffer;
+import java.util.Collection;
 import java.util.List;
 
 import static java.util.Arrays.asList;
@@ -93,4 +95,69 @@ public class ActionCacheTest {
         assertThat(cache.getPrivateAndPublicActions(tableId, playerId2).size(), is(0));
     }
 
+    @Test
+    public void testSnapshotIsNotAffectedByLaterActions() {
+        int tableId = 1;
+        cache.addPublicAction(tableId, new GameDataAction(11, tableId));
+        Collection<ActionContainer> actions = cache.getPrivateAndPublicActions(tableId, 11);
+
+        for (int i = 0; i < 100; i++) {
+            cache.addPublicAction(tableId, new GameDataAction(11, tableId));
+        }
+
+        assertThat(actions.size(), is(1));
+        assertThat(cache.getPublicActions(tableId).size(), is(101));
+    }
+
+    @Test
+    public void testWatcherReplay() {
+        int tableId = 1;
+        GameAction actionPublic1 = new GameDataAction(11, tableId);
+        cache.addPublicAction(tableId, actionPublic1);
+        cache.addPrivateAction(tableId, 1337, new GameDataAction(1337, tableId));
+        GameAction actionPublic2 = new GameDataAction(22, tableId);
+        cache.addPublicActionWithExclusion(tableId, actionPublic2, 42);
+
+        WatcherReplay replay = cache.getWatcherReplay(tableId);
+        assertThat(replay.getActions().size(), is(2));
+        assertThat(replay.getActions().get(0).getGameAction(), is(actionPublic1));
+        assertThat(replay.getActions().get(1).getGameAction(), is(actionPublic2));
+        assertThat(replay.getVersion(), is(3));
+        assertThat(replay.hasActionsFor(1337), is(true));
+        assertThat(replay.hasActionsFor(42), is(true));
+        assertThat(replay.hasActionsFor(11), is(false));
+
+        cache.clear(tableId);
+
+        assertThat(cache.getWatcherReplay(tableId).getActions().size(), is(0));
+        assertThat(cache.getWatcherReplay(tableId).hasActionsFor(1337), is(false));
+    }
+
+    @Test
+    public void testEntryAndByteCounts() {
+        GameDataAction action1 = new GameDataAction(11, 1);
+        action1.setData(ByteBuffer.allocate(10));
+        GameDataAction action2 = new GameDataAction(11, 1);
+        action2.setData(ByteBuffer.allocate(5));
+        GameDataAction action3 = new GameDataAction(11, 2);
+        action3.setData(ByteBuffer.allocate(7));
+
+        cache.addPublicAction(1, action1);
+        cache.addPrivateAction(1, 11, action2);
+        cache.addPublicAction(2, action3);
+
+        assertThat(cache.getEntryCount(1), is(2));
+        assertThat(cache.getByteCount(1), is(15L));
+        assertThat(cache.getTableCount(), is(2));
+        assertThat(cache.getTotalEntryCount(), is(3L));
+        assertThat(cache.getTotalByteCount(), is(22L));
+
+        cache.clear(1);
+
+        assertThat(cache.getEntryCount(1), is(0));
+        assertThat(cache.getByteCount(1), is(0L));
+        assertThat(cache.getTableCount(), is(1));
+        assertThat(cache.getTotalByteCount(), is(7L));
+    }
+
 }
@@ -17,8 +17,11 @@
 
 package com.cubeia.games.poker.handler;
 
+import com.cubeia.games.poker.common.money.Currency;
+import com.cubeia.games.poker.common.money.MinorUnits;
 import com.cubeia.games.poker.io.protocol.*;
 import com.cubeia.games.poker.io.protocol.Enums.ActionType;
+import com.cubeia.poker.action.PokerAction;
 import com.cubeia.poker.action.PokerActionType;
 import com.cubeia.poker.hand.*;
 import com.cubeia.poker.model.PlayerHand;
@@ -223,6 +226,32 @@ public class ActionTransformerTest {
         assertThat(potTransferPacket.potId, is((byte) potId));
     }
 
+    @Test
+    public void testCreateCompactPotTransferPacket() {
+        PokerPlayer player = mock(PokerPlayer.class);
+        when(player.getId()).thenReturn(333);
+        Pot pot = mock(Pot.class);
+        when(pot.getId()).thenReturn(2);
+
+        PotTransition potTransition = new PotTransition(player, pot, new BigDecimal("34.50"));
+        CompactPotTransfer packet = actionTransformer.createCompactPotTransferPacket(potTransition, new MinorUnits(new Currency("EUR", 2)));
+        assertThat(packet.amount, is(3450L));
+        assertThat(packet.playerId, is(333));
+        assertThat(packet.potId, is((byte) 2));
+    }
+
+    @Test
+    public void testTransformCompactPerformAction() {
+        CompactPerformAction packet = new CompactPerformAction();
+        packet.action = new CompactPlayerAction(ActionType.RAISE, 0, 0);
+        packet.betAmount = 1234;
+
+        PokerAction action = actionTransformer.transform(5, packet, new MinorUnits(new Currency("EUR", 2)));
+        assertThat(action.getPlayerId(), is(5));
+        assertThat(action.getActionType(), is(PokerActionType.RAISE));
+        assertThat(action.getBetAmount(), is(new BigDecimal("12.34")));
+    }
+
     @Test
     public void testCreateBestHandPacket() {
         List<Card> cardsInHand = asList(new Card(1, "5H"), new Card(2, "JC"));
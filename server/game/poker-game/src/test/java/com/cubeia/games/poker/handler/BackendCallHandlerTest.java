@@ -32,6 +32,7 @@ import com.cubeia.firebase.api.game.lobby.LobbyTableAttributeAccessor;
 import com.cubeia.firebase.api.game.table.Table;
 import com.cubeia.firebase.io.StyxSerializer;
 import com.cubeia.games.poker.adapter.FirebaseServerAdapter;
+import com.cubeia.games.poker.adapter.OutboundPacketBuffer;
 import com.cubeia.games.poker.common.money.Currency;
 import com.cubeia.games.poker.common.money.Money;
 import com.cubeia.games.poker.io.protocol.BuyInResponse;
@@ -47,6 +48,7 @@ import com.cubeia.poker.variant.telesina.Telesina;
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.MockitoAnnotations;
@@ -62,6 +64,7 @@ import static java.util.Collections.singletonMap;
 import static org.hamcrest.CoreMatchers.is;
 import static org.junit.Assert.assertThat;
 import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
@@ -166,6 +169,24 @@ public class BackendCallHandlerTest {
         assertThat(buyInResponse.resultCode, is(Enums.BuyInResultCode.MAX_LIMIT_REACHED));
     }
 
+    @Test
+    public void testResponseIsSentAfterPacketsBufferedBefore() {
+        OutboundPacketBuffer outbound = new OutboundPacketBuffer();
+        callHandler.outbound = outbound;
+        outbound.start();
+        GameDataAction buffered = new GameDataAction(0, 1);
+        outbound.addPublic(buffered, -1);
+
+        PlayerSessionId sessionId = new PlayerSessionId(playerId, null);
+        callHandler.handleReserveFailedResponse(new ReserveFailedResponse(sessionId, ErrorCode.MAX_LIMIT_REACHED, "fail", false));
+        verify(notifier, never()).notifyPlayer(Mockito.eq(playerId), any(GameDataAction.class));
+
+        outbound.flush(notifier);
+        InOrder order = inOrder(notifier);
+        order.verify(notifier).notifyAllPlayers(buffered);
+        order.verify(notifier).notifyPlayer(Mockito.eq(playerId), any(GameDataAction.class));
+    }
+
     @Test
     public void testHandleReserveFailedWithSessionCloseForced() throws IOException {
         int roundNumber = 43434;
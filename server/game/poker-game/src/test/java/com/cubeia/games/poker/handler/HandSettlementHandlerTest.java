@@ -0,0 +1,378 @@
+/**
+ * Copyright (C) 2012 Cubeia Ltd <info@cubeia.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.cubeia.games.poker.handler;
+
+import com.cubeia.backend.cashgame.PlayerSessionId;
+import com.cubeia.backend.cashgame.TableId;
+import com.cubeia.backend.cashgame.TransactionId;
+import com.cubeia.backend.cashgame.dto.BalanceUpdate;
+import com.cubeia.backend.cashgame.dto.BatchHandFailedResponse;
+import com.cubeia.backend.cashgame.dto.BatchHandRequest;
+import com.cubeia.backend.cashgame.dto.BatchHandResponse;
+import com.cubeia.backend.cashgame.dto.CloseSessionRequest;
+import com.cubeia.backend.cashgame.dto.CloseTableRequest;
+import com.cubeia.backend.cashgame.dto.TransactionUpdate;
+import com.cubeia.backend.cashgame.exceptions.BatchHandFailedException;
+import com.cubeia.backend.firebase.CashGamesBackendService;
+import com.cubeia.firebase.api.action.GameObjectAction;
+import com.cubeia.firebase.api.game.lobby.LobbyTableAttributeAccessor;
+import com.cubeia.firebase.api.game.table.Table;
+import com.cubeia.firebase.api.game.table.TableScheduler;
+import com.cubeia.game.poker.config.api.PokerConfigurationService;
+import com.cubeia.game.poker.config.api.PokerSystemConfig;
+import com.cubeia.games.poker.adapter.HandHistoryReporter;
+import com.cubeia.games.poker.common.lobby.PokerLobbyAttributes;
+import com.cubeia.games.poker.common.money.Currency;
+import com.cubeia.games.poker.common.money.Money;
+import com.cubeia.games.poker.state.FirebaseState;
+import com.cubeia.poker.PokerState;
+import com.cubeia.poker.states.WaitingToStartSTM;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+
+import java.math.BigDecimal;
+import java.util.Collections;
+import java.util.Map;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.mockito.MockitoAnnotations.initMocks;
+
+public class HandSettlementHandlerTest {
+
+    private static final Currency EUR = new Currency("EUR", 2);
+
+    @Mock
+    private PokerState state;
+    @Mock
+    private Table table;
+    @Mock
+    private CashGamesBackendService backend;
+    @Mock
+    private PokerConfigurationService configService;
+    @Mock
+    private PokerSystemConfig systemConfig;
+    @Mock
+    private LobbyTableAttributeAccessor attributeAccessor;
+    @Mock
+    private TableScheduler scheduler;
+    @Mock
+    private HandHistoryReporter handHistory;
+
+    private FirebaseState firebaseState = new FirebaseState();
+
+    private TableId tableId = new TableId(1, 2);
+
+    private HandSettlementHandler handler;
+
+    @Before
+    public void setup() {
+        initMocks(this);
+        when(state.getAdapterState()).thenReturn(firebaseState);
+        when(configService.getSystemConfig()).thenReturn(systemConfig);
+        when(systemConfig.useAsynchronousHandSettlement()).thenReturn(true);
+        when(systemConfig.getMaxHandSettlementsInFlight()).thenReturn(2);
+        when(systemConfig.getHandSettlementTimeout()).thenReturn(30000L);
+        when(table.getAttributeAccessor()).thenReturn(attributeAccessor);
+        when(table.getScheduler()).thenReturn(scheduler);
+        when(table.getId()).thenReturn(5);
+        handler = new HandSettlementHandler(state, table);
+        handler.backend = backend;
+        handler.configService = configService;
+        handler.handHistory = handHistory;
+    }
+
+    @Test
+    public void testIsAsynchronousWithoutConfig() {
+        when(configService.getSystemConfig()).thenReturn(null);
+        assertThat(handler.isAsynchronous(), is(false));
+    }
+
+    @Test
+    public void testOnlyFirstHandIsInFlight() {
+        BatchHandRequest hand1 = request("h1");
+        BatchHandRequest hand2 = request("h2");
+        handler.settleAsynchronously(hand1, balances());
+        handler.settleAsynchronously(hand2, balances());
+
+        verify(backend).batchHandForTable(hand1, tableId);
+        verify(backend, never()).batchHandForTable(hand2, tableId);
+
+        handler.handleBatchHandResponse(response("h1"));
+        verify(backend).batchHandForTable(hand2, tableId);
+        assertThat(handler.hasPendingSettlements(), is(true));
+
+        handler.handleBatchHandResponse(response("h2"));
+        assertThat(handler.hasPendingSettlements(), is(false));
+    }
+
+    @Test
+    public void testResponseForHandNotInFlightIsIgnored() {
+        handler.settleAsynchronously(request("h1"), balances());
+        handler.handleBatchHandResponse(response("h0"));
+        assertThat(firebaseState.getPendingHandSettlements().size(), is(1));
+    }
+
+    @Test
+    public void testHandStartDeferredUntilConfirmed() {
+        when(state.getGameState()).thenReturn(mock(WaitingToStartSTM.class));
+        handler.settleAsynchronously(request("h1"), balances());
+        assertThat(handler.deferHandStartIfWindowFull(), is(false));
+
+        handler.settleAsynchronously(request("h2"), balances());
+        assertThat(handler.deferHandStartIfWindowFull(), is(true));
+        verify(state, never()).timeout();
+
+        handler.handleBatchHandResponse(response("h1"));
+        verify(state).timeout();
+        assertThat(firebaseState.isHandStartDeferred(), is(false));
+    }
+
+    @Test
+    public void testDeferredSessionsClosedWhenAllHandsConfirmed() throws Exception {
+        PlayerSessionId sessionId = new PlayerSessionId(10);
+        handler.settleAsynchronously(request("h1"), balances());
+        firebaseState.getDeferredSessionCloses().add(sessionId);
+
+        handler.handleBatchHandResponse(response("h1"));
+        verify(backend).closeSession(any(CloseSessionRequest.class));
+        assertThat(firebaseState.getDeferredSessionCloses().isEmpty(), is(true));
+    }
+
+    @Test
+    public void testFailedSettlementIsRetriedSynchronously() throws Exception {
+        BatchHandRequest hand1 = request("h1");
+        BatchHandRequest hand2 = request("h2");
+        when(backend.batchHand(any(BatchHandRequest.class))).thenReturn(response(null));
+        handler.settleAsynchronously(hand1, balances());
+        handler.settleAsynchronously(hand2, balances());
+
+        handler.handleBatchHandFailedResponse(new BatchHandFailedResponse("h1", "failed"));
+        verify(backend).batchHand(hand1);
+        verify(backend).batchHand(hand2);
+        verify(backend, times(1)).batchHandForTable(any(BatchHandRequest.class), eq(tableId));
+        assertThat(handler.hasPendingSettlements(), is(false));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testFailedRetryCrashesTable() throws Exception {
+        when(backend.batchHand(any(BatchHandRequest.class))).thenThrow(new BatchHandFailedException("failed"));
+        handler.settleAsynchronously(request("h1"), balances());
+        handler.handleBatchHandFailedResponse(new BatchHandFailedResponse("h1", "failed"));
+    }
+
+    @Test
+    public void testFlushLeavesHandInFlight() throws Exception {
+        BatchHandRequest hand1 = request("h1");
+        BatchHandRequest hand2 = request("h2");
+        when(backend.batchHand(any(BatchHandRequest.class))).thenReturn(response(null));
+        handler.settleAsynchronously(hand1, balances());
+        handler.settleAsynchronously(hand2, balances());
+
+        handler.flushSynchronously(false);
+        verify(backend, never()).batchHand(hand1);
+        verify(backend).batchHand(hand2);
+        assertThat(handler.hasPendingSettlements(), is(true));
+        assertThat(firebaseState.getPendingHandSettlements().getFirst().getRequest(), is(hand1));
+    }
+
+    @Test
+    public void testUnknownOutcomeIsNotResent() throws Exception {
+        BatchHandRequest hand1 = request("h1");
+        BatchHandRequest hand2 = request("h2");
+        when(backend.batchHand(any(BatchHandRequest.class))).thenReturn(response(null));
+        handler.settleAsynchronously(hand1, balances());
+        handler.settleAsynchronously(hand2, balances());
+
+        try {
+            handler.handleBatchHandFailedResponse(new BatchHandFailedResponse("h1", "timeout", true));
+            fail("the table should be crashed");
+        } catch (IllegalStateException e) {
+            // expected
+        }
+        verify(backend, never()).batchHand(hand1);
+        verify(backend).batchHand(hand2);
+        assertThat(handler.hasPendingSettlements(), is(false));
+    }
+
+    @Test
+    public void testClosedTableWaitsForHandInFlight() throws Exception {
+        PlayerSessionId sessionId = new PlayerSessionId(10);
+        when(backend.batchHand(any(BatchHandRequest.class))).thenReturn(response(null));
+        handler.settleAsynchronously(request("h1"), balances());
+        handler.settleAsynchronously(request("h2"), balances());
+        firebaseState.getDeferredSessionCloses().add(sessionId);
+
+        handler.flushSynchronously(false);
+        handler.closeTableWhenSettled();
+        verify(backend, never()).closeSession(any(CloseSessionRequest.class));
+        verify(attributeAccessor, never()).setIntAttribute(PokerLobbyAttributes.TABLE_READY_FOR_CLOSE.name(), 1);
+
+        handler.handleBatchHandResponse(response("h1"));
+        verify(backend).closeSession(any(CloseSessionRequest.class));
+        verify(attributeAccessor).setIntAttribute(PokerLobbyAttributes.TABLE_READY_FOR_CLOSE.name(), 1);
+        assertThat(handler.hasPendingSettlements(), is(false));
+    }
+
+    @Test
+    public void testUnknownOutcomeOfHandInFlightOnClosedTable() throws Exception {
+        handler.settleAsynchronously(request("h1"), balances());
+        firebaseState.getDeferredSessionCloses().add(new PlayerSessionId(10));
+        handler.flushSynchronously(false);
+        handler.closeTableWhenSettled();
+
+        handler.handleBatchHandFailedResponse(new BatchHandFailedResponse("h1", "timeout", true));
+        verify(backend, never()).batchHand(any(BatchHandRequest.class));
+        verify(backend).closeSession(any(CloseSessionRequest.class));
+        verify(attributeAccessor).setIntAttribute(PokerLobbyAttributes.TABLE_READY_FOR_CLOSE.name(), 1);
+    }
+
+    @Test
+    public void testSettledHandReportedToHandHistoryWithTransactions() {
+        handler.settleAsynchronously(request("h1"), balances());
+        handler.handleBatchHandResponse(response("h1"));
+        verify(handHistory).notifyHandSettled("h1", Collections.singletonMap(10, "1"));
+    }
+
+    @Test
+    public void testSettlementTimeoutScheduledWhenHandSent() {
+        handler.settleAsynchronously(request("h1"), balances());
+        handler.settleAsynchronously(request("h2"), balances());
+
+        ArgumentCaptor<GameObjectAction> captor = ArgumentCaptor.forClass(GameObjectAction.class);
+        verify(scheduler).scheduleAction(captor.capture(), eq(30000L));
+        assertThat(((HandSettlementTimeout) captor.getValue().getAttachment()).getHandId(), is("h1"));
+    }
+
+    @Test
+    public void testMissingCallbackTimesOut() throws Exception {
+        BatchHandRequest hand1 = request("h1");
+        BatchHandRequest hand2 = request("h2");
+        when(backend.batchHand(any(BatchHandRequest.class))).thenReturn(response(null));
+        when(state.getGameState()).thenReturn(mock(WaitingToStartSTM.class));
+        handler.settleAsynchronously(hand1, balances());
+        handler.settleAsynchronously(hand2, balances());
+        assertThat(handler.deferHandStartIfWindowFull(), is(true));
+
+        // no response for h1 ever arrives
+        try {
+            handler.handleSettlementTimeout(scheduledTimeout());
+            fail("the table should be crashed");
+        } catch (IllegalStateException e) {
+            // expected
+        }
+        verify(backend, never()).batchHand(hand1);
+        verify(backend).batchHand(hand2);
+        assertThat(handler.hasPendingSettlements(), is(false));
+        assertThat(firebaseState.getUnreconciledHandSettlements().size(), is(1));
+        assertThat(firebaseState.getUnreconciledHandSettlements().get(0).getRequest(), is(hand1));
+        verify(handHistory).notifyHandSettled("h1", Collections.<Integer, String>emptyMap());
+    }
+
+    @Test
+    public void testMissingCallbackOnClosedTable() throws Exception {
+        handler.settleAsynchronously(request("h1"), balances());
+        firebaseState.getDeferredSessionCloses().add(new PlayerSessionId(10));
+        handler.flushSynchronously(false);
+        handler.closeTableWhenSettled();
+
+        handler.handleSettlementTimeout(scheduledTimeout());
+        verify(backend).closeSession(any(CloseSessionRequest.class));
+        verify(attributeAccessor).setIntAttribute(PokerLobbyAttributes.TABLE_READY_FOR_CLOSE.name(), 1);
+        assertThat(firebaseState.getUnreconciledHandSettlements().size(), is(1));
+    }
+
+    @Test
+    public void testTimeoutOfSettledHandIsIgnored() {
+        handler.settleAsynchronously(request("h1"), balances());
+        HandSettlementTimeout timeout = scheduledTimeout();
+        handler.handleBatchHandResponse(response("h1"));
+
+        handler.handleSettlementTimeout(timeout);
+        assertThat(firebaseState.getUnreconciledHandSettlements().isEmpty(), is(true));
+    }
+
+    @Test
+    public void testFailedRetryKeepsHandsForReconciliation() throws Exception {
+        BatchHandRequest hand1 = request("h1");
+        BatchHandRequest hand2 = request("h2");
+        when(backend.batchHand(any(BatchHandRequest.class))).thenThrow(new BatchHandFailedException("failed"));
+        handler.settleAsynchronously(hand1, balances());
+        handler.settleAsynchronously(hand2, balances());
+
+        try {
+            handler.handleBatchHandFailedResponse(new BatchHandFailedResponse("h1", "failed"));
+            fail("the table should be crashed");
+        } catch (IllegalStateException e) {
+            // expected
+        }
+        verify(backend, never()).batchHand(hand2);
+        assertThat(handler.hasPendingSettlements(), is(false));
+        assertThat(firebaseState.getUnreconciledHandSettlements().size(), is(2));
+        assertThat(firebaseState.getUnreconciledHandSettlements().get(0).getRequest(), is(hand1));
+        assertThat(firebaseState.getUnreconciledHandSettlements().get(1).getRequest(), is(hand2));
+        assertThat(firebaseState.getUnreconciledHandSettlements().get(1).getExpectedBalances(), is(balances()));
+    }
+
+    @Test
+    public void testCloseRunWhenHandsSettled() {
+        handler.settleAsynchronously(request("h1"), balances());
+        handler.closeTableAfterSettlement(true);
+        handler.closeTableAfterSettlement(false);
+        verify(scheduler, never()).scheduleAction(any(GameObjectAction.class), eq(0L));
+
+        handler.handleBatchHandResponse(response("h1"));
+        ArgumentCaptor<GameObjectAction> captor = ArgumentCaptor.forClass(GameObjectAction.class);
+        verify(scheduler).scheduleAction(captor.capture(), eq(0L));
+        assertThat(((CloseTableRequest) captor.getValue().getAttachment()).isForced(), is(true));
+        assertThat(firebaseState.getDeferredCloseRequest() == null, is(true));
+    }
+
+    private HandSettlementTimeout scheduledTimeout() {
+        ArgumentCaptor<GameObjectAction> captor = ArgumentCaptor.forClass(GameObjectAction.class);
+        verify(scheduler).scheduleAction(captor.capture(), anyLong());
+        return (HandSettlementTimeout) captor.getValue().getAttachment();
+    }
+
+    private BatchHandRequest request(String handId) {
+        return new BatchHandRequest(handId, tableId, new Money(BigDecimal.ZERO, EUR));
+    }
+
+    private Map<Integer, BigDecimal> balances() {
+        return Collections.singletonMap(10, new BigDecimal("10.00"));
+    }
+
+    private BatchHandResponse response(String handId) {
+        BatchHandResponse response = new BatchHandResponse();
+        BalanceUpdate balance = new BalanceUpdate(new PlayerSessionId(10), new Money(new BigDecimal("10.00"), EUR), 1);
+        response.addResultEntry(new TransactionUpdate(new TransactionId(1), balance));
+        response.setHandId(handId);
+        return response;
+    }
+}
@@ -25,10 +25,13 @@ import com.cubeia.firebase.api.action.GameDataAction;
 import com.cubeia.firebase.api.game.GameNotifier;
 import com.cubeia.firebase.api.game.table.Table;
 import com.cubeia.firebase.io.StyxSerializer;
+import com.cubeia.games.poker.adapter.FirebaseServerAdapter;
 import com.cubeia.games.poker.common.money.Currency;
+import com.cubeia.games.poker.io.protocol.AmountEncodingRequest;
 import com.cubeia.games.poker.io.protocol.BuyInInfoRequest;
 import com.cubeia.games.poker.io.protocol.BuyInRequest;
 import com.cubeia.games.poker.io.protocol.BuyInResponse;
+import com.cubeia.games.poker.io.protocol.Enums.AmountEncoding;
 import com.cubeia.games.poker.io.protocol.Enums.BuyInResultCode;
 import com.cubeia.games.poker.io.protocol.PerformAction;
 import com.cubeia.games.poker.io.protocol.PlayerAction;
@@ -180,6 +183,13 @@ public class PokerHandlerTest {
         verify(pokerHandler.state).playerSitsOutNextHand(playerId);
     }
 
+    @Test
+    public void testVisitAmountEncodingRequest() {
+        pokerHandler.serverAdapter = mock(FirebaseServerAdapter.class);
+        pokerHandler.visit(new AmountEncodingRequest(AmountEncoding.MINOR_UNITS));
+        verify(pokerHandler.serverAdapter).notifyAmountEncoding(playerId, AmountEncoding.MINOR_UNITS);
+    }
+
     @Test
     public void testVisitBuyInInfoRequest() throws IOException {
 
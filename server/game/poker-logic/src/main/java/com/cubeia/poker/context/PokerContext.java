@@ -18,6 +18,7 @@
 package com.cubeia.poker.context;
 
 import com.cubeia.games.poker.common.money.Currency;
+import com.cubeia.games.poker.common.money.MinorUnits;
 import com.cubeia.poker.hand.Card;
 import com.cubeia.poker.hand.Deck;
 import com.cubeia.poker.model.BlindsInfo;
@@ -26,6 +27,7 @@ import com.cubeia.poker.model.GameStateSnapshot;
 import com.cubeia.poker.player.PokerPlayer;
 import com.cubeia.poker.player.SitOutStatus;
 import com.cubeia.poker.pot.PotHolder;
+import com.cubeia.poker.pot.RakeCalculator;
 import com.cubeia.poker.pot.RakeInfoContainer;
 import com.cubeia.poker.rake.LinearRakeWithLimitCalculator;
 import com.cubeia.poker.settings.PokerSettings;
@@ -458,8 +460,10 @@ public class PokerContext implements Serializable {
         for (PokerPlayer player : playerMap.values()) {
             player.resetBeforeNewHand();
         }
-        setPotHolder(new PotHolder(new LinearRakeWithLimitCalculator(getSettings().getRakeSettings(),
-                getSettings().getCurrency())));
+        PokerSettings settings = getSettings();
+        boolean fixedPoint = settings.isFixedPointAmounts();
+        RakeCalculator rakeCalculator = new LinearRakeWithLimitCalculator(settings.getRakeSettings(), settings.getCurrency(), fixedPoint);
+        setPotHolder(new PotHolder(rakeCalculator, fixedPoint ? new MinorUnits(settings.getCurrency()) : null));
     }
 
     /**
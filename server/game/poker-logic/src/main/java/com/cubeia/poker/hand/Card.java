@@ -35,22 +35,35 @@ import java.util.List;
  * @author Fredrik Johansson, Cubeia Ltd
  */
 public class Card implements Serializable {
-    private static final long serialVersionUID = 9039935616385887536L;
+    private static final long serialVersionUID = -3012837405125466421L;
 
-    private final Suit suit;
+    private static final int NO_ID = -1;
 
-    private final Rank rank;
+    /**
+     * Rank and suit, see {@link CardCodes}.
+     */
+    private final byte code;
 
-    private final Integer id;
+    private final int id;
 
     /**
      * Needed by Jboss serialization
      */
     @SuppressWarnings("unused")
     private Card() {
-        this.rank = null;
-        this.suit = null;
-        this.id = null;
+        this.code = CardCodes.NO_CARD;
+        this.id = NO_ID;
+    }
+
+    /**
+     * Creates a card from its code.
+     *
+     * @param id   id of the card, null for an anonymous card
+     * @param code card code, see {@link CardCodes}
+     */
+    Card(Integer id, int code) {
+        this.code = (byte) code;
+        this.id = id == null ? NO_ID : id;
     }
 
     /**
@@ -60,9 +73,7 @@ public class Card implements Serializable {
      * @param suit the suid
      */
     public Card(Rank rank, Suit suit) {
-        this.rank = rank;
-        this.suit = suit;
-        this.id = null;
+        this(null, CardCodes.code(rank, suit));
     }
 
     /**
@@ -73,9 +84,7 @@ public class Card implements Serializable {
      * @param suit the suit
      */
     public Card(Integer id, Rank rank, Suit suit) {
-        this.rank = rank;
-        this.suit = suit;
-        this.id = id;
+        this(id, CardCodes.code(rank, suit));
     }
 
     /**
@@ -89,9 +98,7 @@ public class Card implements Serializable {
     }
 
     public Card(Integer id, String s) {
-        this.rank = Rank.fromShortString(s.charAt(0));
-        this.suit = Suit.fromShortString(s.charAt(1));
-        this.id = id;
+        this(id, Rank.fromShortString(s.charAt(0)), Suit.fromShortString(s.charAt(1)));
     }
 
     /**
@@ -119,7 +126,7 @@ public class Card implements Serializable {
     }
 
     public Card makeCopyWithId(int id) {
-        return new Card(id, rank, suit);
+        return new Card(id, code);
     }
 
     /**
@@ -128,7 +135,7 @@ public class Card implements Serializable {
      * @return card with id set to null
      */
     public Card makeCopyWithoutId() {
-        return new Card(null, rank, suit);
+        return CardCodes.toCard(code);
     }
 
     /**
@@ -154,32 +161,49 @@ public class Card implements Serializable {
     }
 
     public GameCard translate() {
-        return new GameCard(getSuit().translate(), getRank().translate());
+        return CardCodes.toGameCard(code);
     }
 
     public String toString() {
-        return rank.toShortString() + suit.toShortString();
+        return getRank().toShortString() + getSuit().toShortString();
     }
 
     public Rank getRank() {
-        return rank;
+        return code == CardCodes.NO_CARD ? null : CardCodes.rank(code);
     }
 
     public Suit getSuit() {
-        return suit;
+        return code == CardCodes.NO_CARD ? null : CardCodes.suit(code);
     }
 
     public Integer getId() {
-        return id;
+        return id == NO_ID ? null : id;
+    }
+
+    /**
+     * Returns the primitive code of this card, see {@link CardCodes}.
+     *
+     * @return card code
+     */
+    public int getCode() {
+        return code;
+    }
+
+    /**
+     * Returns the card set bit of this card, see {@link CardCodes}.
+     *
+     * @return a long with a single bit set
+     */
+    public long getBit() {
+        return CardCodes.bit(code);
     }
 
     @Override
     public int hashCode() {
         final int prime = 31;
         int result = 1;
-        result = prime * result + ((id == null) ? 0 : id.hashCode());
-        result = prime * result + ((rank == null) ? 0 : rank.hashCode());
-        result = prime * result + ((suit == null) ? 0 : suit.hashCode());
+        result = prime * result + id;
+        result = prime * result + code;
         return result;
     }
 
@@ -192,14 +216,9 @@ public class Card implements Serializable {
         if (getClass() != obj.getClass())
             return false;
         Card other = (Card) obj;
-        if (id == null) {
-            if (other.id != null)
-                return false;
-        } else if (!id.equals(other.id))
-            return false;
-        if (rank != other.rank)
+        if (id != other.id)
             return false;
-        if (suit != other.suit)
+        if (code != other.code)
             return false;
         return true;
     }
@@ -0,0 +1,180 @@
+/**
+ * Copyright (C) 2010 Cubeia Ltd <info@cubeia.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.cubeia.poker.hand;
+
+import com.cubeia.poker.handhistory.api.GameCard;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * <p>Primitive card encoding.</p>
+ * <p/>
+ * <p>A card is encoded as a small int (fits in a byte), <code>suit.ordinal() * 16 + rank.ordinal()</code>.
+ * A set of cards is a long with the bit of each card code set, i.e. each suit occupies
+ * 16 bits of which the lowest 13 are used for the ranks. Card sets are what the hand
+ * evaluators work on.</p>
+ * <p/>
+ * <p>The card id is not part of the encoding.</p>
+ */
+public final class CardCodes {
+
+    /**
+     * Code of an unknown card.
+     */
+    public static final int NO_CARD = -1;
+
+    /**
+     * Number of bits used per suit in a card set.
+     */
+    public static final int SUIT_BITS = 16;
+
+    /**
+     * Rank bits of a single suit in a card set.
+     */
+    public static final int RANK_MASK = 0x1FFF;
+
+    /**
+     * Card set of the 52 cards in a standard deck.
+     */
+    public static final long ALL_CARDS = 0x1FFF1FFF1FFF1FFFL;
+
+    private static final Rank[] RANKS = Rank.values();
+
+    private static final Suit[] SUITS = Suit.values();
+
+    /**
+     * Shared anonymous cards indexed by code.
+     */
+    private static final Card[] CARDS = new Card[SUITS.length * SUIT_BITS];
+
+    static {
+        for (Suit suit : SUITS) {
+            for (Rank rank : RANKS) {
+                int code = code(rank, suit);
+                CARDS[code] = new Card(null, code);
+            }
+        }
+    }
+
+    private CardCodes() {
+    }
+
+    /* ----------------------------------------------------
+      *
+      * 	SINGLE CARDS
+      *
+      *  ---------------------------------------------------- */
+
+    public static int code(Rank rank, Suit suit) {
+        return suit.ordinal() * SUIT_BITS + rank.ordinal();
+    }
+
+    public static int code(GameCard card) {
+        return card.getSuit().ordinal() * SUIT_BITS + card.getRank().ordinal();
+    }
+
+    public static Rank rank(int code) {
+        return RANKS[code & 0xF];
+    }
+
+    public static Suit suit(int code) {
+        return SUITS[code >>> 4];
+    }
+
+    /**
+     * Returns the shared anonymous (no id) card of the given code.
+     * No object is created.
+     *
+     * @param code card code
+     * @return card, never null
+     */
+    public static Card toCard(int code) {
+        return CARDS[code];
+    }
+
+    public static GameCard toGameCard(int code) {
+        return new GameCard(suit(code).translate(), rank(code).translate());
+    }
+
+    /**
+     * Returns the card set bit of a code.
+     *
+     * @param code card code
+     * @return a long with a single bit set
+     */
+    public static long bit(int code) {
+        return 1L << code;
+    }
+
+    /* ----------------------------------------------------
+      *
+      * 	CARD SETS
+      *
+      *  ---------------------------------------------------- */
+
+    /**
+     * Returns the card set of the given cards. Ids are ignored.
+     *
+     * @param cards cards to include
+     * @return card set
+     */
+    public static long toCardSet(Collection<Card> cards) {
+        long set = 0L;
+        for (Card card : cards) {
+            set |= card.getBit();
+        }
+        return set;
+    }
+
+    /**
+     * Returns the shared anonymous cards of a card set, lowest code first.
+     *
+     * @param cards card set
+     * @return list of cards
+     */
+    public static List<Card> toCards(long cards) {
+        List<Card> result = new ArrayList<Card>(Long.bitCount(cards));
+        while (cards != 0) {
+            result.add(CARDS[Long.numberOfTrailingZeros(cards)]);
+            cards &= cards - 1;
+        }
+        return result;
+    }
+
+    /**
+     * Returns the ranks of one suit in a card set as a 13 bit mask
+     * where the bit index is the rank ordinal.
+     *
+     * @param cards card set
+     * @param suit  suit ordinal
+     * @return rank mask
+     */
+    public static int suitRanks(long cards, int suit) {
+        return (int) (cards >>> (suit * SUIT_BITS)) & RANK_MASK;
+    }
+
+    public static int size(long cards) {
+        return Long.bitCount(cards);
+    }
+
+    public static boolean contains(long cards, int code) {
+        return (cards & bit(code)) != 0;
+    }
+}
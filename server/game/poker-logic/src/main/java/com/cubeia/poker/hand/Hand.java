@@ -42,6 +42,11 @@ public class Hand implements Serializable {
 
     private List<Card> communityCards = new ArrayList<>();
 
+    /**
+     * All cards in this hand as a card set, see {@link CardCodes}.
+     */
+    private long cardSet;
+
     private static final Logger log = LoggerFactory.getLogger(Hand.class);
 
     public Hand() {
@@ -59,7 +64,7 @@ public class Hand implements Serializable {
     }
 
     public Hand(Collection<Card> cards) {
-        this.cards.addAll(cards);
+        addCards(cards);
     }
 
     /**
@@ -68,12 +73,14 @@ public class Hand implements Serializable {
      * @param otherHand
      */
     public Hand(Hand otherHand) {
-        this.cards = new ArrayList<Card>(otherHand.getCards());
+        this.cards = new ArrayList<Card>(otherHand.cards);
+        this.cardSet = otherHand.cardSet;
         //this.handStrength = new HandStrength(otherHand.handStrength);
     }
 
     public void removeCard(int cardNumber) {
         cards.remove(cardNumber);
+        cardSet = CardCodes.toCardSet(cards);
     }
 
     @Override
@@ -96,6 +103,25 @@ public class Hand implements Serializable {
         return new ArrayList<Card>(cards);
     }
 
+    /**
+     * Returns an unmodifiable view of the cards, use this
+     * instead of {@link #getCards()} when only reading.
+     *
+     * @return List of cards, never null.
+     */
+    public List<Card> getCardsView() {
+        return Collections.unmodifiableList(cards);
+    }
+
+    /**
+     * Returns all cards in this hand as a card set, see {@link CardCodes}.
+     *
+     * @return card set
+     */
+    public long getCardSet() {
+        return cardSet;
+    }
+
     /**
      * Add a card to the hand.
      *
@@ -103,6 +129,7 @@ public class Hand implements Serializable {
      */
     public void addCard(Card card) {
         cards.add(card);
+        cardSet |= card.getBit();
     }
     public void addPocketCard(Card card) {
         addCard(card);
@@ -115,6 +142,7 @@ public class Hand implements Serializable {
 
     public void addCards(Collection<Card> cardsToAdd) {
         cards.addAll(cardsToAdd);
+        cardSet |= CardCodes.toCardSet(cardsToAdd);
     }
     public void addPocketCards(Collection<Card> cardsToAdd) {
         addCards(cardsToAdd);
@@ -145,6 +173,7 @@ public class Hand implements Serializable {
 
     public void clear() {
         cards.clear();
+        cardSet = 0L;
     }
 
     public int getNumberOfCards() {
@@ -159,9 +188,8 @@ public class Hand implements Serializable {
      * @return true if all cards contained, false otherwise
      */
     public boolean containsAllCardsRegardlessOfId(List<Card> cardsToCheck) {
-        List<Card> handCardsWithoutIds = Card.makeCopyWithoutIds(cards);
-        List<Card> givenCardsWithoutIds = Card.makeCopyWithoutIds(cardsToCheck);
-        return handCardsWithoutIds.containsAll(givenCardsWithoutIds);
+        long cardSetToCheck = CardCodes.toCardSet(cardsToCheck);
+        return (cardSet & cardSetToCheck) == cardSetToCheck;
     }
 
     public Card removeCardById(Integer cardId) {
@@ -169,6 +197,7 @@ public class Hand implements Serializable {
         for (Card card : cards) {
             if (card.getId().equals(cardId)) {
                 cards.remove(card);
+                cardSet = CardCodes.toCardSet(cards);
                 return card;
             }
         }
@@ -0,0 +1,160 @@
+/**
+ * Copyright (C) 2010 Cubeia Ltd <info@cubeia.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.cubeia.poker.hand;
+
+import com.cubeia.poker.player.PokerPlayer;
+
+import java.io.Serializable;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <p>Keeps the evaluated hands of the players in the current hand, so that a
+ * hand is evaluated once per street and the evaluations are reused at showdown.</p>
+ * <p/>
+ * <p>Hands are keyed by their card set, see {@link CardCodes}. Building the card set
+ * of a player is a few bit operations, the hand is only evaluated again if the set
+ * has changed since the last street. Since a card set identifies the cards of a
+ * single player within a hand the tracker must be cleared when a new hand starts.</p>
+ * <p/>
+ * <p>The tracker is itself a {@link HandTypeEvaluator} delegating to the evaluator
+ * of the game, so it can be given to the result calculators. The comparators it
+ * creates remember the outcome of comparing two card sets, so hands are not
+ * compared again for each side pot.</p>
+ * <p/>
+ * <p>The evaluations are transient, after a fail-over they are rebuilt on use.</p>
+ */
+public class HandStrengthTracker implements HandTypeEvaluator, Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final HandTypeEvaluator evaluator;
+
+    private transient Map<Long, HandInfo> evaluated;
+
+    private transient Map<Integer, RememberingHandComparator> comparators;
+
+    public HandStrengthTracker(HandTypeEvaluator evaluator) {
+        this.evaluator = evaluator;
+    }
+
+    /**
+     * Returns the best hand of a player given the community cards, the hand
+     * is only evaluated if the cards of the player have changed since the last call.
+     *
+     * @param player         player, pocket cards included
+     * @param communityCards community cards
+     * @return the best hand
+     */
+    public HandInfo update(PokerPlayer player, List<Card> communityCards) {
+        List<Card> pocketCards = player.getPocketCards().getCards();
+        long cardSet = CardCodes.toCardSet(pocketCards) | CardCodes.toCardSet(communityCards);
+        HandInfo handInfo = getEvaluated().get(cardSet);
+        if (handInfo == null) {
+            Hand hand = new Hand();
+            hand.addPocketCards(pocketCards);
+            hand.addCommunityCards(communityCards);
+            handInfo = evaluate(hand);
+        }
+        return handInfo;
+    }
+
+    /**
+     * Returns the previously evaluated best hand of the given hand, or evaluates it.
+     */
+    @Override
+    public HandInfo getBestHandInfo(Hand hand) {
+        HandInfo handInfo = getEvaluated().get(hand.getCardSet());
+        return handInfo != null ? handInfo : evaluate(hand);
+    }
+
+    @Override
+    public Comparator<Hand> createHandComparator(int playersInPot) {
+        RememberingHandComparator comparator = getComparators().get(playersInPot);
+        if (comparator == null) {
+            comparator = new RememberingHandComparator(evaluator.createHandComparator(playersInPot));
+            getComparators().put(playersInPot, comparator);
+        }
+        return comparator;
+    }
+
+    /**
+     * Forgets all hands, must be called when a new hand starts.
+     */
+    public void clear() {
+        getEvaluated().clear();
+        getComparators().clear();
+    }
+
+    /* ----------------------------------------------------
+      *
+      * 	PRIVATE METHODS
+      *
+      *  ---------------------------------------------------- */
+
+    private HandInfo evaluate(Hand hand) {
+        HandInfo handInfo = evaluator.getBestHandInfo(hand);
+        getEvaluated().put(hand.getCardSet(), handInfo);
+        return handInfo;
+    }
+
+    private Map<Long, HandInfo> getEvaluated() {
+        if (evaluated == null) {
+            evaluated = new HashMap<Long, HandInfo>();
+        }
+        return evaluated;
+    }
+
+    private Map<Integer, RememberingHandComparator> getComparators() {
+        if (comparators == null) {
+            comparators = new HashMap<Integer, RememberingHandComparator>();
+        }
+        return comparators;
+    }
+
+    /**
+     * Comparator remembering the result of comparing two card sets.
+     */
+    private static class RememberingHandComparator implements Comparator<Hand> {
+
+        private final Comparator<Hand> comparator;
+
+        private final Map<Long, Map<Long, Integer>> comparisons = new HashMap<Long, Map<Long, Integer>>();
+
+        private RememberingHandComparator(Comparator<Hand> comparator) {
+            this.comparator = comparator;
+        }
+
+        @Override
+        public int compare(Hand h1, Hand h2) {
+            Map<Long, Integer> results = comparisons.get(h1.getCardSet());
+            if (results == null) {
+                results = new HashMap<Long, Integer>();
+                comparisons.put(h1.getCardSet(), results);
+            }
+            Integer result = results.get(h2.getCardSet());
+            if (result == null) {
+                result = comparator.compare(h1, h2);
+                results.put(h2.getCardSet(), result);
+            }
+            return result;
+        }
+    }
+}
@@ -20,9 +20,6 @@ package com.cubeia.poker.hand;
 import java.util.ArrayList;
 import java.util.List;
 
-import static com.google.common.collect.ImmutableSet.copyOf;
-import static com.google.common.collect.Sets.cartesianProduct;
-
 /**
  * Standard 52-card deck.
  * <p/>
@@ -42,14 +39,18 @@ public class StandardDeck implements Deck {
         this.cards = idGenerator.copyAndAssignIds(shuffledDeck);
     }
 
-    @SuppressWarnings("unchecked")
+    /**
+     * Creates the cards rank by rank, each rank ordered by suit. This is the order of the
+     * cartesian product of suits and ranks the deck used to be built from, seeded and
+     * replayed shufflers depend on it.
+     */
     protected List<Card> createDeck() {
-        ArrayList<Card> cards = new ArrayList<Card>();
+        ArrayList<Card> cards = new ArrayList<Card>(52);
 
-        for (List<Enum<?>> cardContainer : cartesianProduct(copyOf(Suit.values()), copyOf(Rank.values()))) {
-            Suit suit = (Suit) cardContainer.get(0);
-            Rank rank = (Rank) cardContainer.get(1);
-            cards.add(new Card(rank, suit));
+        for (Rank rank : Rank.values()) {
+            for (Suit suit : Suit.values()) {
+                cards.add(CardCodes.toCard(CardCodes.code(rank, suit)));
+            }
         }
 
         return cards;
@@ -0,0 +1,302 @@
+/**
+ * Copyright (C) 2010 Cubeia Ltd <info@cubeia.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.cubeia.poker.hand.eval;
+
+import com.cubeia.poker.hand.Card;
+import com.cubeia.poker.hand.CardCodes;
+import com.cubeia.poker.hand.HandType;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * <p>Table driven hand evaluator working on primitive card sets.</p>
+ * <p/>
+ * <p>Cards are given as a card set, see {@link CardCodes}. The best five card hand
+ * that can be formed from any number of cards (typically 5 to 7) is scored as
+ * a single int without allocating any objects. A higher score is a stronger hand
+ * and equal scores split the pot.</p>
+ * <p/>
+ * <p>Score layout, from most to least significant bits:
+ * <ol>
+ * <li>hand type ordinal (4 bits)</li>
+ * <li>primary rank, e.g. the pair, trips or highest straight card (4 bits)</li>
+ * <li>secondary rank, e.g. the low pair or the pair of a full house (4 bits)</li>
+ * <li>kickers as a 13 bit rank mask (all five ranks for high card and flush)</li>
+ * </ol>
+ * </p>
+ * <p/>
+ * <p>Aces are high, but may be used low in an A-2-3-4-5 straight. The evaluator
+ * assumes a standard deck, short decks (e.g. Telesina) are not supported.</p>
+ */
+public final class LookupHandEvaluator {
+
+    private static final int RANK_MASK = CardCodes.RANK_MASK;
+
+    private static final int TYPE_SHIFT = 21;
+
+    private static final int PRIMARY_SHIFT = 17;
+
+    private static final int SECONDARY_SHIFT = 13;
+
+    private static final int ACE = 12;
+
+    private static final int FIVE = 3;
+
+    private static final HandType[] HAND_TYPES = HandType.values();
+
+    /**
+     * Highest rank of the best straight in a rank mask, -1 if none.
+     */
+    private static final byte[] STRAIGHT_HIGH = new byte[RANK_MASK + 1];
+
+    /**
+     * The five highest ranks of a rank mask.
+     */
+    private static final short[] TOP_FIVE = new short[RANK_MASK + 1];
+
+    static {
+        for (int mask = 0; mask <= RANK_MASK; mask++) {
+            STRAIGHT_HIGH[mask] = (byte) findStraightHigh(mask);
+            TOP_FIVE[mask] = (short) keepHighest(mask, 5);
+        }
+    }
+
+    private LookupHandEvaluator() {
+    }
+
+    /* ----------------------------------------------------
+      *
+      * 	EVALUATION
+      *
+      *  ---------------------------------------------------- */
+
+    /**
+     * Scores the best five card hand that can be formed from the given card set.
+     *
+     * @param cards card set, see {@link CardCodes}
+     * @return the score, 0 if the set is empty
+     */
+    public static int score(long cards) {
+        int clubs = CardCodes.suitRanks(cards, 0);
+        int diamonds = CardCodes.suitRanks(cards, 1);
+        int hearts = CardCodes.suitRanks(cards, 2);
+        int spades = CardCodes.suitRanks(cards, 3);
+
+        int ranks = clubs | diamonds | hearts | spades;
+        if (ranks == 0) {
+            return 0;
+        }
+
+        // Ranks present at least two, three and four times
+        int pairs = (clubs & diamonds) | (hearts & (clubs | diamonds)) | (spades & (clubs | diamonds | hearts));
+        int trips = (clubs & diamonds & hearts) | (spades & ((clubs & diamonds) | (hearts & (clubs | diamonds))));
+        int quads = clubs & diamonds & hearts & spades;
+
+        int flush = flushRanks(clubs, diamonds, hearts, spades);
+        if (flush != 0) {
+            int high = STRAIGHT_HIGH[flush];
+            if (high >= 0) {
+                HandType type = high == ACE ? HandType.ROYAL_STRAIGHT_FLUSH : HandType.STRAIGHT_FLUSH;
+                return pack(type, high, 0, 0);
+            }
+        }
+
+        if (quads != 0) {
+            int quad = highestRank(quads);
+            return pack(HandType.FOUR_OF_A_KIND, quad, 0, keepHighest(ranks & ~(1 << quad), 1));
+        }
+
+        if (trips != 0) {
+            int trip = highestRank(trips);
+            int remainingPairs = pairs & ~(1 << trip);
+            if (remainingPairs != 0) {
+                return pack(HandType.FULL_HOUSE, trip, highestRank(remainingPairs), 0);
+            }
+        }
+
+        if (flush != 0) {
+            return pack(HandType.FLUSH, 0, 0, TOP_FIVE[flush]);
+        }
+
+        int straightHigh = STRAIGHT_HIGH[ranks];
+        if (straightHigh >= 0) {
+            return pack(HandType.STRAIGHT, straightHigh, 0, 0);
+        }
+
+        if (trips != 0) {
+            int trip = highestRank(trips);
+            return pack(HandType.THREE_OF_A_KIND, trip, 0, keepHighest(ranks & ~(1 << trip), 2));
+        }
+
+        if (pairs != 0) {
+            int high = highestRank(pairs);
+            int lowPairs = pairs & ~(1 << high);
+            if (lowPairs != 0) {
+                int low = highestRank(lowPairs);
+                return pack(HandType.TWO_PAIRS, high, low, keepHighest(ranks & ~(1 << high) & ~(1 << low), 1));
+            }
+            return pack(HandType.PAIR, high, 0, keepHighest(ranks & ~(1 << high), 3));
+        }
+
+        return pack(HandType.HIGH_CARD, 0, 0, TOP_FIVE[ranks]);
+    }
+
+    /**
+     * Returns the hand type of a score.
+     *
+     * @param score score as returned by {@link #score(long)}
+     * @return the hand type
+     */
+    public static HandType getHandType(int score) {
+        return HAND_TYPES[score >>> TYPE_SHIFT];
+    }
+
+    /**
+     * Picks the cards forming the scored hand from the given cards.
+     * If more than one card can be used (e.g. a kicker rank present in
+     * two suits) the first one in the given list is picked.
+     *
+     * @param cards the cards the score was calculated from
+     * @param score score of the given cards
+     * @return the cards used in the hand, at most five
+     */
+    public static List<Card> getCardsUsedInHand(List<Card> cards, int score) {
+        HandType type = getHandType(score);
+        int primary = (score >>> PRIMARY_SHIFT) & 0xF;
+        int secondary = (score >>> SECONDARY_SHIFT) & 0xF;
+        int kickers = score & RANK_MASK;
+
+        int[] needed = new int[ACE + 1];
+        int suit = -1;
+        switch (type) {
+            case ROYAL_STRAIGHT_FLUSH:
+            case STRAIGHT_FLUSH:
+                kickers = straightRanks(primary);
+                suit = findSuitContaining(CardCodes.toCardSet(cards), kickers);
+                break;
+            case FLUSH:
+                suit = findSuitContaining(CardCodes.toCardSet(cards), kickers);
+                break;
+            case STRAIGHT:
+                kickers = straightRanks(primary);
+                break;
+            case FOUR_OF_A_KIND:
+                needed[primary] = 4;
+                break;
+            case FULL_HOUSE:
+                needed[primary] = 3;
+                needed[secondary] = 2;
+                break;
+            case THREE_OF_A_KIND:
+                needed[primary] = 3;
+                break;
+            case TWO_PAIRS:
+                needed[primary] = 2;
+                needed[secondary] = 2;
+                break;
+            case PAIR:
+                needed[primary] = 2;
+                break;
+            default:
+                break;
+        }
+        for (int rank = 0; rank <= ACE; rank++) {
+            if ((kickers & (1 << rank)) != 0) {
+                needed[rank] = 1;
+            }
+        }
+
+        List<Card> used = new ArrayList<Card>(5);
+        for (Card card : cards) {
+            int rank = card.getRank().ordinal();
+            if (needed[rank] > 0 && (suit < 0 || card.getSuit().ordinal() == suit)) {
+                needed[rank]--;
+                used.add(card);
+            }
+        }
+        return used;
+    }
+
+    /* ----------------------------------------------------
+      *
+      * 	PRIVATE METHODS
+      *
+      *  ---------------------------------------------------- */
+
+    private static int flushRanks(int clubs, int diamonds, int hearts, int spades) {
+        if (Integer.bitCount(clubs) >= 5) {
+            return clubs;
+        } else if (Integer.bitCount(diamonds) >= 5) {
+            return diamonds;
+        } else if (Integer.bitCount(hearts) >= 5) {
+            return hearts;
+        } else if (Integer.bitCount(spades) >= 5) {
+            return spades;
+        }
+        return 0;
+    }
+
+    private static int findSuitContaining(long cards, int ranks) {
+        for (int suit = 0; suit < 4; suit++) {
+            if ((CardCodes.suitRanks(cards, suit) & ranks) == ranks) {
+                return suit;
+            }
+        }
+        throw new IllegalArgumentException("no suit contains ranks " + Integer.toBinaryString(ranks));
+    }
+
+    private static int pack(HandType type, int primary, int secondary, int kickers) {
+        return type.ordinal() << TYPE_SHIFT | primary << PRIMARY_SHIFT | secondary << SECONDARY_SHIFT | kickers;
+    }
+
+    private static int highestRank(int mask) {
+        return 31 - Integer.numberOfLeadingZeros(mask);
+    }
+
+    private static int keepHighest(int mask, int count) {
+        int result = 0;
+        for (int i = 0; i < count && mask != 0; i++) {
+            int bit = Integer.highestOneBit(mask);
+            result |= bit;
+            mask &= ~bit;
+        }
+        return result;
+    }
+
+    private static int straightRanks(int high) {
+        if (high == FIVE) {
+            return 0xF | 1 << ACE;
+        }
+        return 0x1F << (high - 4);
+    }
+
+    private static int findStraightHigh(int mask) {
+        for (int high = ACE; high >= 4; high--) {
+            int straight = 0x1F << (high - 4);
+            if ((mask & straight) == straight) {
+                return high;
+            }
+        }
+        int wheel = straightRanks(FIVE);
+        if ((mask & wheel) == wheel) {
+            return FIVE;
+        }
+        return -1;
+    }
+}
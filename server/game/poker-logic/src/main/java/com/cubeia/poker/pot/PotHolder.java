@@ -17,6 +17,7 @@
 
 package com.cubeia.poker.pot;
 
+import com.cubeia.games.poker.common.money.MinorUnits;
 import com.cubeia.poker.player.PokerPlayer;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Function;
@@ -30,6 +31,9 @@ import java.util.*;
 
 /**
  * holds all the active pots for a table
+ * <p/>
+ * If created with {@link MinorUnits} the side pots are split on long minor units
+ * (fixed-point mode), BigDecimals are only created for the resulting pot transitions.
  */
 public class PotHolder implements Serializable {
 
@@ -48,8 +52,28 @@ public class PotHolder implements Serializable {
 
     private final RakeCalculator rakeCalculator;
 
+    private final MinorUnits minorUnits;
+
     public PotHolder(RakeCalculator rakeCalculator) {
+        this(rakeCalculator, null);
+    }
+
+    /**
+     * @param rakeCalculator rake calculator
+     * @param minorUnits     minor units of the table currency, or null to calculate on BigDecimal
+     */
+    public PotHolder(RakeCalculator rakeCalculator, MinorUnits minorUnits) {
         this.rakeCalculator = rakeCalculator;
+        this.minorUnits = minorUnits;
+    }
+
+    /**
+     * Returns the minor units used in fixed-point mode.
+     *
+     * @return minor units, null if amounts are calculated on BigDecimal
+     */
+    public MinorUnits getMinorUnits() {
+        return minorUnits;
     }
 
     /**
@@ -73,6 +97,12 @@ public class PotHolder implements Serializable {
         Collection<PotTransition> returnedChipsTransitions = returnUnCalledChips(players);
         potTransitions.addAll(returnedChipsTransitions);
 
+        if (minorUnits != null) {
+            moveChipsToPotInMinorUnits(players, potTransitions);
+            printDiagnostics();
+            return potTransitions;
+        }
+
         // Add all bets to the map and check if we have all-ins.
         for (PokerPlayer player : players) {
 
@@ -109,6 +139,68 @@ public class PotHolder implements Serializable {
         return potTransitions;
     }
 
+    /**
+     * Fixed-point version of the side pot splitting, see {@link #handleAllIns}.
+     * Bets are kept in a long array parallel to the list of betting players.
+     */
+    private void moveChipsToPotInMinorUnits(Collection<PokerPlayer> players, Collection<PotTransition> potTransitions) {
+        List<PokerPlayer> betters = new ArrayList<PokerPlayer>(players.size());
+        long[] bets = new long[players.size()];
+        long[] allInLevels = new long[players.size()];
+        int numberOfAllInLevels = 0;
+
+        for (PokerPlayer player : players) {
+            long bet = minorUnits.toMinorUnits(player.getBetStack());
+
+            if (player.isAllIn() && !allInPlayers.contains(player.getId())) {
+                allInLevels[numberOfAllInLevels++] = bet;
+                allInPlayers.add(player.getId());
+            }
+
+            if (bet > 0) {
+                bets[betters.size()] = bet;
+                betters.add(player);
+            }
+        }
+
+        Arrays.sort(allInLevels, 0, numberOfAllInLevels);
+        long currentLevel = 0;
+        for (int level = 0; level < numberOfAllInLevels; level++) {
+            long allInLevel = allInLevels[level];
+            if (level > 0 && allInLevel == allInLevels[level - 1]) {
+                continue;
+            }
+            long diff = allInLevel - currentLevel;
+
+            Pot activePot = getActivePot();
+            for (int i = 0; i < betters.size(); i++) {
+                if (bets[i] >= diff) {
+                    moveToPot(betters.get(i), activePot, diff, potTransitions);
+                    bets[i] -= diff;
+                } else if (bets[i] > 0) {
+                    // A folded player might not have enough chips, add the remaining chips in this pot.
+                    moveToPot(betters.get(i), activePot, bets[i], potTransitions);
+                    bets[i] = 0;
+                }
+            }
+            activePot.close();
+            currentLevel = allInLevel;
+        }
+
+        for (int i = 0; i < betters.size(); i++) {
+            if (bets[i] > 0) {
+                moveToPot(betters.get(i), getActivePot(), bets[i], potTransitions);
+            }
+        }
+    }
+
+    private void moveToPot(PokerPlayer player, Pot pot, long amount, Collection<PotTransition> potTransitions) {
+        BigDecimal chips = minorUnits.toBigDecimal(amount);
+        potTransitions.add(new PotTransition(player, pot, chips));
+        pot.bet(player, chips);
+        player.removeFromBetStack(chips);
+    }
+
     public RakeInfoContainer calculateRake() {
         return rakeCalculator.calculateRakes(getPots(), callOrRaiseHasBeenMadeInHand);
     }
@@ -18,6 +18,7 @@
 package com.cubeia.poker.rake;
 
 import com.cubeia.games.poker.common.money.Currency;
+import com.cubeia.games.poker.common.money.MinorUnits;
 import com.cubeia.poker.player.PokerPlayer;
 import com.cubeia.poker.pot.Pot;
 import com.cubeia.poker.pot.RakeCalculator;
@@ -32,6 +33,9 @@ import java.util.*;
 /**
  * Rake calculator where rake is linear (defined by a fraction) up to a limit after which
  * no more rake is taken.
+ * <p/>
+ * In fixed-point mode the rake is calculated on long minor units of the currency,
+ * the result is the same as in BigDecimal mode.
  *
  * @author w
  */
@@ -40,14 +44,23 @@ public class LinearRakeWithLimitCalculator implements RakeCalculator {
 
     private RakeSettings settings;
     private Currency currency;
+    private MinorUnits minorUnits;
 
     public LinearRakeWithLimitCalculator(RakeSettings rakeSettings, Currency currency) {
+        this(rakeSettings, currency, false);
+    }
+
+    public LinearRakeWithLimitCalculator(RakeSettings rakeSettings, Currency currency, boolean fixedPoint) {
         this.settings = rakeSettings;
         this.currency = currency;
+        this.minorUnits = fixedPoint ? new MinorUnits(currency) : null;
     }
 
     @Override
     public RakeInfoContainer calculateRakes(Collection<Pot> pots, boolean tableHasSeenAction) {
+        if (minorUnits != null) {
+            return calculateRakesInMinorUnits(pots, tableHasSeenAction);
+        }
         Map<Pot, BigDecimal> potRake = new HashMap<Pot, BigDecimal>();
 
         int playersCount = countPlayers(pots);
@@ -78,6 +91,32 @@ public class LinearRakeWithLimitCalculator implements RakeCalculator {
         return new RakeInfoContainer(totalPot, totalRake, potRake);
     }
 
+    private RakeInfoContainer calculateRakesInMinorUnits(Collection<Pot> pots, boolean tableHasSeenAction) {
+        Map<Pot, BigDecimal> potRake = new HashMap<Pot, BigDecimal>();
+
+        int playersCount = countPlayers(pots);
+        long limit = minorUnits.toMinorUnitsRoundedDown(settings.getRakeLimit(playersCount));
+        BigDecimal fraction = settings.getRakeFraction(playersCount);
+
+        long totalRake = 0;
+        long totalPot = 0;
+
+        for (Pot pot : sortPotsInIdOrder(pots)) {
+            long potSize = minorUnits.toMinorUnits(pot.getPotSize());
+
+            long rake = 0;
+            if (tableHasSeenAction) {
+                rake = Math.min(MinorUnits.multiplyRoundDown(potSize, fraction), limit - totalRake);
+                totalRake += rake;
+            }
+
+            totalPot += potSize;
+            potRake.put(pot, minorUnits.toBigDecimal(rake));
+        }
+
+        return new RakeInfoContainer(minorUnits.toBigDecimal(totalPot), minorUnits.toBigDecimal(totalRake), potRake);
+    }
+
     private int countPlayers(Collection<Pot> pots) {
         HashSet<PokerPlayer> players = new HashSet<PokerPlayer>();
         for (Pot pot : pots) {
@@ -111,6 +150,7 @@ public class LinearRakeWithLimitCalculator implements RakeCalculator {
     public String toString() {
         return "LinearRakeWithLimitCalculator{" +
                 "settings=" + settings +
+                ", fixedPoint=" + (minorUnits != null) +
                 '}';
     }
 }
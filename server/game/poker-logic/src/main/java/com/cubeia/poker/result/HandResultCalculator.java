@@ -17,6 +17,7 @@
 package com.cubeia.poker.result;
 
 import com.cubeia.games.poker.common.money.Currency;
+import com.cubeia.games.poker.common.money.MinorUnits;
 import com.cubeia.poker.hand.HandTypeEvaluator;
 import com.cubeia.poker.model.PlayerHand;
 import com.cubeia.poker.player.PokerPlayer;
@@ -55,6 +56,8 @@ public class HandResultCalculator implements Serializable {
      * <p/>
      * For example, if player A, B and C bet $10 each and player C won, the results will be:
      * A->-$10, B->-$10, C->$20
+     * <p/>
+     * If the pot holder is in fixed-point mode the pots are split on long minor units.
      *
      * @param hands     the hands of the non folded players
      * @param potHolder pot holder
@@ -63,6 +66,9 @@ public class HandResultCalculator implements Serializable {
     public Map<PokerPlayer, Result> getPlayerResults(Collection<PlayerHand> hands, PotHolder potHolder,
                                                      RakeInfoContainer rakeInfoContainer, Map<Integer, PokerPlayer> playerMap,
                                                      Currency currency) {
+        if (potHolder.getMinorUnits() != null) {
+            return getPlayerResultsInMinorUnits(hands, potHolder, rakeInfoContainer, playerMap, potHolder.getMinorUnits());
+        }
 
         int fractions = currency.getFractionalDigits();
         BigDecimal minFractionValue = BigDecimal.ONE.divide(BigDecimal.TEN.pow(fractions),2, RoundingMode.DOWN);
@@ -158,6 +164,71 @@ public class HandResultCalculator implements Serializable {
         return results;
     }
 
+    /**
+     * Fixed-point version of {@link #getPlayerResults}. Net results and stakes are accumulated
+     * as {result, stake} pairs of minor units and only converted to BigDecimal for the result DTO's.
+     */
+    private Map<PokerPlayer, Result> getPlayerResultsInMinorUnits(Collection<PlayerHand> hands, PotHolder potHolder,
+                                                                  RakeInfoContainer rakeInfoContainer, Map<Integer, PokerPlayer> playerMap,
+                                                                  MinorUnits minorUnits) {
+        Map<Integer, long[]> netResultsAndStakes = new HashMap<Integer, long[]>();
+        Map<PokerPlayer, Map<Pot, BigDecimal>> playerPotWinningsShares = new HashMap<PokerPlayer, Map<Pot, BigDecimal>>();
+
+        for (Pot pot : potHolder.getPots()) {
+            Map<PokerPlayer, BigDecimal> potContributors = pot.getPotContributors();
+
+            List<Integer> participantIds = new ArrayList<Integer>();
+            for (PokerPlayer player : potContributors.keySet()) {
+                participantIds.add(player.getId());
+            }
+
+            Collection<PlayerHand> filteredHands = filter(hands, participantIds);
+            if (filteredHands.size() > 0) {
+                List<Integer> winners = getWinners(filteredHands);
+
+                long potRake = minorUnits.toMinorUnits(rakeInfoContainer.getPotRakes().get(pot));
+                long potSizeWithRakeRemoved = minorUnits.toMinorUnits(pot.getPotSize()) - potRake;
+
+                long potShare = MinorUnits.share(potSizeWithRakeRemoved, winners.size());
+                long extraMinorUnits = MinorUnits.remainder(potSizeWithRakeRemoved, winners.size());
+
+                for (Integer winnerId : winners) {
+                    PokerPlayer player = playerMap.get(winnerId);
+                    long playerWinnings = potShare;
+                    if (extraMinorUnits > 0) {
+                        playerWinnings++;
+                        extraMinorUnits--;
+                    }
+                    long stake = minorUnits.toMinorUnits(potContributors.get(player));
+                    addResultBalance(netResultsAndStakes, winnerId, playerWinnings, stake);
+                    addPotWinningShare(player, pot, minorUnits.toBigDecimal(playerWinnings), playerPotWinningsShares);
+                }
+
+                participantIds.removeAll(winners);
+                for (Integer loserId : participantIds) {
+                    long stake = minorUnits.toMinorUnits(potContributors.get(playerMap.get(loserId)));
+                    addResultBalance(netResultsAndStakes, loserId, 0, stake);
+                }
+            }
+        }
+
+        Map<PokerPlayer, Result> results = new HashMap<PokerPlayer, Result>();
+        for (Integer playerId : playerMap.keySet()) {
+            PokerPlayer player = playerMap.get(playerId);
+
+            long[] resultAndStake = netResultsAndStakes.get(playerId);
+            BigDecimal netResult = resultAndStake == null ? BigDecimal.ZERO : minorUnits.toBigDecimal(resultAndStake[0]);
+            BigDecimal playerStake = resultAndStake == null ? BigDecimal.ZERO : minorUnits.toBigDecimal(resultAndStake[1]);
+
+            Map<Pot, BigDecimal> potShares = playerPotWinningsShares.get(player);
+            if (potShares == null) {
+                potShares = Collections.<Pot, BigDecimal>emptyMap();
+            }
+            results.put(player, new Result(netResult, playerStake, potShares));
+        }
+        return results;
+    }
+
     /**
      * Add the given players winning share of the given pot to the holding data structure (nested maps).
      *
@@ -200,6 +271,16 @@ public class HandResultCalculator implements Serializable {
         }
     }
 
+    private void addResultBalance(Map<Integer, long[]> netResultsAndStakes, Integer playerId, long winnings, long stake) {
+        long[] resultAndStake = netResultsAndStakes.get(playerId);
+        if (resultAndStake == null) {
+            resultAndStake = new long[2];
+            netResultsAndStakes.put(playerId, resultAndStake);
+        }
+        resultAndStake[0] += winnings - stake;
+        resultAndStake[1] += stake;
+    }
+
     private List<Integer> getWinners(Collection<PlayerHand> hands) {
         List<Integer> winners = new ArrayList<Integer>();
         List<PlayerHand> copy = new LinkedList<PlayerHand>(hands);
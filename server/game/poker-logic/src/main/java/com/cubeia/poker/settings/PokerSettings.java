@@ -57,6 +57,8 @@ public class PokerSettings implements Serializable {
 	
 	private long ratholingTimeOutMinutes = 60;
 
+    private boolean fixedPointAmounts = false;
+
     public PokerSettings(PokerVariant variant, BlindsLevel blindsLevel, BetStrategyType betStrategyType, BigDecimal minBuyIn, BigDecimal maxBuyIn, TimingProfile timing,
             int tableSize, RakeSettings rakeSettings, Currency currency, Map<Serializable, Serializable> attributes) {
         this.variant = variant;
@@ -154,4 +156,19 @@ public class PokerSettings implements Serializable {
 	public void setRatholingTimeOutMinutes(long ratholingTimeOutMinutes) {
 		this.ratholingTimeOutMinutes = ratholingTimeOutMinutes;
 	}
+
+    /**
+     * If true, side pots, rake and pot distribution are calculated on long minor units
+     * of the currency instead of BigDecimal. All amounts must then be exact in the currency,
+     * i.e. have at most {@link Currency#getFractionalDigits()} fractional digits.
+     *
+     * @return true if the fixed-point mode is used
+     */
+    public boolean isFixedPointAmounts() {
+        return fixedPointAmounts;
+    }
+
+    public void setFixedPointAmounts(boolean fixedPointAmounts) {
+        this.fixedPointAmounts = fixedPointAmounts;
+    }
 }
@@ -29,9 +29,13 @@ import com.google.common.annotations.VisibleForTesting;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
 
 public class PlayingSTM extends AbstractPokerGameSTM implements HandFinishedListener {
 
@@ -125,10 +129,37 @@ public class PlayingSTM extends AbstractPokerGameSTM implements HandFinishedList
         for (PokerPlayer player : context.getPlayerMap().values()) {
             report.setSetBalance(player.getId(), player.getBalance());
         }
+        report.setBigBlindOrder(getBigBlindOrder());
         log.debug("Sending tournament round report: " + report);
         getServerAdapter().reportTournamentRound(report);
     }
 
+    /**
+     * Lists the players in seat order, starting with the player who will post the big blind in the
+     * next hand when the button moves one seat. The tournament uses this to move the players who
+     * are next to pay the blinds first when balancing tables.
+     */
+    @VisibleForTesting
+    List<Integer> getBigBlindOrder() {
+        SortedMap<Integer, Integer> seatToPlayer = new TreeMap<Integer, Integer>();
+        for (PokerPlayer player : context.getPlayerMap().values()) {
+            seatToPlayer.put(player.getSeatId(), player.getId());
+        }
+        List<Integer> order = new ArrayList<Integer>(seatToPlayer.size());
+        if (seatToPlayer.isEmpty()) {
+            return order;
+        }
+        int buttonSeat = context.getBlindsInfo().getDealerButtonSeatId();
+        // Clockwise from the seat after the button
+        order.addAll(seatToPlayer.tailMap(buttonSeat + 1).values());
+        order.addAll(seatToPlayer.headMap(buttonSeat + 1).values());
+        // When the button moves, the big blind is the third player after the button, or the button itself heads up
+        int nextBigBlind = Math.min(2, order.size() - 1);
+        List<Integer> rotated = new ArrayList<Integer>(order.subList(nextBigBlind, order.size()));
+        rotated.addAll(order.subList(0, nextBigBlind));
+        return rotated;
+    }
+
     private void awardWinners(Map<PokerPlayer, Result> results) {
         for (Map.Entry<PokerPlayer, Result> entry : results.entrySet()) {
             PokerPlayer player = entry.getKey();
@@ -18,7 +18,9 @@
 package com.cubeia.poker.tournament;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 public class RoundReport {
@@ -31,6 +33,8 @@ public class RoundReport {
 
     private BigDecimal anteAmount;
 
+    private List<Integer> bigBlindOrder = new ArrayList<Integer>();
+
     public RoundReport(BigDecimal smallBlindAmount, BigDecimal bigBlindAmount, BigDecimal anteAmount) {
         this.smallBlindAmount = smallBlindAmount;
         this.bigBlindAmount = bigBlindAmount;
@@ -57,6 +61,18 @@ public class RoundReport {
         return balanceMap;
     }
 
+    /**
+     * Returns the players at the table in the order they will post the big blind,
+     * starting with the big blind of the next hand.
+     */
+    public List<Integer> getBigBlindOrder() {
+        return bigBlindOrder;
+    }
+
+    public void setBigBlindOrder(List<Integer> bigBlindOrder) {
+        this.bigBlindOrder = bigBlindOrder;
+    }
+
     @Override
     public String toString() {
         return "RoundReport: " + balanceMap;
@@ -20,8 +20,8 @@ package com.cubeia.poker.variant;
 import com.cubeia.poker.action.ActionRequest;
 import com.cubeia.poker.adapter.HandEndStatus;
 import com.cubeia.poker.hand.DeckProvider;
-import com.cubeia.poker.hand.Hand;
 import com.cubeia.poker.hand.HandInfo;
+import com.cubeia.poker.hand.HandStrengthTracker;
 import com.cubeia.poker.hand.HandTypeEvaluator;
 import com.cubeia.poker.player.PokerPlayer;
 import com.cubeia.poker.pot.PotTransition;
@@ -58,6 +58,11 @@ public class GenericPokerGame extends AbstractGameType implements RoundVisitor {
 
     private final HandTypeEvaluator handEvaluator;
 
+    /**
+     * The evaluated hands of the players in the current hand, reused at showdown.
+     */
+    private final HandStrengthTracker handStrengths;
+
     private HandResultCalculator handResultCalculator;
 
     private RevealOrderCalculator revealOrderCalculator;
@@ -79,7 +84,8 @@ public class GenericPokerGame extends AbstractGameType implements RoundVisitor {
         this.roundCreators = roundCreators;
         this.deckProvider = deckProvider;
         this.handEvaluator = handEvaluator;
-        handResultCalculator = new HandResultCalculator(handEvaluator);
+        handStrengths = new HandStrengthTracker(handEvaluator);
+        handResultCalculator = new HandResultCalculator(handStrengths);
         revealOrderCalculator = new RevealOrderCalculator();
     }
 
@@ -95,6 +101,7 @@ public class GenericPokerGame extends AbstractGameType implements RoundVisitor {
 
     private void initHand() {
         rounds = roundCreators.iterator();
+        handStrengths.clear();
         context.setDeck(deckProvider.createNewDeck(serverAdapterHolder.get().getSystemRNG(), context.getTableSize()));
         currentRound = rounds.next().create(context, serverAdapterHolder);
     }
@@ -197,7 +204,7 @@ public class GenericPokerGame extends AbstractGameType implements RoundVisitor {
 
         currentRound = new ExposePrivateCardsRound(context, serverAdapterHolder, revealOrderCalculator);
         Set<PokerPlayer> muckingPlayers = context.getMuckingPlayers();
-        HandResult handResult = new HandResultCreator(handEvaluator).createHandResult(context.getCommunityCards(),
+        HandResult handResult = new HandResultCreator(handStrengths).createHandResult(context.getCommunityCards(),
                 handResultCalculator, context.getPotHolder(), context.getCurrentHandPlayerMap(), playerRevealOrder, muckingPlayers,context.getSettings().getCurrency());
 
         notifyHandFinished(handResult, HandEndStatus.NORMAL);
@@ -250,10 +257,7 @@ public class GenericPokerGame extends AbstractGameType implements RoundVisitor {
             if (player.hasFolded()) {
                 continue;
             }
-            Hand hand = new Hand();
-            hand.addPocketCards(player.getPocketCards().getCards());
-            hand.addCommunityCards(context.getCommunityCards());
-            HandInfo handInfo = handEvaluator.getBestHandInfo(hand);
+            HandInfo handInfo = handStrengths.update(player, context.getCommunityCards());
             if (handInfo.getCards() == null) {
                 log.warn("Cards in best hand is null for player " + player + " pocket cards: "
                          + player.getPocketCards().getCards() + " community: " + context.getCommunityCards());
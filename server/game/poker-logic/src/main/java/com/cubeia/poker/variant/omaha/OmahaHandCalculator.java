@@ -1,6 +1,7 @@
 package com.cubeia.poker.variant.omaha;
 
 import com.cubeia.poker.hand.*;
+import com.cubeia.poker.hand.eval.LookupHandEvaluator;
 import com.cubeia.poker.variant.texasholdem.TexasHoldemHandCalculator;
 
 import java.util.ArrayList;
@@ -8,6 +9,14 @@ import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
 
+/**
+ * Omaha hand calculator. The best hand must be formed from exactly two pocket cards
+ * and three community cards, for any number of pocket cards (e.g. 4, 5 or 6 card Omaha).
+ * Before the flop only the pocket pairs are considered.
+ * <p/>
+ * All combinations are scored by the {@link LookupHandEvaluator} on primitive card sets
+ * and only the best one is turned into a HandStrength.
+ */
 public class OmahaHandCalculator extends TexasHoldemHandCalculator {
 
     @Override
@@ -25,32 +34,24 @@ public class OmahaHandCalculator extends TexasHoldemHandCalculator {
         if (hand == null || hand.getCards() == null || hand.getCards().isEmpty()) {
             return new HandStrength(HandType.NOT_RANKED);
         }
-        List<HandStrength> allPossibleHands = new ArrayList<HandStrength>();
 
-        Combinator<Card> pocketCombinations = new Combinator<Card>(hand.getPocketCards(), 2);
-
-        if(hand.getCommunityCards().size()>=3) {
-            addHandsWithCommunityCards(allPossibleHands, pocketCombinations, hand.getCommunityCards());
-        } else {
-            addHandsOnlyPrivate(allPossibleHands,pocketCombinations);
-        }
-
-
-        if (allPossibleHands.isEmpty()) {
+        long bestCards = getBestCardSet(hand);
+        if (bestCards == 0L) {
             throw new IllegalArgumentException("calculated 0 possible hands from cards: " + hand.toString());
         }
 
-        Collections.sort(allPossibleHands, new HandStrengthComparator());
-        return allPossibleHands.get(0);
+        List<Card> cardsUsed = new ArrayList<Card>(5);
+        for (Card card : hand.getCardsView()) {
+            if ((card.getBit() & bestCards) != 0) {
+                cardsUsed.add(card);
+            }
+        }
+        return getHandStrength(new Hand(cardsUsed));
     }
 
-    private void addHandsOnlyPrivate(List<HandStrength> allPossibleHands, Combinator<Card> pocketCombinations) {
-        for (List<Card> pocketCards : pocketCombinations) {
-            Hand h = new Hand();
-            h.addPocketCards(pocketCards);
-            HandStrength handStrength = getHandStrength(h);
-            allPossibleHands.add(handStrength);
-        }
+    @Override
+    public int getBestHandScore(Hand hand) {
+        return LookupHandEvaluator.score(getBestCardSet(hand));
     }
 
     @Override
@@ -58,23 +59,53 @@ public class OmahaHandCalculator extends TexasHoldemHandCalculator {
         return Collections.reverseOrder(new OmahaHandComparator());
     }
 
-    private void addHandsWithCommunityCards(List<HandStrength> allPossibleHands,
-                                            Combinator<Card> pocketCombinations,
-                                            List<Card> communityCards) {
-        for (List<Card> pocketCards : pocketCombinations) {
-            Combinator<Card> communityCombinations = new Combinator<Card>(communityCards, 3);
-            for(List<Card> cards :  communityCombinations) {
-                Hand h = new Hand();
-                h.addPocketCards(pocketCards);
-                h.addCommunityCards(cards);
-                HandStrength handStrength = getHandStrength(h);
-                allPossibleHands.add(handStrength);
+    /**
+     * Finds the best combination of two pocket cards and, if there is a flop,
+     * three community cards.
+     *
+     * @param hand hand to check
+     * @return card set of the best combination, 0 if there are less than two pocket cards
+     */
+    private long getBestCardSet(Hand hand) {
+        long[] pocket = toCardSets(hand.getPocketCards());
+        long[] community = toCardSets(hand.getCommunityCards());
+
+        long bestCards = 0L;
+        int bestScore = -1;
+        for (int p1 = 0; p1 < pocket.length; p1++) {
+            for (int p2 = p1 + 1; p2 < pocket.length; p2++) {
+                long pocketPair = pocket[p1] | pocket[p2];
+                if (community.length < 3) {
+                    int score = LookupHandEvaluator.score(pocketPair);
+                    if (score > bestScore) {
+                        bestScore = score;
+                        bestCards = pocketPair;
+                    }
+                    continue;
+                }
+                for (int c1 = 0; c1 < community.length; c1++) {
+                    for (int c2 = c1 + 1; c2 < community.length; c2++) {
+                        for (int c3 = c2 + 1; c3 < community.length; c3++) {
+                            long cards = pocketPair | community[c1] | community[c2] | community[c3];
+                            int score = LookupHandEvaluator.score(cards);
+                            if (score > bestScore) {
+                                bestScore = score;
+                                bestCards = cards;
+                            }
+                        }
+                    }
+                }
             }
-
         }
+        return bestCards;
     }
 
-
-
+    private long[] toCardSets(List<Card> cards) {
+        long[] sets = new long[cards.size()];
+        for (int i = 0; i < sets.length; i++) {
+            sets[i] = cards.get(i).getBit();
+        }
+        return sets;
+    }
 
 }
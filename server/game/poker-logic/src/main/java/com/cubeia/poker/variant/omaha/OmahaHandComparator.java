@@ -18,16 +18,14 @@
 package com.cubeia.poker.variant.omaha;
 
 import com.cubeia.poker.hand.Hand;
-import com.cubeia.poker.hand.HandStrength;
-import com.cubeia.poker.hand.HandStrengthComparator;
-import com.cubeia.poker.variant.texasholdem.TexasHoldemHandCalculator;
 
 import java.io.Serializable;
 import java.util.Comparator;
 
 /**
  * Compares hands. The most valued hand is greater than a lesser one.
- * This implementation delegates to {@link com.cubeia.poker.hand.HandStrengthComparator}.
+ * This implementation compares the lookup table scores of the best
+ * hands, see {@link OmahaHandCalculator#getBestHandScore(Hand)}.
  * <p/>
  * NOTE this impl sorts hands in the "wrong" order according to
  * behavior specified by Comparator interface. In some parts of the
@@ -37,19 +35,12 @@ import java.util.Comparator;
  */
 public class OmahaHandComparator implements Comparator<Hand>, Serializable {
 
-    private HandStrengthComparator hsc;
     private OmahaHandCalculator calc = new OmahaHandCalculator();
 
-
-    public OmahaHandComparator() {
-        hsc = new HandStrengthComparator();
-    }
-
     @Override
     public int compare(Hand h1, Hand h2) {
-        HandStrength h1Strength = calc.getBestCombinationHandStrength(h1);
-        HandStrength h2Strength = calc.getBestCombinationHandStrength(h2);
-        return hsc.compare(h1Strength, h2Strength);
+        // Strongest hand first, see class comment
+        return Integer.compare(calc.getBestHandScore(h2), calc.getBestHandScore(h1));
     }
 
 
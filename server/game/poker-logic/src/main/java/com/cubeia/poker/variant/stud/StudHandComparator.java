@@ -27,7 +27,9 @@ import java.util.Comparator;
 
 /**
  * Compares hands. The most valued hand is greater than a lesser one.
- * This implementation delegates to {@link com.cubeia.poker.hand.HandStrengthComparator}.
+ * Hands of five or more cards are compared by their lookup table scores,
+ * smaller hands are delegated to {@link com.cubeia.poker.hand.HandStrengthComparator}.
+ * Flushes of equal ranks are equal, their suits do not break the tie.
  * <p/>
  * NOTE this impl sorts hands in the "wrong" order according to
  * behavior specified by Comparator interface. In some parts of the
@@ -47,6 +49,10 @@ public class StudHandComparator implements Comparator<Hand>, Serializable {
 
     @Override
     public int compare(Hand h1, Hand h2) {
+        if (h1.getNumberOfCards() >= 5 && h2.getNumberOfCards() >= 5) {
+            // Strongest hand first, see class comment
+            return Integer.compare(calc.getBestHandScore(h2), calc.getBestHandScore(h1));
+        }
         int minElement = Math.min(h1.getNumberOfCards(),5);
         HandStrength h1Strength = calc.getBestCombinationHandStrength(h1, minElement);
         HandStrength h2Strength = calc.getBestCombinationHandStrength(h2, minElement);
@@ -62,7 +62,12 @@ public class TexasHoldem extends AbstractGameType implements RoundVisitor, Deale
 
     private final TexasHoldemHandCalculator handEvaluator = new TexasHoldemHandCalculator();
 
-    private HandResultCalculator handResultCalculator = new HandResultCalculator(handEvaluator);
+    /**
+     * The evaluated hands of the players in the current hand, reused at showdown.
+     */
+    private final HandStrengthTracker handStrengths = new HandStrengthTracker(handEvaluator);
+
+    private HandResultCalculator handResultCalculator = new HandResultCalculator(handStrengths);
 
     private RevealOrderCalculator revealOrderCalculator;
 
@@ -84,6 +89,7 @@ public class TexasHoldem extends AbstractGameType implements RoundVisitor, Deale
         context.setDeck(new StandardDeck(new Shuffler<Card>(getServerAdapter().getSystemRNG()), new IndexCardIdGenerator()));
         currentRound = new BlindsRound(context, serverAdapterHolder, new BlindsCalculator(new NonRandomSeatProvider()));
         roundName = NOTHING;
+        handStrengths.clear();
     }
 
     private void dealPocketCards(PokerPlayer p, int n) {
@@ -229,7 +235,7 @@ public class TexasHoldem extends AbstractGameType implements RoundVisitor, Deale
 
         currentRound = new ExposePrivateCardsRound(context, serverAdapterHolder, revealOrderCalculator);
         Set<PokerPlayer> muckingPlayers = context.getMuckingPlayers();
-        HandResult handResult = new HandResultCreator(new TexasHoldemHandCalculator()).createHandResult(
+        HandResult handResult = new HandResultCreator(handStrengths).createHandResult(
                 context.getCommunityCards(), handResultCalculator, context.getPotHolder(), context.getCurrentHandPlayerMap(),
                 playerRevealOrder, muckingPlayers, context.getSettings().getCurrency());
 
@@ -278,10 +284,7 @@ public class TexasHoldem extends AbstractGameType implements RoundVisitor, Deale
             if (player.hasFolded()) {
                 continue;
             }
-            Hand hand = new Hand();
-            hand.addPocketCards(player.getPocketCards().getCards());
-            hand.addCommunityCards(context.getCommunityCards());
-            HandInfo handInfo = handEvaluator.getBestHandInfo(hand);
+            HandInfo handInfo = handStrengths.update(player, context.getCommunityCards());
             if (handInfo.getCards() == null) {
                 log.warn("Cards in best hand is null for player " + player + " pocket cards: "
                          + player.getPocketCards().getCards() + " community: " + context.getCommunityCards());
@@ -21,6 +21,7 @@ import com.cubeia.poker.hand.*;
 import com.cubeia.poker.hand.calculator.ByRankCardComparator;
 import com.cubeia.poker.hand.calculator.HandCalculator;
 import com.cubeia.poker.hand.eval.HandTypeCheckCalculator;
+import com.cubeia.poker.hand.eval.LookupHandEvaluator;
 
 import java.io.Serializable;
 import java.util.ArrayList;
@@ -52,15 +53,24 @@ public class TexasHoldemHandCalculator implements HandCalculator, HandTypeEvalua
     }
 
     /**
-     * Get all possible hand combinations and rank them.
+     * Get the best hand that can be formed using minElements of the given cards.
+     * <p/>
+     * Five card hands picked from larger hands are scored by the {@link LookupHandEvaluator}
+     * and only the winning combination is turned into a HandStrength. Any other combination
+     * size falls back to ranking all possible hand combinations.
      *
      * @param hand with more than 5 cards
      * @return the best HandStrength found.
      */
     public HandStrength getBestCombinationHandStrength(Hand hand, int minElements) {
-        if (hand == null || hand.getCards() == null || hand.getCards().isEmpty()) {
+        if (hand == null || hand.getNumberOfCards() == 0) {
             return new HandStrength(HandType.NOT_RANKED);
         }
+        if (minElements == 5 && hand.getNumberOfCards() > 5) {
+            int score = LookupHandEvaluator.score(hand.getCardSet());
+            return getHandStrength(new Hand(LookupHandEvaluator.getCardsUsedInHand(hand.getCardsView(), score)));
+        }
+
         List<HandStrength> allPossibleHands = new ArrayList<HandStrength>();
         Combinator<Card> combinator = new Combinator<Card>(hand.getCards(), minElements);
         for (List<Card> cards : combinator) {
@@ -76,6 +86,18 @@ public class TexasHoldemHandCalculator implements HandCalculator, HandTypeEvalua
         return allPossibleHands.get(0);
     }
 
+    /**
+     * Scores the best five card hand that can be formed from the given hand.
+     * Scores of different hands can be compared directly, a higher
+     * score is a stronger hand.
+     *
+     * @param hand hand to score
+     * @return the score, see {@link LookupHandEvaluator}
+     */
+    public int getBestHandScore(Hand hand) {
+        return LookupHandEvaluator.score(hand.getCardSet());
+    }
+
     /* ----------------------------------------------------
       *
       * 	PUBLIC METHODS
@@ -26,7 +26,9 @@ import com.cubeia.poker.hand.HandStrengthComparator;
 
 /**
  * Compares hands. The most valued hand is greater than a lesser one.
- * This implementation delegates to {@link HandStrengthComparator}.
+ * Hands of five or more cards are compared by their lookup table scores,
+ * smaller hands are delegated to {@link HandStrengthComparator}. Flushes of
+ * equal ranks are equal, their suits do not break the tie.
  * <p/>
  * NOTE this impl sorts hands in the "wrong" order according to
  * behavior specified by Comparator interface. In some parts of the
@@ -46,9 +48,13 @@ public class TexasHoldemHandComparator implements Comparator<Hand>, Serializable
 
     @Override
     public int compare(Hand h1, Hand h2) {
-        HandStrength h1Strength = calc.getBestCombinationHandStrength(h1, 5);
-        HandStrength h2Strength = calc.getBestCombinationHandStrength(h2, 5);
-        return hsc.compare(h1Strength, h2Strength);
+        if (h1.getNumberOfCards() < 5 || h2.getNumberOfCards() < 5) {
+            HandStrength h1Strength = calc.getBestCombinationHandStrength(h1, 5);
+            HandStrength h2Strength = calc.getBestCombinationHandStrength(h2, 5);
+            return hsc.compare(h1Strength, h2Strength);
+        }
+        // Strongest hand first, see class comment
+        return Integer.compare(calc.getBestHandScore(h2), calc.getBestHandScore(h1));
     }
 
 
@@ -0,0 +1,70 @@
+/**
+ * Copyright (C) 2010 Cubeia Ltd <info@cubeia.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.cubeia.poker.hand;
+
+import com.cubeia.poker.handhistory.api.GameCard;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+public class CardCodesTest {
+
+    @Test
+    public void testRoundTrip() {
+        for (Suit suit : Suit.values()) {
+            for (Rank rank : Rank.values()) {
+                int code = CardCodes.code(rank, suit);
+                assertThat(CardCodes.rank(code), is(rank));
+                assertThat(CardCodes.suit(code), is(suit));
+                assertThat(new Card(rank, suit).getCode(), is(code));
+                assertThat(CardCodes.toCard(code), is(new Card(rank, suit)));
+                assertThat(CardCodes.code(CardCodes.toGameCard(code)), is(code));
+            }
+        }
+    }
+
+    @Test
+    public void testSharedCards() {
+        Card aceOfSpades = new Card(7, "AS");
+        assertThat(aceOfSpades.makeCopyWithoutId(), sameInstance(CardCodes.toCard(aceOfSpades.getCode())));
+        assertThat(aceOfSpades.makeCopyWithId(7), is(aceOfSpades));
+    }
+
+    @Test
+    public void testGameCard() {
+        GameCard gameCard = new Card("TH").translate();
+        assertThat(gameCard.getRank(), is(GameCard.Rank.TEN));
+        assertThat(gameCard.getSuit(), is(GameCard.Suit.HEARTS));
+        assertThat(CardCodes.toCard(CardCodes.code(gameCard)), is(new Card("TH")));
+    }
+
+    @Test
+    public void testCardSets() {
+        long cards = CardCodes.toCardSet(Arrays.asList(new Card("AS"), new Card("2C"), new Card("TH")));
+        assertThat(CardCodes.size(cards), is(3));
+        assertThat(CardCodes.contains(cards, new Card("TH").getCode()), is(true));
+        assertThat(CardCodes.contains(cards, new Card("TS").getCode()), is(false));
+        assertThat(CardCodes.toCards(cards), is(new Hand("2C TH AS").getCards()));
+        assertThat(CardCodes.size(CardCodes.ALL_CARDS), is(52));
+        assertThat(CardCodes.suitRanks(cards, Suit.SPADES.ordinal()), is(1 << Rank.ACE.ordinal()));
+    }
+
+}
@@ -0,0 +1,102 @@
+/**
+ * Copyright (C) 2010 Cubeia Ltd <info@cubeia.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.cubeia.poker.hand;
+
+import com.cubeia.poker.player.PokerPlayer;
+import com.cubeia.poker.variant.texasholdem.TexasHoldemHandCalculator;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class HandStrengthTrackerTest {
+
+    private TexasHoldemHandCalculator evaluator;
+
+    private HandStrengthTracker tracker;
+
+    private PokerPlayer player;
+
+    private List<Card> community;
+
+    @Before
+    public void setup() {
+        evaluator = spy(new TexasHoldemHandCalculator());
+        tracker = new HandStrengthTracker(evaluator);
+        player = mock(PokerPlayer.class);
+        when(player.getId()).thenReturn(1);
+        when(player.getPocketCards()).thenReturn(new Hand("AS AH"));
+        community = new ArrayList<Card>(new Hand("KS 7D 2C").getCards());
+    }
+
+    @Test
+    public void testEvaluatesOncePerStreet() {
+        HandInfo flop = tracker.update(player, community);
+        assertSame(flop, tracker.update(player, community));
+        assertEquals(HandType.PAIR, flop.getHandType());
+
+        community.add(new Card("KD"));
+        HandInfo turn = tracker.update(player, community);
+        assertEquals(HandType.TWO_PAIRS, turn.getHandType());
+        verify(evaluator, times(2)).getBestHandInfo(any(Hand.class));
+    }
+
+    @Test
+    public void testReusesEvaluationAtShowdown() {
+        HandInfo river = tracker.update(player, community);
+
+        Hand showdown = new Hand();
+        showdown.addPocketCards(player.getPocketCards().getCards());
+        showdown.addCommunityCards(community);
+        assertSame(river, tracker.getBestHandInfo(showdown));
+        verify(evaluator, times(1)).getBestHandInfo(any(Hand.class));
+    }
+
+    @Test
+    public void testClear() {
+        tracker.update(player, community);
+        tracker.clear();
+        tracker.update(player, community);
+        verify(evaluator, times(2)).getBestHandInfo(any(Hand.class));
+    }
+
+    @Test
+    public void testComparatorRemembersComparisons() {
+        Hand aces = new Hand("AS AH KS 7D 2C");
+        Hand kings = new Hand("KH KC KS 7D 2C");
+        Comparator<Hand> comparator = tracker.createHandComparator(2);
+
+        assertTrue(comparator.compare(kings, aces) > 0);
+        assertTrue(comparator.compare(kings, aces) > 0);
+        assertSame(comparator, tracker.createHandComparator(2));
+        verify(evaluator, times(1)).createHandComparator(2);
+        assertEquals(evaluator.createHandComparator(2).compare(aces, kings), comparator.compare(aces, kings));
+    }
+}
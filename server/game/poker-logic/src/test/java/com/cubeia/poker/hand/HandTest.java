@@ -80,6 +80,21 @@ public class HandTest {
         assertThat(hand.containsAllCardsRegardlessOfId(new Hand("6D 2C 5C").getCards()), is(false));
     }
 
+    @Test
+    public void testCardSet() {
+        Hand hand = new Hand(asList(new Card(1, "AS"), new Card(2, "5C")));
+        hand.addPocketCard(new Card(3, "KH"));
+        hand.addCommunityCards(asList(new Card(4, "2D"), new Card(5, "3D")));
+        assertThat(hand.getCardSet(), is(CardCodes.toCardSet(hand.getCards())));
+        assertThat(CardCodes.size(hand.getCardSet()), is(5));
+
+        hand.removeCardById(3);
+        assertThat(hand.getCardSet(), is(CardCodes.toCardSet(new Hand("AS 5C 2D 3D").getCards())));
+
+        hand.clear();
+        assertThat(hand.getCardSet(), is(0L));
+    }
+
     @Test
     public void testRemoveCardById() {
         Hand hand = new Hand(Arrays.asList(
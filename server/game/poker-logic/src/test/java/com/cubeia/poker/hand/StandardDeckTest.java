@@ -30,6 +30,8 @@ import static com.cubeia.poker.hand.Rank.KING;
 import static com.cubeia.poker.hand.Rank.QUEEN;
 import static com.cubeia.poker.hand.Suit.CLUBS;
 import static com.cubeia.poker.hand.Suit.DIAMONDS;
+import static com.google.common.collect.ImmutableSet.copyOf;
+import static com.google.common.collect.Sets.cartesianProduct;
 import static java.util.Arrays.asList;
 import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.CoreMatchers.notNullValue;
@@ -66,6 +68,27 @@ public class StandardDeckTest {
         assertThat(new HashSet<Card>(cards).size(), is(52));
     }
 
+    /**
+     * The deck must be created in the same order as it was built with a cartesian product
+     * of suits and ranks, otherwise seeded and replayed shuffles deal other cards.
+     */
+    @SuppressWarnings("unchecked")
+    @Test
+    public void testCreateDeckOrder() {
+        List<Card> expected = new ArrayList<Card>();
+        for (List<Enum<?>> cardContainer : cartesianProduct(copyOf(Suit.values()), copyOf(Rank.values()))) {
+            expected.add(new Card((Rank) cardContainer.get(1), (Suit) cardContainer.get(0)));
+        }
+
+        StandardDeck deck = new StandardDeck(mock(Shuffler.class), mock(CardIdGenerator.class));
+        List<Card> cards = deck.createDeck();
+        assertThat(cards.size(), is(52));
+        for (int i = 0; i < cards.size(); i++) {
+            assertThat(cards.get(i).getRank(), is(expected.get(i).getRank()));
+            assertThat(cards.get(i).getSuit(), is(expected.get(i).getSuit()));
+        }
+    }
+
     @SuppressWarnings("unchecked")
     @Test
     public void dealCard() {
@@ -0,0 +1,163 @@
+/**
+ * Copyright (C) 2010 Cubeia Ltd <info@cubeia.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.cubeia.poker.hand.eval;
+
+import com.cubeia.poker.hand.Card;
+import com.cubeia.poker.hand.CardCodes;
+import com.cubeia.poker.hand.Combinator;
+import com.cubeia.poker.hand.Hand;
+import com.cubeia.poker.hand.HandStrength;
+import com.cubeia.poker.hand.HandStrengthComparator;
+import com.cubeia.poker.hand.HandType;
+import com.cubeia.poker.hand.Rank;
+import com.cubeia.poker.hand.Suit;
+import com.cubeia.poker.variant.stud.StudHandComparator;
+import com.cubeia.poker.variant.texasholdem.TexasHoldemHandCalculator;
+import com.cubeia.poker.variant.texasholdem.TexasHoldemHandComparator;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public class LookupHandEvaluatorTest {
+
+    private TexasHoldemHandCalculator holdemCalculator = new TexasHoldemHandCalculator();
+
+    @Test
+    public void testHandTypes() {
+        assertThat(typeOf("AH KH QH JH TH 2C 3D"), is(HandType.ROYAL_STRAIGHT_FLUSH));
+        assertThat(typeOf("5H 4H 2H 3H AH KC KD"), is(HandType.STRAIGHT_FLUSH));
+        assertThat(typeOf("9C 9D 9H 9S 2C 3D 4H"), is(HandType.FOUR_OF_A_KIND));
+        assertThat(typeOf("9C 9D 9H 2S 2C 3D 3H"), is(HandType.FULL_HOUSE));
+        assertThat(typeOf("9C 9D 9H 2S 2C 2D 4H"), is(HandType.FULL_HOUSE));
+        assertThat(typeOf("8C 6D 9C AC 5C QS 3C"), is(HandType.FLUSH));
+        assertThat(typeOf("AC 2D 3H 4S 5C KD KH"), is(HandType.STRAIGHT));
+        assertThat(typeOf("9C 9D 9H 2S 3C 5D JH"), is(HandType.THREE_OF_A_KIND));
+        assertThat(typeOf("9C 9D 2H 2S 3C 3D JH"), is(HandType.TWO_PAIRS));
+        assertThat(typeOf("9C 9D 2H 4S 6C 8D JH"), is(HandType.PAIR));
+        assertThat(typeOf("KC QD 2H 4S 6C 8D JH"), is(HandType.HIGH_CARD));
+        assertThat(LookupHandEvaluator.score(0L), is(0));
+    }
+
+    @Test
+    public void testWheelIsLowestStraight() {
+        assertTrue(scoreOf("AC 2D 3H 4S 5C") < scoreOf("2C 3D 4H 5S 6C"));
+        assertTrue(scoreOf("AC 2C 3C 4C 5C") < scoreOf("2H 3H 4H 5H 6H"));
+    }
+
+    @Test
+    public void testKickers() {
+        assertTrue(scoreOf("AC AD KH 4S 2C") > scoreOf("AH AS QH JS TC"));
+        assertTrue(scoreOf("AC AD KH KS 3C") > scoreOf("AH AS KC KD 2C"));
+        assertThat(scoreOf("AC AD KH KS 3C 2D 2H"), is(scoreOf("AH AS KC KD 3S")));
+        assertTrue(scoreOf("6C 8C 6D 9C AC 5C") > scoreOf("3C 8C 6D 9C AC 5C"));
+    }
+
+    /**
+     * Flushes of equal ranks split the pot, suits do not break the tie as in {@link HandStrengthComparator}.
+     */
+    @Test
+    public void testEqualRankFlushesAreEqual() {
+        assertThat(scoreOf("AH KH 9H 7H 4H"), is(scoreOf("AS KS 9S 7S 4S")));
+        assertThat(scoreOf("AH KH 9H 7H 4H 2C 3D"), is(scoreOf("AS KS 9S 7S 4S 2D 3C")));
+        assertTrue(scoreOf("AH KH 9H 7H 5H") > scoreOf("AS KS 9S 7S 4S"));
+
+        TexasHoldemHandComparator comparator = new TexasHoldemHandComparator();
+        assertThat(comparator.compare(new Hand("AH KH 9H 7H 4H 2C 3D"), new Hand("AS KS 9S 7S 4S 2D 3C")), is(0));
+        assertThat(new StudHandComparator().compare(new Hand("AD KD 9D 7D 4D"), new Hand("AC KC 9C 7C 4C")), is(0));
+    }
+
+    @Test
+    public void testCardsUsedInHand() {
+        List<Card> cards = new Hand("8C 6D 9C AC 5C 6C 9D").getCards();
+        int score = scoreOf(cards);
+        List<Card> used = LookupHandEvaluator.getCardsUsedInHand(cards, score);
+        assertThat(used, is(new Hand("8C 9C AC 5C 6C").getCards()));
+
+        cards = new Hand("9C 9D 9H 2S 2C 2D 4H").getCards();
+        used = LookupHandEvaluator.getCardsUsedInHand(cards, scoreOf(cards));
+        assertThat(used, is(new Hand("9C 9D 9H 2S 2C").getCards()));
+    }
+
+    /**
+     * Compares the evaluator to the hand type check cascade for random seven card hands.
+     */
+    @Test
+    public void testAgreesWithHandTypeCheckCalculator() {
+        Random random = new Random(4711);
+        HandStrengthComparator comparator = new HandStrengthComparator();
+        List<Card> deck = createDeck();
+
+        for (int i = 0; i < 500; i++) {
+            Collections.shuffle(deck, random);
+            List<Card> cards1 = new ArrayList<Card>(deck.subList(0, 7));
+            List<Card> cards2 = new ArrayList<Card>(deck.subList(7, 14));
+
+            HandStrength strength1 = bestOfAllCombinations(cards1);
+            HandStrength strength2 = bestOfAllCombinations(cards2);
+            int score1 = scoreOf(cards1);
+            int score2 = scoreOf(cards2);
+
+            assertThat(LookupHandEvaluator.getHandType(score1), is(strength1.getHandType()));
+            // The strength comparator breaks flushes of equal ranks on suit, which is not a hold'em rule
+            if (strength1.getHandType() != HandType.FLUSH || strength2.getHandType() != HandType.FLUSH) {
+                assertThat(Integer.signum(Integer.compare(score2, score1)), is(Integer.signum(comparator.compare(strength1, strength2))));
+            }
+
+            HandStrength materialized = holdemCalculator.getHandStrength(new Hand(LookupHandEvaluator.getCardsUsedInHand(cards1, score1)));
+            assertThat(comparator.compare(materialized, strength1), is(0));
+        }
+    }
+
+    private HandStrength bestOfAllCombinations(List<Card> cards) {
+        List<HandStrength> strengths = new ArrayList<HandStrength>();
+        for (List<Card> combination : new Combinator<Card>(cards, 5)) {
+            strengths.add(holdemCalculator.getHandStrength(new Hand(combination)));
+        }
+        Collections.sort(strengths, new HandStrengthComparator());
+        return strengths.get(0);
+    }
+
+    private List<Card> createDeck() {
+        List<Card> deck = new ArrayList<Card>();
+        for (Suit suit : Suit.values()) {
+            for (Rank rank : Rank.values()) {
+                deck.add(new Card(rank, suit));
+            }
+        }
+        return deck;
+    }
+
+    private HandType typeOf(String cards) {
+        return LookupHandEvaluator.getHandType(scoreOf(cards));
+    }
+
+    private int scoreOf(String cards) {
+        return scoreOf(new Hand(cards).getCards());
+    }
+
+    private int scoreOf(List<Card> cards) {
+        return LookupHandEvaluator.score(CardCodes.toCardSet(cards));
+    }
+}
@@ -18,6 +18,8 @@
 package com.cubeia.poker.pot;
 
 import com.cubeia.games.poker.common.money.Currency;
+import com.cubeia.games.poker.common.money.MinorUnits;
+import com.cubeia.poker.player.DefaultPokerPlayer;
 import com.cubeia.poker.rake.LinearRakeWithLimitCalculator;
 import com.cubeia.poker.settings.RakeSettings;
 import com.cubeia.poker.player.PokerPlayer;
@@ -32,6 +34,8 @@ import java.util.Collection;
 import java.util.HashMap;
 import java.util.Map;
 
+import static com.google.common.collect.Sets.newHashSet;
+import static java.util.Arrays.asList;
 import static org.hamcrest.CoreMatchers.is;
 import static org.junit.Assert.assertThat;
 import static org.mockito.Mockito.*;
@@ -162,4 +166,32 @@ public class PotHolderTest {
 
     }
 
+    @Test
+    public void testSidePotsInMinorUnits() {
+        PokerPlayer player0 = new DefaultPokerPlayer(0);
+        player0.addChips(new BigDecimal("10.05"));
+        player0.addBet(new BigDecimal("10.05"));
+        PokerPlayer player1 = new DefaultPokerPlayer(1);
+        player1.addChips(new BigDecimal("25.00"));
+        player1.addBet(new BigDecimal("25.00"));
+        PokerPlayer player2 = new DefaultPokerPlayer(2);
+        player2.addChips(new BigDecimal("100.00"));
+        player2.addBet(new BigDecimal("40.00"));
+        PokerPlayer player3 = new DefaultPokerPlayer(3);
+        player3.addChips(new BigDecimal("100.00"));
+        player3.addBet(new BigDecimal("30.00"));
+
+        Currency eur = new Currency("EUR", 2);
+        PotHolder potHolder = new PotHolder(mock(RakeCalculator.class), new MinorUnits(eur));
+        potHolder.moveChipsToPotAndTakeBackUncalledChips(asList(player0, player1, player2, player3));
+
+        assertThat(potHolder.getNumberOfPots(), is(3));
+        assertThat(potHolder.getPotSize(0), is(new BigDecimal("40.20")));
+        assertThat(potHolder.getPotSize(1), is(new BigDecimal("44.85")));
+        assertThat(potHolder.getPotSize(2), is(new BigDecimal("10.00")));
+        assertThat(potHolder.getPot(2).getPotContributors().keySet(), is((Object) newHashSet(player2, player3)));
+        assertThat(player2.getBalance(), is(new BigDecimal("70.00"))); // 10 uncalled returned
+        assertThat(player2.getBetStack(), is(new BigDecimal("0.00")));
+    }
+
 }
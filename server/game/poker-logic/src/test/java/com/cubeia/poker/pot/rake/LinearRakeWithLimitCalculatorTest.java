@@ -185,4 +185,42 @@ public class LinearRakeWithLimitCalculatorTest {
         assertThat(rakes.get(pot1), is(bd(0)));
     }
 
+    @Test
+    public void testCalculateRakeWithLimitInMinorUnits() {
+        BigDecimal rakeFraction = new BigDecimal("0.1");
+        RakeSettings rakeSettings = new RakeSettings(rakeFraction, bd(4000), bd(1000));
+        LinearRakeWithLimitCalculator rc = new LinearRakeWithLimitCalculator(rakeSettings, eur, true);
+        LinearRakeWithLimitCalculator bigDecimalRc = new LinearRakeWithLimitCalculator(rakeSettings, eur);
+
+        PokerPlayer player1 = Mockito.mock(PokerPlayer.class);
+        PokerPlayer player2 = Mockito.mock(PokerPlayer.class);
+        PokerPlayer player3 = Mockito.mock(PokerPlayer.class);
+        Pot pot1 = new Pot(0);
+        Pot pot2 = new Pot(1);
+        Pot pot3 = new Pot(2);
+
+        pot1.bet(player1, new BigDecimal("7000.33"));
+        pot1.bet(player2, new BigDecimal("7000.33"));
+        pot1.bet(player3, new BigDecimal("7000.33"));
+        pot2.bet(player1, bd(15000L));
+        pot2.bet(player2, bd(5000L));
+        pot3.bet(player1, bd(10000L));
+
+        Collection<Pot> pots = Arrays.asList(pot1, pot2, pot3);
+
+        RakeInfoContainer rakeInfoContainer = rc.calculateRakes(pots, true);
+        assertThat(rakeInfoContainer.getTotalPot(), is(new BigDecimal("51000.99")));
+        assertThat(rakeInfoContainer.getTotalRake(), is(bd(4000)));
+
+        Map<Pot, BigDecimal> rakes = rakeInfoContainer.getPotRakes();
+        assertThat(rakes.get(pot1), is(new BigDecimal("2100.09"))); // 2100.099 rounded down
+        assertThat(rakes.get(pot2), is(new BigDecimal("1899.91")));  // limited
+        assertThat(rakes.get(pot3), is(bd(0)));                      // over limit
+
+        RakeInfoContainer bigDecimalRake = bigDecimalRc.calculateRakes(pots, true);
+        assertThat(bigDecimalRake.getTotalRake(), is(rakeInfoContainer.getTotalRake()));
+        assertThat(bigDecimalRake.getPotRakes().get(pot1), is(rakes.get(pot1)));
+        assertThat(bigDecimalRake.getPotRakes().get(pot2), is(rakes.get(pot2)));
+    }
+
 }
@@ -23,6 +23,7 @@ import com.cubeia.poker.adapter.HandEndStatus;
 import com.cubeia.poker.adapter.ServerAdapter;
 import com.cubeia.poker.adapter.ServerAdapterHolder;
 import com.cubeia.poker.context.PokerContext;
+import com.cubeia.poker.model.BlindsInfo;
 import com.cubeia.poker.model.RatedPlayerHand;
 import com.cubeia.poker.player.PokerPlayer;
 import com.cubeia.poker.player.SitOutStatus;
@@ -177,6 +178,35 @@ public class PlayingSTMTest {
         verify(serverAdapter, never()).notifyBuyInInfo(p3.getId(), true); // player has pending buyin, so we won't bother him
     }
 
+    @Test
+    public void testBigBlindOrderStartsWithNextBigBlind() {
+        PlayingSTM playing = new PlayingSTM();
+        playing.context = context;
+        PokerPlayer p1 = createSeatedPlayer(1);
+        PokerPlayer p2 = createSeatedPlayer(3);
+        PokerPlayer p3 = createSeatedPlayer(5);
+        PokerPlayer p4 = createSeatedPlayer(7);
+        Map<Integer, PokerPlayer> players = createPlayerMap(p1, p2, p3, p4);
+        when(context.getPlayerMap()).thenReturn(players);
+        BlindsInfo blindsInfo = mock(BlindsInfo.class);
+        when(blindsInfo.getDealerButtonSeatId()).thenReturn(3);
+        when(context.getBlindsInfo()).thenReturn(blindsInfo);
+
+        // Next hand the button is at seat 5, small blind at seat 7 and big blind at seat 1.
+        assertThat(playing.getBigBlindOrder(), is(Arrays.asList(1, 2, 3, 4)));
+
+        // Heads up the player on the button posts the big blind in the next hand.
+        Map<Integer, PokerPlayer> headsUp = createPlayerMap(p2, p3);
+        when(context.getPlayerMap()).thenReturn(headsUp);
+        assertThat(playing.getBigBlindOrder(), is(Arrays.asList(1, 2)));
+    }
+
+    private PokerPlayer createSeatedPlayer(int seatId) {
+        PokerPlayer player = mock(PokerPlayer.class);
+        when(player.getSeatId()).thenReturn(seatId);
+        return player;
+    }
+
     private PokerPlayer createMockPlayer(int playerId, int balance) {
         PokerPlayer player = mock(PokerPlayer.class);
         when(player.getBalance()).thenReturn(new BigDecimal(balance));
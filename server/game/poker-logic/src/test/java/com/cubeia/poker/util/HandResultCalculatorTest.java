@@ -18,6 +18,7 @@
 package com.cubeia.poker.util;
 
 import com.cubeia.games.poker.common.money.Currency;
+import com.cubeia.games.poker.common.money.MinorUnits;
 import com.cubeia.poker.hand.Hand;
 import com.cubeia.poker.model.PlayerHand;
 import com.cubeia.poker.player.DefaultPokerPlayer;
@@ -276,6 +277,51 @@ public class HandResultCalculatorTest extends TestCase {
         assertThat(result3.getWinningsByPot().size(), is(1));
         assertThat(result3.getWinningsByPot().get(pot0), is(bd("1.08"))); //120L - 12L
     }
+    public void testMultiplePotsWithRakeInMinorUnits() {
+        players = new HashMap<Integer, PokerPlayer>();
+        PokerPlayer p1 = new DefaultPokerPlayer(1);
+        p1.addChips(bd("1.00"));
+        p1.addBet(bd("0.80"));
+        PokerPlayer p2 = new DefaultPokerPlayer(2);
+        p2.addChips(bd("1.00"));
+        p2.addBet(bd("0.80"));
+        PokerPlayer p3 = new DefaultPokerPlayer(3);
+        p3.addChips(bd("0.41"));
+        p3.addBet(bd("0.41"));
+
+        players.put(1, p1);
+        players.put(2, p2);
+        players.put(3, p3);
+
+        PotHolder potHolder = new PotHolder(new LinearRakeWithLimitCalculator(RakeSettings.createDefaultRakeSettings(rakeFraction), eur, true),
+                new MinorUnits(eur));
+        potHolder.callOrRaise();
+        potHolder.moveChipsToPotAndTakeBackUncalledChips(players.values());
+
+        assertEquals(2, potHolder.getNumberOfPots());
+        assertThat(potHolder.getPotSize(0), is(bd("1.23")));
+        assertThat(potHolder.getPotSize(1), is(bd("0.78")));
+
+        hands = new ArrayList<PlayerHand>();
+        String community = " Ac Kc Qd 6h Th";
+        hands.add(new PlayerHand(1, new Hand("Ks 8d" + community)));
+        hands.add(new PlayerHand(2, new Hand("Kh 8h" + community))); // Split the side pot with player 1
+        hands.add(new PlayerHand(3, new Hand("As Ad" + community))); // Best Hand - 3 Aces
+
+        RakeInfoContainer rakeInfo = potHolder.calculateRake();
+        assertThat(rakeInfo.getTotalRake(), is(bd("0.19"))); // 0.12 + 0.07
+        Map<PokerPlayer, Result> playerResults = calc.getPlayerResults(hands, potHolder, rakeInfo, players, eur);
+
+        Result result1 = playerResults.get(p1);
+        Result result2 = playerResults.get(p2);
+        Result result3 = playerResults.get(p3);
+        assertThat(result3.getWinningsIncludingOwnBets(), is(bd("1.11")));
+        assertThat(result3.getNetResult(), is(bd("0.70")));
+        assertThat(result1.getWinningsByPot().get(potHolder.getPot(1)).add(result2.getWinningsByPot().get(potHolder.getPot(1))), is(bd("0.71")));
+        assertThat(result1.getNetResult().add(result2.getNetResult()), is(bd("-0.89")));
+        assertThat(result1.getNetResult().add(result2.getNetResult()).add(result3.getNetResult()).add(rakeInfo.getTotalRake()), is(bd("0.00")));
+    }
+
     private BigDecimal bd(String s) {
         return new BigDecimal(s);
     }
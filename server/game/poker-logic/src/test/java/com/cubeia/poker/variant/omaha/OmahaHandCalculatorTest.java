@@ -116,6 +116,42 @@ public class OmahaHandCalculatorTest {
     }
 
 
+    @Test
+    public void testGetBestHandInfoForFiveCardOmaha() throws Exception {
+        Hand h = new Hand();
+        h.addPocketCards(new Hand("AS AD 2C 3H KD").getCards());
+        h.addCommunityCards(new Hand("AH KS 7C 8D 9S").getCards());
+        HandStrength strength = calculator.getBestCombinationHandStrength(h);
+        assertEquals(HandType.THREE_OF_A_KIND, strength.getHandType());
+        assertEquals(Rank.ACE, strength.getHighestRank());
+        assertThat(strength.getCards().size(), is(5));
+    }
+
+    @Test
+    public void testGetBestHandInfoForSixCardOmaha() throws Exception {
+        Hand h = new Hand();
+        h.addPocketCards(new Hand("2S 3S 7H 8H JD QC").getCards());
+        h.addCommunityCards(new Hand("4S 5S 9H TH KS").getCards());
+        HandStrength strength = calculator.getBestCombinationHandStrength(h);
+        assertEquals(HandType.FLUSH, strength.getHandType());
+        assertEquals(Rank.KING, strength.getHighestRank());
+    }
+
+    @Test
+    public void testComparatorUsesTwoPocketCards() throws Exception {
+        Hand flushOnBoard = new Hand();
+        flushOnBoard.addPocketCards(new Hand("2D 3D 7H 8C").getCards());
+        flushOnBoard.addCommunityCards(new Hand("AS KS QS 4S 9S").getCards());
+
+        Hand pairOfAces = new Hand();
+        pairOfAces.addPocketCards(new Hand("AC 5D 6H 8D").getCards());
+        pairOfAces.addCommunityCards(new Hand("AS KS QS 4S 9S").getCards());
+
+        OmahaHandComparator comparator = new OmahaHandComparator();
+        assertThat(comparator.compare(pairOfAces, flushOnBoard) < 0, is(true));
+        assertThat(comparator.compare(pairOfAces, pairOfAces), is(0));
+    }
+
     @Test
     public void testCheckTranslate() {
 
@@ -0,0 +1,116 @@
+/**
+ * Copyright (C) 2012 Cubeia Ltd <info@cubeia.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.cubeia.poker.handhistory.api;
+
+import com.google.code.morphia.annotations.Entity;
+import com.google.code.morphia.annotations.Id;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A historic hand as stored in the database: the fields hands are searched by, and the whole hand
+ * encoded by the {@link HistoricHandCodec}.
+ */
+@Entity(noClassnameStored = true)
+public class EncodedHand {
+
+    @Id
+    private String id;
+
+    private int tableId;
+
+    private long startTime;
+
+    private List<Integer> playerIds = new ArrayList<Integer>();
+
+    private byte[] data;
+
+    public EncodedHand() {
+    }
+
+    /**
+     * Encodes a hand.
+     *
+     * @param hand hand to encode, must not be null
+     */
+    public EncodedHand(HistoricHand hand) {
+        this.id = hand.getId();
+        this.tableId = hand.getTable() == null ? 0 : hand.getTable().getTableId();
+        this.startTime = hand.getStartTime();
+        if (hand.getSeats() != null) {
+            for (Player player : hand.getSeats()) {
+                playerIds.add(player.getPlayerId());
+            }
+        }
+        this.data = HistoricHandCodec.encode(hand);
+    }
+
+    /**
+     * @return the decoded hand
+     */
+    public HistoricHand decode() {
+        return HistoricHandCodec.decode(data);
+    }
+
+    /**
+     * @param playerId id of the player
+     * @return the decoded hand as seen by the player, without the cards dealt to other players
+     */
+    public HistoricHand decodeForPlayer(int playerId) {
+        return HistoricHandCodec.decodeForPlayer(data, playerId);
+    }
+
+    /**
+     * @return the decoded hand without seats, events and results
+     */
+    public HistoricHand decodeSummary() {
+        return HistoricHandCodec.decodeSummary(data);
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public int getTableId() {
+        return tableId;
+    }
+
+    public long getStartTime() {
+        return startTime;
+    }
+
+    public List<Integer> getPlayerIds() {
+        return playerIds;
+    }
+
+    public byte[] getData() {
+        return data;
+    }
+
+    @Override
+    public String toString() {
+        return "EncodedHand{" +
+                "id='" + id + '\'' +
+                ", tableId=" + tableId +
+                ", startTime=" + startTime +
+                ", playerIds=" + playerIds +
+                ", bytes=" + (data == null ? 0 : data.length) +
+                '}';
+    }
+}
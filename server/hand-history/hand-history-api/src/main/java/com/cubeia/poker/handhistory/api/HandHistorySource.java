@@ -0,0 +1,56 @@
+/**
+ * Copyright (C) 2012 Cubeia Ltd <info@cubeia.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.cubeia.poker.handhistory.api;
+
+import java.util.List;
+
+/**
+ * Queries on stored hands. Implemented by persistence services that can serve the hands they have
+ * stored without a database, the hand history provider uses it instead of the database when available.
+ * <p/>
+ * Hands are returned as seen by the player they are requested for, without the cards dealt to other
+ * players. Hands of a player at a table are paged by start time, which is unique per table.
+ */
+public interface HandHistorySource {
+
+    /**
+     * Finds the hands a player played at a table, latest first.
+     *
+     * @param tableId    table id
+     * @param playerId   player id
+     * @param fromTime   only hands started at or after this time are included
+     * @param beforeTime only hands started before this time are included
+     * @param limit      maximum number of hands
+     * @return the hands, latest first
+     */
+    List<HistoricHand> findHands(int tableId, int playerId, long fromTime, long beforeTime, int limit);
+
+    /**
+     * Like {@link #findHands(int, int, long, long, int)}, but the hands only contain the id, table, times,
+     * deck info and settings.
+     */
+    List<HistoricHand> findHandSummaries(int tableId, int playerId, long fromTime, long beforeTime, int limit);
+
+    /**
+     * @param handId   hand id
+     * @param playerId player id
+     * @return the hand, or null if not found or the player did not play it
+     */
+    HistoricHand findHand(String handId, int playerId);
+
+}
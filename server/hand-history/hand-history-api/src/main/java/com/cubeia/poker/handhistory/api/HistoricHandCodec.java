@@ -0,0 +1,862 @@
+/**
+ * Copyright (C) 2012 Cubeia Ltd <info@cubeia.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.cubeia.poker.handhistory.api;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Compact binary encoding of historic hands.
+ * <p/>
+ * The encoding starts with a version byte and a header holding the id, table, times, deck and settings,
+ * which can be decoded without the rest of the hand (see {@link #decodeSummary(byte[])}). The header
+ * is followed by the seats, events and results.
+ * <p/>
+ * Integers are zig-zag encoded varints, event times are stored relative to the start of the hand, a card
+ * is a single byte, an amount is its scale and unscaled value and each event is a one byte tag followed
+ * by its fields. Events and hand infos of unknown classes are stored with Java serialization.
+ * <p/>
+ * Enums are stored by ordinal, so new constants must be added last. Lists of seats, events and pots
+ * must not contain null elements.
+ */
+public final class HistoricHandCodec {
+
+    /**
+     * Current version of the encoding, the first byte of an encoded hand.
+     */
+    public static final int VERSION = 1;
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private static final int SERIALIZED_EVENT = 0;
+    private static final int PLAYER_ACTION = 1;
+    private static final int PLAYER_CARDS_DEALT = 2;
+    private static final int PLAYER_CARDS_EXPOSED = 3;
+    private static final int POT_UPDATE = 4;
+    private static final int TABLE_CARDS_DEALT = 5;
+    private static final int ROUND_STARTED = 6;
+    private static final int SHOW_DOWN_SUMMARY = 7;
+    private static final int PLAYER_BEST_HAND = 8;
+
+    private static final int NO_HAND_INFO = 0;
+    private static final int HAND_STRENGTH = 1;
+    private static final int SERIALIZED_HAND_INFO = 2;
+
+    /**
+     * Event type written when the type is the simple class name of the event, which it always is unless changed.
+     */
+    private static final int DEFAULT_EVENT_TYPE = 0;
+
+    private static final GameCard.Suit[] SUITS = GameCard.Suit.values();
+    private static final GameCard.Rank[] RANKS = GameCard.Rank.values();
+    private static final Amount.Type[] AMOUNT_TYPES = Amount.Type.values();
+    private static final PlayerAction.Type[] ACTION_TYPES = PlayerAction.Type.values();
+    private static final BestHandType[] HAND_TYPES = BestHandType.values();
+
+    private HistoricHandCodec() {
+    }
+
+    /**
+     * Encodes a hand.
+     *
+     * @param hand hand to encode, must not be null
+     * @return the encoded hand
+     */
+    public static byte[] encode(HistoricHand hand) {
+        Output out = new Output(512);
+        out.writeByte(VERSION);
+        writeHeader(out, hand);
+        long startTime = hand.getStartTime();
+
+        List<Player> seats = hand.getSeats();
+        out.writeSize(seats);
+        if (seats != null) {
+            for (Player player : seats) {
+                out.writeInt(player.getPlayerId());
+                out.writeInt(player.getSeatId());
+                out.writeString(player.getName());
+                out.writeDecimal(player.getInitialBalance());
+            }
+        }
+
+        List<HandHistoryEvent> events = hand.getEvents();
+        out.writeSize(events);
+        if (events != null) {
+            for (HandHistoryEvent event : events) {
+                writeEvent(out, event, startTime);
+            }
+        }
+
+        writeResults(out, hand.getResults());
+        return out.toByteArray();
+    }
+
+    /**
+     * Decodes a hand.
+     *
+     * @param data encoded hand
+     * @return the hand
+     * @throws IllegalArgumentException if the data is not an encoded hand of a known version
+     */
+    public static HistoricHand decode(byte[] data) {
+        return decode(data, true, 0);
+    }
+
+    /**
+     * Decodes a hand as seen by a player: the cards dealt to other players are left out.
+     *
+     * @param data     encoded hand
+     * @param playerId id of the player
+     * @return the hand
+     * @throws IllegalArgumentException if the data is not an encoded hand of a known version
+     */
+    public static HistoricHand decodeForPlayer(byte[] data, int playerId) {
+        return decode(data, false, playerId);
+    }
+
+    /**
+     * Decodes the id, table, times, deck info and settings of a hand. Seats, events and results are left empty.
+     *
+     * @param data encoded hand
+     * @return the hand summary
+     * @throws IllegalArgumentException if the data is not an encoded hand of a known version
+     */
+    public static HistoricHand decodeSummary(byte[] data) {
+        return readHeader(new Input(data));
+    }
+
+    /**
+     * Encodes a single event, for storing the events of a hand as they happen.
+     *
+     * @param event     event to encode, must not be null
+     * @param startTime start time of the hand of the event
+     * @return the encoded event
+     */
+    public static byte[] encodeEvent(HandHistoryEvent event, long startTime) {
+        Output out = new Output(64);
+        out.writeByte(VERSION);
+        writeEvent(out, event, startTime);
+        return out.toByteArray();
+    }
+
+    /**
+     * Decodes an event encoded by {@link #encodeEvent(HandHistoryEvent, long)}.
+     *
+     * @param data      encoded event
+     * @param startTime start time of the hand of the event
+     * @return the event
+     * @throws IllegalArgumentException if the data is not an encoded event of a known version
+     */
+    public static HandHistoryEvent decodeEvent(byte[] data, long startTime) {
+        Input in = new Input(data);
+        readVersion(in);
+        return readEvent(in, startTime, true, 0);
+    }
+
+    private static HistoricHand decode(byte[] data, boolean allCards, int viewerId) {
+        Input in = new Input(data);
+        HistoricHand hand = readHeader(in);
+        long startTime = hand.getStartTime();
+
+        int seats = in.readSize();
+        if (seats < 0) {
+            hand.setSeats(null);
+        } else {
+            List<Player> players = new ArrayList<Player>(seats);
+            for (int i = 0; i < seats; i++) {
+                int playerId = in.readInt();
+                int seatId = in.readInt();
+                String name = in.readString();
+                players.add(new Player(playerId, seatId, in.readDecimal(), name));
+            }
+            hand.setSeats(players);
+        }
+
+        int events = in.readSize();
+        if (events < 0) {
+            hand.setEvents(null);
+        } else {
+            List<HandHistoryEvent> list = new ArrayList<HandHistoryEvent>(events);
+            for (int i = 0; i < events; i++) {
+                list.add(readEvent(in, startTime, allCards, viewerId));
+            }
+            hand.setEvents(list);
+        }
+
+        hand.setResults(readResults(in));
+        return hand;
+    }
+
+    /* ----------------------------------------------------
+      *
+      * 	HEADER AND RESULTS
+      *
+      *  ---------------------------------------------------- */
+
+    private static void writeHeader(Output out, HistoricHand hand) {
+        out.writeString(hand.getId());
+
+        Table table = hand.getTable();
+        out.writeBoolean(table != null);
+        if (table != null) {
+            out.writeInt(table.getTableId());
+            out.writeString(table.getTableIntegrationId());
+            out.writeString(table.getTableName());
+            out.writeInt(table.getSeats());
+        }
+
+        out.writeLong(hand.getStartTime());
+        out.writeLong(hand.getEndTime() - hand.getStartTime());
+
+        DeckInfo deckInfo = hand.getDeckInfo();
+        out.writeBoolean(deckInfo != null);
+        if (deckInfo != null) {
+            out.writeInt(deckInfo.getSize());
+            out.writeEnum(deckInfo.getLowRank());
+        }
+
+        Settings settings = hand.getSettings();
+        out.writeBoolean(settings != null);
+        if (settings != null) {
+            out.writeString(settings.getVariant());
+            out.writeString(settings.getCurrencyCode());
+            out.writeString(settings.getBetStrategyType());
+        }
+    }
+
+    private static void readVersion(Input in) {
+        int version = in.readByte();
+        if (version != VERSION) {
+            throw new IllegalArgumentException("Unsupported hand history encoding version " + version);
+        }
+    }
+
+    private static HistoricHand readHeader(Input in) {
+        readVersion(in);
+        HistoricHand hand = new HistoricHand(in.readString());
+
+        if (in.readBoolean()) {
+            Table table = new Table();
+            table.setTableId(in.readInt());
+            table.setTableIntegrationId(in.readString());
+            table.setTableName(in.readString());
+            table.setSeats(in.readInt());
+            hand.setTable(table);
+        }
+
+        hand.setStartTime(in.readLong());
+        hand.setEndTime(hand.getStartTime() + in.readLong());
+
+        if (in.readBoolean()) {
+            int size = in.readInt();
+            hand.setDeckInfo(new DeckInfo(size, in.readEnum(RANKS)));
+        }
+
+        if (in.readBoolean()) {
+            Settings settings = new Settings();
+            settings.setVariant(in.readString());
+            settings.setCurrencyCode(in.readString());
+            settings.setBetStrategyType(in.readString());
+            hand.setSettings(settings);
+        }
+        return hand;
+    }
+
+    private static void writeResults(Output out, Results results) {
+        out.writeBoolean(results != null);
+        if (results == null) {
+            return;
+        }
+        out.writeDecimal(results.getTotalRake());
+        Map<Integer, HandResult> map = results.getResults();
+        out.writeSize(map == null ? null : map.keySet());
+        if (map != null) {
+            for (Map.Entry<Integer, HandResult> entry : map.entrySet()) {
+                HandResult result = entry.getValue();
+                out.writeInt(entry.getKey());
+                out.writeInt(result.getPlayerId());
+                out.writeDecimal(result.getNetWin());
+                out.writeDecimal(result.getTotalWin());
+                out.writeDecimal(result.getRake());
+                out.writeDecimal(result.getTotalBet());
+                out.writeString(result.getTransactionId());
+            }
+        }
+    }
+
+    private static Results readResults(Input in) {
+        if (!in.readBoolean()) {
+            return null;
+        }
+        Results results = new Results(in.readDecimal());
+        int size = in.readSize();
+        if (size < 0) {
+            results.setResults(null);
+        } else {
+            Map<Integer, HandResult> map = new HashMap<Integer, HandResult>(size * 2);
+            for (int i = 0; i < size; i++) {
+                int key = in.readInt();
+                HandResult result = new HandResult();
+                result.setPlayerId(in.readInt());
+                result.setNetWin(in.readDecimal());
+                result.setTotalWin(in.readDecimal());
+                result.setRake(in.readDecimal());
+                result.setTotalBet(in.readDecimal());
+                result.setTransactionId(in.readString());
+                map.put(key, result);
+            }
+            results.setResults(map);
+        }
+        return results;
+    }
+
+    /* ----------------------------------------------------
+      *
+      * 	EVENTS
+      *
+      *  ---------------------------------------------------- */
+
+    private static void writeEvent(Output out, HandHistoryEvent event, long startTime) {
+        Class<?> type = event.getClass();
+        if (type == PlayerAction.class) {
+            PlayerAction action = (PlayerAction) event;
+            writeEventHeader(out, PLAYER_ACTION, event, startTime);
+            out.writeInt(action.getPlayerId());
+            out.writeEnum(action.getAction());
+            writeAmount(out, action.getAmount());
+            out.writeBoolean(action.isTimeout());
+        } else if (type == PlayerCardsDealt.class) {
+            PlayerCardsDealt dealt = (PlayerCardsDealt) event;
+            writeEventHeader(out, PLAYER_CARDS_DEALT, event, startTime);
+            out.writeInt(dealt.getPlayerId());
+            out.writeCards(dealt.getCards());
+            out.writeBoolean(dealt.isExposed());
+        } else if (type == PlayerCardsExposed.class) {
+            PlayerCardsExposed exposed = (PlayerCardsExposed) event;
+            writeEventHeader(out, PLAYER_CARDS_EXPOSED, event, startTime);
+            out.writeInt(exposed.getPlayerId());
+            out.writeCards(exposed.getCards());
+        } else if (type == PotUpdate.class) {
+            writeEventHeader(out, POT_UPDATE, event, startTime);
+            List<GamePot> pots = ((PotUpdate) event).getPots();
+            out.writeSize(pots);
+            if (pots != null) {
+                for (GamePot pot : pots) {
+                    out.writeInt(pot.getPotId());
+                    out.writeDecimal(pot.getPotSize());
+                    Set<Integer> players = pot.getPlayers();
+                    out.writeSize(players);
+                    for (Integer playerId : players) {
+                        out.writeInt(playerId);
+                    }
+                }
+            }
+        } else if (type == TableCardsDealt.class) {
+            writeEventHeader(out, TABLE_CARDS_DEALT, event, startTime);
+            out.writeCards(((TableCardsDealt) event).getCards());
+        } else if (type == RoundStarted.class) {
+            writeEventHeader(out, ROUND_STARTED, event, startTime);
+        } else if (type == ShowDownSummary.class) {
+            writeEventHeader(out, SHOW_DOWN_SUMMARY, event, startTime);
+        } else if (type == PlayerBestHand.class) {
+            PlayerBestHand bestHand = (PlayerBestHand) event;
+            writeEventHeader(out, PLAYER_BEST_HAND, event, startTime);
+            FullHand fullHand = bestHand.getPlayerHand();
+            out.writeBoolean(fullHand != null);
+            if (fullHand != null) {
+                out.writeNullableInt(fullHand.getPlayerId());
+                out.writeCards(fullHand.getCards());
+            }
+            writeHandInfo(out, bestHand.getHandInfoCommon());
+            out.writeCards(bestHand.getBestHandCards());
+        } else {
+            out.writeByte(SERIALIZED_EVENT);
+            out.writeSerialized(event);
+        }
+    }
+
+    private static void writeEventHeader(Output out, int tag, HandHistoryEvent event, long startTime) {
+        out.writeByte(tag);
+        out.writeLong(event.getTime() - startTime);
+        String type = event.getType();
+        if (type != null && type.equals(event.getClass().getSimpleName())) {
+            out.writeVarint(DEFAULT_EVENT_TYPE);
+        } else {
+            out.writeVarint(1);
+            out.writeString(type);
+        }
+    }
+
+    private static HandHistoryEvent readEvent(Input in, long startTime, boolean allCards, int viewerId) {
+        int tag = in.readByte();
+        HandHistoryEvent event;
+        switch (tag) {
+            case SERIALIZED_EVENT:
+                return (HandHistoryEvent) in.readSerialized();
+            case PLAYER_ACTION:
+                PlayerAction action = new PlayerAction();
+                readEventHeader(in, action, startTime);
+                action.setPlayerId(in.readInt());
+                action.setAction(in.readEnum(ACTION_TYPES));
+                action.setAmount(readAmount(in));
+                action.setTimeout(in.readBoolean());
+                event = action;
+                break;
+            case PLAYER_CARDS_DEALT:
+                PlayerCardsDealt dealt = new PlayerCardsDealt();
+                readEventHeader(in, dealt, startTime);
+                dealt.setPlayerId(in.readInt());
+                List<GameCard> cards = in.readCards();
+                if (cards != null && !allCards && dealt.getPlayerId() != viewerId) {
+                    cards.clear();
+                }
+                dealt.setCards(cards);
+                dealt.setExposed(in.readBoolean());
+                event = dealt;
+                break;
+            case PLAYER_CARDS_EXPOSED:
+                PlayerCardsExposed exposed = new PlayerCardsExposed();
+                readEventHeader(in, exposed, startTime);
+                exposed.setPlayerId(in.readInt());
+                exposed.setCards(in.readCards());
+                event = exposed;
+                break;
+            case POT_UPDATE:
+                PotUpdate potUpdate = new PotUpdate();
+                readEventHeader(in, potUpdate, startTime);
+                int pots = in.readSize();
+                if (pots < 0) {
+                    potUpdate.setPots(null);
+                } else {
+                    List<GamePot> list = new ArrayList<GamePot>(pots);
+                    for (int i = 0; i < pots; i++) {
+                        GamePot pot = new GamePot(in.readInt());
+                        pot.setPotSize(in.readDecimal());
+                        int players = in.readSize();
+                        for (int j = 0; j < players; j++) {
+                            pot.getPlayers().add(in.readInt());
+                        }
+                        list.add(pot);
+                    }
+                    potUpdate.setPots(list);
+                }
+                event = potUpdate;
+                break;
+            case TABLE_CARDS_DEALT:
+                TableCardsDealt tableCards = new TableCardsDealt();
+                readEventHeader(in, tableCards, startTime);
+                tableCards.setCards(in.readCards());
+                event = tableCards;
+                break;
+            case ROUND_STARTED:
+                event = new RoundStarted();
+                readEventHeader(in, event, startTime);
+                break;
+            case SHOW_DOWN_SUMMARY:
+                event = new ShowDownSummary();
+                readEventHeader(in, event, startTime);
+                break;
+            case PLAYER_BEST_HAND:
+                PlayerBestHand bestHand = new PlayerBestHand();
+                readEventHeader(in, bestHand, startTime);
+                if (in.readBoolean()) {
+                    Integer playerId = in.readNullableInt();
+                    bestHand.setPlayerHand(new FullHand(playerId, in.readCards()));
+                }
+                bestHand.setHandInfoCommon(readHandInfo(in));
+                bestHand.setBestHandCards(in.readCards());
+                event = bestHand;
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown hand history event tag " + tag);
+        }
+        return event;
+    }
+
+    private static void readEventHeader(Input in, HandHistoryEvent event, long startTime) {
+        event.setTime(startTime + in.readLong());
+        if (in.readVarint() != DEFAULT_EVENT_TYPE) {
+            event.setType(in.readString());
+        }
+    }
+
+    private static void writeAmount(Output out, Amount amount) {
+        if (amount == null) {
+            out.writeVarint(0);
+        } else {
+            out.writeVarint(1);
+            out.writeEnum(amount.getType());
+            out.writeDecimal(amount.getAmount());
+        }
+    }
+
+    private static Amount readAmount(Input in) {
+        if (in.readVarint() == 0) {
+            return null;
+        }
+        Amount amount = new Amount();
+        amount.setType(in.readEnum(AMOUNT_TYPES));
+        amount.setAmount(in.readDecimal());
+        return amount;
+    }
+
+    private static void writeHandInfo(Output out, HandInfoCommon info) {
+        if (info == null) {
+            out.writeByte(NO_HAND_INFO);
+        } else if (info.getClass() == HandStrengthCommon.class) {
+            HandStrengthCommon strength = (HandStrengthCommon) info;
+            out.writeByte(HAND_STRENGTH);
+            out.writeEnum(strength.getHandType());
+            out.writeEnum(strength.getHighestRank());
+            out.writeEnum(strength.getSecondRank());
+            out.writeCards(strength.getKickerCards());
+            List<List<GameCard>> groups = strength.getGroups();
+            out.writeSize(groups);
+            if (groups != null) {
+                for (List<GameCard> group : groups) {
+                    out.writeCards(group);
+                }
+            }
+            out.writeCards(strength.getCardsUsedInHand());
+        } else {
+            out.writeByte(SERIALIZED_HAND_INFO);
+            out.writeSerialized(info);
+        }
+    }
+
+    private static HandInfoCommon readHandInfo(Input in) {
+        int tag = in.readByte();
+        switch (tag) {
+            case NO_HAND_INFO:
+                return null;
+            case HAND_STRENGTH:
+                HandStrengthCommon strength = new HandStrengthCommon();
+                strength.setHandType(in.readEnum(HAND_TYPES));
+                strength.setHighestRank(in.readEnum(RANKS));
+                strength.setSecondRank(in.readEnum(RANKS));
+                strength.setKickerCards(in.readCards());
+                int groups = in.readSize();
+                if (groups >= 0) {
+                    List<List<GameCard>> list = new ArrayList<List<GameCard>>(groups);
+                    for (int i = 0; i < groups; i++) {
+                        list.add(in.readCards());
+                    }
+                    strength.setGroups(list);
+                }
+                strength.setCardsUsedInHand(in.readCards());
+                return strength;
+            case SERIALIZED_HAND_INFO:
+                return (HandInfoCommon) in.readSerialized();
+            default:
+                throw new IllegalArgumentException("Unknown hand info tag " + tag);
+        }
+    }
+
+    /* ----------------------------------------------------
+      *
+      * 	PRIMITIVES
+      *
+      *  ---------------------------------------------------- */
+
+    /**
+     * Growable byte buffer with the primitive encodings.
+     */
+    private static class Output {
+
+        private byte[] buffer;
+
+        private int position;
+
+        Output(int capacity) {
+            buffer = new byte[capacity];
+        }
+
+        void writeByte(int value) {
+            ensureCapacity(1);
+            buffer[position++] = (byte) value;
+        }
+
+        void writeBoolean(boolean value) {
+            writeByte(value ? 1 : 0);
+        }
+
+        void writeVarint(long value) {
+            ensureCapacity(10);
+            while ((value & ~0x7FL) != 0) {
+                buffer[position++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            buffer[position++] = (byte) value;
+        }
+
+        void writeLong(long value) {
+            writeVarint((value << 1) ^ (value >> 63));
+        }
+
+        void writeInt(int value) {
+            writeLong(value);
+        }
+
+        void writeNullableInt(Integer value) {
+            writeBoolean(value != null);
+            if (value != null) {
+                writeInt(value);
+            }
+        }
+
+        /**
+         * Writes the size of a collection plus one, or zero for null.
+         */
+        void writeSize(Collection<?> collection) {
+            writeVarint(collection == null ? 0 : collection.size() + 1);
+        }
+
+        void writeBytes(byte[] bytes) {
+            writeVarint(bytes.length);
+            ensureCapacity(bytes.length);
+            System.arraycopy(bytes, 0, buffer, position, bytes.length);
+            position += bytes.length;
+        }
+
+        void writeString(String value) {
+            if (value == null) {
+                writeVarint(0);
+                return;
+            }
+            byte[] bytes = value.getBytes(UTF8);
+            writeVarint(bytes.length + 1);
+            ensureCapacity(bytes.length);
+            System.arraycopy(bytes, 0, buffer, position, bytes.length);
+            position += bytes.length;
+        }
+
+        /**
+         * Writes an enum as its ordinal plus one, or zero for null.
+         */
+        void writeEnum(Enum<?> value) {
+            writeVarint(value == null ? 0 : value.ordinal() + 1);
+        }
+
+        /**
+         * Writes a decimal as a header holding the scale and whether the unscaled value fits in
+         * a long, followed by the unscaled value. Zero is null.
+         */
+        void writeDecimal(BigDecimal value) {
+            if (value == null) {
+                writeVarint(0);
+                return;
+            }
+            BigInteger unscaled = value.unscaledValue();
+            boolean big = unscaled.bitLength() > 63;
+            int scale = value.scale();
+            writeVarint(((((long) scale << 1) ^ (scale >> 31)) << 1 | (big ? 1 : 0)) + 1);
+            if (big) {
+                writeBytes(unscaled.toByteArray());
+            } else {
+                writeLong(unscaled.longValue());
+            }
+        }
+
+        /**
+         * Writes the number of cards plus one, or zero for null, followed by one byte per card
+         * holding the suit and rank ordinals plus one in the high and low nibble. A null card is zero.
+         */
+        void writeCards(List<GameCard> cards) {
+            writeSize(cards);
+            if (cards == null) {
+                return;
+            }
+            ensureCapacity(cards.size());
+            for (GameCard card : cards) {
+                buffer[position++] = (byte) (card == null ? 0 : ordinal(card.getSuit()) << 4 | ordinal(card.getRank()));
+            }
+        }
+
+        void writeSerialized(Serializable object) {
+            try {
+                ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                ObjectOutputStream out = new ObjectOutputStream(bytes);
+                out.writeObject(object);
+                out.close();
+                writeBytes(bytes.toByteArray());
+            } catch (IOException e) {
+                throw new IllegalArgumentException("Failed serializing " + object, e);
+            }
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(buffer, position);
+        }
+
+        private int ordinal(Enum<?> value) {
+            return value == null ? 0 : value.ordinal() + 1;
+        }
+
+        private void ensureCapacity(int bytes) {
+            if (position + bytes > buffer.length) {
+                buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, position + bytes));
+            }
+        }
+    }
+
+    private static class Input {
+
+        private final byte[] data;
+
+        private int position;
+
+        Input(byte[] data) {
+            this.data = data;
+        }
+
+        int readByte() {
+            if (position >= data.length) {
+                throw new IllegalArgumentException("Unexpected end of encoded hand");
+            }
+            return data[position++] & 0xFF;
+        }
+
+        boolean readBoolean() {
+            return readByte() != 0;
+        }
+
+        long readVarint() {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                int b = readByte();
+                value |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new IllegalArgumentException("Malformed varint in encoded hand");
+        }
+
+        long readLong() {
+            long value = readVarint();
+            return (value >>> 1) ^ -(value & 1);
+        }
+
+        int readInt() {
+            return (int) readLong();
+        }
+
+        Integer readNullableInt() {
+            return readBoolean() ? readInt() : null;
+        }
+
+        /**
+         * @return the size of a collection, or -1 for null
+         */
+        int readSize() {
+            return (int) readVarint() - 1;
+        }
+
+        byte[] readBytes() {
+            int length = (int) readVarint();
+            checkAvailable(length);
+            byte[] bytes = Arrays.copyOfRange(data, position, position + length);
+            position += length;
+            return bytes;
+        }
+
+        String readString() {
+            int length = (int) readVarint() - 1;
+            if (length < 0) {
+                return null;
+            }
+            checkAvailable(length);
+            String value = new String(data, position, length, UTF8);
+            position += length;
+            return value;
+        }
+
+        <T extends Enum<T>> T readEnum(T[] values) {
+            int ordinal = (int) readVarint() - 1;
+            return ordinal < 0 ? null : values[ordinal];
+        }
+
+        BigDecimal readDecimal() {
+            long header = readVarint() - 1;
+            if (header < 0) {
+                return null;
+            }
+            boolean big = (header & 1) != 0;
+            long zigzagScale = header >>> 1;
+            int scale = (int) ((zigzagScale >>> 1) ^ -(zigzagScale & 1));
+            if (big) {
+                return new BigDecimal(new BigInteger(readBytes()), scale);
+            }
+            return BigDecimal.valueOf(readLong(), scale);
+        }
+
+        List<GameCard> readCards() {
+            int size = readSize();
+            if (size < 0) {
+                return null;
+            }
+            List<GameCard> cards = new ArrayList<GameCard>(size);
+            for (int i = 0; i < size; i++) {
+                int code = readByte();
+                if (code == 0) {
+                    cards.add(null);
+                } else {
+                    int suit = (code >>> 4) - 1;
+                    int rank = (code & 0xF) - 1;
+                    cards.add(new GameCard(suit < 0 ? null : SUITS[suit], rank < 0 ? null : RANKS[rank]));
+                }
+            }
+            return cards;
+        }
+
+        Object readSerialized() {
+            try {
+                ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(readBytes()));
+                try {
+                    return in.readObject();
+                } finally {
+                    in.close();
+                }
+            } catch (IOException e) {
+                throw new IllegalArgumentException("Failed reading serialized object from encoded hand", e);
+            } catch (ClassNotFoundException e) {
+                throw new IllegalArgumentException("Failed reading serialized object from encoded hand", e);
+            }
+        }
+
+        private void checkAvailable(int length) {
+            if (length < 0 || position + length > data.length) {
+                throw new IllegalArgumentException("Unexpected end of encoded hand");
+            }
+        }
+    }
+}
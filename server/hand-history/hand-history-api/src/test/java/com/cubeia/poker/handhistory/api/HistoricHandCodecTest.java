@@ -0,0 +1,223 @@
+/**
+ * Copyright (C) 2012 Cubeia Ltd <info@cubeia.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.cubeia.poker.handhistory.api;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class HistoricHandCodecTest {
+
+    @Test
+    public void testEncodeAndDecode() {
+        HistoricHand hand = createHand();
+        HistoricHand decoded = HistoricHandCodec.decode(HistoricHandCodec.encode(hand));
+        assertSameHand(hand, decoded);
+        assertEquals(hand.getEvents(), decoded.getEvents());
+        assertEquals(hand.getResults().getResults(), decoded.getResults().getResults());
+    }
+
+    @Test
+    public void testEncodeAndDecodeEmptyHand() {
+        HistoricHand hand = new HistoricHand("empty");
+        assertEquals(hand, HistoricHandCodec.decode(HistoricHandCodec.encode(hand)));
+
+        hand.setSeats(null);
+        hand.setEvents(null);
+        assertEquals(hand, HistoricHandCodec.decode(HistoricHandCodec.encode(hand)));
+    }
+
+    @Test
+    public void testAmountsKeepTheirScale() {
+        HistoricHand hand = new HistoricHand("amounts");
+        hand.getSeats().add(new Player(1, 0, new BigDecimal("10.50"), "a"));
+        hand.getSeats().add(new Player(2, 1, new BigDecimal("-1E+3"), "b"));
+        hand.getSeats().add(new Player(3, 2, new BigDecimal("123456789012345678901234567890.123"), "c"));
+
+        List<Player> seats = HistoricHandCodec.decode(HistoricHandCodec.encode(hand)).getSeats();
+        assertEquals(hand.getSeats(), seats);
+        assertEquals(2, seats.get(0).getInitialBalance().scale());
+        assertEquals(-3, seats.get(1).getInitialBalance().scale());
+    }
+
+    @Test
+    public void testDecodeSummary() {
+        HistoricHand hand = createHand();
+        HistoricHand summary = HistoricHandCodec.decodeSummary(HistoricHandCodec.encode(hand));
+        assertEquals(hand.getId(), summary.getId());
+        assertEquals(hand.getTable(), summary.getTable());
+        assertEquals(hand.getStartTime(), summary.getStartTime());
+        assertEquals(hand.getEndTime(), summary.getEndTime());
+        assertEquals(hand.getDeckInfo(), summary.getDeckInfo());
+        assertSameSettings(hand.getSettings(), summary.getSettings());
+        assertEquals(0, summary.getEvents().size());
+        assertEquals(0, summary.getSeats().size());
+        assertNull(summary.getResults());
+    }
+
+    @Test
+    public void testDecodeForPlayer() {
+        HistoricHand hand = createHand();
+        byte[] data = HistoricHandCodec.encode(hand);
+
+        PlayerCardsDealt dealt = (PlayerCardsDealt) HistoricHandCodec.decodeForPlayer(data, 1).getEvents().get(3);
+        assertEquals(2, dealt.getCards().size());
+
+        HistoricHand other = HistoricHandCodec.decodeForPlayer(data, 2);
+        dealt = (PlayerCardsDealt) other.getEvents().get(3);
+        assertEquals(1, dealt.getPlayerId());
+        assertEquals(0, dealt.getCards().size());
+        assertEquals(hand.getEvents().size(), other.getEvents().size());
+        assertEquals(hand.getEvents().get(9), other.getEvents().get(9));
+    }
+
+    @Test
+    public void testEncodeAndDecodeEvents() {
+        HistoricHand hand = createHand();
+        for (HandHistoryEvent event : hand.getEvents()) {
+            byte[] data = HistoricHandCodec.encodeEvent(event, hand.getStartTime());
+            assertEquals(event, HistoricHandCodec.decodeEvent(data, hand.getStartTime()));
+        }
+    }
+
+    @Test
+    public void testEncodedHandIsCompact() throws IOException {
+        HistoricHand hand = createHand();
+        ByteArrayOutputStream serialized = new ByteArrayOutputStream();
+        ObjectOutputStream out = new ObjectOutputStream(serialized);
+        out.writeObject(hand);
+        out.close();
+
+        int encoded = HistoricHandCodec.encode(hand).length;
+        assertTrue("encoded " + encoded + " bytes, serialized " + serialized.size(), encoded * 5 < serialized.size());
+    }
+
+    @Test
+    public void testEncodedHand() {
+        HistoricHand hand = createHand();
+        EncodedHand encoded = new EncodedHand(hand);
+        assertEquals("hand1", encoded.getId());
+        assertEquals(10, encoded.getTableId());
+        assertEquals(1000L, encoded.getStartTime());
+        assertEquals(Arrays.asList(1, 2), encoded.getPlayerIds());
+        assertSameHand(hand, encoded.decode());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnknownVersion() {
+        byte[] data = HistoricHandCodec.encode(createHand());
+        data[0] = (byte) (HistoricHandCodec.VERSION + 1);
+        HistoricHandCodec.decode(data);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testTruncatedData() {
+        byte[] data = HistoricHandCodec.encode(createHand());
+        HistoricHandCodec.decode(Arrays.copyOf(data, data.length - 1));
+    }
+
+    private HistoricHand createHand() {
+        HistoricHand hand = new HistoricHand("hand1");
+        Table table = new Table();
+        table.setTableId(10);
+        table.setTableName("Table 10");
+        table.setTableIntegrationId("integration-10");
+        table.setSeats(6);
+        hand.setTable(table);
+        hand.setStartTime(1000L);
+        hand.setEndTime(61000L);
+        hand.setDeckInfo(new DeckInfo(52, GameCard.Rank.TWO));
+        Settings settings = new Settings();
+        settings.setVariant("TEXAS_HOLDEM");
+        settings.setCurrencyCode("EUR");
+        settings.setBetStrategyType("NO_LIMIT");
+        hand.setSettings(settings);
+
+        hand.getSeats().add(new Player(1, 0, new BigDecimal("100.00"), "alice"));
+        hand.getSeats().add(new Player(2, 3, new BigDecimal("250.50"), "bob"));
+
+        List<HandHistoryEvent> events = hand.getEvents();
+        events.add(at(new RoundStarted(), 1000L));
+        events.add(at(new PlayerAction(1, PlayerAction.Type.SMALL_BLIND, Amount.bet(new BigDecimal("0.50"))), 1001L));
+        events.add(at(new PlayerAction(2, PlayerAction.Type.BIG_BLIND, Amount.bet(new BigDecimal("1.00"))), 1002L));
+        PlayerCardsDealt dealt = new PlayerCardsDealt(1, false);
+        dealt.getCards().add(new GameCard(GameCard.Suit.SPADES, GameCard.Rank.ACE));
+        dealt.getCards().add(new GameCard(GameCard.Suit.HEARTS, GameCard.Rank.KING));
+        events.add(at(dealt, 1003L));
+        PlayerAction timeout = new PlayerAction(1, PlayerAction.Type.FOLD);
+        timeout.setTimeout(true);
+        events.add(at(timeout, 5000L));
+        PlayerAction raise = new PlayerAction(2, PlayerAction.Type.RAISE, Amount.raise(new BigDecimal("3.00")));
+        raise.setType("CustomType");
+        events.add(at(raise, 6000L));
+        TableCardsDealt flop = new TableCardsDealt();
+        flop.getCards().addAll(Arrays.asList(new GameCard(GameCard.Suit.CLUBS, GameCard.Rank.TWO),
+                new GameCard(GameCard.Suit.DIAMONDS, GameCard.Rank.TEN), new GameCard(GameCard.Suit.SPADES, GameCard.Rank.SEVEN)));
+        events.add(at(flop, 7000L));
+        events.add(at(new PotUpdate(new GamePot(0, new BigDecimal("1.50"), 1, 2), new GamePot(1, BigDecimal.ZERO, 2)), 7001L));
+        PlayerCardsExposed exposed = new PlayerCardsExposed(1);
+        exposed.getCards().add(new GameCard(GameCard.Suit.SPADES, GameCard.Rank.ACE));
+        events.add(at(exposed, 8000L));
+        events.add(at(new ShowDownSummary(), 8001L));
+        List<GameCard> best = new ArrayList<GameCard>(flop.getCards());
+        best.addAll(dealt.getCards());
+        List<List<GameCard>> groups = new ArrayList<List<GameCard>>();
+        groups.add(Arrays.asList(new GameCard(GameCard.Suit.SPADES, GameCard.Rank.ACE)));
+        HandStrengthCommon strength = new HandStrengthCommon(BestHandType.HIGH_CARD, best, GameCard.Rank.ACE, null,
+                dealt.getCards(), groups);
+        events.add(at(new PlayerBestHand(new FullHand(1, dealt.getCards()), strength, best), 8002L));
+
+        Results results = new Results(new BigDecimal("0.05"));
+        results.getResults().put(1, new HandResult(1, new BigDecimal("-0.50"), BigDecimal.ZERO, BigDecimal.ZERO, new BigDecimal("0.50")));
+        HandResult winner = new HandResult(2, new BigDecimal("0.45"), new BigDecimal("1.45"), new BigDecimal("0.05"), new BigDecimal("1.00"));
+        winner.setTransactionId("tx-2");
+        results.getResults().put(2, winner);
+        hand.setResults(results);
+        return hand;
+    }
+
+    /**
+     * Settings do not implement equals, so they are compared separately.
+     */
+    private void assertSameHand(HistoricHand expected, HistoricHand actual) {
+        assertSameSettings(expected.getSettings(), actual.getSettings());
+        actual.setSettings(expected.getSettings());
+        assertEquals(expected, actual);
+    }
+
+    private void assertSameSettings(Settings expected, Settings actual) {
+        assertEquals(expected.getVariant(), actual.getVariant());
+        assertEquals(expected.getCurrencyCode(), actual.getCurrencyCode());
+        assertEquals(expected.getBetStrategyType(), actual.getBetStrategyType());
+    }
+
+    private HandHistoryEvent at(HandHistoryEvent event, long time) {
+        event.setTime(time);
+        return event;
+    }
+}
@@ -20,6 +20,7 @@ package com.cubeia.poker.handhistory.api;
 import com.cubeia.firebase.api.service.Contract;
 
 import java.util.List;
+import java.util.Map;
 
 /**
  * Service contract for collecting hand history events. The service
@@ -59,9 +60,31 @@ public interface HandHistoryCollectorService extends Contract {
      */
     public void stopHand(int tableId);
 
+    /**
+     * Stops the hand like {@link #stopHand(int)}, but does not persist it until
+     * the wallet transactions are reported with {@link #reportTransactions(String, Map)}.
+     *
+     * @param tableId Firebase table id
+     */
+    public void stopHandPendingTransactions(int tableId);
+
+    /**
+     * Sets the wallet transaction id of each player of a hand stopped with
+     * {@link #stopHandPendingTransactions(int)} and persists the hand.
+     *
+     * @param handId             Hand id, must not be null
+     * @param playerTransactions Transaction id by player id, must not be null
+     */
+    public void reportTransactions(String handId, Map<Integer, String> playerTransactions);
+
     /**
      * @param tableId Firebase table id
      */
     public void cancelHand(int tableId);
 
+    /**
+     * @return the hands recently finished on this node, kept in memory
+     */
+    public RecentHandsCache getRecentHands();
+
 }
@@ -0,0 +1,262 @@
+/**
+ * Copyright (C) 2012 Cubeia Ltd <info@cubeia.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.cubeia.poker.handhistory.api;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps the last hands finished at each table in memory, encoded, so that players asking for the
+ * hands they just played do not have to wait for the database.
+ * <p/>
+ * The cache holds at most a number of hands per table and a number of bytes in total, the oldest
+ * hands are evicted first. As the hands at a table are added as they finish, the cache holds all
+ * hands at a table started since its oldest cached hand. A lookup is answered if it is known to be
+ * complete: the requested number of hands were found, or the requested time range starts at or after
+ * the oldest cached hand. Otherwise it is a miss and the caller should ask the database.
+ * <p/>
+ * Hands are only cached on the node the table runs on.
+ */
+public class RecentHandsCache implements RecentHandsCacheMBean {
+
+    private final int handsPerTable;
+    private final long maxBytes;
+
+    /**
+     * Cached hands by id, oldest first.
+     */
+    private final LinkedHashMap<String, EncodedHand> hands = new LinkedHashMap<String, EncodedHand>();
+
+    /**
+     * Cached hands by table, oldest first.
+     */
+    private final Map<Integer, Deque<EncodedHand>> tables = new HashMap<Integer, Deque<EncodedHand>>();
+
+    private long bytes;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    /**
+     * @param handsPerTable maximum number of hands per table
+     * @param maxBytes      maximum size of the cached hands, encoded
+     */
+    public RecentHandsCache(int handsPerTable, long maxBytes) {
+        this.handsPerTable = handsPerTable;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Adds a finished hand. Hands must be added in the order they were started at their table.
+     *
+     * @param hand hand to add, must not be null
+     */
+    public void add(HistoricHand hand) {
+        EncodedHand encoded = new EncodedHand(hand);
+        synchronized (this) {
+            remove(hands.get(encoded.getId()));
+            Deque<EncodedHand> tableHands = tables.get(encoded.getTableId());
+            if (tableHands == null) {
+                tableHands = new ArrayDeque<EncodedHand>();
+                tables.put(encoded.getTableId(), tableHands);
+            }
+            tableHands.addLast(encoded);
+            hands.put(encoded.getId(), encoded);
+            bytes += encoded.getData().length;
+
+            while (tableHands.size() > handsPerTable) {
+                evict(tableHands.getFirst());
+            }
+            Iterator<EncodedHand> oldest = hands.values().iterator();
+            while (bytes > maxBytes && oldest.hasNext()) {
+                EncodedHand evicted = oldest.next();
+                oldest.remove();
+                removeFromTable(evicted);
+                evictions.incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Finds the hands a player played at a table, latest first, as seen by the player.
+     *
+     * @return the hands, or null if the cache might not hold all of them
+     * @see HandHistorySource#findHands(int, int, long, long, int)
+     */
+    public List<HistoricHand> findHands(int tableId, int playerId, long fromTime, long beforeTime, int limit) {
+        List<EncodedHand> found = find(tableId, playerId, fromTime, beforeTime, limit);
+        if (found == null) {
+            return null;
+        }
+        List<HistoricHand> result = new ArrayList<HistoricHand>(found.size());
+        for (EncodedHand hand : found) {
+            result.add(hand.decodeForPlayer(playerId));
+        }
+        return result;
+    }
+
+    /**
+     * Like {@link #findHands(int, int, long, long, int)}, but only decodes the summaries of the hands.
+     */
+    public List<HistoricHand> findHandSummaries(int tableId, int playerId, long fromTime, long beforeTime, int limit) {
+        List<EncodedHand> found = find(tableId, playerId, fromTime, beforeTime, limit);
+        if (found == null) {
+            return null;
+        }
+        List<HistoricHand> result = new ArrayList<HistoricHand>(found.size());
+        for (EncodedHand hand : found) {
+            result.add(hand.decodeSummary());
+        }
+        return result;
+    }
+
+    /**
+     * @return the hand as seen by the player, or null if it is not cached or the player did not play it
+     */
+    public HistoricHand findHand(String handId, int playerId) {
+        EncodedHand hand;
+        synchronized (this) {
+            hand = hands.get(handId);
+        }
+        if (hand == null || !hand.getPlayerIds().contains(playerId)) {
+            misses.incrementAndGet();
+            return null;
+        }
+        hits.incrementAndGet();
+        return hand.decodeForPlayer(playerId);
+    }
+
+    @Override
+    public long getHits() {
+        return hits.get();
+    }
+
+    @Override
+    public long getMisses() {
+        return misses.get();
+    }
+
+    @Override
+    public double getHitRate() {
+        long hits = this.hits.get();
+        long lookups = hits + misses.get();
+        return lookups == 0 ? 0 : (double) hits / lookups;
+    }
+
+    @Override
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    @Override
+    public synchronized int getHands() {
+        return hands.size();
+    }
+
+    @Override
+    public synchronized int getTables() {
+        return tables.size();
+    }
+
+    @Override
+    public synchronized long getBytes() {
+        return bytes;
+    }
+
+    @Override
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    @Override
+    public int getHandsPerTable() {
+        return handsPerTable;
+    }
+
+    @Override
+    public void resetCounters() {
+        hits.set(0);
+        misses.set(0);
+        evictions.set(0);
+    }
+
+    /* -------------------------------------------------------------------
+     *  PRIVATE METHODS
+     * ------------------------------------------------------------------- */
+
+    /**
+     * @return the matching hands, latest first, or null if the cache might not hold all of them
+     */
+    private List<EncodedHand> find(int tableId, int playerId, long fromTime, long beforeTime, int limit) {
+        List<EncodedHand> found = new ArrayList<EncodedHand>();
+        boolean complete;
+        synchronized (this) {
+            Deque<EncodedHand> tableHands = tables.get(tableId);
+            if (tableHands == null) {
+                misses.incrementAndGet();
+                return null;
+            }
+            Iterator<EncodedHand> latestFirst = tableHands.descendingIterator();
+            while (latestFirst.hasNext() && found.size() < limit) {
+                EncodedHand hand = latestFirst.next();
+                if (hand.getStartTime() < fromTime) {
+                    break;
+                }
+                if (hand.getStartTime() < beforeTime && hand.getPlayerIds().contains(playerId)) {
+                    found.add(hand);
+                }
+            }
+            complete = found.size() >= limit || fromTime >= tableHands.getFirst().getStartTime();
+        }
+        if (!complete) {
+            misses.incrementAndGet();
+            return null;
+        }
+        hits.incrementAndGet();
+        return found;
+    }
+
+    private void remove(EncodedHand hand) {
+        if (hand != null) {
+            hands.remove(hand.getId());
+            removeFromTable(hand);
+        }
+    }
+
+    private void evict(EncodedHand hand) {
+        remove(hand);
+        evictions.incrementAndGet();
+    }
+
+    private void removeFromTable(EncodedHand hand) {
+        Deque<EncodedHand> tableHands = tables.get(hand.getTableId());
+        tableHands.remove(hand);
+        if (tableHands.isEmpty()) {
+            tables.remove(hand.getTableId());
+        }
+        bytes -= hand.getData().length;
+    }
+}
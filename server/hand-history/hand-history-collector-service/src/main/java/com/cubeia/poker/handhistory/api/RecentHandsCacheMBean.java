@@ -0,0 +1,57 @@
+/**
+ * Copyright (C) 2012 Cubeia Ltd <info@cubeia.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.cubeia.poker.handhistory.api;
+
+public interface RecentHandsCacheMBean {
+
+    /**
+     * @return number of lookups answered by the cache
+     */
+    long getHits();
+
+    /**
+     * @return number of lookups the cache could not answer
+     */
+    long getMisses();
+
+    /**
+     * @return hits divided by lookups, or zero if there have been no lookups
+     */
+    double getHitRate();
+
+    /**
+     * @return number of hands removed to keep the cache within its bounds
+     */
+    long getEvictions();
+
+    int getHands();
+
+    int getTables();
+
+    /**
+     * @return size of the cached hands, encoded
+     */
+    long getBytes();
+
+    long getMaxBytes();
+
+    int getHandsPerTable();
+
+    void resetCounters();
+
+}
@@ -21,36 +21,70 @@ import com.cubeia.firebase.api.server.SystemException;
 import com.cubeia.firebase.api.service.Service;
 import com.cubeia.firebase.api.service.ServiceContext;
 import com.cubeia.firebase.guice.inject.Log4j;
+import com.cubeia.games.poker.common.jmx.JmxUtil;
 import com.cubeia.poker.handhistory.api.*;
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
 import org.apache.log4j.Logger;
 import org.joda.time.DateTime;
 
+import java.io.File;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
 
 /**
  * This is the collector implementation. It caches hands in a map
  * and will use an optional hand history persister service to
  * persist the result when the hand is ended. If no persister service
  * is deployed it will write the hand to the logs in JSON format on
- * DEBUG level.
+ * DEBUG level. Finished hands are also kept in a {@link RecentHandsCache}
+ * for the hand history provider.
+ * <p/>
+ * If a journal directory is configured, hands in progress are journaled to a
+ * file per table, see {@link HandJournal}, and are read back from the journal if the service is restarted or the table
+ * is migrated to a node sharing the journal directory. Each node journals to
+ * its own directory, see {@link HandJournals}. Hands without events for longer
+ * than the configured time are reaped.
+ * <p/>
+ * Hands stopped pending wallet transactions are kept in memory until the
+ * transactions are reported. They are persisted without transactions if
+ * none are reported within the reap time, or when the service is stopped.
  *
  * @author Lars J. Nilsson
  */
-
-// TODO Reap dead hands?
-// TODO Persist on each event to support fail-over?
-// TODO Read hand from database (if not found) to support fail-over
 @Singleton
 public class CollectorServiceImpl implements HandHistoryCollectorService, Service {
 
+    private static final String RECENT_HANDS_JMX_BIND_NAME = "com.cubeia.poker:type=RecentHandsCache";
+
+    private static final int RECENT_HANDS_PER_TABLE = 20;
+
+    private static final long RECENT_HANDS_MAX_BYTES = 32 * 1024 * 1024;
+
+    private static final long REAPER_INTERVAL_MINUTES = 1;
+
     @Log4j
     private Logger log;
 
-    private Map<Integer, HistoricHand> cache = new ConcurrentHashMap<Integer, HistoricHand>();
+    private ConcurrentHashMap<Integer, HistoricHand> cache = new ConcurrentHashMap<Integer, HistoricHand>();
+
+    private final RecentHandsCache recentHands = new RecentHandsCache(RECENT_HANDS_PER_TABLE, RECENT_HANDS_MAX_BYTES);
+
+    private final ConcurrentMap<Integer, Long> lastActivity = new ConcurrentHashMap<Integer, Long>();
+
+    private final ConcurrentHashMap<String, HistoricHand> pendingTransactions = new ConcurrentHashMap<String, HistoricHand>();
+
+    private JournalConfiguration journalConfig;
+
+    private HandJournals journals;
+
+    private ScheduledExecutorService reaper;
 
     @Inject
     private ServiceContext context;
@@ -70,50 +104,175 @@ public class CollectorServiceImpl implements HandHistoryCollectorService, Servic
         hand.setStartTime(new DateTime().getMillis());
         hand.getSeats().addAll(seats);
         cache.put(table.getTableId(), hand);
+        touch(table.getTableId());
+        if (journals != null) {
+            journals.startHand(table.getTableId(), hand);
+        }
     }
     
     @Override
     public void reportEvent(int tableId, HandHistoryEvent event) {
         HistoricHand hand = getCurrent(tableId);
         hand.getEvents().add(event);
+        touch(tableId);
+        if (journals != null) {
+            journals.reportEvent(tableId, event);
+        }
     }
 
     @Override
     public void reportDeckInfo(int tableId, DeckInfo deckInfo) {
         HistoricHand hand = getCurrent(tableId);
         hand.setDeckInfo(deckInfo);
+        touch(tableId);
+        if (journals != null) {
+            journals.reportSnapshot(tableId, hand);
+        }
     }
 
     @Override
     public void reportResults(int tableId, Results res) {
         HistoricHand hand = getCurrent(tableId);
         hand.setResults(res);
+        touch(tableId);
+        if (journals != null) {
+            journals.reportSnapshot(tableId, hand);
+        }
     }
 
     @Override
     public void stopHand(int tableId) {
-        HistoricHand hand = getCurrent(tableId);
-        hand.setEndTime(new DateTime().getMillis());
-        log.debug("Storing hand via persister.");
-        getPersister().persist(hand);
-        log.debug("Done storing hand via persister.");
-        cache.remove(tableId);
+        HistoricHand hand = finish(tableId);
+        store(hand);
+    }
+
+    @Override
+    public void stopHandPendingTransactions(int tableId) {
+        HistoricHand hand = finish(tableId);
+        pendingTransactions.put(hand.getId(), hand);
+    }
+
+    @Override
+    public void reportTransactions(String handId, Map<Integer, String> playerTransactions) {
+        HistoricHand hand = pendingTransactions.remove(handId);
+        if (hand == null) {
+            log.debug("Hand " + handId + " is not waiting for transactions, ignoring them.");
+            return;
+        }
+        if (hand.getResults() != null) {
+            for (Map.Entry<Integer, HandResult> e : hand.getResults().getResults().entrySet()) {
+                e.getValue().setTransactionId(playerTransactions.get(e.getKey()));
+            }
+        }
+        store(hand);
     }
 
     @Override
     public void cancelHand(int tableId) {
         // TODO Report this?
         cache.remove(tableId);
+        if (journals != null) {
+            journals.finishHand(tableId);
+        }
+    }
+
+    @Override
+    public RecentHandsCache getRecentHands() {
+        return recentHands;
     }
 
     // --- PRIVATE METHODS --- //
 
+    private HistoricHand finish(int tableId) {
+        HistoricHand hand = getCurrent(tableId);
+        hand.setEndTime(new DateTime().getMillis());
+        cache.remove(tableId);
+        if (journals != null) {
+            journals.finishHand(tableId);
+        }
+        return hand;
+    }
+
+    private void store(HistoricHand hand) {
+        log.debug("Storing hand via persister.");
+        getPersister().persist(hand);
+        log.debug("Done storing hand via persister.");
+        try {
+            recentHands.add(hand);
+        } catch (RuntimeException e) {
+            log.warn("Failed caching hand " + hand.getId() + " on table " + hand.getTable().getTableId(), e);
+        }
+    }
+
     private HistoricHand getCurrent(int tableId) {
-        if (!cache.containsKey(tableId)) {
-            // TODO Read from database...
+        HistoricHand hand = cache.get(tableId);
+        if (hand == null) {
+            hand = recover(tableId);
+        }
+        if (hand == null) {
             throw new RuntimeException("Current hand for table " + tableId + " not found!");
-        } else {
-            return cache.get(tableId);
+        }
+        return hand;
+    }
+
+    /**
+     * Reads the hand of a table from its journal, the table may have been migrated from another node.
+     */
+    private HistoricHand recover(int tableId) {
+        if (journals == null) {
+            return null;
+        }
+        HistoricHand hand = journals.recover(tableId);
+        if (hand == null) {
+            return null;
+        }
+        log.info("Recovered hand " + hand.getId() + " on table " + tableId + " from journal with " + hand.getEvents().size() + " events.");
+        HistoricHand existing = cache.putIfAbsent(tableId, hand);
+        return existing != null ? existing : hand;
+    }
+
+    private void touch(int tableId) {
+        lastActivity.put(tableId, System.currentTimeMillis());
+    }
+
+    /**
+     * Removes hands without events for longer than the configured time, and
+     * deletes the journals of tables that have been idle as long. Hands waiting
+     * as long for their transactions are persisted without them.
+     */
+    private void reap() {
+        long limit = System.currentTimeMillis() - TimeUnit.MINUTES.toMillis(journalConfig.getReapAfterMinutes());
+        for (Map.Entry<Integer, Long> e : lastActivity.entrySet()) {
+            if (e.getValue() < limit) {
+                reap(e.getKey(), e.getValue());
+            }
+        }
+        for (HistoricHand hand : pendingTransactions.values()) {
+            if (hand.getEndTime() < limit && pendingTransactions.remove(hand.getId(), hand)) {
+                log.warn("No transactions reported for hand " + hand.getId() + ", storing it without them.");
+                store(hand);
+            }
+        }
+    }
+
+    /**
+     * Removes the hand and journal of an idle table, unless the table has been
+     * touched or a new hand has been started since it was found idle.
+     */
+    private void reap(int tableId, Long idleSince) {
+        HistoricHand hand = cache.get(tableId);
+        if (!lastActivity.remove(tableId, idleSince)) {
+            return;
+        }
+        boolean removed = hand != null ? cache.remove(tableId, hand) : !cache.containsKey(tableId);
+        if (!removed) {
+            return;
+        }
+        if (hand != null) {
+            log.warn("Reaping abandoned hand " + hand.getId() + " on table " + tableId + ".");
+        }
+        if (journals != null) {
+            journals.remove(tableId);
         }
     }
 
@@ -127,15 +286,70 @@ public class CollectorServiceImpl implements HandHistoryCollectorService, Servic
     }
 
     @Override
-    public void init(ServiceContext con) throws SystemException { }
+    public void init(ServiceContext con) throws SystemException {
+        journalConfig = new JournalConfiguration().load(con.getServerConfigDirectory().getAbsolutePath());
+        if (journalConfig.isEnabled()) {
+            HandJournals nodeJournals = new HandJournals(new File(journalConfig.getDirectory()), journalConfig.getNode());
+            File directory = nodeJournals.getDirectory();
+            if (directory.isDirectory() || directory.mkdirs()) {
+                journals = nodeJournals;
+            } else {
+                log.warn("Failed creating hand journal directory " + directory + ", hands in progress will not be journaled.");
+            }
+        } else {
+            log.info("Hand journal disabled, set handhistory.journal.directory to journal hands in progress.");
+        }
+    }
 
     @Override
     public void destroy() { }
 
     @Override
-    public void start() { }
+    public void start() {
+        new JmxUtil().mountBean(RECENT_HANDS_JMX_BIND_NAME, recentHands);
+        if (journals != null) {
+            for (Map.Entry<Integer, HistoricHand> e : journals.recoverAll().entrySet()) {
+                log.info("Recovered hand " + e.getValue().getId() + " on table " + e.getKey() + " from journal.");
+                cache.put(e.getKey(), e.getValue());
+                touch(e.getKey());
+            }
+        }
+        reaper = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "hand-history-reaper");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        reaper.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    reap();
+                } catch (RuntimeException e) {
+                    log.error("Failed reaping hands.", e);
+                }
+            }
+        }, REAPER_INTERVAL_MINUTES, REAPER_INTERVAL_MINUTES, TimeUnit.MINUTES);
+    }
 
     @Override
-    public void stop() { }
+    public void stop() {
+        new JmxUtil().unmountBean(RECENT_HANDS_JMX_BIND_NAME);
+        if (reaper != null) {
+            reaper.shutdownNow();
+        }
+        for (String handId : pendingTransactions.keySet()) {
+            HistoricHand hand = pendingTransactions.remove(handId);
+            if (hand != null) {
+                log.warn("Stopping before transactions were reported for hand " + handId + ", storing it without them.");
+                store(hand);
+            }
+        }
+        if (journals != null) {
+            journals.close();
+        }
+    }
 
 }
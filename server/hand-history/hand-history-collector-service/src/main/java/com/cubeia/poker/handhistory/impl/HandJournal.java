@@ -0,0 +1,228 @@
+/**
+ * Copyright (C) 2012 Cubeia Ltd <info@cubeia.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.cubeia.poker.handhistory.impl;
+
+import com.cubeia.poker.handhistory.api.HandHistoryEvent;
+import com.cubeia.poker.handhistory.api.HistoricHand;
+import com.cubeia.poker.handhistory.api.HistoricHandCodec;
+import org.apache.log4j.Logger;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.zip.CRC32;
+
+/**
+ * Journal of the hand in progress at a table, a memory mapped file the hand and its events are
+ * appended to as they are reported, so that the hand can be rebuilt if the collector is restarted.
+ * <p/>
+ * The file holds records of <code>[int length][int crc32][byte type][data]</code>, the length
+ * includes the type. A zero length marks the end of the journal, so that starting or clearing a
+ * hand only rewrites the start of the file. A snapshot record holds the hand without its events,
+ * encoded by the HistoricHandCodec, and is written when the hand starts and when its deck info or
+ * results are reported. An event record holds an event.
+ * <p/>
+ * Records are written to the page cache of the operating system, which survives the process but
+ * not the machine. A closed journal rejects writes with an IOException and ignores clears.
+ */
+class HandJournal {
+
+    private static final Logger log = Logger.getLogger(HandJournal.class);
+
+    private static final byte SNAPSHOT = 1;
+
+    private static final byte EVENT = 2;
+
+    private static final int RECORD_HEADER_SIZE = 9;
+
+    private final File file;
+    private RandomAccessFile raf;
+    private MappedByteBuffer buffer;
+    private int position;
+    private long startTime;
+
+    /**
+     * Opens or creates a journal file.
+     *
+     * @param file     journal file
+     * @param capacity initial size of a created file, the file grows when full
+     */
+    HandJournal(File file, int capacity) throws IOException {
+        this.file = file;
+        raf = new RandomAccessFile(file, "rw");
+        if (raf.length() < capacity) {
+            raf.setLength(capacity);
+        }
+        map();
+    }
+
+    /**
+     * Starts journaling a hand, replacing the hand in the journal.
+     */
+    synchronized void start(HistoricHand hand) throws IOException {
+        position = 0;
+        startTime = hand.getStartTime();
+        writeSnapshot(hand);
+    }
+
+    /**
+     * Writes the hand without its events, after its deck info or results have changed.
+     */
+    synchronized void writeSnapshot(HistoricHand hand) throws IOException {
+        HistoricHand snapshot = new HistoricHand(hand.getId());
+        snapshot.setTable(hand.getTable());
+        snapshot.setStartTime(hand.getStartTime());
+        snapshot.setDeckInfo(hand.getDeckInfo());
+        snapshot.setSettings(hand.getSettings());
+        snapshot.setSeats(hand.getSeats());
+        snapshot.setResults(hand.getResults());
+        append(SNAPSHOT, HistoricHandCodec.encode(snapshot));
+    }
+
+    synchronized void writeEvent(HandHistoryEvent event) throws IOException {
+        append(EVENT, HistoricHandCodec.encodeEvent(event, startTime));
+    }
+
+    /**
+     * Removes the hand from the journal.
+     */
+    synchronized void clear() {
+        if (buffer == null) {
+            return;
+        }
+        position = 0;
+        buffer.putInt(0, 0);
+    }
+
+    /**
+     * Reads the hand in the journal, up to the first record that is incomplete or fails its checksum.
+     * Records written after a recovery are appended to the recovered hand.
+     *
+     * @return the hand, or null if the journal is empty or closed
+     */
+    synchronized HistoricHand recover() {
+        if (buffer == null) {
+            return null;
+        }
+        HistoricHand hand = null;
+        int offset = 0;
+        while (offset + RECORD_HEADER_SIZE <= buffer.capacity()) {
+            int length = buffer.getInt(offset);
+            if (length <= 0 || (long) offset + RECORD_HEADER_SIZE - 1 + length > buffer.capacity()) {
+                break;
+            }
+            byte type = buffer.get(offset + 8);
+            byte[] data = new byte[length - 1];
+            ByteBuffer record = buffer.duplicate();
+            record.position(offset + RECORD_HEADER_SIZE);
+            record.get(data);
+            if (buffer.getInt(offset + 4) != checksum(type, data)) {
+                log.warn("Checksum mismatch at position " + offset + " in hand journal " + file);
+                break;
+            }
+            try {
+                if (type == SNAPSHOT) {
+                    hand = applySnapshot(hand, HistoricHandCodec.decode(data));
+                } else if (type == EVENT && hand != null) {
+                    hand.getEvents().add(HistoricHandCodec.decodeEvent(data, hand.getStartTime()));
+                } else {
+                    break;
+                }
+            } catch (IllegalArgumentException e) {
+                log.warn("Failed decoding record at position " + offset + " in hand journal " + file, e);
+                break;
+            }
+            offset += RECORD_HEADER_SIZE - 1 + length;
+        }
+        position = hand == null ? 0 : offset;
+        startTime = hand == null ? 0 : hand.getStartTime();
+        return hand;
+    }
+
+    synchronized void close() throws IOException {
+        buffer = null;
+        raf.close();
+    }
+
+    synchronized boolean isClosed() {
+        return buffer == null;
+    }
+
+    /**
+     * Closes the journal and deletes its file, if not moved to another node.
+     */
+    synchronized void delete() throws IOException {
+        close();
+        if (!file.delete() && file.exists()) {
+            log.warn("Failed deleting hand journal " + file);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return file.toString();
+    }
+
+    // --- PRIVATE METHODS --- //
+
+    private void map() throws IOException {
+        buffer = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, raf.length());
+    }
+
+    private void append(byte type, byte[] data) throws IOException {
+        if (buffer == null) {
+            throw new IOException("Hand journal " + file + " is closed");
+        }
+        int size = RECORD_HEADER_SIZE + data.length;
+        if ((long) position + size + 4 > buffer.capacity()) {
+            raf.setLength(Math.max(raf.length() * 2, position + size + 4));
+            map();
+        }
+        // the end marker and the data are written before the length that makes the record readable
+        buffer.putInt(position + size, 0);
+        buffer.put(position + 8, type);
+        ByteBuffer record = buffer.duplicate();
+        record.position(position + RECORD_HEADER_SIZE);
+        record.put(data);
+        buffer.putInt(position + 4, checksum(type, data));
+        buffer.putInt(position, data.length + 1);
+        position += size;
+    }
+
+    private HistoricHand applySnapshot(HistoricHand hand, HistoricHand snapshot) {
+        if (hand == null || !hand.getId().equals(snapshot.getId())) {
+            return snapshot;
+        }
+        hand.setTable(snapshot.getTable());
+        hand.setDeckInfo(snapshot.getDeckInfo());
+        hand.setSettings(snapshot.getSettings());
+        hand.setSeats(snapshot.getSeats());
+        hand.setResults(snapshot.getResults());
+        return hand;
+    }
+
+    private static int checksum(byte type, byte[] data) {
+        CRC32 crc = new CRC32();
+        crc.update(type);
+        crc.update(data, 0, data.length);
+        return (int) crc.getValue();
+    }
+}
@@ -0,0 +1,263 @@
+/**
+ * Copyright (C) 2012 Cubeia Ltd <info@cubeia.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.cubeia.poker.handhistory.impl;
+
+import com.cubeia.poker.handhistory.api.HandHistoryEvent;
+import com.cubeia.poker.handhistory.api.HistoricHand;
+import org.apache.log4j.Logger;
+
+import java.io.File;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * The hand journals of the tables, one file per table in the directory of this node.
+ * The directories of the nodes share a root directory. Only the journals of this node
+ * are recovered at start and deleted, the journal of a table migrated from another node
+ * is moved to this node when the table's hand is recovered. A journal that fails is
+ * logged and dropped, the hand is then only kept in memory.
+ */
+class HandJournals {
+
+    private static final Logger log = Logger.getLogger(HandJournals.class);
+
+    private static final String PREFIX = "table-";
+
+    private static final String SUFFIX = ".journal";
+
+    private static final int INITIAL_CAPACITY = 16 * 1024;
+
+    private final ConcurrentMap<Integer, HandJournal> journals = new ConcurrentHashMap<Integer, HandJournal>();
+
+    private final File root;
+
+    private final File directory;
+
+    /**
+     * @param root directory of the node directories
+     * @param node name of the directory of this node
+     */
+    HandJournals(File root, String node) {
+        this.root = root;
+        this.directory = new File(root, node);
+    }
+
+    /**
+     * @return the directory of the journals of this node
+     */
+    File getDirectory() {
+        return directory;
+    }
+
+    void startHand(int tableId, HistoricHand hand) {
+        HandJournal journal = getOrOpen(tableId);
+        if (journal != null) {
+            try {
+                journal.start(hand);
+            } catch (IOException e) {
+                fail(tableId, journal, e);
+            }
+        }
+    }
+
+    void reportEvent(int tableId, HandHistoryEvent event) {
+        HandJournal journal = journals.get(tableId);
+        if (journal != null) {
+            try {
+                journal.writeEvent(event);
+            } catch (IOException e) {
+                fail(tableId, journal, e);
+            }
+        }
+    }
+
+    /**
+     * Journals the hand after its deck info or results have changed.
+     */
+    void reportSnapshot(int tableId, HistoricHand hand) {
+        HandJournal journal = journals.get(tableId);
+        if (journal != null) {
+            try {
+                journal.writeSnapshot(hand);
+            } catch (IOException e) {
+                fail(tableId, journal, e);
+            }
+        }
+    }
+
+    /**
+     * Clears the journal of a table after its hand was stopped or cancelled. The file
+     * is kept for the next hand.
+     */
+    void finishHand(int tableId) {
+        HandJournal journal = journals.get(tableId);
+        if (journal != null) {
+            journal.clear();
+        }
+    }
+
+    /**
+     * Reads the hand in progress at a table from its journal. If the table has been
+     * migrated from another node, its journal is moved to this node first.
+     *
+     * @return the hand, or null if not found
+     */
+    HistoricHand recover(int tableId) {
+        if (!journalFile(tableId).exists() && !adopt(tableId)) {
+            return null;
+        }
+        HandJournal journal = getOrOpen(tableId);
+        return journal == null ? null : journal.recover();
+    }
+
+    /**
+     * Reads the hands in progress from all journals of this node.
+     *
+     * @return the hands by table id
+     */
+    Map<Integer, HistoricHand> recoverAll() {
+        Map<Integer, HistoricHand> hands = new HashMap<Integer, HistoricHand>();
+        String[] names = directory.list(new FilenameFilter() {
+            @Override
+            public boolean accept(File dir, String name) {
+                return name.startsWith(PREFIX) && name.endsWith(SUFFIX);
+            }
+        });
+        if (names == null) {
+            return hands;
+        }
+        for (String name : names) {
+            int tableId;
+            try {
+                tableId = Integer.parseInt(name.substring(PREFIX.length(), name.length() - SUFFIX.length()));
+            } catch (NumberFormatException e) {
+                log.warn("Ignoring hand journal with unexpected name " + name);
+                continue;
+            }
+            HistoricHand hand = recover(tableId);
+            if (hand != null) {
+                hands.put(tableId, hand);
+            } else {
+                remove(tableId);
+            }
+        }
+        return hands;
+    }
+
+    /**
+     * Closes the journal of a table and deletes its file.
+     */
+    void remove(int tableId) {
+        HandJournal journal = journals.remove(tableId);
+        try {
+            if (journal != null) {
+                journal.delete();
+            } else if (!journalFile(tableId).delete()) {
+                log.debug("No hand journal to delete for table " + tableId);
+            }
+        } catch (IOException e) {
+            log.warn("Failed deleting hand journal " + journal, e);
+        }
+    }
+
+    void close() {
+        for (Map.Entry<Integer, HandJournal> e : journals.entrySet()) {
+            try {
+                e.getValue().close();
+            } catch (IOException ex) {
+                log.warn("Failed closing hand journal " + e.getValue(), ex);
+            }
+        }
+        journals.clear();
+    }
+
+    // --- PRIVATE METHODS --- //
+
+    private HandJournal getOrOpen(int tableId) {
+        HandJournal journal = journals.get(tableId);
+        if (journal == null) {
+            try {
+                journal = new HandJournal(journalFile(tableId), INITIAL_CAPACITY);
+            } catch (IOException e) {
+                log.warn("Failed opening hand journal for table " + tableId + ", the hand will not be journaled", e);
+                return null;
+            }
+            HandJournal existing = journals.putIfAbsent(tableId, journal);
+            if (existing != null) {
+                closeQuietly(journal);
+                journal = existing;
+            }
+        }
+        return journal;
+    }
+
+    /**
+     * Moves the journal of a table from the directory of another node, or from the root
+     * where journals were kept before they were kept per node.
+     *
+     * @return true if moved
+     */
+    private boolean adopt(int tableId) {
+        File target = journalFile(tableId);
+        File[] sources = root.listFiles();
+        if (sources == null) {
+            return false;
+        }
+        for (File source : sources) {
+            File file = source.isDirectory() ? new File(source, target.getName()) : source;
+            if (!source.equals(directory) && file.getName().equals(target.getName()) && file.isFile()) {
+                if (file.renameTo(target)) {
+                    log.info("Moved hand journal of table " + tableId + " from " + file.getParentFile() + ".");
+                    return true;
+                }
+                log.warn("Failed moving hand journal " + file + " to " + directory);
+            }
+        }
+        return false;
+    }
+
+    private void fail(int tableId, HandJournal journal, IOException e) {
+        if (journal.isClosed()) {
+            log.debug("Hand journal " + journal + " was closed, the event is not journaled");
+            return;
+        }
+        log.warn("Failed writing hand journal " + journal + ", the hand will not be journaled", e);
+        journals.remove(tableId, journal);
+        try {
+            journal.delete();
+        } catch (IOException ex) {
+            log.debug("Failed deleting hand journal " + journal);
+        }
+    }
+
+    private void closeQuietly(HandJournal journal) {
+        try {
+            journal.close();
+        } catch (IOException e) {
+            log.debug("Failed closing hand journal " + journal);
+        }
+    }
+
+    private File journalFile(int tableId) {
+        return new File(directory, PREFIX + tableId + SUFFIX);
+    }
+}
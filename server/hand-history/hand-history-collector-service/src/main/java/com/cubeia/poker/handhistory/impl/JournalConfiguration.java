@@ -0,0 +1,107 @@
+/**
+ * Copyright (C) 2012 Cubeia Ltd <info@cubeia.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.cubeia.poker.handhistory.impl;
+
+import org.apache.log4j.Logger;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.Properties;
+
+/**
+ * Helper class for reading the hand journal configuration. Will load the file "poker.properties" in the config directory of Firebase.
+ */
+public class JournalConfiguration {
+
+    private static final Logger log = Logger.getLogger(JournalConfiguration.class);
+    private boolean enabled;
+    private String directory;
+    private String node;
+    private long reapAfterMinutes;
+
+    public JournalConfiguration load(String configPath) {
+        Properties properties = loadProperties(configPath);
+        directory = properties.getProperty("handhistory.journal.directory");
+        enabled = directory != null && Boolean.parseBoolean(properties.getProperty("handhistory.journal.enabled", "true"));
+        node = properties.getProperty("handhistory.journal.node", getHostName()).replaceAll("[^A-Za-z0-9._-]", "_");
+        reapAfterMinutes = Long.parseLong(properties.getProperty("handhistory.journal.reap-after-minutes", "60"));
+        return this;
+    }
+
+    private String getHostName() {
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            log.warn("Could not resolve the host name, set handhistory.journal.node on each node sharing the journal directory.");
+            return "local";
+        }
+    }
+
+    private Properties loadProperties(String configPath) {
+        Properties properties = new Properties();
+        FileInputStream stream = null;
+        try {
+            stream = new FileInputStream(new File(configPath + "/poker.properties"));
+            properties.load(stream);
+        } catch (IOException e) {
+            log.warn("Could not load properties from " + configPath + ". Using defaults.");
+        } finally {
+            if (stream != null) {
+                try {
+                    stream.close();
+                } catch (IOException e) {
+                    log.debug("Failed closing stream.");
+                }
+            }
+        }
+        return properties;
+    }
+
+    /**
+     * @return true if a journal directory is configured and journaling is not switched off
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @return directory of the journal files, must be shared by the nodes for hands to survive a table migration,
+     *         null if not configured, in which case hands in progress are not journaled
+     */
+    public String getDirectory() {
+        return directory;
+    }
+
+    /**
+     * @return name of the directory of this node in the journal directory, the host name by default,
+     *         must be unique and stable across restarts for each node sharing the journal directory
+     */
+    public String getNode() {
+        return node;
+    }
+
+    /**
+     * @return minutes without events after which a hand in progress is considered abandoned
+     */
+    public long getReapAfterMinutes() {
+        return reapAfterMinutes;
+    }
+}
@@ -0,0 +1,130 @@
+/**
+ * Copyright (C) 2012 Cubeia Ltd <info@cubeia.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.cubeia.poker.handhistory.api;
+
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+public class RecentHandsCacheTest {
+
+    private RecentHandsCache cache = new RecentHandsCache(10, 1024 * 1024);
+
+    @Test
+    public void testFindHands() {
+        cache.add(createHand("a", 1, 100, 1, 2));
+        cache.add(createHand("b", 1, 200, 1));
+        cache.add(createHand("c", 1, 300, 2));
+
+        assertEquals(Arrays.asList("b"), ids(cache.findHands(1, 1, Long.MIN_VALUE, Long.MAX_VALUE, 1)));
+        assertEquals(Arrays.asList("a"), ids(cache.findHands(1, 1, Long.MIN_VALUE, 200, 1)));
+        assertEquals(Arrays.asList("b", "a"), ids(cache.findHands(1, 1, 100, Long.MAX_VALUE, 10)));
+        assertEquals(Arrays.asList("c"), ids(cache.findHandSummaries(1, 2, 150, Long.MAX_VALUE, 10)));
+        assertEquals(0, cache.findHandSummaries(1, 2, 150, Long.MAX_VALUE, 10).get(0).getSeats().size());
+    }
+
+    @Test
+    public void testMissesWhenHandsMightBeMissing() {
+        cache.add(createHand("a", 1, 100, 1));
+
+        // older hands might be in the database
+        assertNull(cache.findHands(1, 1, Long.MIN_VALUE, Long.MAX_VALUE, 2));
+        assertNull(cache.findHands(1, 1, 50, Long.MAX_VALUE, 2));
+        assertNull(cache.findHands(2, 1, 100, Long.MAX_VALUE, 2));
+        assertEquals(0, cache.getHits());
+        assertEquals(3, cache.getMisses());
+    }
+
+    @Test
+    public void testFindHandAsSeenByPlayer() {
+        HistoricHand hand = createHand("a", 1, 100, 1, 2);
+        cache.add(hand);
+
+        HistoricHand cached = cache.findHand("a", 2);
+        assertEquals(hand.getSeats(), cached.getSeats());
+        assertEquals(0, ((PlayerCardsDealt) cached.getEvents().get(0)).getCards().size());
+        assertEquals(1, ((PlayerCardsDealt) cached.getEvents().get(1)).getCards().size());
+        assertNull(cache.findHand("a", 3));
+        assertNull(cache.findHand("b", 1));
+
+        assertEquals(1, cache.getHits());
+        assertEquals(2, cache.getMisses());
+        assertEquals(1 / 3.0, cache.getHitRate(), 0.0001);
+    }
+
+    @Test
+    public void testEvictsOldestHandsOfTable() {
+        cache = new RecentHandsCache(2, 1024 * 1024);
+        cache.add(createHand("a", 1, 100, 1));
+        cache.add(createHand("b", 1, 200, 1));
+        cache.add(createHand("c", 2, 300, 1));
+        cache.add(createHand("d", 1, 400, 1));
+
+        assertEquals(3, cache.getHands());
+        assertEquals(1, cache.getEvictions());
+        assertNull(cache.findHand("a", 1));
+        assertNotNull(cache.findHand("b", 1));
+        assertNull(cache.findHands(1, 1, 100, Long.MAX_VALUE, 10));
+        assertEquals(Arrays.asList("d", "b"), ids(cache.findHands(1, 1, 200, Long.MAX_VALUE, 10)));
+    }
+
+    @Test
+    public void testEvictsOldestHandsWhenFull() {
+        int size = new EncodedHand(createHand("a", 1, 100, 1)).getData().length;
+        cache = new RecentHandsCache(10, size * 2);
+        cache.add(createHand("a", 1, 100, 1));
+        cache.add(createHand("b", 2, 200, 1));
+        cache.add(createHand("c", 1, 300, 1));
+
+        assertEquals(2, cache.getHands());
+        assertEquals(2, cache.getTables());
+        assertEquals(1, cache.getEvictions());
+        assertNull(cache.findHand("a", 1));
+        assertEquals(size * 2, cache.getBytes());
+    }
+
+    private HistoricHand createHand(String id, int tableId, long startTime, int... playerIds) {
+        HistoricHand hand = new HistoricHand(id);
+        Table table = new Table();
+        table.setTableId(tableId);
+        hand.setTable(table);
+        hand.setStartTime(startTime);
+        for (int playerId : playerIds) {
+            hand.getSeats().add(new Player(playerId, hand.getSeats().size(), new BigDecimal("10.00"), "p" + playerId));
+            PlayerCardsDealt dealt = new PlayerCardsDealt(playerId, false);
+            dealt.getCards().add(new GameCard(GameCard.Suit.CLUBS, GameCard.Rank.ACE));
+            hand.getEvents().add(dealt);
+        }
+        return hand;
+    }
+
+    private List<String> ids(List<HistoricHand> hands) {
+        List<String> ids = new ArrayList<String>();
+        for (HistoricHand hand : hands) {
+            ids.add(hand.getId());
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,201 @@
+/**
+ * Copyright (C) 2010 Cubeia Ltd <info@cubeia.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.cubeia.poker.handhistory.impl;
+
+import com.cubeia.poker.handhistory.api.DeckInfo;
+import com.cubeia.poker.handhistory.api.GameCard;
+import com.cubeia.poker.handhistory.api.HistoricHand;
+import com.cubeia.poker.handhistory.api.Player;
+import com.cubeia.poker.handhistory.api.PlayerAction;
+import com.cubeia.poker.handhistory.api.Results;
+import com.cubeia.poker.handhistory.api.Table;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.math.BigDecimal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class HandJournalTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File file;
+
+    private HandJournal journal;
+
+    @Before
+    public void setup() throws Exception {
+        file = new File(folder.getRoot(), "table-1.journal");
+        journal = new HandJournal(file, 1024);
+    }
+
+    @After
+    public void teardown() throws Exception {
+        journal.close();
+    }
+
+    @Test
+    public void testRecoverAfterReopen() throws Exception {
+        HistoricHand hand = createHand("a");
+        journal.start(hand);
+        journal.writeEvent(new PlayerAction(1, PlayerAction.Type.BET));
+        hand.setDeckInfo(new DeckInfo(52, GameCard.Rank.TWO));
+        journal.writeSnapshot(hand);
+        journal.writeEvent(new PlayerAction(2, PlayerAction.Type.CALL));
+        hand.setResults(new Results(new BigDecimal("0.50")));
+        journal.writeSnapshot(hand);
+        reopen();
+
+        HistoricHand recovered = journal.recover();
+        assertEquals("a", recovered.getId());
+        assertEquals(1000, recovered.getStartTime());
+        assertEquals(1, recovered.getTable().getTableId());
+        assertEquals(hand.getSeats(), recovered.getSeats());
+        assertEquals(52, recovered.getDeckInfo().getSize());
+        assertEquals(new BigDecimal("0.50"), recovered.getResults().getTotalRake());
+        assertEquals(2, recovered.getEvents().size());
+        assertEquals(2, ((PlayerAction) recovered.getEvents().get(1)).getPlayerId());
+    }
+
+    @Test
+    public void testAppendAfterRecover() throws Exception {
+        journal.start(createHand("a"));
+        journal.writeEvent(new PlayerAction(1, PlayerAction.Type.BET));
+        reopen();
+        journal.recover();
+        journal.writeEvent(new PlayerAction(2, PlayerAction.Type.CALL));
+        reopen();
+
+        assertEquals(2, journal.recover().getEvents().size());
+    }
+
+    @Test
+    public void testRecoverStopsAtTornRecord() throws Exception {
+        journal.start(createHand("a"));
+        journal.writeEvent(new PlayerAction(1, PlayerAction.Type.BET));
+        journal.writeEvent(new PlayerAction(2, PlayerAction.Type.CALL));
+        journal.close();
+
+        // corrupt the last byte of the last event
+        long end = lastRecordEnd();
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        raf.seek(end - 1);
+        int last = raf.read();
+        raf.seek(end - 1);
+        raf.write(last ^ 0xff);
+        raf.close();
+
+        journal = new HandJournal(file, 1024);
+        assertEquals(1, journal.recover().getEvents().size());
+    }
+
+    @Test
+    public void testClear() throws Exception {
+        journal.start(createHand("a"));
+        journal.writeEvent(new PlayerAction(1, PlayerAction.Type.BET));
+        journal.clear();
+        reopen();
+
+        assertNull(journal.recover());
+    }
+
+    @Test
+    public void testStartReplacesPreviousHand() throws Exception {
+        journal.start(createHand("a"));
+        journal.writeEvent(new PlayerAction(1, PlayerAction.Type.BET));
+        journal.writeEvent(new PlayerAction(1, PlayerAction.Type.BET));
+        journal.start(createHand("b"));
+        reopen();
+
+        HistoricHand recovered = journal.recover();
+        assertEquals("b", recovered.getId());
+        assertEquals(0, recovered.getEvents().size());
+    }
+
+    @Test
+    public void testGrows() throws Exception {
+        journal.start(createHand("a"));
+        for (int i = 0; i < 500; i++) {
+            journal.writeEvent(new PlayerAction(i, PlayerAction.Type.BET));
+        }
+        reopen();
+
+        HistoricHand recovered = journal.recover();
+        assertEquals(500, recovered.getEvents().size());
+        assertEquals(499, ((PlayerAction) recovered.getEvents().get(499)).getPlayerId());
+    }
+
+    @Test(expected = IOException.class)
+    public void testWriteAfterCloseFails() throws Exception {
+        journal.start(createHand("a"));
+        journal.delete();
+
+        journal.writeEvent(new PlayerAction(1, PlayerAction.Type.BET));
+    }
+
+    @Test
+    public void testClearAfterClose() throws Exception {
+        journal.start(createHand("a"));
+        journal.delete();
+
+        journal.clear();
+        assertTrue(journal.isClosed());
+        assertNull(journal.recover());
+    }
+
+    private void reopen() throws Exception {
+        journal.close();
+        journal = new HandJournal(file, 1024);
+    }
+
+    private long lastRecordEnd() throws Exception {
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            long offset = 0;
+            int length;
+            while ((length = raf.readInt()) > 0) {
+                offset += 8 + length;
+                raf.seek(offset);
+            }
+            return offset;
+        } finally {
+            raf.close();
+        }
+    }
+
+    private HistoricHand createHand(String id) {
+        HistoricHand hand = new HistoricHand(id);
+        Table table = new Table();
+        table.setTableId(1);
+        hand.setTable(table);
+        hand.setStartTime(1000);
+        hand.getSeats().add(new Player(1, 0, new BigDecimal("10.00"), "p1"));
+        hand.getSeats().add(new Player(2, 1, new BigDecimal("20.00"), "p2"));
+        return hand;
+    }
+}
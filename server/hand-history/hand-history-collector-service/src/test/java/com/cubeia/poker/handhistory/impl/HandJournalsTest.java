@@ -0,0 +1,97 @@
+/**
+ * Copyright (C) 2010 Cubeia Ltd <info@cubeia.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.cubeia.poker.handhistory.impl;
+
+import com.cubeia.poker.handhistory.api.HistoricHand;
+import com.cubeia.poker.handhistory.api.PlayerAction;
+import com.cubeia.poker.handhistory.api.Table;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class HandJournalsTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private HandJournals nodeA;
+
+    private HandJournals nodeB;
+
+    @Before
+    public void setup() throws Exception {
+        nodeA = new HandJournals(folder.getRoot(), "a");
+        nodeB = new HandJournals(folder.getRoot(), "b");
+        assertTrue(nodeA.getDirectory().mkdirs());
+        assertTrue(nodeB.getDirectory().mkdirs());
+    }
+
+    @After
+    public void teardown() {
+        nodeA.close();
+        nodeB.close();
+    }
+
+    @Test
+    public void testRecoverAllOnlyReadsOwnJournals() {
+        nodeA.startHand(1, createHand("a", 1));
+        nodeB.startHand(2, createHand("b", 2));
+
+        assertEquals(1, nodeA.recoverAll().size());
+        assertEquals("a", nodeA.recoverAll().get(1).getId());
+        assertTrue(new File(nodeB.getDirectory(), "table-2.journal").exists());
+    }
+
+    @Test
+    public void testRecoverMovesJournalOfMigratedTable() {
+        nodeA.startHand(1, createHand("a", 1));
+        nodeA.reportEvent(1, new PlayerAction(1, PlayerAction.Type.BET));
+
+        HistoricHand recovered = nodeB.recover(1);
+        assertEquals("a", recovered.getId());
+        assertEquals(1, recovered.getEvents().size());
+        assertFalse(new File(nodeA.getDirectory(), "table-1.journal").exists());
+        assertTrue(new File(nodeB.getDirectory(), "table-1.journal").exists());
+    }
+
+    @Test
+    public void testWriteAfterRemoveIsDropped() {
+        nodeA.startHand(1, createHand("a", 1));
+        nodeA.remove(1);
+
+        nodeA.reportEvent(1, new PlayerAction(1, PlayerAction.Type.BET));
+        nodeA.finishHand(1);
+        assertFalse(new File(nodeA.getDirectory(), "table-1.journal").exists());
+    }
+
+    private HistoricHand createHand(String id, int tableId) {
+        HistoricHand hand = new HistoricHand(id);
+        Table table = new Table();
+        table.setTableId(tableId);
+        hand.setTable(table);
+        hand.setStartTime(1000);
+        return hand;
+    }
+}
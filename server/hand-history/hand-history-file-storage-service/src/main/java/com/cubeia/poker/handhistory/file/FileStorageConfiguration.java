@@ -0,0 +1,100 @@
+/**
+ * Copyright (C) 2012 Cubeia Ltd <info@cubeia.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.cubeia.poker.handhistory.file;
+
+import org.apache.log4j.Logger;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.Properties;
+
+/**
+ * Helper class for reading the file storage configuration. Will load the file "poker.properties" in the config directory of Firebase.
+ */
+public class FileStorageConfiguration {
+
+    private static final Logger log = Logger.getLogger(FileStorageConfiguration.class);
+    private String directory;
+    private int segmentSizeMegabytes;
+    private int retentionDays;
+    private long syncIntervalMillis;
+    private long maintenanceIntervalMinutes;
+
+    public FileStorageConfiguration load(String configPath) {
+        Properties properties = loadProperties(configPath);
+        directory = properties.getProperty("handhistory.file.directory");
+        segmentSizeMegabytes = Integer.parseInt(properties.getProperty("handhistory.file.segment-size-mb", "64"));
+        retentionDays = Integer.parseInt(properties.getProperty("handhistory.file.retention-days", "90"));
+        syncIntervalMillis = Long.parseLong(properties.getProperty("handhistory.file.sync-interval-millis", "1000"));
+        maintenanceIntervalMinutes = Long.parseLong(properties.getProperty("handhistory.file.maintenance-interval-minutes", "10"));
+        return this;
+    }
+
+    private Properties loadProperties(String configPath) {
+        Properties properties = new Properties();
+        FileInputStream stream = null;
+        try {
+            stream = new FileInputStream(new File(configPath + "/poker.properties"));
+            properties.load(stream);
+        } catch (IOException e) {
+            log.warn("Could not load properties from " + configPath + ". Using defaults.");
+        } finally {
+            if (stream != null) {
+                try {
+                    stream.close();
+                } catch (IOException e) {
+                    log.debug("Failed closing stream.");
+                }
+            }
+        }
+        return properties;
+    }
+
+    /**
+     * @return directory of the segment files, or null if not configured
+     */
+    public String getDirectory() {
+        return directory;
+    }
+
+    public int getSegmentSizeMegabytes() {
+        return segmentSizeMegabytes;
+    }
+
+    /**
+     * @return days hands are kept, zero to keep them forever
+     */
+    public int getRetentionDays() {
+        return retentionDays;
+    }
+
+    /**
+     * @return how often stored hands are written to disk
+     */
+    public long getSyncIntervalMillis() {
+        return syncIntervalMillis;
+    }
+
+    /**
+     * @return how often expired hands are removed and segments compacted
+     */
+    public long getMaintenanceIntervalMinutes() {
+        return maintenanceIntervalMinutes;
+    }
+}
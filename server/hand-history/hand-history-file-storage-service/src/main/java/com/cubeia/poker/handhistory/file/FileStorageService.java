@@ -0,0 +1,161 @@
+/**
+ * Copyright (C) 2012 Cubeia Ltd <info@cubeia.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.cubeia.poker.handhistory.file;
+
+import com.cubeia.firebase.api.server.SystemException;
+import com.cubeia.firebase.api.service.Service;
+import com.cubeia.firebase.api.service.ServiceContext;
+import com.cubeia.poker.handhistory.api.EncodedHand;
+import com.cubeia.poker.handhistory.api.HandHistoryPersistenceService;
+import com.cubeia.poker.handhistory.api.HandHistorySource;
+import com.cubeia.poker.handhistory.api.HistoricHand;
+import com.cubeia.poker.handhistory.impl.JsonHandHistoryLogger;
+import org.apache.log4j.Logger;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A file based implementation of the hand history persistence service, which stores the hand
+ * history in local segment files, see {@link SegmentedHandStore}. Deploy it instead of the database
+ * storage service to run without a database, the hand history provider then reads the hands from it.
+ * <p/>
+ * The segments are kept in the directory configured as <code>handhistory.file.directory</code>, which is
+ * required. Expired hands are removed and segments compacted on a thread of their own, so that writing
+ * the stored hands to disk is not delayed by it.
+ */
+public class FileStorageService implements HandHistoryPersistenceService, HandHistorySource, Service {
+
+    private static final Logger log = Logger.getLogger(FileStorageService.class);
+
+    private static final long MILLIS_PER_DAY = TimeUnit.DAYS.toMillis(1);
+
+    private FileStorageConfiguration configuration;
+    private SegmentedHandStore store;
+    private JsonHandHistoryLogger jsonLogger;
+    private ScheduledExecutorService scheduler;
+
+    @Override
+    public void persist(HistoricHand hand) {
+        try {
+            store.append(new EncodedHand(hand));
+        } catch (Exception e) {
+            log.error("Failed storing hand " + hand.getId() + ", logging it as json.", e);
+            jsonLogger.persist(hand);
+        }
+    }
+
+    @Override
+    public List<HistoricHand> findHands(int tableId, int playerId, long fromTime, long beforeTime, int limit) {
+        return store.findHands(tableId, playerId, fromTime, beforeTime, limit);
+    }
+
+    @Override
+    public List<HistoricHand> findHandSummaries(int tableId, int playerId, long fromTime, long beforeTime, int limit) {
+        return store.findHandSummaries(tableId, playerId, fromTime, beforeTime, limit);
+    }
+
+    @Override
+    public HistoricHand findHand(String handId, int playerId) {
+        return store.findHand(handId, playerId);
+    }
+
+    @Override
+    public void init(ServiceContext context) throws SystemException {
+        configuration = getConfiguration(context);
+        String directory = configuration.getDirectory();
+        if (directory == null || directory.trim().isEmpty()) {
+            throw new SystemException("No hand history directory configured, set handhistory.file.directory in poker.properties.");
+        }
+        store = new SegmentedHandStore(new File(directory.trim()),
+                configuration.getSegmentSizeMegabytes() * 1024 * 1024,
+                configuration.getRetentionDays() * MILLIS_PER_DAY);
+        jsonLogger = new JsonHandHistoryLogger();
+    }
+
+    protected FileStorageConfiguration getConfiguration(ServiceContext context) {
+        return new FileStorageConfiguration().load(context.getServerConfigDirectory().getAbsolutePath());
+    }
+
+    @Override
+    public void start() {
+        try {
+            store.open();
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed opening hand history store in " + configuration.getDirectory(), e);
+        }
+        scheduler = Executors.newScheduledThreadPool(2, new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "hand-history-file-storage");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        scheduler.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                sync();
+            }
+        }, configuration.getSyncIntervalMillis(), configuration.getSyncIntervalMillis(), TimeUnit.MILLISECONDS);
+        scheduler.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                maintain();
+            }
+        }, 1, configuration.getMaintenanceIntervalMinutes(), TimeUnit.MINUTES);
+    }
+
+    private void sync() {
+        try {
+            store.sync();
+        } catch (Exception e) {
+            log.error("Failed writing hand history segment to disk.", e);
+        }
+    }
+
+    private void maintain() {
+        try {
+            int removed = store.removeExpired(System.currentTimeMillis());
+            int compacted = store.compact();
+            log.info("Hand history maintenance removed " + removed + " and compacted " + compacted + " segments, "
+                    + store.getHandCount() + " hands in " + store.getSegmentCount() + " segments.");
+        } catch (Exception e) {
+            log.error("Failed hand history maintenance.", e);
+        }
+    }
+
+    @Override
+    public void stop() {
+        scheduler.shutdownNow();
+        try {
+            store.close();
+        } catch (IOException e) {
+            log.error("Failed closing hand history store.", e);
+        }
+    }
+
+    @Override
+    public void destroy() {
+    }
+}
@@ -0,0 +1,494 @@
+/**
+ * Copyright (C) 2012 Cubeia Ltd <info@cubeia.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.cubeia.poker.handhistory.file;
+
+import com.cubeia.poker.handhistory.api.EncodedHand;
+import com.cubeia.poker.handhistory.api.HistoricHandCodec;
+import org.apache.log4j.Logger;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+import static java.util.Collections.unmodifiableList;
+
+/**
+ * An append-only file of encoded hands, memory mapped, with a sidecar index file.
+ * <p/>
+ * The data file is created with its full capacity and holds records of
+ * <code>[int length][int crc32][hand encoded by the HistoricHandCodec]</code>, a zero length marks the
+ * end of the records. The index file holds an entry per record with the record position and the
+ * fields hands are searched by, so that a segment can be opened without decoding its hands.
+ * <p/>
+ * Records are written before their index entries. When a segment is opened, index entries that do
+ * not match the data file are dropped and the records after the last valid entry are recovered
+ * from the data file, up to the first record that is truncated or fails its checksum.
+ * <p/>
+ * A segment is either active, and written to, or sealed. Opened segments are always sealed.
+ * This class is not thread safe, see {@link SegmentedHandStore}.
+ */
+class HandSegment {
+
+    private static final Logger log = Logger.getLogger(HandSegment.class);
+
+    static final String DATA_SUFFIX = ".hands";
+
+    static final String INDEX_SUFFIX = ".index";
+
+    private static final int RECORD_HEADER_SIZE = 8;
+
+    private final String name;
+    private final File dataFile;
+    private final File indexFile;
+    private final int capacity;
+
+    private RandomAccessFile file;
+    private MappedByteBuffer buffer;
+    private FileOutputStream indexStream;
+    private DataOutputStream indexOut;
+    private int position;
+
+    private final List<SegmentEntry> entries = new ArrayList<SegmentEntry>();
+    private final Map<Integer, List<SegmentEntry>> entriesByTable = new HashMap<Integer, List<SegmentEntry>>();
+    private final Map<Integer, List<SegmentEntry>> entriesByPlayer = new HashMap<Integer, List<SegmentEntry>>();
+    private long minStartTime = Long.MAX_VALUE;
+    private long maxStartTime = Long.MIN_VALUE;
+    private int deadEntries;
+    private long deadBytes;
+
+    private HandSegment(File directory, String name, int capacity) {
+        this.name = name;
+        this.dataFile = dataFile(directory, name);
+        this.indexFile = indexFile(directory, name);
+        this.capacity = capacity;
+    }
+
+    static File dataFile(File directory, String name) {
+        return new File(directory, name + DATA_SUFFIX);
+    }
+
+    static File indexFile(File directory, String name) {
+        return new File(directory, name + INDEX_SUFFIX);
+    }
+
+    /**
+     * Creates a new, active segment. Existing files with the same name are replaced.
+     *
+     * @param directory segment directory
+     * @param name      segment name, the files are named by it
+     * @param capacity  size of the data file in bytes
+     */
+    static HandSegment create(File directory, String name, int capacity) throws IOException {
+        HandSegment segment = new HandSegment(directory, name, capacity);
+        segment.dataFile.delete();
+        segment.file = new RandomAccessFile(segment.dataFile, "rw");
+        segment.file.setLength(capacity);
+        segment.buffer = segment.file.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+        segment.indexStream = new FileOutputStream(segment.indexFile);
+        segment.indexOut = new DataOutputStream(new BufferedOutputStream(segment.indexStream));
+        return segment;
+    }
+
+    /**
+     * Opens an existing segment, recovering records that are missing from its index.
+     *
+     * @param directory segment directory
+     * @param name      segment name
+     * @return the sealed segment
+     */
+    static HandSegment open(File directory, String name) throws IOException {
+        File data = dataFile(directory, name);
+        HandSegment segment = new HandSegment(directory, name, (int) data.length());
+        segment.file = new RandomAccessFile(data, "r");
+        segment.buffer = segment.file.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, segment.capacity);
+        boolean indexComplete = segment.readIndex();
+        int recovered = segment.recoverRecords();
+        if (recovered > 0 || !indexComplete) {
+            log.warn("Recovered " + recovered + " hands missing from the index of segment " + data);
+            segment.writeIndex();
+        }
+        return segment;
+    }
+
+    /**
+     * Appends a hand.
+     *
+     * @return the index entry of the hand, or null if the segment is full
+     */
+    SegmentEntry append(EncodedHand hand) throws IOException {
+        return append(hand.getId(), hand.getTableId(), hand.getStartTime(), toArray(hand.getPlayerIds()), hand.getData());
+    }
+
+    /**
+     * Appends a hand stored in another segment.
+     *
+     * @return the index entry of the hand in this segment, or null if the segment is full
+     */
+    SegmentEntry copy(SegmentEntry entry) throws IOException {
+        return append(entry.getHandId(), entry.getTableId(), entry.getStartTime(), entry.getPlayerIds(),
+                entry.getSegment().read(entry));
+    }
+
+    private SegmentEntry append(String handId, int tableId, long startTime, int[] playerIds, byte[] data)
+            throws IOException {
+        if (position + RECORD_HEADER_SIZE + data.length > capacity) {
+            return null;
+        }
+        ByteBuffer record = buffer.duplicate();
+        record.position(position);
+        record.putInt(data.length);
+        record.putInt(checksum(data, 0, data.length));
+        record.put(data);
+
+        SegmentEntry entry = new SegmentEntry(this, handId, tableId, startTime, playerIds, position, data.length);
+        writeIndexEntry(indexOut, entry);
+        addEntry(entry);
+        return entry;
+    }
+
+    /**
+     * Reads the encoded hand of an entry of this segment.
+     */
+    byte[] read(SegmentEntry entry) {
+        ByteBuffer record = buffer.duplicate();
+        record.position(entry.getOffset() + RECORD_HEADER_SIZE);
+        byte[] data = new byte[entry.getLength()];
+        record.get(data);
+        return data;
+    }
+
+    /**
+     * Adds the live entries of hands started in the given time range, played by the player at the
+     * table, to the result.
+     */
+    void collect(int tableId, int playerId, long fromTime, long beforeTime, List<SegmentEntry> result) {
+        List<SegmentEntry> byTable = entriesByTable.get(tableId);
+        List<SegmentEntry> byPlayer = entriesByPlayer.get(playerId);
+        if (byTable == null || byPlayer == null) {
+            return;
+        }
+        for (SegmentEntry entry : byTable.size() < byPlayer.size() ? byTable : byPlayer) {
+            if (!entry.isDead() && entry.getStartTime() >= fromTime && entry.getStartTime() < beforeTime
+                    && entry.getTableId() == tableId
+                    && entry.hasPlayer(playerId)) {
+                result.add(entry);
+            }
+        }
+    }
+
+    /**
+     * Marks an entry of this segment as dead, it is dropped when the segment is compacted.
+     */
+    void markDead(SegmentEntry entry) {
+        if (!entry.isDead()) {
+            entry.markDead();
+            deadEntries++;
+            deadBytes += RECORD_HEADER_SIZE + entry.getLength();
+        }
+    }
+
+    /**
+     * Writes the changes of an active segment to disk.
+     */
+    void force() throws IOException {
+        if (indexOut != null) {
+            buffer.force();
+            indexOut.flush();
+            indexStream.getFD().sync();
+        }
+    }
+
+    /**
+     * Writes the segment to disk, after which it can no longer be appended to.
+     */
+    void seal() throws IOException {
+        if (indexOut != null) {
+            force();
+            indexOut.close();
+            indexOut = null;
+            indexStream = null;
+        }
+    }
+
+    /**
+     * Writes the segment to disk and releases its file and memory mapping. The segment can not be read
+     * afterwards.
+     */
+    void close() throws IOException {
+        seal();
+        if (buffer != null) {
+            unmap(buffer);
+            buffer = null;
+        }
+        file.close();
+    }
+
+    /**
+     * Closes the segment and deletes its files.
+     */
+    void delete() throws IOException {
+        close();
+        if (!indexFile.delete() | !dataFile.delete()) {
+            log.warn("Failed deleting files of segment " + dataFile);
+        }
+    }
+
+    String getName() {
+        return name;
+    }
+
+    boolean isSealed() {
+        return indexOut == null;
+    }
+
+    List<SegmentEntry> getEntries() {
+        return unmodifiableList(entries);
+    }
+
+    int getLiveEntries() {
+        return entries.size() - deadEntries;
+    }
+
+    int getDeadEntries() {
+        return deadEntries;
+    }
+
+    /**
+     * @return the bytes used by records of live entries
+     */
+    long getLiveBytes() {
+        return position - deadBytes;
+    }
+
+    int getCapacity() {
+        return capacity;
+    }
+
+    long getMinStartTime() {
+        return minStartTime;
+    }
+
+    long getMaxStartTime() {
+        return maxStartTime;
+    }
+
+    @Override
+    public String toString() {
+        return dataFile.toString();
+    }
+
+    /* -------------------------------------------------------------------
+     *  PRIVATE METHODS
+     * ------------------------------------------------------------------- */
+
+    private void addEntry(SegmentEntry entry) {
+        entries.add(entry);
+        addToIndex(entriesByTable, entry.getTableId(), entry);
+        for (int playerId : entry.getPlayerIds()) {
+            addToIndex(entriesByPlayer, playerId, entry);
+        }
+        minStartTime = Math.min(minStartTime, entry.getStartTime());
+        maxStartTime = Math.max(maxStartTime, entry.getStartTime());
+        position = entry.getOffset() + RECORD_HEADER_SIZE + entry.getLength();
+    }
+
+    private void addToIndex(Map<Integer, List<SegmentEntry>> index, int key, SegmentEntry entry) {
+        List<SegmentEntry> list = index.get(key);
+        if (list == null) {
+            list = new ArrayList<SegmentEntry>();
+            index.put(key, list);
+        }
+        if (list.isEmpty() || list.get(list.size() - 1) != entry) {
+            list.add(entry);
+        }
+    }
+
+    /**
+     * Reads the index file, stopping at the first entry that does not match a record of the data file.
+     *
+     * @return true if all entries of the index file were read
+     */
+    private boolean readIndex() throws IOException {
+        if (!indexFile.exists()) {
+            return false;
+        }
+        DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(indexFile)));
+        try {
+            while (true) {
+                SegmentEntry entry;
+                try {
+                    entry = readIndexEntry(in);
+                } catch (EOFException e) {
+                    // a partially written entry
+                    return false;
+                }
+                if (entry == null) {
+                    return true;
+                }
+                if (entry.getOffset() != position || !isRecord(entry.getOffset(), entry.getLength())) {
+                    return false;
+                }
+                addEntry(entry);
+            }
+        } finally {
+            in.close();
+        }
+    }
+
+    private SegmentEntry readIndexEntry(DataInputStream in) throws IOException {
+        int offset;
+        try {
+            offset = in.readInt();
+        } catch (EOFException e) {
+            return null;
+        }
+        int length = in.readInt();
+        long startTime = in.readLong();
+        int tableId = in.readInt();
+        String handId = in.readUTF();
+        int[] playerIds = new int[in.readUnsignedShort()];
+        for (int i = 0; i < playerIds.length; i++) {
+            playerIds[i] = in.readInt();
+        }
+        return new SegmentEntry(this, handId, tableId, startTime, playerIds, offset, length);
+    }
+
+    private static void writeIndexEntry(DataOutputStream out, SegmentEntry entry) throws IOException {
+        out.writeInt(entry.getOffset());
+        out.writeInt(entry.getLength());
+        out.writeLong(entry.getStartTime());
+        out.writeInt(entry.getTableId());
+        out.writeUTF(entry.getHandId());
+        out.writeShort(entry.getPlayerIds().length);
+        for (int playerId : entry.getPlayerIds()) {
+            out.writeInt(playerId);
+        }
+    }
+
+    private void writeIndex() throws IOException {
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(indexFile)));
+        try {
+            for (SegmentEntry entry : entries) {
+                writeIndexEntry(out, entry);
+            }
+        } finally {
+            out.close();
+        }
+    }
+
+    private boolean isRecord(int offset, int length) {
+        return offset >= 0 && length > 0 && (long) offset + RECORD_HEADER_SIZE + length <= capacity
+                && buffer.getInt(offset) == length;
+    }
+
+    /**
+     * Recovers the records after the last indexed record.
+     *
+     * @return the number of recovered records
+     */
+    private int recoverRecords() {
+        int recovered = 0;
+        while (position + RECORD_HEADER_SIZE <= capacity) {
+            int length = buffer.getInt(position);
+            if (!isRecord(position, length)) {
+                break;
+            }
+            ByteBuffer record = buffer.duplicate();
+            record.position(position + RECORD_HEADER_SIZE);
+            byte[] data = new byte[length];
+            record.get(data);
+            if (buffer.getInt(position + 4) != checksum(data, 0, length)) {
+                log.warn("Checksum mismatch at position " + position + " in segment " + dataFile);
+                break;
+            }
+            EncodedHand hand;
+            try {
+                hand = new EncodedHand(HistoricHandCodec.decode(data));
+            } catch (IllegalArgumentException e) {
+                log.warn("Failed decoding hand at position " + position + " in segment " + dataFile, e);
+                break;
+            }
+            addEntry(new SegmentEntry(this, hand.getId(), hand.getTableId(), hand.getStartTime(),
+                    toArray(hand.getPlayerIds()), position, length));
+            recovered++;
+        }
+        return recovered;
+    }
+
+    /**
+     * Releases a memory mapping right away. Otherwise it is released when the buffer is garbage
+     * collected, which keeps the disk space of deleted segments in use until then. If the JVM does
+     * not allow it, the mapping is left to the garbage collector.
+     */
+    private static void unmap(MappedByteBuffer buffer) {
+        try {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Method invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+            Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+            theUnsafe.setAccessible(true);
+            invokeCleaner.invoke(theUnsafe.get(null), buffer);
+            return;
+        } catch (NoSuchMethodException e) {
+            // before Java 9, the buffer has a cleaner instead
+        } catch (Exception e) {
+            log.debug("Failed unmapping segment buffer, leaving it to the garbage collector.", e);
+            return;
+        }
+        try {
+            Method cleanerMethod = buffer.getClass().getMethod("cleaner");
+            cleanerMethod.setAccessible(true);
+            Object cleaner = cleanerMethod.invoke(buffer);
+            if (cleaner != null) {
+                cleaner.getClass().getMethod("clean").invoke(cleaner);
+            }
+        } catch (Exception e) {
+            log.debug("Failed unmapping segment buffer, leaving it to the garbage collector.", e);
+        }
+    }
+
+    private static int[] toArray(List<Integer> list) {
+        int[] array = new int[list.size()];
+        for (int i = 0; i < array.length; i++) {
+            array[i] = list.get(i);
+        }
+        return array;
+    }
+
+    private static int checksum(byte[] data, int offset, int length) {
+        CRC32 crc = new CRC32();
+        crc.update(data, offset, length);
+        return (int) crc.getValue();
+    }
+}
@@ -0,0 +1,92 @@
+/**
+ * Copyright (C) 2012 Cubeia Ltd <info@cubeia.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.cubeia.poker.handhistory.file;
+
+/**
+ * Index entry for a hand stored in a {@link HandSegment}.
+ */
+class SegmentEntry {
+
+    private final HandSegment segment;
+    private final String handId;
+    private final int tableId;
+    private final long startTime;
+    private final int[] playerIds;
+    private final int offset;
+    private final int length;
+
+    /**
+     * Set when a later hand with the same id has been stored, or when the hand has been removed.
+     */
+    private boolean dead;
+
+    SegmentEntry(HandSegment segment, String handId, int tableId, long startTime, int[] playerIds, int offset, int length) {
+        this.segment = segment;
+        this.handId = handId;
+        this.tableId = tableId;
+        this.startTime = startTime;
+        this.playerIds = playerIds;
+        this.offset = offset;
+        this.length = length;
+    }
+
+    boolean hasPlayer(int playerId) {
+        for (int id : playerIds) {
+            if (id == playerId) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    HandSegment getSegment() {
+        return segment;
+    }
+
+    String getHandId() {
+        return handId;
+    }
+
+    int getTableId() {
+        return tableId;
+    }
+
+    long getStartTime() {
+        return startTime;
+    }
+
+    int[] getPlayerIds() {
+        return playerIds;
+    }
+
+    int getOffset() {
+        return offset;
+    }
+
+    int getLength() {
+        return length;
+    }
+
+    boolean isDead() {
+        return dead;
+    }
+
+    void markDead() {
+        dead = true;
+    }
+}
@@ -0,0 +1,482 @@
+/**
+ * Copyright (C) 2012 Cubeia Ltd <info@cubeia.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.cubeia.poker.handhistory.file;
+
+import com.cubeia.poker.handhistory.api.EncodedHand;
+import com.cubeia.poker.handhistory.api.HistoricHand;
+import com.cubeia.poker.handhistory.api.HistoricHandCodec;
+import org.apache.log4j.Logger;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import static com.cubeia.poker.handhistory.file.HandSegment.DATA_SUFFIX;
+import static com.cubeia.poker.handhistory.file.HandSegment.INDEX_SUFFIX;
+
+/**
+ * Stores hands in a directory of append-only {@link HandSegment}s.
+ * <p/>
+ * Hands are appended to the active segment, a new segment is started when it is full. Hands are
+ * looked up by id, or by table, player and start time through the indexes of the segments, which are
+ * kept in memory. Storing a hand with the id of a stored hand replaces it.
+ * <p/>
+ * Sealed segments are deleted when all their hands are older than the retention time, and
+ * consecutive segments that are partly empty or hold replaced hands are compacted into one. A
+ * compaction is written to temporary files that replace the compacted segments once complete, an
+ * interrupted compaction is rolled back or completed when the store is opened.
+ * <p/>
+ * Appends and lookups are synchronized. Removing expired segments and compacting only hold the lock
+ * to pick the segments and to swap in the result, the files are copied and deleted outside it so
+ * appends are not held up by maintenance. Only one maintenance task runs at a time.
+ */
+public class SegmentedHandStore {
+
+    private static final Logger log = Logger.getLogger(SegmentedHandStore.class);
+
+    private static final String COMPACTING = ".compacting";
+
+    private static final String COMPACTED = ".compacted";
+
+    private static final Comparator<SegmentEntry> LATEST_FIRST = new Comparator<SegmentEntry>() {
+        @Override
+        public int compare(SegmentEntry e1, SegmentEntry e2) {
+            return e1.getStartTime() < e2.getStartTime() ? 1 : (e1.getStartTime() == e2.getStartTime() ? 0 : -1);
+        }
+    };
+
+    private final File directory;
+    private final int segmentCapacity;
+    private final long retentionMillis;
+
+    /**
+     * Segments, oldest first. The active segment, if any, is the last one.
+     */
+    private final List<HandSegment> segments = new ArrayList<HandSegment>();
+    private final Map<String, SegmentEntry> entriesById = new HashMap<String, SegmentEntry>();
+    /**
+     * Held while removing expired segments, compacting or closing, taken before the store itself.
+     */
+    private final Object maintenanceLock = new Object();
+    private HandSegment active;
+    private long nextSequence;
+
+    /**
+     * @param directory       directory of the segment files, created if missing
+     * @param segmentCapacity size of a segment in bytes
+     * @param retentionMillis time hands are kept, zero or less to keep them forever
+     */
+    public SegmentedHandStore(File directory, int segmentCapacity, long retentionMillis) {
+        this.directory = directory;
+        this.segmentCapacity = segmentCapacity;
+        this.retentionMillis = retentionMillis;
+    }
+
+    /**
+     * Opens the segments in the directory.
+     */
+    public synchronized void open() throws IOException {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Failed creating hand history directory " + directory);
+        }
+        finishCompactions();
+        for (Map.Entry<Long, String> segmentName : listSegments().entrySet()) {
+            HandSegment segment = HandSegment.open(directory, segmentName.getValue());
+            segments.add(segment);
+            for (SegmentEntry entry : segment.getEntries()) {
+                putEntry(entry);
+            }
+            nextSequence = segmentName.getKey() + 1;
+        }
+        log.info("Opened " + segments.size() + " hand history segments holding " + entriesById.size()
+                + " hands in " + directory);
+    }
+
+    /**
+     * Stores a hand.
+     *
+     * @throws IllegalArgumentException if the hand has no id or does not fit in a segment
+     */
+    public synchronized void append(EncodedHand hand) throws IOException {
+        if (hand.getId() == null) {
+            throw new IllegalArgumentException("Hand has no id: " + hand);
+        }
+        SegmentEntry entry = active == null ? null : active.append(hand);
+        if (entry == null) {
+            roll();
+            entry = active.append(hand);
+            if (entry == null) {
+                throw new IllegalArgumentException("Hand of " + hand.getData().length
+                        + " bytes does not fit in a segment of " + segmentCapacity + " bytes: " + hand);
+            }
+        }
+        putEntry(entry);
+    }
+
+    /**
+     * Finds the hands a player played at a table started in the given time range, latest first, as seen
+     * by the player.
+     */
+    public synchronized List<HistoricHand> findHands(int tableId, int playerId, long fromTime, long beforeTime, int limit) {
+        List<HistoricHand> hands = new ArrayList<HistoricHand>();
+        for (SegmentEntry entry : findEntries(tableId, playerId, fromTime, beforeTime, limit)) {
+            hands.add(HistoricHandCodec.decodeForPlayer(entry.getSegment().read(entry), playerId));
+        }
+        return hands;
+    }
+
+    /**
+     * Like {@link #findHands(int, int, long, long, int)}, but only decodes the summaries of the hands.
+     */
+    public synchronized List<HistoricHand> findHandSummaries(int tableId, int playerId, long fromTime, long beforeTime,
+                                                             int limit) {
+        List<HistoricHand> hands = new ArrayList<HistoricHand>();
+        for (SegmentEntry entry : findEntries(tableId, playerId, fromTime, beforeTime, limit)) {
+            hands.add(HistoricHandCodec.decodeSummary(entry.getSegment().read(entry)));
+        }
+        return hands;
+    }
+
+    /**
+     * @return the hand with the given id as seen by the player, or null if not found or the player did not play it
+     */
+    public synchronized HistoricHand findHand(String handId, int playerId) {
+        SegmentEntry entry = entriesById.get(handId);
+        if (entry == null || !entry.hasPlayer(playerId)) {
+            return null;
+        }
+        return HistoricHandCodec.decodeForPlayer(entry.getSegment().read(entry), playerId);
+    }
+
+    /**
+     * Writes the hands stored since the last call to disk.
+     */
+    public synchronized void sync() throws IOException {
+        if (active != null) {
+            active.force();
+        }
+    }
+
+    /**
+     * Deletes the sealed segments holding only hands that started before the retention time.
+     *
+     * @param now current time in milliseconds
+     * @return the number of deleted segments
+     */
+    public int removeExpired(long now) throws IOException {
+        if (retentionMillis <= 0) {
+            return 0;
+        }
+        synchronized (maintenanceLock) {
+            List<HandSegment> expired = removeExpiredSegments(now);
+            for (HandSegment segment : expired) {
+                segment.delete();
+            }
+            return expired.size();
+        }
+    }
+
+    /**
+     * Compacts consecutive sealed segments whose live hands fit in one segment, and segments where at
+     * least a quarter of the hands have been replaced.
+     *
+     * @return the number of segments that were compacted
+     */
+    public int compact() throws IOException {
+        synchronized (maintenanceLock) {
+            int compacted = 0;
+            for (List<HandSegment> group : findCompactionGroups()) {
+                compacted += compact(group);
+            }
+            return compacted;
+        }
+    }
+
+    /**
+     * Writes the hands to disk and closes the segments, waiting for maintenance in progress.
+     */
+    public void close() throws IOException {
+        synchronized (maintenanceLock) {
+            synchronized (this) {
+                for (HandSegment segment : segments) {
+                    segment.close();
+                }
+                segments.clear();
+                entriesById.clear();
+                active = null;
+            }
+        }
+    }
+
+    public synchronized int getSegmentCount() {
+        return segments.size();
+    }
+
+    public synchronized int getHandCount() {
+        return entriesById.size();
+    }
+
+    /* -------------------------------------------------------------------
+     *  PRIVATE METHODS
+     * ------------------------------------------------------------------- */
+
+    private static String segmentName(long sequence) {
+        return String.format("%016d", sequence);
+    }
+
+    /**
+     * @return the names of the segments in the directory, by sequence number
+     */
+    private SortedMap<Long, String> listSegments() {
+        SortedMap<Long, String> names = new TreeMap<Long, String>();
+        for (String fileName : directory.list()) {
+            if (fileName.endsWith(DATA_SUFFIX)) {
+                String name = fileName.substring(0, fileName.length() - DATA_SUFFIX.length());
+                if (name.matches("\\d+")) {
+                    names.put(Long.parseLong(name), name);
+                }
+            }
+        }
+        return names;
+    }
+
+    private void roll() throws IOException {
+        if (active != null) {
+            active.seal();
+        }
+        active = HandSegment.create(directory, segmentName(nextSequence++), segmentCapacity);
+        segments.add(active);
+    }
+
+    private void putEntry(SegmentEntry entry) {
+        SegmentEntry replaced = entriesById.put(entry.getHandId(), entry);
+        if (replaced != null) {
+            replaced.getSegment().markDead(replaced);
+        }
+    }
+
+    /**
+     * Removes the expired segments from the store, their files are deleted by the caller.
+     */
+    private synchronized List<HandSegment> removeExpiredSegments(long now) {
+        List<HandSegment> expired = new ArrayList<HandSegment>();
+        for (HandSegment segment : segments) {
+            if (segment.isSealed() && segment.getMaxStartTime() < now - retentionMillis) {
+                expired.add(segment);
+            }
+        }
+        for (HandSegment segment : expired) {
+            removeEntries(segment);
+            segments.remove(segment);
+        }
+        return expired;
+    }
+
+    private void removeEntries(HandSegment segment) {
+        for (SegmentEntry entry : segment.getEntries()) {
+            if (entriesById.get(entry.getHandId()) == entry) {
+                entriesById.remove(entry.getHandId());
+            }
+        }
+    }
+
+    private List<SegmentEntry> findEntries(int tableId, int playerId, long fromTime, long beforeTime, int limit) {
+        List<SegmentEntry> result = new ArrayList<SegmentEntry>();
+        if (limit <= 0) {
+            return result;
+        }
+        for (int i = segments.size() - 1; i >= 0; i--) {
+            HandSegment segment = segments.get(i);
+            if (segment.getMaxStartTime() < fromTime || segment.getMinStartTime() >= beforeTime) {
+                continue;
+            }
+            if (result.size() >= limit) {
+                trim(result, limit);
+                if (result.get(limit - 1).getStartTime() >= segment.getMaxStartTime()) {
+                    // the segment holds no hand later than the ones found
+                    continue;
+                }
+            }
+            segment.collect(tableId, playerId, fromTime, beforeTime, result);
+        }
+        trim(result, limit);
+        return result;
+    }
+
+    private void trim(List<SegmentEntry> entries, int limit) {
+        Collections.sort(entries, LATEST_FIRST);
+        while (entries.size() > limit) {
+            entries.remove(entries.size() - 1);
+        }
+    }
+
+    /**
+     * @return groups of consecutive sealed segments whose live hands fit in one segment and that are
+     *         worth compacting
+     */
+    private synchronized List<List<HandSegment>> findCompactionGroups() {
+        List<List<HandSegment>> groups = new ArrayList<List<HandSegment>>();
+        List<HandSegment> group = new ArrayList<HandSegment>();
+        long groupBytes = 0;
+        for (HandSegment segment : segments) {
+            if (!segment.isSealed()) {
+                break;
+            }
+            if (groupBytes + segment.getLiveBytes() > segmentCapacity) {
+                addCompactionGroup(groups, group);
+                group = new ArrayList<HandSegment>();
+                groupBytes = 0;
+            }
+            group.add(segment);
+            groupBytes += segment.getLiveBytes();
+        }
+        addCompactionGroup(groups, group);
+        return groups;
+    }
+
+    private void addCompactionGroup(List<List<HandSegment>> groups, List<HandSegment> group) {
+        if (!group.isEmpty() && isWorthCompacting(group)) {
+            groups.add(group);
+        }
+    }
+
+    private boolean isWorthCompacting(List<HandSegment> group) {
+        if (group.size() > 1) {
+            return true;
+        }
+        HandSegment segment = group.get(0);
+        return segment.getDeadEntries() > 0 && segment.getDeadEntries() * 4 >= segment.getEntries().size();
+    }
+
+    /**
+     * Replaces consecutive segments with one segment holding their live hands. The new segment is
+     * written to files named after the first and last segment, marked as compacting while written and
+     * compacted when complete. It is written without holding the lock, sealed segments are only read.
+     */
+    private int compact(List<HandSegment> group) throws IOException {
+        String name = group.get(0).getName();
+        String compactionName = name + "-" + group.get(group.size() - 1).getName();
+        HandSegment target = HandSegment.create(directory, compactionName + COMPACTING, segmentCapacity);
+        try {
+            for (SegmentEntry entry : getLiveEntries(group)) {
+                if (target.copy(entry) == null) {
+                    throw new IOException("Hands of segments " + group + " do not fit in one segment");
+                }
+            }
+            target.close();
+            // the data file is renamed first, as it holds all hands the index can be recovered from
+            rename(compactionName + COMPACTING, compactionName + COMPACTED, DATA_SUFFIX);
+            rename(compactionName + COMPACTING, compactionName + COMPACTED, INDEX_SUFFIX);
+        } catch (IOException e) {
+            target.delete();
+            throw e;
+        }
+        compactionWritten(group);
+        replaceCompacted(group, name, compactionName);
+        return group.size();
+    }
+
+    private synchronized List<SegmentEntry> getLiveEntries(List<HandSegment> group) {
+        List<SegmentEntry> live = new ArrayList<SegmentEntry>();
+        for (HandSegment segment : group) {
+            for (SegmentEntry entry : segment.getEntries()) {
+                if (!entry.isDead()) {
+                    live.add(entry);
+                }
+            }
+        }
+        return live;
+    }
+
+    /**
+     * Called when a compaction has been written, before the compacted segments are replaced.
+     */
+    void compactionWritten(List<HandSegment> group) {
+    }
+
+    /**
+     * Replaces the segments of a written compaction with the compacted segment. Hands that were replaced
+     * while the compaction was written are dead in the compacted segment.
+     */
+    private synchronized void replaceCompacted(List<HandSegment> group, String name, String compactionName)
+            throws IOException {
+        for (HandSegment segment : group) {
+            segment.delete();
+        }
+        rename(compactionName + COMPACTED, name, DATA_SUFFIX);
+        rename(compactionName + COMPACTED, name, INDEX_SUFFIX);
+
+        HandSegment compacted = HandSegment.open(directory, name);
+        int index = segments.indexOf(group.get(0));
+        segments.removeAll(group);
+        segments.add(index, compacted);
+        for (SegmentEntry entry : compacted.getEntries()) {
+            SegmentEntry current = entriesById.get(entry.getHandId());
+            if (current != null && group.contains(current.getSegment())) {
+                entriesById.put(entry.getHandId(), entry);
+            } else {
+                compacted.markDead(entry);
+            }
+        }
+        log.debug("Compacted segments " + group + " into " + compacted + " holding " + compacted.getLiveEntries()
+                + " hands");
+    }
+
+    private void rename(String from, String to, String suffix) throws IOException {
+        File source = new File(directory, from + suffix);
+        if (source.exists() && !source.renameTo(new File(directory, to + suffix))) {
+            throw new IOException("Failed renaming " + source + " to " + to + suffix);
+        }
+    }
+
+    /**
+     * Deletes the files of unfinished compactions and replaces the compacted segments of finished ones.
+     */
+    private void finishCompactions() throws IOException {
+        for (String fileName : directory.list()) {
+            if (fileName.contains(COMPACTING)) {
+                log.info("Deleting unfinished compaction " + fileName);
+                new File(directory, fileName).delete();
+            }
+        }
+        for (String fileName : directory.list()) {
+            if (fileName.endsWith(COMPACTED + DATA_SUFFIX)) {
+                String compactionName = fileName.substring(0, fileName.length() - (COMPACTED + DATA_SUFFIX).length());
+                String[] range = compactionName.split("-");
+                long first = Long.parseLong(range[0]);
+                long last = Long.parseLong(range[1]);
+                for (Map.Entry<Long, String> segment : listSegments().entrySet()) {
+                    if (segment.getKey() >= first && segment.getKey() <= last) {
+                        HandSegment.dataFile(directory, segment.getValue()).delete();
+                        HandSegment.indexFile(directory, segment.getValue()).delete();
+                    }
+                }
+                log.info("Finishing compaction of segments " + range[0] + " to " + range[1]);
+                rename(compactionName + COMPACTED, range[0], DATA_SUFFIX);
+                rename(compactionName + COMPACTED, range[0], INDEX_SUFFIX);
+            }
+        }
+    }
+}
@@ -0,0 +1,316 @@
+/**
+ * Copyright (C) 2012 Cubeia Ltd <info@cubeia.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.cubeia.poker.handhistory.file;
+
+import com.cubeia.poker.handhistory.api.EncodedHand;
+import com.cubeia.poker.handhistory.api.GameCard;
+import com.cubeia.poker.handhistory.api.HandHistoryEvent;
+import com.cubeia.poker.handhistory.api.HistoricHand;
+import com.cubeia.poker.handhistory.api.Player;
+import com.cubeia.poker.handhistory.api.PlayerCardsDealt;
+import com.cubeia.poker.handhistory.api.Table;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class SegmentedHandStoreTest {
+
+    private static final int SEGMENT_CAPACITY = 1024;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File directory;
+
+    private SegmentedHandStore store;
+
+    @Before
+    public void setup() throws IOException {
+        directory = folder.newFolder("hands");
+        store = open(0);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        store.close();
+    }
+
+    @Test
+    public void testFindHands() throws IOException {
+        store.append(new EncodedHand(createHand("a", 1, 100, 10, 11)));
+        store.append(new EncodedHand(createHand("b", 1, 300, 10)));
+        store.append(new EncodedHand(createHand("c", 2, 400, 10, 11)));
+        store.append(new EncodedHand(createHand("d", 1, 200, 11, 10)));
+
+        assertEquals(ids("b", "d", "a"), ids(store.findHands(1, 10, 0, Long.MAX_VALUE, 10)));
+        assertEquals(ids("d", "a"), ids(store.findHands(1, 11, 0, Long.MAX_VALUE, 10)));
+        assertEquals(ids("b", "d"), ids(store.findHands(1, 10, 0, Long.MAX_VALUE, 2)));
+        assertEquals(ids("b", "d"), ids(store.findHands(1, 10, 200, Long.MAX_VALUE, 10)));
+        assertEquals(ids(), ids(store.findHands(3, 10, 0, Long.MAX_VALUE, 10)));
+        assertEquals(ids(), ids(store.findHands(1, 12, 0, Long.MAX_VALUE, 10)));
+
+        // paged by start time
+        assertEquals(ids("d", "a"), ids(store.findHands(1, 10, 0, 300, 10)));
+        assertEquals(ids("a"), ids(store.findHands(1, 10, 0, 200, 10)));
+
+        HistoricHand hand = store.findHand("d", 10);
+        assertEquals(createHand("d", 1, 200, 11, 10), hand);
+        assertNull(store.findHand("e", 10));
+        assertNull(store.findHand("d", 12));
+
+        List<HistoricHand> summaries = store.findHandSummaries(1, 10, 0, Long.MAX_VALUE, 1);
+        assertEquals(ids("b"), ids(summaries));
+        assertEquals(0, summaries.get(0).getSeats().size());
+    }
+
+    @Test
+    public void testHandsAreSeenByPlayer() throws IOException {
+        HistoricHand hand = createHand("a", 1, 100, 10, 11);
+        for (int playerId : new int[] {10, 11}) {
+            PlayerCardsDealt dealt = new PlayerCardsDealt();
+            dealt.setPlayerId(playerId);
+            dealt.setCards(new ArrayList<GameCard>(Arrays.asList(new GameCard(GameCard.Suit.CLUBS, GameCard.Rank.ACE))));
+            hand.getEvents().add(dealt);
+        }
+        store.append(new EncodedHand(hand));
+
+        List<HandHistoryEvent> events = store.findHand("a", 11).getEvents();
+        assertEquals(0, ((PlayerCardsDealt) events.get(0)).getCards().size());
+        assertEquals(1, ((PlayerCardsDealt) events.get(1)).getCards().size());
+
+        events = store.findHands(1, 10, 0, Long.MAX_VALUE, 1).get(0).getEvents();
+        assertEquals(1, ((PlayerCardsDealt) events.get(0)).getCards().size());
+        assertEquals(0, ((PlayerCardsDealt) events.get(1)).getCards().size());
+    }
+
+    @Test
+    public void testRollsSegmentsWhenFull() throws IOException {
+        for (int i = 0; i < 100; i++) {
+            store.append(new EncodedHand(createHand("hand-" + i, 1, i, 10)));
+        }
+        assertTrue(store.getSegmentCount() > 1);
+        assertEquals(100, store.getHandCount());
+        assertEquals(ids("hand-99", "hand-98", "hand-97"), ids(store.findHands(1, 10, 0, Long.MAX_VALUE, 3)));
+        assertEquals(ids("hand-2", "hand-1", "hand-0"), ids(store.findHands(1, 10, 0, Long.MAX_VALUE, 100)).subList(97, 100));
+    }
+
+    @Test
+    public void testReplacesHandWithSameId() throws IOException {
+        store.append(new EncodedHand(createHand("a", 1, 100, 10)));
+        store.append(new EncodedHand(createHand("a", 1, 200, 10)));
+
+        assertEquals(1, store.getHandCount());
+        assertEquals(200, store.findHand("a", 10).getStartTime());
+        assertEquals(1, store.findHands(1, 10, 0, Long.MAX_VALUE, 10).size());
+    }
+
+    @Test
+    public void testReopen() throws IOException {
+        for (int i = 0; i < 30; i++) {
+            store.append(new EncodedHand(createHand("hand-" + i, 1, i, 10)));
+        }
+        int segments = store.getSegmentCount();
+        store.close();
+
+        store = open(0);
+        assertEquals(segments, store.getSegmentCount());
+        assertEquals(30, store.getHandCount());
+        assertEquals(ids("hand-29", "hand-28"), ids(store.findHands(1, 10, 0, Long.MAX_VALUE, 2)));
+
+        store.append(new EncodedHand(createHand("hand-30", 1, 30, 10)));
+        assertEquals(segments + 1, store.getSegmentCount());
+        assertEquals(ids("hand-30", "hand-29"), ids(store.findHands(1, 10, 0, Long.MAX_VALUE, 2)));
+    }
+
+    @Test
+    public void testRecoversHandsMissingFromIndex() throws IOException {
+        store.append(new EncodedHand(createHand("a", 1, 100, 10)));
+        store.append(new EncodedHand(createHand("b", 1, 200, 10)));
+        store.append(new EncodedHand(createHand("c", 1, 300, 10)));
+        store.close();
+
+        // cut the index in the middle of the second entry
+        File index = HandSegment.indexFile(directory, "0000000000000000");
+        RandomAccessFile file = new RandomAccessFile(index, "rw");
+        file.setLength(file.length() / 2);
+        file.close();
+
+        store = open(0);
+        assertEquals(ids("c", "b", "a"), ids(store.findHands(1, 10, 0, Long.MAX_VALUE, 10)));
+        store.close();
+
+        // the rewritten index is used when opened again
+        store = open(0);
+        assertEquals(ids("c", "b", "a"), ids(store.findHands(1, 10, 0, Long.MAX_VALUE, 10)));
+    }
+
+    @Test
+    public void testIgnoresCorruptRecord() throws IOException {
+        EncodedHand a = new EncodedHand(createHand("a", 1, 100, 10));
+        EncodedHand b = new EncodedHand(createHand("b", 1, 200, 10));
+        store.append(a);
+        store.append(b);
+        store.close();
+
+        assertTrue(HandSegment.indexFile(directory, "0000000000000000").delete());
+        RandomAccessFile file = new RandomAccessFile(HandSegment.dataFile(directory, "0000000000000000"), "rw");
+        int lastByte = 8 + a.getData().length + 8 + b.getData().length - 1;
+        file.seek(lastByte);
+        int value = file.read();
+        file.seek(lastByte);
+        file.write(value ^ 0xff);
+        file.close();
+
+        store = open(0);
+        assertEquals(ids("a"), ids(store.findHands(1, 10, 0, Long.MAX_VALUE, 10)));
+    }
+
+    @Test
+    public void testRemoveExpired() throws IOException {
+        store.close();
+        store = open(1000);
+        for (int i = 0; i < 100; i++) {
+            store.append(new EncodedHand(createHand("old-" + i, 1, 100, 10)));
+        }
+        for (int i = 0; i < 20; i++) {
+            store.append(new EncodedHand(createHand("new-" + i, 1, 5000, 10)));
+        }
+        int segments = store.getSegmentCount();
+
+        int removed = store.removeExpired(3000);
+        assertTrue(removed > 0);
+        assertEquals(segments - removed, store.getSegmentCount());
+        assertNull(store.findHand("old-0", 10));
+        assertEquals(20, store.findHands(1, 10, 5000, Long.MAX_VALUE, 100).size());
+
+        assertEquals(0, store.removeExpired(5500));
+    }
+
+    @Test
+    public void testCompact() throws IOException {
+        for (int round = 0; round < 3; round++) {
+            store.append(new EncodedHand(createHand("hand-" + round, 1, round, 10)));
+            store.close();
+            store = open(0);
+        }
+        store.append(new EncodedHand(createHand("hand-0", 1, 10, 10)));
+        assertEquals(4, store.getSegmentCount());
+
+        assertEquals(3, store.compact());
+        assertEquals(2, store.getSegmentCount());
+        assertEquals(ids("hand-0", "hand-2", "hand-1"), ids(store.findHands(1, 10, 0, Long.MAX_VALUE, 10)));
+        store.close();
+
+        store = open(0);
+        assertEquals(2, store.getSegmentCount());
+        assertEquals(ids("hand-0", "hand-2", "hand-1"), ids(store.findHands(1, 10, 0, Long.MAX_VALUE, 10)));
+
+        // the segment that was active is sealed when opened again
+        assertEquals(2, store.compact());
+        assertEquals(1, store.getSegmentCount());
+        assertEquals(ids("hand-0", "hand-2", "hand-1"), ids(store.findHands(1, 10, 0, Long.MAX_VALUE, 10)));
+    }
+
+    @Test
+    public void testHandReplacedWhileCompactingIsNotCompacted() throws IOException {
+        for (int round = 0; round < 2; round++) {
+            store.append(new EncodedHand(createHand("hand-" + round, 1, round, 10)));
+            store.close();
+            store = open(0);
+        }
+        store.close();
+        store = new SegmentedHandStore(directory, SEGMENT_CAPACITY, 0) {
+            @Override
+            void compactionWritten(List<HandSegment> group) {
+                // the compaction is written without holding the store
+                assertFalse(Thread.holdsLock(this));
+                try {
+                    append(new EncodedHand(createHand("hand-0", 1, 10, 10)));
+                } catch (IOException e) {
+                    throw new AssertionError(e);
+                }
+            }
+        };
+        store.open();
+
+        assertEquals(2, store.compact());
+        assertEquals(2, store.getHandCount());
+        assertEquals(ids("hand-0", "hand-1"), ids(store.findHands(1, 10, 0, Long.MAX_VALUE, 10)));
+        assertEquals(10, store.findHand("hand-0", 10).getStartTime());
+    }
+
+    @Test
+    public void testDeletesUnfinishedCompaction() throws IOException {
+        store.close();
+        File unfinished = new File(directory, "0000000000000000-0000000000000001.compacting.hands");
+        assertTrue(unfinished.createNewFile());
+
+        store = open(0);
+        assertFalse(unfinished.exists());
+    }
+
+    private SegmentedHandStore open(long retentionMillis) throws IOException {
+        SegmentedHandStore store = new SegmentedHandStore(directory, SEGMENT_CAPACITY, retentionMillis);
+        store.open();
+        return store;
+    }
+
+    private HistoricHand createHand(String id, int tableId, long startTime, int... playerIds) {
+        HistoricHand hand = new HistoricHand(id);
+        Table table = new Table();
+        table.setTableId(tableId);
+        hand.setTable(table);
+        hand.setStartTime(startTime);
+        hand.setEndTime(startTime + 10);
+        for (int i = 0; i < playerIds.length; i++) {
+            hand.getSeats().add(new Player(playerIds[i], i, new BigDecimal("10.00"), "player" + playerIds[i]));
+        }
+        return hand;
+    }
+
+    private List<String> ids(String... ids) {
+        List<String> list = new ArrayList<String>();
+        for (String id : ids) {
+            list.add(id);
+        }
+        return list;
+    }
+
+    private List<String> ids(List<HistoricHand> hands) {
+        List<String> list = new ArrayList<String>();
+        for (HistoricHand hand : hands) {
+            list.add(hand.getId());
+        }
+        return list;
+    }
+}
@@ -26,9 +26,25 @@ public interface HandHistoryProviderService extends Contract {
 
     public String getHandIdsAsJson(int tableId, int playerId, int count, long time);
 
+    /**
+     * As {@link #getHandIdsAsJson(int, int, int, long)}, but only hands started before the given
+     * cursor are included. The start time of the last hand of a page is the cursor of the next page.
+     */
+    public String getHandIdsAsJson(int tableId, int playerId, int count, long time, long before);
+
     public String getHandAsJson(String handId, int playerId);
 
     public String getHandsAsJson(int tableId, int playerId, int count, long time);
 
+    /**
+     * As {@link #getHandsAsJson(int, int, int, long)}, but only hands started before the given cursor.
+     */
+    public String getHandsAsJson(int tableId, int playerId, int count, long time, long before);
+
     public String getHandSummariesAsJson(int tableId, int playerId, int count, long time);
+
+    /**
+     * As {@link #getHandSummariesAsJson(int, int, int, long)}, but only hands started before the given cursor.
+     */
+    public String getHandSummariesAsJson(int tableId, int playerId, int count, long time, long before);
 }
\ No newline at end of file
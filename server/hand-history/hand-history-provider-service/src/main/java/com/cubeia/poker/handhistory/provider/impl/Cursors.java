@@ -0,0 +1,53 @@
+/**
+ * Copyright (C) 2012 Cubeia Ltd <info@cubeia.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package com.cubeia.poker.handhistory.provider.impl;
+
+import com.google.code.morphia.query.MorphiaIterator;
+import org.apache.log4j.Logger;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Iterator;
+
+/**
+ * Closes the database cursors behind hand iterators. A cursor that is not read to its end stays open
+ * on the database until it times out, which happens whenever a page limit stops reading early.
+ */
+class Cursors {
+
+    private static final Logger log = Logger.getLogger(Cursors.class);
+
+    private Cursors() {
+    }
+
+    /**
+     * Closes the cursor of a database iterator, or an iterator holding cursors. Other iterators are left alone.
+     */
+    static void close(Iterator<?> iterator) {
+        if (iterator instanceof MorphiaIterator) {
+            ((MorphiaIterator<?, ?>) iterator).close();
+        } else if (iterator instanceof Closeable) {
+            try {
+                ((Closeable) iterator).close();
+            } catch (IOException e) {
+                log.warn("Failed closing hand history cursor.", e);
+            }
+        }
+    }
+}
@@ -30,61 +30,114 @@ import com.cubeia.games.poker.common.mongo.DatabaseStorageConfiguration;
 import com.cubeia.games.poker.common.mongo.MongoStorage;
 import com.cubeia.games.poker.routing.service.io.protocol.HandHistoryProviderRequestHand;
 import com.cubeia.games.poker.routing.service.io.protocol.HandHistoryProviderRequestHandIds;
+import com.cubeia.games.poker.routing.service.io.protocol.HandHistoryProviderRequestHandIdsBefore;
 import com.cubeia.games.poker.routing.service.io.protocol.HandHistoryProviderRequestHandSummaries;
+import com.cubeia.games.poker.routing.service.io.protocol.HandHistoryProviderRequestHandSummariesBefore;
 import com.cubeia.games.poker.routing.service.io.protocol.HandHistoryProviderRequestHands;
+import com.cubeia.games.poker.routing.service.io.protocol.HandHistoryProviderRequestHandsBefore;
 import com.cubeia.games.poker.routing.service.io.protocol.HandHistoryProviderResponseHand;
 import com.cubeia.games.poker.routing.service.io.protocol.HandHistoryProviderResponseHandIds;
 import com.cubeia.games.poker.routing.service.io.protocol.HandHistoryProviderResponseHandSummaries;
 import com.cubeia.games.poker.routing.service.io.protocol.HandHistoryProviderResponseHands;
 import com.cubeia.games.poker.routing.service.io.protocol.ProtocolObjectFactory;
+import com.cubeia.poker.handhistory.api.EncodedHand;
+import com.cubeia.poker.handhistory.api.HandHistoryCollectorService;
 import com.cubeia.poker.handhistory.api.HandHistoryEvent;
+import com.cubeia.poker.handhistory.api.HandHistoryPersistenceService;
+import com.cubeia.poker.handhistory.api.HandHistorySource;
 import com.cubeia.poker.handhistory.api.HistoricHand;
 import com.cubeia.poker.handhistory.api.PlayerCardsDealt;
+import com.cubeia.poker.handhistory.api.RecentHandsCache;
 import com.cubeia.poker.handhistory.provider.api.HandHistoryProviderService;
 import com.google.code.morphia.Key;
 import com.google.code.morphia.query.Query;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
+import com.google.gson.JsonIOException;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonSerializationContext;
 import com.google.gson.JsonSerializer;
+import com.google.gson.stream.JsonWriter;
 import com.mongodb.BasicDBObject;
 import org.apache.log4j.Logger;
 
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.StringWriter;
 import java.lang.reflect.Type;
 import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
 
+/**
+ * Provides the hand histories of players. Recently finished hands are read from the cache of the
+ * collector service when it holds all requested hands. Other hands are read from the hand history
+ * persistence service if it is a {@link HandHistorySource}, otherwise from the database.
+ */
 public class HandHistoryProviderServiceImpl implements HandHistoryProviderService, Service, RoutableService {
 
     private static final Logger log = Logger.getLogger(HandHistoryProviderServiceImpl.class);
     public static final int MAX_HANDS = 500;
     public static final int MAX_HAND_IDS = 500;
 
+    /**
+     * No paging cursor, all hands matching the count and time are included.
+     */
+    public static final long NO_CURSOR = 0L;
+
     private ServiceRouter router;
     private MongoStorage mongoStorage;
     private DatabaseStorageConfiguration configuration;
+    private HandHistorySource handSource;
+    private RecentHandsCache recentHands;
 
     @Override
     public String getHandIdsAsJson(int tableId, int playerId, int count, long time) {
-        List<Key<HistoricHand>> resultList = getHandIds(tableId, playerId, count, time);
+        return getHandIdsAsJson(tableId, playerId, count, time, NO_CURSOR);
+    }
+
+    @Override
+    public String getHandIdsAsJson(int tableId, int playerId, int count, long time, long before) {
+        List<Key<HistoricHand>> resultList = getHandIds(tableId, playerId, count, time, before);
         return convertToJson(resultList);
     }
 
     public List<Key<HistoricHand>> getHandIds(int tableId, int playerId, int count, long time) {
-        log.debug("GetHandIds request data - TableId: " + tableId + " PlayerId: " + playerId + " Count: " + count + " Time: " + time);
-        List<Key<HistoricHand>> resultList;
-        Query<HistoricHand> query = this.createHistoricHandQuery(playerId);
-        query.field("table.tableId").equal(tableId);
-        if (count > 0) {
-            if (count > MAX_HAND_IDS) {
-                count = MAX_HAND_IDS;
-            }
+        return getHandIds(tableId, playerId, count, time, NO_CURSOR);
+    }
 
-            resultList = query.order("-startTime").limit(count).asKeyList();
+    public List<Key<HistoricHand>> getHandIds(int tableId, int playerId, int count, long time, long before) {
+        log.debug("GetHandIds request data - TableId: " + tableId + " PlayerId: " + playerId + " Count: " + count + " Time: " + time + " Before: " + before);
+        int limit = getLimit(count, MAX_HAND_IDS);
+
+        Iterator<HistoricHand> hands;
+        List<HistoricHand> cached = findCachedHandSummaries(tableId, playerId, count, time, before, limit);
+        if (cached != null) {
+            hands = cached.iterator();
+        } else if (handSource != null) {
+            hands = handSource.findHandSummaries(tableId, playerId, getFromTime(count, time), getBeforeTime(before), limit).iterator();
         } else {
-            query.field("startTime").greaterThanOrEq(time);
-            resultList = query.order("-startTime").limit(MAX_HAND_IDS).asKeyList();
+            Query<EncodedHand> query = createEncodedHandQuery(tableId, playerId, count, time, before).retrievedFields(true, "startTime");
+            Iterator<HistoricHand> encodedHands = new DecodingIterator<EncodedHand>(query.limit(limit).fetch().iterator()) {
+                @Override
+                protected HistoricHand decode(EncodedHand encoded) {
+                    HistoricHand hand = new HistoricHand(encoded.getId());
+                    hand.setStartTime(encoded.getStartTime());
+                    return hand;
+                }
+            };
+            Query<HistoricHand> legacyQuery = createHistoricHandQuery(tableId, playerId, count, time, before).retrievedFields(true, "startTime");
+            hands = new LatestFirstHandIterator(encodedHands, legacyQuery.limit(limit).fetch().iterator(), limit);
+        }
+
+        List<Key<HistoricHand>> resultList = new ArrayList<Key<HistoricHand>>();
+        try {
+            while (hands.hasNext()) {
+                resultList.add(new Key<HistoricHand>(HistoricHand.class, hands.next().getId()));
+            }
+        } finally {
+            Cursors.close(hands);
         }
         return resultList;
     }
@@ -97,81 +150,202 @@ public class HandHistoryProviderServiceImpl implements HandHistoryProviderServic
 
     public List<HistoricHand> getHand(String handId, int playerId) {
         log.debug("GetHand request data - HandId: " + handId + " PlayerId: " + playerId);
-        Query<HistoricHand> query = this.createHistoricHandQuery(playerId);
-
-        query.field("id").equal(handId);
+        List<HistoricHand> hands = new ArrayList<HistoricHand>();
+        HistoricHand cached = recentHands == null ? null : recentHands.findHand(handId, playerId);
+        if (cached != null) {
+            hands.add(cached);
+            return hands;
+        }
+        if (handSource != null) {
+            HistoricHand hand = handSource.findHand(handId, playerId);
+            if (hand != null) {
+                hands.add(hand);
+            }
+            return hands;
+        }
 
-        return this.filterHistoricHand(query.asList(), playerId);
+        Query<EncodedHand> encodedQuery = mongoStorage.createQuery(EncodedHand.class);
+        encodedQuery.field("id").equal(handId);
+        encodedQuery.field("playerIds").equal(playerId);
+        for (EncodedHand encoded : encodedQuery.retrievedFields(true, "data").asList()) {
+            hands.add(encoded.decodeForPlayer(playerId));
+        }
+        if (hands.isEmpty()) {
+            Query<HistoricHand> query = this.createHistoricHandQuery(playerId);
+            query.field("id").equal(handId);
+            for (HistoricHand hand : query.asList()) {
+                hands.add(filterHistoricHand(hand, playerId));
+            }
+        }
+        return hands;
     }
 
-    private List<HistoricHand> filterHistoricHand(List<HistoricHand> list, int playerId) {
-        for(HistoricHand h : list) {
-            List<HandHistoryEvent> events = h.getEvents();
-            for(HandHistoryEvent e: events) {
-                if(e instanceof PlayerCardsDealt) {
-                    PlayerCardsDealt playerCardsDealt = (PlayerCardsDealt) e;
-                    if(playerId != playerCardsDealt.getPlayerId()) {
-                        playerCardsDealt.getCards().clear();
-                    }
+    /**
+     * Removes the cards dealt to other players from a hand stored as a plain document.
+     * Encoded hands are decoded without them, see {@link EncodedHand#decodeForPlayer(int)}.
+     */
+    private HistoricHand filterHistoricHand(HistoricHand hand, int playerId) {
+        for (HandHistoryEvent e : hand.getEvents()) {
+            if (e instanceof PlayerCardsDealt) {
+                PlayerCardsDealt playerCardsDealt = (PlayerCardsDealt) e;
+                if (playerId != playerCardsDealt.getPlayerId()) {
+                    playerCardsDealt.getCards().clear();
                 }
             }
         }
-        return list;
+        return hand;
     }
 
     @Override
     public String getHandsAsJson(int tableId, int playerId, int count, long time) {
-        List<HistoricHand> resultList = getHands(tableId, playerId, count, time);
-        return convertToJson(resultList);
+        return getHandsAsJson(tableId, playerId, count, time, NO_CURSOR);
+    }
+
+    @Override
+    public String getHandsAsJson(int tableId, int playerId, int count, long time, long before) {
+        return convertToJson(findHands(tableId, playerId, count, time, before));
     }
 
     public List<HistoricHand> getHands(int tableId, int playerId, int count, long time) {
-        log.debug("GetHands request data - TableId: " + tableId + " PlayerId: " + playerId + " Count: " + count + " Time: " + time);
+        return getHands(tableId, playerId, count, time, NO_CURSOR);
+    }
 
-        List<HistoricHand> resultList = null;
-        if (count > 0) {
-            if (count > MAX_HANDS) {
-                count = MAX_HANDS;
-            }
-            Query<HistoricHand> query = this.createHistoricHandQuery(playerId);
-            query.field("table.tableId").equal(tableId);
-            resultList = query.order("-startTime").limit(count).asList();
+    public List<HistoricHand> getHands(int tableId, int playerId, int count, long time, long before) {
+        return toList(findHands(tableId, playerId, count, time, before));
+    }
 
-        } else {
-            Query query = this.createHistoricHandQuery(playerId);
-            query.field("table.tableId").equal(tableId);
-            query.field("startTime").greaterThanOrEq(time);
-            resultList = query.order("-startTime").limit(MAX_HANDS).asList();
+    /**
+     * Finds the hands of a player at a table, latest first, as seen by the player. The hands are read
+     * from the database as they are iterated, the iterator must be closed, see {@link Cursors}.
+     */
+    private Iterator<HistoricHand> findHands(int tableId, final int playerId, int count, long time, long before) {
+        log.debug("GetHands request data - TableId: " + tableId + " PlayerId: " + playerId + " Count: " + count + " Time: " + time + " Before: " + before);
+        int limit = getLimit(count, MAX_HANDS);
+        if (recentHands != null) {
+            List<HistoricHand> cached = recentHands.findHands(tableId, playerId, getFromTime(count, time), getBeforeTime(before), limit);
+            if (cached != null) {
+                return cached.iterator();
+            }
         }
-        resultList = this.filterHistoricHand(resultList,playerId);
-        return resultList;
+        if (handSource != null) {
+            return handSource.findHands(tableId, playerId, getFromTime(count, time), getBeforeTime(before), limit).iterator();
+        }
+
+        Query<EncodedHand> query = createEncodedHandQuery(tableId, playerId, count, time, before).retrievedFields(true, "data");
+        Iterator<HistoricHand> hands = new DecodingIterator<EncodedHand>(query.limit(limit).fetch().iterator()) {
+            @Override
+            protected HistoricHand decode(EncodedHand encoded) {
+                return encoded.decodeForPlayer(playerId);
+            }
+        };
+        Query<HistoricHand> legacyQuery = createHistoricHandQuery(tableId, playerId, count, time, before).limit(limit);
+        Iterator<HistoricHand> filteredLegacyHands = new DecodingIterator<HistoricHand>(legacyQuery.fetch().iterator()) {
+            @Override
+            protected HistoricHand decode(HistoricHand hand) {
+                return filterHistoricHand(hand, playerId);
+            }
+        };
+        return new LatestFirstHandIterator(hands, filteredLegacyHands, limit);
     }
 
     @Override
     public String getHandSummariesAsJson(int tableId, int playerId, int count, long time) {
-        List<HistoricHand> hands = getHandSummaries(tableId, playerId, count, time);
-        return convertToJson(hands);
+        return getHandSummariesAsJson(tableId, playerId, count, time, NO_CURSOR);
+    }
 
+    @Override
+    public String getHandSummariesAsJson(int tableId, int playerId, int count, long time, long before) {
+        return convertToJson(findHandSummaries(tableId, playerId, count, time, before));
     }
 
     public List<HistoricHand> getHandSummaries(int tableId, int playerId, int count, long time) {
-        log.debug("GetHandSummary request data - TableId: " + tableId + " PlayerId: " + playerId + " Count: " + count + " Time: " + time);
-        Query<HistoricHand> query = mongoStorage.createQuery(HistoricHand.class);
-        query.filter("seats elem", new BasicDBObject("playerId", playerId));
-        query.field("table.tableId").equal(tableId);
-        query.retrievedFields(false, "events","seats","results");
+        return getHandSummaries(tableId, playerId, count, time, NO_CURSOR);
+    }
 
-        if (count > 0) {
-            if (count > MAX_HANDS) {
-                count = MAX_HANDS;
+    public List<HistoricHand> getHandSummaries(int tableId, int playerId, int count, long time, long before) {
+        return toList(findHandSummaries(tableId, playerId, count, time, before));
+    }
+
+    private Iterator<HistoricHand> findHandSummaries(int tableId, int playerId, int count, long time, long before) {
+        log.debug("GetHandSummary request data - TableId: " + tableId + " PlayerId: " + playerId + " Count: " + count + " Time: " + time + " Before: " + before);
+        int limit = getLimit(count, MAX_HANDS);
+        List<HistoricHand> cached = findCachedHandSummaries(tableId, playerId, count, time, before, limit);
+        if (cached != null) {
+            return cached.iterator();
+        }
+        if (handSource != null) {
+            return handSource.findHandSummaries(tableId, playerId, getFromTime(count, time), getBeforeTime(before), limit).iterator();
+        }
+
+        Query<EncodedHand> encodedQuery = createEncodedHandQuery(tableId, playerId, count, time, before).retrievedFields(true, "data");
+        Iterator<HistoricHand> hands = new DecodingIterator<EncodedHand>(encodedQuery.limit(limit).fetch().iterator()) {
+            @Override
+            protected HistoricHand decode(EncodedHand encoded) {
+                return encoded.decodeSummary();
             }
-        } else {
-            query.field("startTime").greaterThanOrEq(time);
-            count = MAX_HANDS;
+        };
+        Query<HistoricHand> query = createHistoricHandQuery(tableId, playerId, count, time, before);
+        query.retrievedFields(false, "events","seats","results");
+
+        return new LatestFirstHandIterator(hands, query.limit(limit).fetch().iterator(), limit);
+    }
+
+    private List<HistoricHand> findCachedHandSummaries(int tableId, int playerId, int count, long time, long before, int limit) {
+        if (recentHands == null) {
+            return null;
         }
+        return recentHands.findHandSummaries(tableId, playerId, getFromTime(count, time), getBeforeTime(before), limit);
+    }
+
+    private int getLimit(int count, int max) {
+        return count > 0 && count < max ? count : max;
+    }
 
+    /**
+     * If count is not positive, only hands started at or after the given time are included.
+     */
+    private long getFromTime(int count, long time) {
+        return count > 0 ? Long.MIN_VALUE : time;
+    }
 
-        return query.order("-startTime").limit(count).asList();
+    /**
+     * If a cursor is given, only hands started before it are included. The start time of the last hand
+     * of a page is the cursor of the next page, start times are unique per table.
+     */
+    private long getBeforeTime(long before) {
+        return before > NO_CURSOR ? before : Long.MAX_VALUE;
+    }
+
+    /**
+     * Creates a query for the encoded hands of a player at a table, latest first.
+     * If count is not positive, only hands started at or after the given time are included.
+     * If a cursor is given, only hands started before it are included.
+     */
+    private Query<EncodedHand> createEncodedHandQuery(int tableId, int playerId, int count, long time, long before) {
+        Query<EncodedHand> query = mongoStorage.createQuery(EncodedHand.class);
+        query.field("playerIds").equal(playerId);
+        query.field("tableId").equal(tableId);
+        addTimeCriteria(query, count, time, before);
+        return query.order("-startTime");
+    }
+
+    /**
+     * Creates a query for hands stored as plain documents, before hands were stored encoded.
+     */
+    private Query<HistoricHand> createHistoricHandQuery(int tableId, int playerId, int count, long time, long before) {
+        Query<HistoricHand> query = this.createHistoricHandQuery(playerId);
+        query.field("table.tableId").equal(tableId);
+        addTimeCriteria(query, count, time, before);
+        return query.order("-startTime");
+    }
+
+    private void addTimeCriteria(Query<?> query, int count, long time, long before) {
+        if (count <= 0) {
+            query.field("startTime").greaterThanOrEq(time);
+        }
+        if (before > NO_CURSOR) {
+            query.field("startTime").lessThan(before);
+        }
     }
 
     private Query<HistoricHand> createHistoricHandQuery(int playerId) {
@@ -180,6 +354,18 @@ public class HandHistoryProviderServiceImpl implements HandHistoryProviderServic
         return query;
     }
 
+    private List<HistoricHand> toList(Iterator<HistoricHand> hands) {
+        List<HistoricHand> list = new ArrayList<HistoricHand>();
+        try {
+            while (hands.hasNext()) {
+                list.add(hands.next());
+            }
+        } finally {
+            Cursors.close(hands);
+        }
+        return list;
+    }
+
     @Override
     public void setRouter(ServiceRouter router) {
         this.router = router;
@@ -200,12 +386,21 @@ public class HandHistoryProviderServiceImpl implements HandHistoryProviderServic
         } else if (protocolRequestObject instanceof HandHistoryProviderRequestHands) {
             HandHistoryProviderRequestHands request = (HandHistoryProviderRequestHands)protocolRequestObject;
             protocolResponseObject = new HandHistoryProviderResponseHands(request.tableId, getHandsAsJson(request.tableId, e.getPlayerId(), request.count, getTime(request.time)));
+        } else if (protocolRequestObject instanceof HandHistoryProviderRequestHandsBefore) {
+            HandHistoryProviderRequestHandsBefore request = (HandHistoryProviderRequestHandsBefore)protocolRequestObject;
+            protocolResponseObject = new HandHistoryProviderResponseHands(request.tableId, getHandsAsJson(request.tableId, e.getPlayerId(), request.count, request.time, request.before));
         } else if (protocolRequestObject instanceof HandHistoryProviderRequestHandIds) {
             HandHistoryProviderRequestHandIds request = (HandHistoryProviderRequestHandIds)protocolRequestObject;
             protocolResponseObject = new HandHistoryProviderResponseHandIds(request.tableId, getHandIdsAsJson(request.tableId, e.getPlayerId(), request.count, getTime(request.time)));
+        } else if (protocolRequestObject instanceof HandHistoryProviderRequestHandIdsBefore) {
+            HandHistoryProviderRequestHandIdsBefore request = (HandHistoryProviderRequestHandIdsBefore)protocolRequestObject;
+            protocolResponseObject = new HandHistoryProviderResponseHandIds(request.tableId, getHandIdsAsJson(request.tableId, e.getPlayerId(), request.count, request.time, request.before));
         } else if(protocolRequestObject instanceof HandHistoryProviderRequestHandSummaries) {
             HandHistoryProviderRequestHandSummaries request = (HandHistoryProviderRequestHandSummaries)protocolRequestObject;
             protocolResponseObject = new HandHistoryProviderResponseHandSummaries(request.tableId, getHandSummariesAsJson(request.tableId, e.getPlayerId(), request.count, getTime(request.time)));
+        } else if(protocolRequestObject instanceof HandHistoryProviderRequestHandSummariesBefore) {
+            HandHistoryProviderRequestHandSummariesBefore request = (HandHistoryProviderRequestHandSummariesBefore)protocolRequestObject;
+            protocolResponseObject = new HandHistoryProviderResponseHandSummaries(request.tableId, getHandSummariesAsJson(request.tableId, e.getPlayerId(), request.count, request.time, request.before));
         }
 
         if (protocolResponseObject != null) {
@@ -229,8 +424,36 @@ public class HandHistoryProviderServiceImpl implements HandHistoryProviderServic
     @Override
     public void init(ServiceContext context) throws SystemException {
         log.debug("HandHistoryProviderService STARTED! ");
-        configuration = getConfiguration(context);
-        mongoStorage = getMongoStorage();
+        recentHands = getRecentHands(context);
+        handSource = getHandSource(context);
+        if (handSource == null) {
+            configuration = getConfiguration(context);
+            mongoStorage = getMongoStorage();
+        } else {
+            log.info("Reading hands from " + handSource.getClass().getSimpleName() + ".");
+        }
+    }
+
+    /**
+     * @return the recently finished hands cached by the collector service, or null if not available
+     */
+    protected RecentHandsCache getRecentHands(ServiceContext context) {
+        if (context == null) {
+            return null;
+        }
+        HandHistoryCollectorService collector = context.getParentRegistry().getServiceInstance(HandHistoryCollectorService.class);
+        return collector == null ? null : collector.getRecentHands();
+    }
+
+    /**
+     * @return the hand history persistence service, if hands can be read from it, otherwise null
+     */
+    protected HandHistorySource getHandSource(ServiceContext context) {
+        if (context == null) {
+            return null;
+        }
+        HandHistoryPersistenceService persistence = context.getParentRegistry().getServiceInstance(HandHistoryPersistenceService.class);
+        return persistence instanceof HandHistorySource ? (HandHistorySource) persistence : null;
     }
 
     protected DatabaseStorageConfiguration getConfiguration(ServiceContext context) {
@@ -247,6 +470,29 @@ public class HandHistoryProviderServiceImpl implements HandHistoryProviderServic
         return gson.toJson(hands);
     }
 
+    /**
+     * Writes the hands as a json array as they are iterated, so decoded hands are not collected in a
+     * list first. The json itself is built in memory, it is sent to the client as a single packet.
+     */
+    private String convertToJson(Iterator<HistoricHand> hands) {
+        Gson gson = createGson();
+        StringWriter json = new StringWriter();
+        JsonWriter writer = new JsonWriter(json);
+        try {
+            writer.beginArray();
+            while (hands.hasNext()) {
+                gson.toJson(hands.next(), HistoricHand.class, writer);
+            }
+            writer.endArray();
+            writer.close();
+        } catch (IOException e) {
+            throw new JsonIOException(e);
+        } finally {
+            Cursors.close(hands);
+        }
+        return json.toString();
+    }
+
     private Gson createGson() {
         GsonBuilder b = new GsonBuilder();
         b.registerTypeAdapter(HandHistoryEvent.class, new HandHistorySerializer());
@@ -259,12 +505,50 @@ public class HandHistoryProviderServiceImpl implements HandHistoryProviderServic
 
     @Override
     public void start() {
-        mongoStorage.connect();
+        if (mongoStorage != null) {
+            mongoStorage.connect();
+        }
     }
 
     @Override
     public void stop() {
-        mongoStorage.disconnect();
+        if (mongoStorage != null) {
+            mongoStorage.disconnect();
+        }
+    }
+
+    /**
+     * Decodes hands as they are read from the database. Closing it closes the database cursor.
+     */
+    private abstract static class DecodingIterator<T> implements Iterator<HistoricHand>, Closeable {
+
+        private final Iterator<T> storedHands;
+
+        DecodingIterator(Iterator<T> storedHands) {
+            this.storedHands = storedHands;
+        }
+
+        protected abstract HistoricHand decode(T stored);
+
+        @Override
+        public boolean hasNext() {
+            return storedHands.hasNext();
+        }
+
+        @Override
+        public HistoricHand next() {
+            return decode(storedHands.next());
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void close() {
+            Cursors.close(storedHands);
+        }
     }
 
     private static class HandHistorySerializer implements JsonSerializer<HandHistoryEvent> {
@@ -0,0 +1,86 @@
+/**
+ * Copyright (C) 2012 Cubeia Ltd <info@cubeia.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.cubeia.poker.handhistory.provider.impl;
+
+import com.cubeia.poker.handhistory.api.HistoricHand;
+
+import java.io.Closeable;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Merges two iterators of hands ordered latest first into one, up to a limit. Hands are only read
+ * from the iterators as they are needed. Closing it closes the cursors of the iterators, see {@link Cursors}.
+ */
+class LatestFirstHandIterator implements Iterator<HistoricHand>, Closeable {
+
+    private final Iterator<HistoricHand> hands;
+    private final Iterator<HistoricHand> otherHands;
+    private int remaining;
+
+    private HistoricHand nextHand;
+    private HistoricHand nextOtherHand;
+
+    LatestFirstHandIterator(Iterator<HistoricHand> hands, Iterator<HistoricHand> otherHands, int limit) {
+        this.hands = hands;
+        this.otherHands = otherHands;
+        this.remaining = limit;
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (remaining <= 0) {
+            return false;
+        }
+        if (nextHand == null && hands.hasNext()) {
+            nextHand = hands.next();
+        }
+        if (nextOtherHand == null && otherHands.hasNext()) {
+            nextOtherHand = otherHands.next();
+        }
+        return nextHand != null || nextOtherHand != null;
+    }
+
+    @Override
+    public HistoricHand next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        HistoricHand hand;
+        if (nextOtherHand == null || (nextHand != null && nextHand.getStartTime() >= nextOtherHand.getStartTime())) {
+            hand = nextHand;
+            nextHand = null;
+        } else {
+            hand = nextOtherHand;
+            nextOtherHand = null;
+        }
+        remaining--;
+        return hand;
+    }
+
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void close() {
+        Cursors.close(hands);
+        Cursors.close(otherHands);
+    }
+}
@@ -17,10 +17,17 @@
 
 package com.cubeia.poker.handhistory.provider.impl;
 
+import com.cubeia.firebase.api.action.service.ClientServiceAction;
+import com.cubeia.firebase.api.action.service.ServiceAction;
 import com.cubeia.firebase.api.server.SystemException;
 import com.cubeia.firebase.api.service.ServiceContext;
+import com.cubeia.firebase.api.service.ServiceRouter;
+import com.cubeia.firebase.io.StyxSerializer;
 import com.cubeia.games.poker.common.mongo.DatabaseStorageConfiguration;
 import com.cubeia.games.poker.common.mongo.MongoStorage;
+import com.cubeia.games.poker.routing.service.io.protocol.HandHistoryProviderRequestHandIdsBefore;
+import com.cubeia.games.poker.routing.service.io.protocol.HandHistoryProviderResponseHandIds;
+import com.cubeia.games.poker.routing.service.io.protocol.ProtocolObjectFactory;
 import com.cubeia.poker.handhistory.api.*;
 import com.google.code.morphia.Datastore;
 import com.google.code.morphia.Key;
@@ -31,15 +38,20 @@ import de.flapdoodle.embedmongo.config.MongodConfig;
 import de.flapdoodle.embedmongo.distribution.Version;
 import de.flapdoodle.embedmongo.runtime.Network;
 import org.junit.*;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 
 import java.math.BigDecimal;
 import java.net.UnknownHostException;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.List;
 
 import static org.junit.Assert.*;
 import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.mockito.MockitoAnnotations.initMocks;
 
@@ -86,6 +98,7 @@ public class EmbeddedMongoHandHistoryProviderServiceTest {
     public void onTearDown() throws Exception {
         Datastore datastore = storage.getDatastore();
         datastore.delete(datastore.createQuery(HistoricHand.class));
+        datastore.delete(datastore.createQuery(EncodedHand.class));
     }
 
     @BeforeClass
@@ -206,7 +219,109 @@ public class EmbeddedMongoHandHistoryProviderServiceTest {
         verifyOtherPlayersPrivateCardsNotExposed(myPlayerId, hands);
     }
 
+    @Test
+    public void testGetHandsByCursor() throws Exception {
+        int myPlayerId = 1;
+        createHandHistory(1, "hand1", 100L, myPlayerId, 2);
+        createEncodedHandHistory(1, "hand2", 200L, myPlayerId, 2);
+        createHandHistory(1, "hand3", 300L, myPlayerId, 2);
+        createEncodedHandHistory(1, "hand4", 400L, myPlayerId, 2);
+
+        List<HistoricHand> page = service.getHands(1, myPlayerId, 2, System.currentTimeMillis());
+        assertEquals("hand4", page.get(0).getId());
+        assertEquals("hand3", page.get(1).getId());
+
+        page = service.getHands(1, myPlayerId, 2, 0, page.get(1).getStartTime());
+        assertEquals(2, page.size());
+        assertEquals("hand2", page.get(0).getId());
+        assertEquals("hand1", page.get(1).getId());
+        verifyOtherPlayersPrivateCardsNotExposed(myPlayerId, page);
+
+        assertEquals(0, service.getHands(1, myPlayerId, 2, 0, page.get(1).getStartTime()).size());
+        assertEquals(1, service.getHandSummaries(1, myPlayerId, 2, 0, 200L).size());
+        assertEquals(1, service.getHandIds(1, myPlayerId, 2, 0, 200L).size());
+    }
+
+    @Test
+    public void testTimeIsNotACursorWithCount() throws Exception {
+        int myPlayerId = 1;
+        createHandHistory(1, "hand1", 100L, myPlayerId, 2);
+        createEncodedHandHistory(1, "hand2", 200L, myPlayerId, 2);
+
+        // A client clock behind the server must not hide the latest hands.
+        List<HistoricHand> hands = service.getHands(1, myPlayerId, 2, 150L);
+        assertEquals(2, hands.size());
+        assertEquals("hand2", hands.get(0).getId());
+        assertEquals(2, service.getHandSummaries(1, myPlayerId, 2, 150L).size());
+        assertEquals(2, service.getHandIds(1, myPlayerId, 2, 150L).size());
+    }
+
+    @Test
+    public void testRequestHandIdsBeforeCursor() throws Exception {
+        int myPlayerId = 1;
+        createEncodedHandHistory(1, "hand1", 100L, myPlayerId, 2);
+        createEncodedHandHistory(1, "hand2", 200L, myPlayerId, 2);
+        createEncodedHandHistory(1, "hand3", 300L, myPlayerId, 2);
+        ServiceRouter router = mock(ServiceRouter.class);
+        service.setRouter(router);
+        StyxSerializer serializer = new StyxSerializer(new ProtocolObjectFactory());
+        byte[] request = serializer.pack(new HandHistoryProviderRequestHandIdsBefore(1, 10, 0L, 300L)).array();
+
+        service.onAction(new ClientServiceAction(myPlayerId, -1, request));
+
+        ArgumentCaptor<ServiceAction> action = ArgumentCaptor.forClass(ServiceAction.class);
+        verify(router).dispatchToPlayer(eq(myPlayerId), action.capture());
+        HandHistoryProviderResponseHandIds response = (HandHistoryProviderResponseHandIds) serializer.unpack(ByteBuffer.wrap(action.getValue().getData()));
+        assertTrue(response.handIds.contains("hand2"));
+        assertTrue(response.handIds.contains("hand1"));
+        assertFalse(response.handIds.contains("hand3"));
+    }
+
+    @Test
+    public void testGetEncodedAndPlainHands() throws Exception {
+        int myPlayerId = 1;
+        createHandHistory(1, "hand1", 100L, myPlayerId, 2);
+        createEncodedHandHistory(1, "hand2", 200L, myPlayerId, 2);
+        createHandHistory(1, "hand3", 300L, myPlayerId, 2);
+        createEncodedHandHistory(1, "hand4", 400L, myPlayerId, 3);
+        createEncodedHandHistory(2, "hand5", 500L, myPlayerId, 2);
+
+        List<HistoricHand> hands = service.getHands(1, myPlayerId, 3, 0);
+        assertEquals(3, hands.size());
+        assertEquals("hand4", hands.get(0).getId());
+        assertEquals("hand3", hands.get(1).getId());
+        assertEquals("hand2", hands.get(2).getId());
+        verifyOtherPlayersPrivateCardsNotExposed(myPlayerId, hands);
+
+        List<Key<HistoricHand>> handIds = service.getHandIds(1, 2, 10, 0);
+        assertEquals(3, handIds.size());
+        assertEquals("hand3", handIds.get(0).getId());
+        assertEquals("hand2", handIds.get(1).getId());
+        assertEquals("hand1", handIds.get(2).getId());
+
+        List<HistoricHand> hand = service.getHand("hand2", myPlayerId);
+        assertEquals(1, hand.size());
+        assertEquals(2, hand.get(0).getSeats().size());
+        assertEquals(0, service.getHand("hand2", 3).size());
+
+        List<HistoricHand> summaries = service.getHandSummaries(1, myPlayerId, 0, 200L);
+        assertEquals(3, summaries.size());
+        for (HistoricHand h : summaries) {
+            assertEquals(0, h.getEvents().size());
+            assertEquals(0, h.getSeats().size());
+        }
+    }
+
+    private void createEncodedHandHistory(int tableId, String handId, long startTime, int... playerIds) throws UnknownHostException {
+        HistoricHand hand = createHand(tableId, handId, startTime, playerIds);
+        storage.persist(new EncodedHand(hand));
+    }
+
     private void createHandHistory(int tableId, String handId, long startTime, int... playerIds) throws UnknownHostException {
+        storage.persist(createHand(tableId, handId, startTime, playerIds));
+    }
+
+    private HistoricHand createHand(int tableId, String handId, long startTime, int... playerIds) {
         // Create a hand history.
         HistoricHand hand = new HistoricHand();
         hand.setStartTime(startTime);
@@ -231,6 +346,6 @@ public class EmbeddedMongoHandHistoryProviderServiceTest {
             hand.getEvents().add(pce);
         }
         table.setSeats(hand.getSeats().size());
-        storage.persist(hand);
+        return hand;
     }
 }
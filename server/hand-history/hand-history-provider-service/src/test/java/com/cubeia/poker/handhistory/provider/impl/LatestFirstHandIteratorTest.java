@@ -0,0 +1,71 @@
+/**
+ * Copyright (C) 2012 Cubeia Ltd <info@cubeia.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.cubeia.poker.handhistory.provider.impl;
+
+import com.cubeia.poker.handhistory.api.HistoricHand;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+public class LatestFirstHandIteratorTest {
+
+    @Test
+    public void testMergesLatestFirst() {
+        Iterator<HistoricHand> merged = new LatestFirstHandIterator(hands(500, 300, 100), hands(400, 200), 10);
+        assertEquals(Arrays.asList(500L, 400L, 300L, 200L, 100L), startTimes(merged));
+    }
+
+    @Test
+    public void testStopsAtLimit() {
+        Iterator<HistoricHand> merged = new LatestFirstHandIterator(hands(500, 300, 100), hands(400, 200), 3);
+        assertEquals(Arrays.asList(500L, 400L, 300L), startTimes(merged));
+        assertFalse(merged.hasNext());
+    }
+
+    @Test
+    public void testEmptyIterators() {
+        Iterator<HistoricHand> empty = Collections.<HistoricHand>emptyList().iterator();
+        assertEquals(Arrays.asList(200L, 100L), startTimes(new LatestFirstHandIterator(empty, hands(200, 100), 10)));
+        assertEquals(Arrays.asList(200L, 100L), startTimes(new LatestFirstHandIterator(hands(200, 100), empty, 10)));
+    }
+
+    private Iterator<HistoricHand> hands(long... startTimes) {
+        List<HistoricHand> hands = new ArrayList<HistoricHand>();
+        for (long startTime : startTimes) {
+            HistoricHand hand = new HistoricHand("hand" + startTime);
+            hand.setStartTime(startTime);
+            hands.add(hand);
+        }
+        return hands.iterator();
+    }
+
+    private List<Long> startTimes(Iterator<HistoricHand> hands) {
+        List<Long> startTimes = new ArrayList<Long>();
+        while (hands.hasNext()) {
+            startTimes.add(hands.next().getStartTime());
+        }
+        return startTimes;
+    }
+}
@@ -0,0 +1,441 @@
+/**
+ * Copyright (C) 2012 Cubeia Ltd <info@cubeia.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.cubeia.poker.handhistory.storage;
+
+import com.cubeia.games.poker.common.mongo.MongoStorage;
+import com.cubeia.poker.handhistory.api.EncodedHand;
+import com.cubeia.poker.handhistory.api.HandHistoryPersister;
+import com.cubeia.poker.handhistory.api.HistoricHand;
+import com.mongodb.MongoException;
+import org.apache.log4j.Logger;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Writes completed hands to the database on a background thread.
+ * <p/>
+ * Hands are stored as {@link EncodedHand}s, i.e. the search fields and the hand in binary form.
+ * <p/>
+ * Hands are queued and written with bulk inserts when the batch is full or the flush interval
+ * has passed since the first hand of the batch was queued. If the database fails, the batch is
+ * appended to a local spill file and the database is left alone for the retry interval. When the
+ * queue is full because the database is slow, new hands are spilled by the thread persisting them,
+ * so memory stays bounded at the cost of that thread waiting for the disk. Spilled hands are
+ * replayed to the database once it accepts writes again.
+ * <p/>
+ * If a hand can not even be spilled it is handed to the fallback persister (e.g. the JSON log).
+ */
+public class AsyncHandHistoryWriter implements AsyncHandHistoryWriterMBean {
+
+    private static final Logger log = Logger.getLogger(AsyncHandHistoryWriter.class);
+
+    private static final long FLUSH_TIMEOUT_MILLIS = 10000;
+
+    /**
+     * Maximum time between checks for flush requests while collecting a batch.
+     */
+    private static final long FLUSH_POLL_MILLIS = 10;
+
+    private final MongoStorage storage;
+
+    private final HandHistorySpillFile spillFile;
+
+    private final HandHistoryPersister fallback;
+
+    private final BlockingQueue<HistoricHand> queue;
+
+    private final int queueCapacity;
+
+    private final int maxBatchSize;
+
+    private final long flushIntervalMillis;
+
+    private final long retryIntervalMillis;
+
+    private final AtomicLong queuedHands = new AtomicLong();
+
+    private final AtomicLong persistedHands = new AtomicLong();
+
+    private final AtomicLong bulkInserts = new AtomicLong();
+
+    private final AtomicLong totalFlushMillis = new AtomicLong();
+
+    private final AtomicLong spilledHands = new AtomicLong();
+
+    private final AtomicLong replayedHands = new AtomicLong();
+
+    private final AtomicLong failedFlushes = new AtomicLong();
+
+    private volatile long lastFlushMillis;
+
+    private volatile long maxFlushMillis;
+
+    /**
+     * The time until which the database is not used after a failure.
+     */
+    private volatile long retryAt;
+
+    /**
+     * Number of queued hands that have been written or spilled, also used as the flush monitor.
+     */
+    private final AtomicLong processedHands = new AtomicLong();
+
+    /**
+     * Number of processed hands waited for by flushing threads.
+     */
+    private volatile long flushTarget;
+
+    private volatile boolean running;
+
+    private Thread writerThread;
+
+    /**
+     * @param storage             the database
+     * @param spillFile           file for hands that could not be written to the database
+     * @param fallback            persister for hands that could not be spilled either
+     * @param queueCapacity       maximum number of hands waiting to be written
+     * @param maxBatchSize        maximum number of hands in one bulk insert
+     * @param flushIntervalMillis maximum time a hand waits for more hands before being written
+     * @param retryIntervalMillis time to wait before using the database again after a failure
+     */
+    public AsyncHandHistoryWriter(MongoStorage storage, HandHistorySpillFile spillFile, HandHistoryPersister fallback, int queueCapacity,
+                                  int maxBatchSize, long flushIntervalMillis, long retryIntervalMillis) {
+        this.storage = storage;
+        this.spillFile = spillFile;
+        this.fallback = fallback;
+        this.queueCapacity = Math.max(1, queueCapacity);
+        this.maxBatchSize = Math.max(1, maxBatchSize);
+        this.flushIntervalMillis = Math.max(1, flushIntervalMillis);
+        this.retryIntervalMillis = Math.max(0, retryIntervalMillis);
+        this.queue = new ArrayBlockingQueue<HistoricHand>(this.queueCapacity);
+    }
+
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        writerThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                writeUntilStopped();
+            }
+        }, "hand-history-writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    /**
+     * Stops the writer thread and writes or spills all queued hands.
+     */
+    public synchronized void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        writerThread.interrupt();
+        try {
+            writerThread.join(FLUSH_TIMEOUT_MILLIS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        List<HistoricHand> remaining = new ArrayList<HistoricHand>();
+        queue.drainTo(remaining);
+        for (int i = 0; i < remaining.size(); i += maxBatchSize) {
+            store(remaining.subList(i, Math.min(remaining.size(), i + maxBatchSize)));
+        }
+        markProcessed(remaining.size());
+    }
+
+    /**
+     * Queues a hand for writing without waiting for the database. If the queue is full the hand is
+     * spilled on the calling thread instead, which means waiting for a file append and sync.
+     *
+     * @param hand the hand to write
+     */
+    public void persist(HistoricHand hand) {
+        if (!running) {
+            store(Collections.singletonList(hand));
+        } else if (queue.offer(hand)) {
+            queuedHands.incrementAndGet();
+        } else {
+            log.debug("Hand history queue is full, spilling hand " + hand.getId());
+            spill(Collections.singletonList(hand));
+        }
+    }
+
+    /**
+     * Waits until all hands queued before this call have been written or spilled.
+     */
+    public void flush() {
+        if (!running || Thread.currentThread() == writerThread) {
+            return;
+        }
+        long target = queuedHands.get();
+        long deadline = System.currentTimeMillis() + FLUSH_TIMEOUT_MILLIS;
+        synchronized (processedHands) {
+            flushTarget = Math.max(flushTarget, target);
+            long remaining;
+            while (processedHands.get() < target && (remaining = deadline - System.currentTimeMillis()) > 0) {
+                try {
+                    processedHands.wait(remaining);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    @Override
+    public int getQueueSize() {
+        return queue.size();
+    }
+
+    @Override
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    @Override
+    public long getPersistedHands() {
+        return persistedHands.get();
+    }
+
+    @Override
+    public long getBulkInserts() {
+        return bulkInserts.get();
+    }
+
+    @Override
+    public long getLastFlushMillis() {
+        return lastFlushMillis;
+    }
+
+    @Override
+    public long getAverageFlushMillis() {
+        long inserts = bulkInserts.get();
+        return inserts == 0 ? 0 : totalFlushMillis.get() / inserts;
+    }
+
+    @Override
+    public long getMaxFlushMillis() {
+        return maxFlushMillis;
+    }
+
+    @Override
+    public long getSpilledHands() {
+        return spilledHands.get();
+    }
+
+    @Override
+    public long getReplayedHands() {
+        return replayedHands.get();
+    }
+
+    @Override
+    public long getFailedFlushes() {
+        return failedFlushes.get();
+    }
+
+    @Override
+    public boolean isDatabaseAvailable() {
+        return System.currentTimeMillis() >= retryAt;
+    }
+
+    /* ----------------------------------------------------
+      *
+      * 	PRIVATE METHODS
+      *
+      *  ---------------------------------------------------- */
+
+    private void writeUntilStopped() {
+        List<HistoricHand> batch = new ArrayList<HistoricHand>(maxBatchSize);
+        while (running) {
+            try {
+                HistoricHand first = queue.poll(flushIntervalMillis, TimeUnit.MILLISECONDS);
+                if (first != null) {
+                    batch.add(first);
+                    fillBatch(batch);
+                    try {
+                        store(batch);
+                    } finally {
+                        markProcessed(batch.size());
+                        batch.clear();
+                    }
+                }
+                replaySpilledHands();
+            } catch (InterruptedException e) {
+                break;
+            } catch (RuntimeException e) {
+                log.error("Unexpected error writing hand histories", e);
+            }
+        }
+        // Hands taken from the queue but not stored when interrupted
+        if (!batch.isEmpty()) {
+            store(batch);
+            markProcessed(batch.size());
+        }
+    }
+
+    private void fillBatch(List<HistoricHand> batch) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + flushIntervalMillis;
+        while (batch.size() < maxBatchSize) {
+            queue.drainTo(batch, maxBatchSize - batch.size());
+            long remaining = deadline - System.currentTimeMillis();
+            if (batch.size() >= maxBatchSize || remaining <= 0 || flushTarget > processedHands.get()) {
+                break;
+            }
+            HistoricHand next = queue.poll(Math.min(remaining, FLUSH_POLL_MILLIS), TimeUnit.MILLISECONDS);
+            if (next != null) {
+                batch.add(next);
+            }
+        }
+    }
+
+    /**
+     * Writes hands to the database, or spills them if the database is not available.
+     */
+    private void store(List<HistoricHand> hands) {
+        if (!isDatabaseAvailable()) {
+            spill(hands);
+            return;
+        }
+        int written = insert(hands);
+        if (written < hands.size()) {
+            spill(hands.subList(written, hands.size()));
+        }
+    }
+
+    /**
+     * Bulk inserts hands. If some of them already exist, e.g. after a replay that was interrupted,
+     * they are saved one by one instead.
+     *
+     * @return number of hands written, the remaining hands were not written because the database failed
+     */
+    private int insert(List<HistoricHand> hands) {
+        long start = System.nanoTime();
+        List<EncodedHand> encoded = new ArrayList<EncodedHand>(hands.size());
+        for (HistoricHand hand : hands) {
+            encoded.add(new EncodedHand(hand));
+        }
+        try {
+            try {
+                storage.insertAll(encoded);
+            } catch (MongoException.DuplicateKey e) {
+                log.debug("Some of " + hands.size() + " hands already exist, saving them one by one.");
+                for (int i = 0; i < encoded.size(); i++) {
+                    try {
+                        storage.persist(encoded.get(i));
+                    } catch (RuntimeException saveFailed) {
+                        databaseFailed(hands.size() - i, saveFailed);
+                        return i;
+                    }
+                }
+            }
+        } catch (RuntimeException e) {
+            databaseFailed(hands.size(), e);
+            return 0;
+        }
+        recordFlush(hands.size(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        return hands.size();
+    }
+
+    private void databaseFailed(int hands, RuntimeException e) {
+        failedFlushes.incrementAndGet();
+        retryAt = System.currentTimeMillis() + retryIntervalMillis;
+        log.warn("Failed writing " + hands + " hand histories to the database, spilling them to " + spillFile + " and retrying in "
+                + retryIntervalMillis + " ms.", e);
+    }
+
+    private void recordFlush(int hands, long millis) {
+        persistedHands.addAndGet(hands);
+        bulkInserts.incrementAndGet();
+        totalFlushMillis.addAndGet(millis);
+        lastFlushMillis = millis;
+        if (millis > maxFlushMillis) {
+            maxFlushMillis = millis;
+        }
+    }
+
+    private void spill(List<HistoricHand> hands) {
+        try {
+            spillFile.append(hands);
+            spilledHands.addAndGet(hands.size());
+        } catch (IOException e) {
+            log.error("Failed spilling " + hands.size() + " hand histories, logging them instead.", e);
+            for (HistoricHand hand : hands) {
+                fallback.persist(hand);
+            }
+        }
+    }
+
+    /**
+     * Writes spilled hands to the database, if it is available.
+     */
+    private void replaySpilledHands() {
+        if (!isDatabaseAvailable() || !spillFile.hasHands()) {
+            return;
+        }
+        File file = spillFile.startReplay();
+        if (file == null) {
+            return;
+        }
+        log.info("Replaying spilled hand histories from " + file);
+        HandHistorySpillFile.Reader reader = null;
+        try {
+            reader = new HandHistorySpillFile.Reader(file);
+            List<HistoricHand> hands;
+            while (!(hands = reader.read(maxBatchSize)).isEmpty()) {
+                int written = insert(hands);
+                replayedHands.addAndGet(written);
+                if (written < hands.size()) {
+                    // Put the rest back in the spill file and try again later.
+                    spill(hands.subList(written, hands.size()));
+                    while (!(hands = reader.read(maxBatchSize)).isEmpty()) {
+                        spill(hands);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            log.error("Failed replaying spilled hand histories from " + file + ", will retry later.", e);
+            retryAt = System.currentTimeMillis() + retryIntervalMillis;
+            return;
+        } finally {
+            if (reader != null) {
+                reader.close();
+            }
+        }
+        spillFile.finishReplay();
+    }
+
+    private void markProcessed(int hands) {
+        synchronized (processedHands) {
+            processedHands.addAndGet(hands);
+            processedHands.notifyAll();
+        }
+    }
+}
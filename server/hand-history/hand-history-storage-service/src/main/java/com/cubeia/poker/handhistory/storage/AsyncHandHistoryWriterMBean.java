@@ -0,0 +1,59 @@
+/**
+ * Copyright (C) 2012 Cubeia Ltd <info@cubeia.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.cubeia.poker.handhistory.storage;
+
+public interface AsyncHandHistoryWriterMBean {
+
+    /**
+     * @return number of hands waiting to be written
+     */
+    int getQueueSize();
+
+    int getQueueCapacity();
+
+    /**
+     * @return number of hands written to the database
+     */
+    long getPersistedHands();
+
+    /**
+     * @return number of bulk inserts to the database
+     */
+    long getBulkInserts();
+
+    long getLastFlushMillis();
+
+    long getAverageFlushMillis();
+
+    long getMaxFlushMillis();
+
+    /**
+     * @return number of hands written to the spill file because the database failed or the queue was full
+     */
+    long getSpilledHands();
+
+    /**
+     * @return number of hands written to the database from the spill file
+     */
+    long getReplayedHands();
+
+    long getFailedFlushes();
+
+    boolean isDatabaseAvailable();
+
+}
@@ -20,8 +20,10 @@ package com.cubeia.poker.handhistory.storage;
 import com.cubeia.firebase.api.server.SystemException;
 import com.cubeia.firebase.api.service.Service;
 import com.cubeia.firebase.api.service.ServiceContext;
+import com.cubeia.games.poker.common.jmx.JmxUtil;
 import com.cubeia.games.poker.common.mongo.DatabaseStorageConfiguration;
 import com.cubeia.games.poker.common.mongo.MongoStorage;
+import com.cubeia.poker.handhistory.api.EncodedHand;
 import com.cubeia.poker.handhistory.api.HandHistoryPersistenceService;
 import com.cubeia.poker.handhistory.api.HistoricHand;
 import com.cubeia.poker.handhistory.impl.JsonHandHistoryLogger;
@@ -29,26 +31,47 @@ import com.mongodb.BasicDBObject;
 import com.mongodb.DBCollection;
 import org.apache.log4j.Logger;
 
+import java.io.File;
+
 /**
  * A database based implementation of the hand history persistence service, which stores the hand
  * history in a MongoDB database.
+ * <p/>
+ * Hands are written in bulk by a background writer, see {@link AsyncHandHistoryWriter}, as
+ * {@link EncodedHand}s. Hands that can not be written to the database are spilled to a local
+ * file and written later. The spill file is kept in the directory configured as
+ * <code>mongo.spill-directory</code>, which is required since hands in it are not in the database yet.
  */
 public class DatabaseStorageService implements HandHistoryPersistenceService, Service {
 
     private static final Logger log = Logger.getLogger(DatabaseStorageService.class);
 
+    private static final String JMX_BIND_NAME = "com.cubeia.poker:type=HandHistoryWriter";
+
+    private static final String SPILL_FILE_NAME = "hand-history.spill";
+
+    private static final int WRITE_QUEUE_CAPACITY = 10000;
+
+    private static final int MAX_WRITE_BATCH_SIZE = 500;
+
+    private static final long FLUSH_INTERVAL_MILLIS = 1000;
+
+    private static final long RETRY_INTERVAL_MILLIS = 30000;
+
     private DatabaseStorageConfiguration configuration;
     private MongoStorage mongoStorage;
     private JsonHandHistoryLogger jsonLogger;
+    private AsyncHandHistoryWriter writer;
 
     public void persist(HistoricHand hand) {
-        try {
-            mongoStorage.persist(hand);
-        } catch (Exception e) {
-            log.warn("Failed persisting hand history to mondodb. Please start a mongodb server on host " + configuration.getHost()
-                     + " and port " + configuration.getPort(), e);
-            jsonLogger.persist(hand);
-        }
+        writer.persist(hand);
+    }
+
+    /**
+     * Waits until all hands persisted before this call have been written.
+     */
+    public void flush() {
+        writer.flush();
     }
 
     @Override
@@ -56,6 +79,21 @@ public class DatabaseStorageService implements HandHistoryPersistenceService, Se
         configuration = getConfiguration(context);
         mongoStorage = getMongoStorage();
         jsonLogger = new JsonHandHistoryLogger();
+        HandHistorySpillFile spillFile = new HandHistorySpillFile(new File(getSpillDirectory(), SPILL_FILE_NAME));
+        writer = new AsyncHandHistoryWriter(mongoStorage, spillFile, jsonLogger, WRITE_QUEUE_CAPACITY, MAX_WRITE_BATCH_SIZE,
+                FLUSH_INTERVAL_MILLIS, RETRY_INTERVAL_MILLIS);
+    }
+
+    private File getSpillDirectory() throws SystemException {
+        String directory = configuration.getSpillDirectory();
+        if (directory == null || directory.trim().isEmpty()) {
+            throw new SystemException("No hand history spill directory configured, set mongo.spill-directory in poker.properties.");
+        }
+        File spillDirectory = new File(directory.trim());
+        if (!spillDirectory.isDirectory() && !spillDirectory.mkdirs()) {
+            throw new SystemException("Hand history spill directory " + spillDirectory + " does not exist and could not be created.");
+        }
+        return spillDirectory;
     }
 
     protected DatabaseStorageConfiguration getConfiguration(ServiceContext context) {
@@ -68,10 +106,11 @@ public class DatabaseStorageService implements HandHistoryPersistenceService, Se
 
     private void initHandsCollection()
     {
-        mongoStorage.map(HistoricHand.class);
-        //Indexing
-        DBCollection coll = mongoStorage.getCollection(HistoricHand.class.getSimpleName());
+        mongoStorage.map(EncodedHand.class);
+        //Indexing, hands are looked up by player and table, latest first
+        DBCollection coll = mongoStorage.getCollection(EncodedHand.class.getSimpleName());
         if(0 == coll.getCount()) {
+            coll.createIndex(new BasicDBObject("playerIds", 1).append("tableId", 1).append("startTime", -1));
             coll.createIndex(new BasicDBObject("startTime", -1));
         }
     }
@@ -79,11 +118,20 @@ public class DatabaseStorageService implements HandHistoryPersistenceService, Se
     @Override
     public void start() {
         mongoStorage.connect();
-        initHandsCollection();
+        try {
+            initHandsCollection();
+        } catch (Exception e) {
+            log.warn("Failed initializing the hand history collection on host " + configuration.getHost() + " and port "
+                     + configuration.getPort() + ", hands will be spilled until the database is available.", e);
+        }
+        writer.start();
+        new JmxUtil().mountBean(JMX_BIND_NAME, writer);
     }
 
     @Override
     public void stop() {
+        new JmxUtil().unmountBean(JMX_BIND_NAME);
+        writer.stop();
         mongoStorage.disconnect();
     }
 
@@ -0,0 +1,201 @@
+/**
+ * Copyright (C) 2012 Cubeia Ltd <info@cubeia.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.cubeia.poker.handhistory.storage;
+
+import com.cubeia.poker.handhistory.api.HistoricHand;
+import com.cubeia.poker.handhistory.api.HistoricHandCodec;
+import org.apache.log4j.Logger;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Append-only file of hands that could not be written to the database.
+ * <p/>
+ * Each hand is stored length prefixed in the {@link HistoricHandCodec} encoding. A record cut short by a crash
+ * while writing ends the file when it is read back.
+ * <p/>
+ * Hands are read back by first moving the file aside, so new hands can be appended while the
+ * old ones are replayed. A file left aside by a crash during a replay is replayed again.
+ */
+public class HandHistorySpillFile {
+
+    private static final Logger log = Logger.getLogger(HandHistorySpillFile.class);
+
+    private final File file;
+
+    private final File replayFile;
+
+    private long hands;
+
+    /**
+     * @param file the file to append to, created when the first hand is spilled
+     */
+    public HandHistorySpillFile(File file) {
+        this.file = file;
+        this.replayFile = new File(file.getPath() + ".replay");
+    }
+
+    /**
+     * Appends hands to the file and syncs it to disk.
+     *
+     * @throws IOException if the hands could not be written
+     */
+    public synchronized void append(List<HistoricHand> handsToSpill) throws IOException {
+        if (handsToSpill.isEmpty()) {
+            return;
+        }
+        List<byte[]> encoded = new ArrayList<byte[]>(handsToSpill.size());
+        for (HistoricHand hand : handsToSpill) {
+            try {
+                encoded.add(HistoricHandCodec.encode(hand));
+            } catch (RuntimeException e) {
+                throw new IOException("Failed encoding hand " + hand.getId(), e);
+            }
+        }
+        File parent = file.getAbsoluteFile().getParentFile();
+        if (parent != null && !parent.exists() && !parent.mkdirs()) {
+            throw new IOException("Failed creating directory " + parent);
+        }
+        FileOutputStream fileStream = new FileOutputStream(file, true);
+        try {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fileStream));
+            for (byte[] bytes : encoded) {
+                out.writeInt(bytes.length);
+                out.write(bytes);
+            }
+            out.flush();
+            fileStream.getFD().sync();
+        } finally {
+            fileStream.close();
+        }
+        hands += handsToSpill.size();
+    }
+
+    /**
+     * @return true if there are hands to replay
+     */
+    public synchronized boolean hasHands() {
+        return file.length() > 0 || replayFile.exists();
+    }
+
+    /**
+     * @return number of hands appended since this instance was created
+     */
+    public synchronized long getSpilledHands() {
+        return hands;
+    }
+
+    /**
+     * Moves the spilled hands aside for replaying, unless a previous replay was not finished.
+     *
+     * @return the file to replay, or null if there is nothing to replay
+     */
+    public synchronized File startReplay() {
+        if (!replayFile.exists()) {
+            if (file.length() == 0 || !file.renameTo(replayFile)) {
+                return null;
+            }
+        }
+        return replayFile;
+    }
+
+    /**
+     * Removes a replayed file.
+     */
+    public synchronized void finishReplay() {
+        if (!replayFile.delete()) {
+            log.warn("Failed deleting replayed hand history file " + replayFile);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return file.getPath();
+    }
+
+    /**
+     * Reads hands from a file being replayed.
+     */
+    public static class Reader {
+
+        private final DataInputStream in;
+
+        public Reader(File file) throws IOException {
+            in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+        }
+
+        /**
+         * Reads up to a number of hands.
+         *
+         * @param max maximum number of hands to read
+         * @return the hands, empty at the end of the file
+         */
+        public List<HistoricHand> read(int max) throws IOException {
+            List<HistoricHand> result = new ArrayList<HistoricHand>();
+            while (result.size() < max) {
+                int length;
+                try {
+                    length = in.readInt();
+                } catch (EOFException e) {
+                    break;
+                }
+                byte[] bytes = new byte[length];
+                try {
+                    in.readFully(bytes);
+                } catch (EOFException e) {
+                    log.warn("Ignoring incomplete hand history record at the end of the spill file.");
+                    break;
+                }
+                result.add(decode(bytes));
+            }
+            return result;
+        }
+
+        public void close() {
+            try {
+                in.close();
+            } catch (IOException e) {
+                log.debug("Failed closing spill file.");
+            }
+        }
+    }
+
+    /* ----------------------------------------------------
+      *
+      * 	PRIVATE METHODS
+      *
+      *  ---------------------------------------------------- */
+
+    private static HistoricHand decode(byte[] bytes) throws IOException {
+        try {
+            return HistoricHandCodec.decode(bytes);
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Failed reading spilled hand", e);
+        }
+    }
+}
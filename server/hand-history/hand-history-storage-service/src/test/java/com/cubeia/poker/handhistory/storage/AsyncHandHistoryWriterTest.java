@@ -0,0 +1,162 @@
+/**
+ * Copyright (C) 2012 Cubeia Ltd <info@cubeia.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.cubeia.poker.handhistory.storage;
+
+import com.cubeia.games.poker.common.mongo.MongoStorage;
+import com.cubeia.poker.handhistory.api.EncodedHand;
+import com.cubeia.poker.handhistory.api.HandHistoryPersister;
+import com.cubeia.poker.handhistory.api.HistoricHand;
+import com.mongodb.MongoException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.MockitoAnnotations.initMocks;
+
+public class AsyncHandHistoryWriterTest {
+
+    @Mock
+    private MongoStorage storage;
+
+    @Mock
+    private HandHistoryPersister fallback;
+
+    private File file;
+
+    private HandHistorySpillFile spillFile;
+
+    private AsyncHandHistoryWriter writer;
+
+    @Before
+    public void setup() throws IOException {
+        initMocks(this);
+        file = File.createTempFile("hand-history", ".spill");
+        file.delete();
+        spillFile = new HandHistorySpillFile(file);
+        writer = new AsyncHandHistoryWriter(storage, spillFile, fallback, 100, 3, 10000, 0);
+        writer.start();
+    }
+
+    @After
+    public void cleanup() {
+        writer.stop();
+        file.delete();
+        new File(file.getPath() + ".replay").delete();
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void testHandsAreWrittenInBatches() {
+        final List<Integer> batchSizes = new ArrayList<Integer>();
+        doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) {
+                batchSizes.add(((List<?>) invocation.getArguments()[0]).size());
+                return null;
+            }
+        }).when(storage).insertAll(any(List.class));
+
+        for (int i = 0; i < 4; i++) {
+            writer.persist(new HistoricHand("h" + i));
+        }
+        writer.flush();
+
+        assertThat(batchSizes, is(Arrays.asList(3, 1)));
+        assertThat(writer.getPersistedHands(), is(4L));
+        assertThat(writer.getBulkInserts(), is(2L));
+        verify(storage, never()).persist(any());
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void testFailedBatchIsSpilledAndReplayed() throws InterruptedException {
+        doThrow(new MongoException("down")).doNothing().when(storage).insertAll(any(List.class));
+
+        writer.persist(new HistoricHand("h1"));
+        writer.flush();
+        waitForReplay(1);
+
+        verify(storage, times(2)).insertAll(any(List.class));
+        assertThat(writer.getFailedFlushes(), is(1L));
+        assertThat(writer.getSpilledHands(), is(1L));
+        assertThat(writer.getReplayedHands(), is(1L));
+        assertFalse(spillFile.hasHands());
+        verify(fallback, never()).persist(any(HistoricHand.class));
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void testExistingHandsAreSavedOneByOne() {
+        doThrow(mock(MongoException.DuplicateKey.class)).when(storage).insertAll(any(List.class));
+        doNothing().when(storage).persist(any());
+
+        HistoricHand hand1 = new HistoricHand("h1");
+        HistoricHand hand2 = new HistoricHand("h2");
+        writer.persist(hand1);
+        writer.persist(hand2);
+        writer.flush();
+
+        ArgumentCaptor<Object> saved = ArgumentCaptor.forClass(Object.class);
+        verify(storage, times(2)).persist(saved.capture());
+        assertThat(((EncodedHand) saved.getAllValues().get(0)).getId(), is("h1"));
+        assertThat(((EncodedHand) saved.getAllValues().get(1)).getId(), is("h2"));
+        assertThat(writer.getPersistedHands(), is(2L));
+        assertThat(writer.getSpilledHands(), is(0L));
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void testHandsAreWrittenDirectlyWhenStopped() {
+        writer.stop();
+        HistoricHand hand = new HistoricHand("h1");
+        writer.persist(hand);
+
+        ArgumentCaptor<List> inserted = ArgumentCaptor.forClass(List.class);
+        verify(storage).insertAll(inserted.capture());
+        EncodedHand encoded = (EncodedHand) inserted.getValue().get(0);
+        assertThat(encoded.decode(), is(hand));
+    }
+
+    private void waitForReplay(long hands) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (writer.getReplayedHands() < hands && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+}
@@ -20,7 +20,9 @@ package com.cubeia.poker.handhistory.storage;
 import com.cubeia.firebase.api.server.SystemException;
 import com.cubeia.firebase.api.service.ServiceContext;
 import com.cubeia.games.poker.common.mongo.DatabaseStorageConfiguration;
+import com.cubeia.poker.handhistory.api.EncodedHand;
 import com.cubeia.poker.handhistory.api.HistoricHand;
+import com.cubeia.poker.handhistory.api.HistoricHandCodec;
 import com.cubeia.poker.handhistory.api.PlayerAction;
 import com.mongodb.DB;
 import com.mongodb.DBCollection;
@@ -36,11 +38,13 @@ import de.flapdoodle.embedmongo.runtime.Network;
 import org.junit.AfterClass;
 import org.junit.Before;
 import org.junit.BeforeClass;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import org.mockito.Mock;
 
 import static org.hamcrest.MatcherAssert.assertThat;
-import static org.hamcrest.core.StringStartsWith.startsWith;
+import static org.hamcrest.core.Is.is;
 import static org.mockito.Matchers.anyString;
 import static org.mockito.Mockito.when;
 import static org.mockito.MockitoAnnotations.initMocks;
@@ -58,6 +62,9 @@ public class EmbeddedMongoDatabaseStorageServiceTest {
     @Mock
     private DatabaseStorageConfiguration configuration;
 
+    @Rule
+    public TemporaryFolder spillDirectory = new TemporaryFolder();
+
     @Before
     public void setup() throws SystemException {
         initMocks(this);
@@ -65,14 +72,25 @@ public class EmbeddedMongoDatabaseStorageServiceTest {
         when(configuration.getHost()).thenReturn(HOST);
         when(configuration.getPort()).thenReturn(PORT);
         when(configuration.getDatabaseName()).thenReturn("hands");
-        service = new DatabaseStorageService() {
+        when(configuration.getSpillDirectory()).thenReturn(spillDirectory.getRoot().getAbsolutePath());
+        service = createService(configuration);
+        service.init(null);
+        service.start();
+    }
+
+    @Test(expected = SystemException.class)
+    public void testSpillDirectoryIsRequired() throws SystemException {
+        when(configuration.getSpillDirectory()).thenReturn(null);
+        createService(configuration).init(null);
+    }
+
+    private DatabaseStorageService createService(final DatabaseStorageConfiguration configuration) {
+        return new DatabaseStorageService() {
             @Override
             protected DatabaseStorageConfiguration getConfiguration(ServiceContext serviceContext) {
                 return configuration;
             }
         };
-        service.init(null);
-        service.start();
     }
 
     @BeforeClass
@@ -93,13 +111,16 @@ public class EmbeddedMongoDatabaseStorageServiceTest {
         historicHand.getEvents().add(new PlayerAction(99, PlayerAction.Type.ANTE));
 
         service.persist(historicHand);
+        service.flush();
 
         Mongo mongo = new Mongo(HOST, PORT);
         DB db = mongo.getDB("hands");
-        DBCollection collection = db.getCollection("hands");
+        DBCollection collection = db.getCollection(EncodedHand.class.getSimpleName());
 
         DBCursor cursorDoc = collection.find();
         DBObject object = cursorDoc.next();
-        assertThat(object.get("events").toString(), startsWith("[ { \"action\" : \"ANTE\""));
+        assertThat(object.get("_id").toString(), is("someHandId"));
+        HistoricHand stored = HistoricHandCodec.decode((byte[]) object.get("data"));
+        assertThat(((PlayerAction) stored.getEvents().get(0)).getAction(), is(PlayerAction.Type.ANTE));
     }
 }
@@ -0,0 +1,113 @@
+/**
+ * Copyright (C) 2012 Cubeia Ltd <info@cubeia.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.cubeia.poker.handhistory.storage;
+
+import com.cubeia.poker.handhistory.api.HistoricHand;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public class HandHistorySpillFileTest {
+
+    private File file;
+
+    private HandHistorySpillFile spillFile;
+
+    @Before
+    public void setup() throws IOException {
+        file = File.createTempFile("hand-history", ".spill");
+        file.delete();
+        spillFile = new HandHistorySpillFile(file);
+    }
+
+    @After
+    public void cleanup() {
+        file.delete();
+        new File(file.getPath() + ".replay").delete();
+    }
+
+    @Test
+    public void testAppendAndReplay() throws IOException {
+        assertFalse(spillFile.hasHands());
+        assertThat(spillFile.startReplay(), nullValue());
+
+        spillFile.append(Arrays.asList(new HistoricHand("h1"), new HistoricHand("h2")));
+        spillFile.append(Arrays.asList(new HistoricHand("h3")));
+        assertTrue(spillFile.hasHands());
+        assertThat(spillFile.getSpilledHands(), is(3L));
+
+        File replay = spillFile.startReplay();
+        // New hands go to a new file while replaying
+        spillFile.append(Arrays.asList(new HistoricHand("h4")));
+
+        HandHistorySpillFile.Reader reader = new HandHistorySpillFile.Reader(replay);
+        assertThat(ids(reader.read(2)), is(Arrays.asList("h1", "h2")));
+        assertThat(ids(reader.read(2)), is(Arrays.asList("h3")));
+        assertTrue(reader.read(2).isEmpty());
+        reader.close();
+        spillFile.finishReplay();
+
+        reader = new HandHistorySpillFile.Reader(spillFile.startReplay());
+        assertThat(ids(reader.read(10)), is(Arrays.asList("h4")));
+        reader.close();
+        spillFile.finishReplay();
+        assertFalse(spillFile.hasHands());
+    }
+
+    @Test
+    public void testUnfinishedReplayIsReplayedAgain() throws IOException {
+        spillFile.append(Arrays.asList(new HistoricHand("h1")));
+        File replay = spillFile.startReplay();
+        spillFile.append(Arrays.asList(new HistoricHand("h2")));
+
+        assertTrue(spillFile.hasHands());
+        assertThat(spillFile.startReplay(), is(replay));
+    }
+
+    @Test
+    public void testTruncatedRecordIsIgnored() throws IOException {
+        spillFile.append(Arrays.asList(new HistoricHand("h1"), new HistoricHand("h2")));
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        raf.setLength(raf.length() - 3);
+        raf.close();
+
+        HandHistorySpillFile.Reader reader = new HandHistorySpillFile.Reader(spillFile.startReplay());
+        assertThat(ids(reader.read(10)), is(Arrays.asList("h1")));
+        reader.close();
+    }
+
+    private List<String> ids(List<HistoricHand> hands) {
+        String[] ids = new String[hands.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = hands.get(i).getId();
+        }
+        return Arrays.asList(ids);
+    }
+}
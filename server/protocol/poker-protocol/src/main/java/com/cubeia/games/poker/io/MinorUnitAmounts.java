@@ -0,0 +1,111 @@
+/**
+ * Copyright (C) 2010 Cubeia Ltd <info@cubeia.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.cubeia.games.poker.io;
+
+import com.cubeia.games.poker.io.protocol.CompactInformFutureAllowedActions;
+import com.cubeia.games.poker.io.protocol.CompactPerformAction;
+import com.cubeia.games.poker.io.protocol.CompactPlayerAction;
+import com.cubeia.games.poker.io.protocol.CompactPlayerBalance;
+import com.cubeia.games.poker.io.protocol.CompactPot;
+import com.cubeia.games.poker.io.protocol.CompactPotTransfer;
+import com.cubeia.games.poker.io.protocol.CompactPotTransfers;
+import com.cubeia.games.poker.io.protocol.CompactRequestAction;
+import com.cubeia.games.poker.io.protocol.Enums.ActionType;
+import com.cubeia.games.poker.io.protocol.InformFutureAllowedActions;
+import com.cubeia.games.poker.io.protocol.PerformAction;
+import com.cubeia.games.poker.io.protocol.PlayerAction;
+import com.cubeia.games.poker.io.protocol.PlayerBalance;
+import com.cubeia.games.poker.io.protocol.Pot;
+import com.cubeia.games.poker.io.protocol.PotTransfer;
+import com.cubeia.games.poker.io.protocol.PotTransfers;
+import com.cubeia.games.poker.io.protocol.RequestAction;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Converts between amounts in minor units and decimal strings for clients that
+ * have asked for amounts in minor units (see amount_encoding_request).
+ * <p/>
+ * A client that handles the decimal string packets can convert the compact
+ * packets with the expand methods and handle them as before. The number of
+ * fractional digits comes from the amount_encoding_response of the table.
+ */
+public final class MinorUnitAmounts {
+
+    private MinorUnitAmounts() {
+    }
+
+    /**
+     * Formats an amount in minor units as a decimal string, e.g. 1234 with 2
+     * fractional digits is "12.34".
+     */
+    public static String toDecimalString(long minorUnits, int fractionalDigits) {
+        return BigDecimal.valueOf(minorUnits, fractionalDigits).toPlainString();
+    }
+
+    public static RequestAction expand(CompactRequestAction packet, int fractionalDigits) {
+        List<PlayerAction> allowed = new ArrayList<PlayerAction>(packet.allowedActions.size());
+        for (CompactPlayerAction action : packet.allowedActions) {
+            allowed.add(expand(action, fractionalDigits));
+        }
+        return new RequestAction(toDecimalString(packet.currentPotSize, fractionalDigits), packet.seq,
+                packet.player, allowed, packet.timeToAct);
+    }
+
+    public static PerformAction expand(CompactPerformAction packet, int fractionalDigits) {
+        return new PerformAction(packet.seq, packet.player, expand(packet.action, fractionalDigits),
+                toDecimalString(packet.betAmount, fractionalDigits),
+                toDecimalString(packet.raiseAmount, fractionalDigits),
+                toDecimalString(packet.stackAmount, fractionalDigits),
+                packet.timeout, packet.cardsToDiscard);
+    }
+
+    public static PlayerAction expand(CompactPlayerAction action, int fractionalDigits) {
+        if (action.type == ActionType.DISCARD) {
+            // The amounts of a discard are numbers of cards
+            return new PlayerAction(action.type, Long.toString(action.minAmount), Long.toString(action.maxAmount));
+        }
+        return new PlayerAction(action.type, toDecimalString(action.minAmount, fractionalDigits),
+                toDecimalString(action.maxAmount, fractionalDigits));
+    }
+
+    public static PlayerBalance expand(CompactPlayerBalance packet, int fractionalDigits) {
+        return new PlayerBalance(toDecimalString(packet.balance, fractionalDigits),
+                toDecimalString(packet.pendingBalance, fractionalDigits), packet.player,
+                toDecimalString(packet.playersContributionToPot, fractionalDigits));
+    }
+
+    public static PotTransfers expand(CompactPotTransfers packet, int fractionalDigits) {
+        List<PotTransfer> transfers = new ArrayList<PotTransfer>(packet.transfers.size());
+        for (CompactPotTransfer transfer : packet.transfers) {
+            transfers.add(new PotTransfer(transfer.potId, transfer.playerId, toDecimalString(transfer.amount, fractionalDigits)));
+        }
+        List<Pot> pots = new ArrayList<Pot>(packet.pots.size());
+        for (CompactPot pot : packet.pots) {
+            pots.add(new Pot(pot.id, pot.type, toDecimalString(pot.amount, fractionalDigits)));
+        }
+        return new PotTransfers(packet.fromPlayerToPot, transfers, pots, toDecimalString(packet.totalPotSize, fractionalDigits));
+    }
+
+    public static InformFutureAllowedActions expand(CompactInformFutureAllowedActions packet, int fractionalDigits) {
+        return new InformFutureAllowedActions(packet.actions, toDecimalString(packet.callAmount, fractionalDigits),
+                toDecimalString(packet.minBetAmount, fractionalDigits));
+    }
+}
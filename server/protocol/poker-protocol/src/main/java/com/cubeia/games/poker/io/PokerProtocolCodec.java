@@ -0,0 +1,169 @@
+/**
+ * Copyright (C) 2010 Cubeia Ltd <info@cubeia.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.cubeia.games.poker.io;
+
+import com.cubeia.firebase.io.PacketOutputStream;
+import com.cubeia.firebase.io.ProtocolObject;
+import com.cubeia.firebase.io.StyxSerializer;
+import com.cubeia.games.poker.io.protocol.ProtocolObjectFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Packs and unpacks poker packets, use this instead of creating StyxSerializers.
+ * <p/>
+ * Each thread has its own serializer and its own packing buffer, so the class
+ * can be used from any thread without locking. A packet is written to the
+ * buffer of the thread, which grows to the size of the largest packet packed
+ * (up to {@link #MAX_RETAINED_BUFFER_SIZE}), and is then copied to a buffer of
+ * its exact size. The returned buffer is not pooled since game actions and the
+ * action cache keep it after the packet has been sent.
+ * <p/>
+ * Packets are framed as by {@link StyxSerializer#pack(ProtocolObject)}: the packet
+ * length including the header (an int), the class id (a byte) and the packet data.
+ */
+public final class PokerProtocolCodec {
+
+    /**
+     * Size of the length and class id header.
+     */
+    public static final int HEADER_SIZE = 5;
+
+    /**
+     * Initial size of the packing buffer of a thread.
+     */
+    static final int INITIAL_BUFFER_SIZE = 256;
+
+    /**
+     * A packing buffer that has grown larger than this is dropped after use.
+     */
+    static final int MAX_RETAINED_BUFFER_SIZE = 64 * 1024;
+
+    private static final ThreadLocal<Packer> packers = new ThreadLocal<Packer>() {
+        @Override
+        protected Packer initialValue() {
+            return new Packer();
+        }
+    };
+
+    private static final ThreadLocal<StyxSerializer> serializers = new ThreadLocal<StyxSerializer>() {
+        @Override
+        protected StyxSerializer initialValue() {
+            return new StyxSerializer(new ProtocolObjectFactory());
+        }
+    };
+
+    private PokerProtocolCodec() {
+    }
+
+    /**
+     * Packs a packet. Any Styx packet can be packed, not only poker packets.
+     *
+     * @param packet packet to pack
+     * @return the packed packet, positioned at its start and backed by an array of its exact size
+     * @throws IllegalArgumentException if the packet can not be packed
+     */
+    public static ByteBuffer pack(ProtocolObject packet) {
+        return ByteBuffer.wrap(packArray(packet));
+    }
+
+    /**
+     * Packs a packet to an array, see {@link #pack(ProtocolObject)}.
+     */
+    public static byte[] packArray(ProtocolObject packet) {
+        Packer packer = packers.get();
+        try {
+            return packer.pack(packet);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Failed packing " + packet, e);
+        } finally {
+            if (packer.bytes.capacity() > MAX_RETAINED_BUFFER_SIZE) {
+                packers.remove();
+            }
+        }
+    }
+
+    /**
+     * Unpacks a poker packet. The position of the buffer is not changed.
+     *
+     * @param data packed packet
+     * @return the packet
+     */
+    public static ProtocolObject unpack(ByteBuffer data) {
+        return serializers.get().unpack(data.duplicate());
+    }
+
+    /**
+     * Unpacks a poker packet from an array.
+     */
+    public static ProtocolObject unpack(byte[] data) {
+        return serializers.get().unpack(ByteBuffer.wrap(data));
+    }
+
+    /**
+     * Returns the capacity of the packing buffer of the calling thread, for tests.
+     */
+    static int getPackingBufferCapacity() {
+        return packers.get().bytes.capacity();
+    }
+
+    /**
+     * Packing buffer of a thread.
+     */
+    private static class Packer {
+
+        private final ReusableOutputStream bytes = new ReusableOutputStream(INITIAL_BUFFER_SIZE);
+
+        private final PacketOutputStream out = new PacketOutputStream(new DataOutputStream(bytes));
+
+        private byte[] pack(ProtocolObject packet) throws IOException {
+            bytes.reset();
+            packet.save(out);
+            int length = HEADER_SIZE + bytes.size();
+            byte[] packed = new byte[length];
+            packed[0] = (byte) (length >>> 24);
+            packed[1] = (byte) (length >>> 16);
+            packed[2] = (byte) (length >>> 8);
+            packed[3] = (byte) length;
+            packed[4] = (byte) packet.classId();
+            bytes.copyTo(packed, HEADER_SIZE);
+            return packed;
+        }
+    }
+
+    /**
+     * Byte array stream that gives access to its buffer instead of copying it.
+     */
+    private static class ReusableOutputStream extends ByteArrayOutputStream {
+
+        private ReusableOutputStream(int size) {
+            super(size);
+        }
+
+        private int capacity() {
+            return buf.length;
+        }
+
+        private void copyTo(byte[] target, int offset) {
+            System.arraycopy(buf, 0, target, offset, count);
+        }
+    }
+}
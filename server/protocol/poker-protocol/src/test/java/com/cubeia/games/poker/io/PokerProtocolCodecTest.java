@@ -0,0 +1,113 @@
+/**
+ * Copyright (C) 2010 Cubeia Ltd <info@cubeia.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.cubeia.games.poker.io;
+
+import com.cubeia.firebase.io.ProtocolObject;
+import com.cubeia.firebase.io.StyxSerializer;
+import com.cubeia.games.poker.io.protocol.DealPublicCards;
+import com.cubeia.games.poker.io.protocol.Enums;
+import com.cubeia.games.poker.io.protocol.ErrorPacket;
+import com.cubeia.games.poker.io.protocol.GameCard;
+import com.cubeia.games.poker.io.protocol.StartHandHistory;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class PokerProtocolCodecTest {
+
+    @Test
+    public void testPacksAsStyxSerializer() throws Exception {
+        assertPacksAsStyxSerializer(new StartHandHistory());
+        assertPacksAsStyxSerializer(new ErrorPacket(Enums.ErrorCode.TABLE_CLOSING, "hand-1"));
+        assertPacksAsStyxSerializer(createDealPublicCards(5));
+        assertPacksAsStyxSerializer(createLargePacket());
+    }
+
+    @Test
+    public void testRoundTrip() throws Exception {
+        ErrorPacket error = (ErrorPacket) PokerProtocolCodec.unpack(PokerProtocolCodec.packArray(new ErrorPacket(Enums.ErrorCode.TABLE_CLOSING, "hand-1")));
+        assertEquals(Enums.ErrorCode.TABLE_CLOSING, error.code);
+        assertEquals("hand-1", error.referenceId);
+
+        DealPublicCards packet = createLargePacket();
+        DealPublicCards unpacked = (DealPublicCards) PokerProtocolCodec.unpack(PokerProtocolCodec.pack(packet));
+        assertEquals(packet.cards.size(), unpacked.cards.size());
+        GameCard last = unpacked.cards.get(unpacked.cards.size() - 1);
+        assertEquals(packet.cards.size() - 1, last.cardId);
+        assertEquals(Enums.Suit.SPADES, last.suit);
+        assertArrayEquals(PokerProtocolCodec.packArray(packet), PokerProtocolCodec.packArray(unpacked));
+    }
+
+    @Test
+    public void testDropsLargeBuffer() throws Exception {
+        PokerProtocolCodec.packArray(createDealPublicCards(100));
+        int capacity = PokerProtocolCodec.getPackingBufferCapacity();
+        assertTrue(capacity > PokerProtocolCodec.INITIAL_BUFFER_SIZE);
+        assertTrue(capacity <= PokerProtocolCodec.MAX_RETAINED_BUFFER_SIZE);
+
+        PokerProtocolCodec.packArray(createLargePacket());
+        assertEquals(PokerProtocolCodec.INITIAL_BUFFER_SIZE, PokerProtocolCodec.getPackingBufferCapacity());
+    }
+
+    @Test
+    public void testUnpackKeepsPosition() throws Exception {
+        byte[] packed = PokerProtocolCodec.packArray(new ErrorPacket(Enums.ErrorCode.TABLE_CLOSING, "hand-1"));
+        ByteBuffer data = ByteBuffer.allocate(packed.length + 3);
+        data.position(3);
+        data.put(packed);
+        data.position(3);
+
+        assertTrue(PokerProtocolCodec.unpack(data) instanceof ErrorPacket);
+        assertEquals(3, data.position());
+        assertEquals(packed.length + 3, data.limit());
+    }
+
+    private void assertPacksAsStyxSerializer(ProtocolObject packet) throws Exception {
+        ByteBuffer expected = new StyxSerializer(null).pack(packet);
+        ByteBuffer packed = PokerProtocolCodec.pack(packet);
+        assertEquals(0, packed.position());
+        assertEquals(expected.remaining(), packed.remaining());
+        assertEquals(expected, packed);
+    }
+
+    /**
+     * A packet larger than the largest retained packing buffer.
+     */
+    private DealPublicCards createLargePacket() {
+        DealPublicCards packet = createDealPublicCards(12000);
+        assertTrue(PokerProtocolCodec.packArray(packet).length > PokerProtocolCodec.MAX_RETAINED_BUFFER_SIZE);
+        return packet;
+    }
+
+    private DealPublicCards createDealPublicCards(int count) {
+        DealPublicCards packet = new DealPublicCards();
+        packet.cards = new ArrayList<GameCard>();
+        for (int i = 0; i < count; i++) {
+            GameCard card = new GameCard();
+            card.cardId = i;
+            card.suit = Enums.Suit.values()[i % 4];
+            card.rank = Enums.Rank.values()[i % 13];
+            packet.cards.add(card);
+        }
+        return packet;
+    }
+}
@@ -26,6 +26,7 @@ import com.cubeia.backend.cashgame.TournamentSessionId;
 import com.cubeia.backend.cashgame.dto.AllowJoinResponse;
 import com.cubeia.backend.cashgame.dto.AnnounceTableRequest;
 import com.cubeia.backend.cashgame.dto.BalanceUpdate;
+import com.cubeia.backend.cashgame.dto.BatchHandFailedResponse;
 import com.cubeia.backend.cashgame.dto.BatchHandRequest;
 import com.cubeia.backend.cashgame.dto.BatchHandResponse;
 import com.cubeia.backend.cashgame.dto.CloseSessionRequest;
@@ -130,6 +131,17 @@ public interface AsynchronousCashGamesBackend {
      */
     BatchHandResponse batchHand(BatchHandRequest request) throws BatchHandFailedException;
 
+    /**
+     * This is an asynchronous call, the response, a {@link BatchHandResponse}
+     * or a {@link BatchHandFailedResponse}, will be sent as object action to the table.
+     * The response carries the hand id of the request.
+     *
+     * <p>See {@link CashGamesBackend#batchHand(BatchHandRequest)} for more
+     * documentation.</p>
+     */
+    @Asynchronous
+    void batchHandForTable(BatchHandRequest request, TableId tableId);
+
     /**
      * See {@link CashGamesBackend#getAccountBalance(int, String)} for documentation.
      */
@@ -28,6 +28,7 @@ import com.cubeia.backend.cashgame.dto.AnnounceTableFailedResponse;
 import com.cubeia.backend.cashgame.dto.AnnounceTableRequest;
 import com.cubeia.backend.cashgame.dto.AnnounceTableResponse;
 import com.cubeia.backend.cashgame.dto.BalanceUpdate;
+import com.cubeia.backend.cashgame.dto.BatchHandFailedResponse;
 import com.cubeia.backend.cashgame.dto.BatchHandRequest;
 import com.cubeia.backend.cashgame.dto.BatchHandResponse;
 import com.cubeia.backend.cashgame.dto.CloseSessionFailedResponse;
@@ -232,6 +233,28 @@ public abstract class CashGamesBackendServiceBase implements CashGamesBackendSer
         return getCashGamesBackend().batchHand(request);
     }
 
+    @Override
+    public void batchHandForTable(final BatchHandRequest request, final TableId tableId) {
+        final TableCallback callback = new TableCallback(tableId, getServiceRouter());
+        scheduleCallback(new SafeRunnable() {
+            @Override
+            protected void execute() {
+                try {
+                    BatchHandResponse resp = getCashGamesBackend().batchHand(request);
+                    resp.setHandId(request.getHandId());
+                    callback.requestSucceeded(resp);
+                } catch (BatchHandFailedException e) {
+                    callback.requestFailed(new BatchHandFailedResponse(request.getHandId(), e.getMessage(), e.isOutcomeUnknown()));
+                } catch (RuntimeException e) {
+                    // the table waits for the response, it must get one even on unexpected errors,
+                    // the wallet may have settled the hand so it must not be sent again
+                    log.error("Unexpected error settling hand " + request.getHandId(), e);
+                    callback.requestFailed(new BatchHandFailedResponse(request.getHandId(), e.getMessage(), true));
+                }
+            }
+        });
+    }
+
     @Override
     public Money getAccountBalance(int playerId, String currency) throws GetBalanceFailedException {
         return getCashGamesBackend().getAccountBalance(playerId, currency);
@@ -124,6 +124,11 @@ public class CashGamesBackendAdapter implements CashGamesBackend {
 
     protected UserServiceContract userService;
 
+    /**
+     * Groups hand results from many tables into shared wallet transactions, null if disabled.
+     */
+    private HandTransactionCoalescer handTransactionCoalescer;
+
     public CashGamesBackendAdapter(WalletServiceContract walletService, AccountLookupUtil accountLookupUtil,
                                    PublicClientRegistryService clientRegistry, DomainEventsService domainEventService,
                                    UserServiceContract userService) throws SystemException {
@@ -263,32 +268,74 @@ public class CashGamesBackendAdapter implements CashGamesBackend {
                 amount.getAmount());
     }
 
+    /**
+     * Enables coalescing of hand results into shared wallet transactions.
+     *
+     * @param coalescer the coalescer to use, null to report each hand in its own transaction
+     */
+    public void setHandTransactionCoalescer(HandTransactionCoalescer coalescer) {
+        this.handTransactionCoalescer = coalescer;
+    }
+
     @Override
     public BatchHandResponse batchHand(BatchHandRequest request) throws BatchHandFailedException {
+        if (handTransactionCoalescer != null) {
+            return handTransactionCoalescer.batchHand(request);
+        }
+        return doBatchHand(request);
+    }
+
+    /**
+     * Reports a single hand in its own wallet transaction.
+     * <p/>
+     * If the transaction fails for any other reason than being rejected as unbalanced the
+     * wallet may have committed it, the exception thrown then has an unknown outcome.
+     */
+    BatchHandResponse doBatchHand(BatchHandRequest request) throws BatchHandFailedException {
+        HashMap<Long, PlayerSessionId> sessionToPlayerSessionMap = new HashMap<Long, PlayerSessionId>();
+        TransactionRequest txRequest;
         try {
             TransactionBuilder txBuilder = createTransactionBuilder(request);
 
             // Add entries.
-            HashMap<Long, PlayerSessionId> sessionToPlayerSessionMap = new HashMap<Long, PlayerSessionId>();
             createHandResultEntries(request, txBuilder, sessionToPlayerSessionMap);
             createRakeEntry(request, txBuilder);
+            txRequest = txBuilder.toTransactionRequest();
+        } catch (Exception e) {
+            throw new BatchHandFailedException("error reporting hand result", e);
+        }
 
-            // Perform transaction.
-            TransactionRequest txRequest = txBuilder.toTransactionRequest();
+        // Perform transaction.
+        TransactionResult txResult;
+        try {
             log.debug("sending tx request to wallet: {}", txRequest);
-            TransactionResult txResult = walletService.doTransaction(txRequest);
-
-            // Return result.
-            String currencyCode = request.getTotalRake().getCurrencyCode();
-            return createBatchHandResponse(sessionToPlayerSessionMap, txResult, currencyCode);
+            txResult = walletService.doTransaction(txRequest);
         } catch (UnbalancedTransactionException ute) {
             throw new BatchHandFailedException("error reporting hand result", ute);
         } catch (Exception e) {
-            throw new BatchHandFailedException("error reporting hand result", e);
+            throw new BatchHandFailedException("error reporting hand result", e, true);
         }
+
+        // Return result.
+        String currencyCode = request.getTotalRake().getCurrencyCode();
+        return createCommittedBatchHandResponse(request, sessionToPlayerSessionMap, txResult, currencyCode);
     }
 
-    private TransactionBuilder createTransactionBuilder(BatchHandRequest request) {
+    /**
+     * Creates the response of a hand the wallet has committed. If that fails the hand must still
+     * be reported as settled, a failure would settle it again, so the response then has no balances.
+     */
+    BatchHandResponse createCommittedBatchHandResponse(BatchHandRequest request, Map<Long, PlayerSessionId> sessionToPlayerSessionMap,
+            TransactionResult txResult, String currency) {
+        try {
+            return createBatchHandResponse(sessionToPlayerSessionMap, txResult, currency);
+        } catch (RuntimeException e) {
+            log.error("failed reading resulting balances of committed hand " + request.getHandId() + ", balances are not updated", e);
+            return new BatchHandResponse(new ArrayList<TransactionUpdate>());
+        }
+    }
+
+    TransactionBuilder createTransactionBuilder(BatchHandRequest request) {
         String currencyCode = request.getTotalRake().getCurrencyCode();
         int fractionalDigits = request.getTotalRake().getFractionalDigits();
         return new TransactionBuilder(currencyCode, fractionalDigits);
@@ -297,6 +344,17 @@ public class CashGamesBackendAdapter implements CashGamesBackend {
     private void createRakeEntry(BatchHandRequest request, TransactionBuilder txBuilder) throws BatchHandFailedException {
         //txBuilder.entry(rakeAccountId, convertToWalletMoney(request.getTotalRake()).getAmount());
         TreeMap<Integer, Money> operatorRake = new TreeMap<Integer, Money>();
+        collectOperatorRake(request, operatorRake);
+        createRakeEntries(operatorRake, txBuilder);
+        txBuilder.comment("poker hand result");
+        txBuilder.attribute("pokerTableId", String.valueOf((request.getTableId()).integrationId)).attribute("pokerGameId", String.valueOf(GAME_ID)).attribute(
+                "pokerHandId", request.getHandId());
+    }
+
+    /**
+     * Adds the rake of each player in the hand to the rake of the player's operator.
+     */
+    void collectOperatorRake(BatchHandRequest request, TreeMap<Integer, Money> operatorRake) {
         for (HandResult hr : request.getHandResults()) {
             int operatorId = hr.getOperator();
             if (operatorRake.containsKey(operatorId)) {
@@ -305,6 +363,12 @@ public class CashGamesBackendAdapter implements CashGamesBackend {
                 operatorRake.put(operatorId, hr.getRake());
             }
         }
+    }
+
+    /**
+     * Adds one entry to the rake account of each operator.
+     */
+    void createRakeEntries(TreeMap<Integer, Money> operatorRake, TransactionBuilder txBuilder) {
         for (Map.Entry<Integer, Money> rakeEntry: operatorRake.entrySet()) {
             String currencyCode = rakeEntry.getValue().getCurrencyCode();
 			long rakeAccountId = getRakeAccount(rakeEntry.getKey(), currencyCode);
@@ -322,9 +386,6 @@ public class CashGamesBackendAdapter implements CashGamesBackend {
 //                txBuilder.entry(getSystemRakeAccount(rakeEntry.getValue().getCurrencyCode()), convertToWalletMoney(rakeEntry.getValue()).getAmount());
 //            }
         }
-        txBuilder.comment("poker hand result");
-        txBuilder.attribute("pokerTableId", String.valueOf((request.getTableId()).integrationId)).attribute("pokerGameId", String.valueOf(GAME_ID)).attribute(
-                "pokerHandId", request.getHandId());
     }
 
     
@@ -371,7 +432,7 @@ public class CashGamesBackendAdapter implements CashGamesBackend {
         return promotionsAccounts.get(currencyCode);
     }
 
-    private void createHandResultEntries(BatchHandRequest request, TransactionBuilder txBuilder, HashMap<Long, PlayerSessionId> sessionToPlayerSessionMap) {
+    void createHandResultEntries(BatchHandRequest request, TransactionBuilder txBuilder, Map<Long, PlayerSessionId> sessionToPlayerSessionMap) {
         // Add one entry for each hand result.
         for (HandResult hr : request.getHandResults()) {
             log.debug("recording hand result: handId = {}, sessionId = {}, bets = {}, wins = {}, rake = {}",
@@ -385,7 +446,7 @@ public class CashGamesBackendAdapter implements CashGamesBackend {
         }
     }
 
-    private BatchHandResponse createBatchHandResponse(HashMap<Long, PlayerSessionId> sessionToPlayerSessionMap, TransactionResult txResult, String currency) {
+    BatchHandResponse createBatchHandResponse(Map<Long, PlayerSessionId> sessionToPlayerSessionMap, TransactionResult txResult, String currency) {
         List<TransactionUpdate> resultingBalances = new ArrayList<TransactionUpdate>();
         for (AccountBalanceResult sb : txResult.getBalances()) {
             // if (sb.getAccountId() != getSystemRakeAccount(currency) && sessionToPlayerSessionMap.containsKey(sb.getAccountId())) {
@@ -65,6 +65,16 @@ public class CashGamesBackendServiceImpl extends CashGamesBackendServiceBase imp
         closeOpenSessionAccounts(walletService);
         accountLookupUtil = new AccountLookupUtil(walletService);
 		adapter = new CashGamesBackendAdapter(walletService, accountLookupUtil, clientRegistry, domainEventService,userService);
+        configureHandCoalescing(new WalletAdapterConfiguration().load(con.getServerConfigDirectory().getAbsolutePath()));
+    }
+
+    private void configureHandCoalescing(WalletAdapterConfiguration configuration) {
+        if (configuration.isCoalesceHands()) {
+            log.info("Coalescing hand results, max hands per transaction = " + configuration.getMaxHandsPerTransaction()
+                    + ", window = " + configuration.getCoalescingWindowMillis() + " ms");
+            adapter.setHandTransactionCoalescer(new HandTransactionCoalescer(adapter, configuration.getMaxHandsPerTransaction(),
+                    configuration.getCoalescingWindowMillis()));
+        }
     }
 
     private void closeOpenSessionAccounts(WalletServiceContract walletService) {
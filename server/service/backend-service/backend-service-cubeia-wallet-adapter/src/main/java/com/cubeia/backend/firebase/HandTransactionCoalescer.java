@@ -0,0 +1,311 @@
+/**
+ * Copyright (C) 2012 Cubeia Ltd <info@cubeia.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.cubeia.backend.firebase;
+
+import com.cubeia.backend.cashgame.PlayerSessionId;
+import com.cubeia.backend.cashgame.dto.BatchHandRequest;
+import com.cubeia.backend.cashgame.dto.BatchHandResponse;
+import com.cubeia.backend.cashgame.dto.HandResult;
+import com.cubeia.backend.cashgame.exceptions.BatchHandFailedException;
+import com.cubeia.backoffice.accounting.api.UnbalancedTransactionException;
+import com.cubeia.backoffice.wallet.api.dto.report.TransactionRequest;
+import com.cubeia.backoffice.wallet.api.dto.report.TransactionResult;
+import com.cubeia.games.poker.common.money.Money;
+import com.cubeia.network.wallet.firebase.domain.TransactionBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Groups hand results reported concurrently by many tables into shared wallet transactions.
+ * <p/>
+ * The first caller of a batch waits for at most the batching window, or until the batch is full,
+ * and then performs one wallet transaction for all hands in the batch while the other callers
+ * wait for their result. The rake is summed per operator over all hands, so the rake accounts
+ * get one entry per batch instead of one per hand. The resulting balances are handed back to
+ * each caller filtered on the session accounts of its own hand.
+ * <p/>
+ * A batch only holds hands in the same currency and never two hands with a session account in
+ * common, otherwise the resulting balance of the first hand would include the second one.
+ * If the wallet rejects a shared transaction as unbalanced the hands are reported one by one
+ * so that only the faulty hand fails. Any other failure of the transaction leaves the outcome
+ * unknown and the hands must not be reported again.
+ * <p/>
+ * The transaction has the attributes <code>pokerHandId.N</code> and <code>pokerTableId.N</code>
+ * for the N:th hand, so that each hand can be traced to its table.
+ */
+public class HandTransactionCoalescer {
+
+    private static final Logger log = LoggerFactory.getLogger(HandTransactionCoalescer.class);
+
+    private final CashGamesBackendAdapter adapter;
+
+    private final int maxHandsPerTransaction;
+
+    private final long windowMillis;
+
+    private final Object lock = new Object();
+
+    /**
+     * The batch accepting hands, guarded by the lock.
+     */
+    private Batch openBatch;
+
+    /**
+     * @param adapter                adapter used to create the transaction entries
+     * @param maxHandsPerTransaction maximum number of hands in one wallet transaction
+     * @param windowMillis           maximum time the first hand of a batch waits for more hands
+     */
+    public HandTransactionCoalescer(CashGamesBackendAdapter adapter, int maxHandsPerTransaction, long windowMillis) {
+        this.adapter = adapter;
+        this.maxHandsPerTransaction = Math.max(1, maxHandsPerTransaction);
+        this.windowMillis = Math.max(0, windowMillis);
+    }
+
+    /**
+     * Reports a hand, possibly together with hands reported by other threads. Blocks until
+     * the wallet transaction including the hand is done.
+     *
+     * @param request the hand to report
+     * @return the resulting balances of the sessions in the hand
+     * @throws BatchHandFailedException if the hand could not be reported
+     */
+    public BatchHandResponse batchHand(BatchHandRequest request) throws BatchHandFailedException {
+        PendingHand hand = new PendingHand(request);
+        Batch batch;
+        boolean first;
+        synchronized (lock) {
+            if (openBatch != null && !openBatch.accepts(hand)) {
+                closeOpenBatch();
+            }
+            first = (openBatch == null);
+            if (first) {
+                openBatch = new Batch(request.getTotalRake());
+            }
+            batch = openBatch;
+            batch.add(hand);
+            if (batch.size() >= maxHandsPerTransaction) {
+                closeOpenBatch();
+            }
+        }
+
+        if (first) {
+            awaitClose(batch);
+            perform(batch);
+        }
+        return hand.awaitResult();
+    }
+
+    /* ----------------------------------------------------
+      *
+      * 	PRIVATE METHODS
+      *
+      *  ---------------------------------------------------- */
+
+    private void closeOpenBatch() {
+        openBatch.closed = true;
+        openBatch = null;
+        lock.notifyAll();
+    }
+
+    private void awaitClose(Batch batch) {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(windowMillis);
+        synchronized (lock) {
+            long remaining;
+            while (!batch.closed && (remaining = deadline - System.nanoTime()) > 0) {
+                try {
+                    TimeUnit.NANOSECONDS.timedWait(lock, remaining);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+            if (!batch.closed) {
+                closeOpenBatch();
+            }
+        }
+    }
+
+    private void perform(Batch batch) {
+        if (batch.hands.size() == 1) {
+            performSeparately(batch.hands);
+            return;
+        }
+
+        TransactionRequest txRequest;
+        try {
+            txRequest = createTransactionRequest(batch);
+        } catch (Exception e) {
+            log.warn("Failed creating shared transaction for " + batch.size() + " hands, reporting them one by one", e);
+            performSeparately(batch.hands);
+            return;
+        }
+
+        TransactionResult txResult;
+        try {
+            log.debug("sending tx request for {} hands to wallet: {}", batch.size(), txRequest);
+            txResult = adapter.walletService.doTransaction(txRequest);
+        } catch (UnbalancedTransactionException e) {
+            log.warn("Shared transaction for " + batch.size() + " hands is unbalanced, reporting them one by one", e);
+            performSeparately(batch.hands);
+            return;
+        } catch (Exception e) {
+            // the outcome in the wallet is unknown, do not risk reporting the hands twice
+            for (PendingHand hand : batch.hands) {
+                hand.failed(new BatchHandFailedException("error reporting hand result", e, true));
+            }
+            return;
+        }
+
+        // committed, every hand is settled from here on
+        for (PendingHand hand : batch.hands) {
+            hand.succeeded(adapter.createCommittedBatchHandResponse(hand.request, hand.sessions, txResult, batch.currencyCode));
+        }
+    }
+
+    private TransactionRequest createTransactionRequest(Batch batch) {
+        TransactionBuilder txBuilder = adapter.createTransactionBuilder(batch.hands.get(0).request);
+        TreeMap<Integer, Money> operatorRake = new TreeMap<Integer, Money>();
+        StringBuilder handIds = new StringBuilder();
+        for (int i = 0; i < batch.hands.size(); i++) {
+            PendingHand hand = batch.hands.get(i);
+            adapter.createHandResultEntries(hand.request, txBuilder, hand.sessions);
+            adapter.collectOperatorRake(hand.request, operatorRake);
+            handIds.append(handIds.length() == 0 ? "" : ",").append(hand.request.getHandId());
+            txBuilder.attribute("pokerHandId." + i, hand.request.getHandId())
+                    .attribute("pokerTableId." + i, String.valueOf(hand.request.getTableId().integrationId));
+        }
+        adapter.createRakeEntries(operatorRake, txBuilder);
+        txBuilder.comment("poker hand results");
+        txBuilder.attribute("pokerGameId", String.valueOf(CashGamesBackendAdapter.GAME_ID)).attribute("pokerHandIds", handIds.toString());
+        return txBuilder.toTransactionRequest();
+    }
+
+    private void performSeparately(List<PendingHand> hands) {
+        for (PendingHand hand : hands) {
+            try {
+                hand.succeeded(adapter.doBatchHand(hand.request));
+            } catch (BatchHandFailedException e) {
+                hand.failed(e);
+            } catch (RuntimeException e) {
+                hand.failed(new BatchHandFailedException("error reporting hand result", e, true));
+            }
+        }
+    }
+
+    /**
+     * Hands reported in one wallet transaction.
+     */
+    private static class Batch {
+
+        private final String currencyCode;
+
+        private final int fractionalDigits;
+
+        private final List<PendingHand> hands = new ArrayList<PendingHand>();
+
+        private final Set<String> sessions = new HashSet<String>();
+
+        private boolean closed;
+
+        private Batch(Money currency) {
+            this.currencyCode = currency.getCurrencyCode();
+            this.fractionalDigits = currency.getFractionalDigits();
+        }
+
+        private boolean accepts(PendingHand hand) {
+            Money currency = hand.request.getTotalRake();
+            if (!currencyCode.equals(currency.getCurrencyCode()) || fractionalDigits != currency.getFractionalDigits()) {
+                return false;
+            }
+            for (HandResult result : hand.request.getHandResults()) {
+                if (sessions.contains(result.getPlayerSession().integrationSessionId)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private void add(PendingHand hand) {
+            hands.add(hand);
+            for (HandResult result : hand.request.getHandResults()) {
+                sessions.add(result.getPlayerSession().integrationSessionId);
+            }
+        }
+
+        private int size() {
+            return hands.size();
+        }
+    }
+
+    /**
+     * A hand waiting for its wallet transaction.
+     */
+    private static class PendingHand {
+
+        private final BatchHandRequest request;
+
+        /**
+         * Maps wallet session account to player session, used to pick the balances of this hand.
+         */
+        private final Map<Long, PlayerSessionId> sessions = new HashMap<Long, PlayerSessionId>();
+
+        private final CountDownLatch done = new CountDownLatch(1);
+
+        private volatile BatchHandResponse response;
+
+        private volatile BatchHandFailedException failure;
+
+        private PendingHand(BatchHandRequest request) {
+            this.request = request;
+        }
+
+        private void succeeded(BatchHandResponse response) {
+            this.response = response;
+            done.countDown();
+        }
+
+        private void failed(BatchHandFailedException failure) {
+            this.failure = failure;
+            done.countDown();
+        }
+
+        private BatchHandResponse awaitResult() throws BatchHandFailedException {
+            try {
+                done.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                // the batch may still commit the hand
+                throw new BatchHandFailedException("interrupted while waiting for hand result of " + request.getHandId(), e, true);
+            }
+            if (failure != null) {
+                throw failure;
+            }
+            return response;
+        }
+    }
+}
@@ -0,0 +1,79 @@
+/**
+ * Copyright (C) 2012 Cubeia Ltd <info@cubeia.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.cubeia.backend.firebase;
+
+import org.apache.log4j.Logger;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.Properties;
+
+/**
+ * Helper class for reading the wallet adapter configuration. Will load the file "poker.properties" in the config directory of Firebase.
+ */
+public class WalletAdapterConfiguration {
+
+    private static final Logger log = Logger.getLogger(WalletAdapterConfiguration.class);
+    private boolean coalesceHands;
+    private int maxHandsPerTransaction;
+    private long coalescingWindowMillis;
+
+    public WalletAdapterConfiguration load(String configPath) {
+        Properties properties = loadProperties(configPath);
+        coalesceHands = Boolean.parseBoolean(properties.getProperty("wallet.coalesce-hands", "false"));
+        maxHandsPerTransaction = Integer.parseInt(properties.getProperty("wallet.coalesce-max-hands", "10"));
+        coalescingWindowMillis = Long.parseLong(properties.getProperty("wallet.coalesce-window-millis", "5"));
+        return this;
+    }
+
+    private Properties loadProperties(String configPath) {
+        Properties properties = new Properties();
+        FileInputStream stream = null;
+        try {
+            stream = new FileInputStream(new File(configPath + "/poker.properties"));
+            properties.load(stream);
+        } catch (IOException e) {
+            log.warn("Could not load properties from " + configPath + ". Using defaults.");
+        } finally {
+            if (stream != null) {
+                try {
+                    stream.close();
+                } catch (IOException e) {
+                    log.debug("Failed closing stream.");
+                }
+            }
+        }
+        return properties;
+    }
+
+    /**
+     * Returns true if hand results from different tables should be reported in shared wallet transactions.
+     */
+    public boolean isCoalesceHands() {
+        return coalesceHands;
+    }
+
+    public int getMaxHandsPerTransaction() {
+        return maxHandsPerTransaction;
+    }
+
+    public long getCoalescingWindowMillis() {
+        return coalescingWindowMillis;
+    }
+}
@@ -0,0 +1,224 @@
+/**
+ * Copyright (C) 2012 Cubeia Ltd <info@cubeia.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.cubeia.backend.firebase;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import com.cubeia.backend.cashgame.PlayerSessionId;
+import com.cubeia.backend.cashgame.TableId;
+import com.cubeia.backend.cashgame.dto.BatchHandRequest;
+import com.cubeia.backend.cashgame.dto.BatchHandResponse;
+import com.cubeia.backend.cashgame.dto.HandResult;
+import com.cubeia.backend.cashgame.dto.TransactionUpdate;
+import com.cubeia.backend.cashgame.exceptions.BatchHandFailedException;
+import com.cubeia.backoffice.wallet.api.config.AccountRole;
+import com.cubeia.backoffice.wallet.api.dto.AccountBalanceResult;
+import com.cubeia.backoffice.wallet.api.dto.report.TransactionEntry;
+import com.cubeia.backoffice.wallet.api.dto.report.TransactionRequest;
+import com.cubeia.backoffice.wallet.api.dto.report.TransactionResult;
+import com.cubeia.firebase.api.service.clientregistry.PublicClientRegistryService;
+import com.cubeia.games.poker.common.money.Currency;
+import com.cubeia.games.poker.common.money.Money;
+import com.cubeia.network.users.firebase.api.UserServiceContract;
+import com.cubeia.network.wallet.firebase.api.WalletServiceContract;
+import com.cubeia.poker.domainevents.api.DomainEventsService;
+
+public class HandTransactionCoalescerTest {
+
+    private static final long RAKE_ACCOUNT_ID = -5000L;
+
+    private CashGamesBackendAdapter backend;
+
+    private ExecutorService executor = Executors.newFixedThreadPool(2);
+
+    private Currency eur = new Currency("EUR", 2);
+
+    @Mock
+    private AccountLookupUtil accountLookupUtil;
+    @Mock
+    private WalletServiceContract walletService;
+    @Mock
+    private PublicClientRegistryService clientRegistry;
+    @Mock
+    private DomainEventsService domainEventService;
+    @Mock
+    private UserServiceContract userServiceContract;
+
+    @Before
+    public void setup() throws Exception {
+        MockitoAnnotations.initMocks(this);
+        backend = new CashGamesBackendAdapter(walletService, accountLookupUtil, clientRegistry, domainEventService, userServiceContract);
+        when(accountLookupUtil.lookupOperatorAccount(0, "EUR", AccountRole.RAKE)).thenReturn(RAKE_ACCOUNT_ID);
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testConcurrentHandsShareOneTransaction() throws Exception {
+        backend.setHandTransactionCoalescer(new HandTransactionCoalescer(backend, 2, 10000));
+        TransactionResult txResult = mock(TransactionResult.class);
+        when(txResult.getBalances()).thenReturn(Arrays.asList(balance(101L, "11.00"), balance(102L, "12.00"),
+                balance(201L, "21.00"), balance(202L, "22.00"), balance(RAKE_ACCOUNT_ID, "1000.00")));
+        ArgumentCaptor<TransactionRequest> txCaptor = ArgumentCaptor.forClass(TransactionRequest.class);
+        when(walletService.doTransaction(txCaptor.capture())).thenReturn(txResult);
+
+        Future<BatchHandResponse> table1 = report(hand("h1", 1, 101L, 102L));
+        Future<BatchHandResponse> table2 = report(hand("h2", 2, 201L, 202L));
+
+        assertSessions(table1.get(), 101L, 102L);
+        assertSessions(table2.get(), 201L, 202L);
+        verify(walletService, times(1)).doTransaction(any(TransactionRequest.class));
+
+        // four session entries and one rake entry summed over both hands
+        Collection<TransactionEntry> entries = txCaptor.getValue().getEntries();
+        assertThat(entries.size(), is(5));
+        for (TransactionEntry entry : entries) {
+            if (entry.getAccountId() == RAKE_ACCOUNT_ID) {
+                assertThat(entry.getAmount().getAmount(), is(new BigDecimal("2.00")));
+            }
+        }
+
+        // each hand keeps its table in the audit trail
+        Map<String, String> attributes = txCaptor.getValue().getAttributes();
+        for (int i = 0; i < 2; i++) {
+            String handId = attributes.get("pokerHandId." + i);
+            assertThat(attributes.get("pokerTableId." + i), is("t" + handId.substring(1)));
+        }
+        assertThat(new HashSet<String>(Arrays.asList(attributes.get("pokerHandId.0"), attributes.get("pokerHandId.1"))),
+                is(new HashSet<String>(Arrays.asList("h1", "h2"))));
+    }
+
+    @Test
+    public void testHandsAreSettledIfResponseFailsAfterCommit() throws Exception {
+        backend.setHandTransactionCoalescer(new HandTransactionCoalescer(backend, 2, 10000));
+        TransactionResult txResult = mock(TransactionResult.class);
+        when(txResult.getBalances()).thenThrow(new IllegalStateException("broken result"));
+        when(walletService.doTransaction(any(TransactionRequest.class))).thenReturn(txResult);
+
+        Future<BatchHandResponse> table1 = report(hand("h1", 1, 101L, 102L));
+        Future<BatchHandResponse> table2 = report(hand("h2", 2, 201L, 202L));
+
+        assertThat(table1.get().getResultingBalances().size(), is(0));
+        assertThat(table2.get().getResultingBalances().size(), is(0));
+        verify(walletService, times(1)).doTransaction(any(TransactionRequest.class));
+    }
+
+    @Test
+    public void testWalletErrorLeavesOutcomeUnknown() throws Exception {
+        backend.setHandTransactionCoalescer(new HandTransactionCoalescer(backend, 2, 10000));
+        when(walletService.doTransaction(any(TransactionRequest.class))).thenThrow(new RuntimeException("timeout"));
+
+        Future<BatchHandResponse> table1 = report(hand("h1", 1, 101L, 102L));
+        Future<BatchHandResponse> table2 = report(hand("h2", 2, 201L, 202L));
+
+        assertOutcomeUnknown(table1);
+        assertOutcomeUnknown(table2);
+        verify(walletService, times(1)).doTransaction(any(TransactionRequest.class));
+    }
+
+    @Test
+    public void testHandsWithSharedSessionAreNotCoalesced() throws Exception {
+        backend.setHandTransactionCoalescer(new HandTransactionCoalescer(backend, 2, 200));
+        TransactionResult txResult = mock(TransactionResult.class);
+        when(txResult.getBalances()).thenReturn(Arrays.asList(balance(101L, "11.00"), balance(102L, "12.00")));
+        when(walletService.doTransaction(any(TransactionRequest.class))).thenReturn(txResult);
+
+        Future<BatchHandResponse> hand1 = report(hand("h1", 1, 101L, 102L));
+        Future<BatchHandResponse> hand2 = report(hand("h2", 1, 101L, 102L));
+
+        assertSessions(hand1.get(), 101L, 102L);
+        assertSessions(hand2.get(), 101L, 102L);
+        verify(walletService, times(2)).doTransaction(any(TransactionRequest.class));
+    }
+
+    private Future<BatchHandResponse> report(final BatchHandRequest request) {
+        return executor.submit(new Callable<BatchHandResponse>() {
+            @Override
+            public BatchHandResponse call() throws Exception {
+                return backend.batchHand(request);
+            }
+        });
+    }
+
+    private void assertOutcomeUnknown(Future<BatchHandResponse> result) throws Exception {
+        try {
+            result.get();
+            fail("hand should fail");
+        } catch (ExecutionException e) {
+            assertThat(((BatchHandFailedException) e.getCause()).isOutcomeUnknown(), is(true));
+        }
+    }
+
+    private void assertSessions(BatchHandResponse response, long... sessionIds) {
+        assertThat(response.getResultingBalances().size(), is(sessionIds.length));
+        for (int i = 0; i < sessionIds.length; i++) {
+            TransactionUpdate update = response.getResultingBalances().get(i);
+            assertThat(update.getBalance().getPlayerSessionId().integrationSessionId, is(String.valueOf(sessionIds[i])));
+        }
+    }
+
+    /**
+     * Creates a hand where the first session wins 10 from the second, paying 1 in rake.
+     */
+    private BatchHandRequest hand(String handId, int tableId, long winnerSession, long loserSession) {
+        BatchHandRequest request = new BatchHandRequest(handId, new TableId(1, tableId, "t" + tableId), money("1.00"));
+        PlayerSessionId winner = new PlayerSessionId((int) winnerSession, "" + winnerSession);
+        PlayerSessionId loser = new PlayerSessionId((int) loserSession, "" + loserSession);
+        request.addHandResult(new HandResult(winner, money("10.00"), money("19.00"), money("1.00"), 1, 0, money("10.00")));
+        request.addHandResult(new HandResult(loser, money("10.00"), money("0.00"), money("0.00"), 2, 0, money("10.00")));
+        return request;
+    }
+
+    private AccountBalanceResult balance(long accountId, String amount) {
+        return new AccountBalanceResult(accountId, new com.cubeia.backoffice.accounting.api.Money("EUR", 2, new BigDecimal(amount)),
+                new HashMap<String, String>());
+    }
+
+    private Money money(String amount) {
+        return new Money(new BigDecimal(amount), eur);
+    }
+}
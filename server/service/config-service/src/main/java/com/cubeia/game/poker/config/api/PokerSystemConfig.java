@@ -26,4 +26,34 @@ import com.cubeia.firebase.api.server.conf.Property;
 @Configurated(inheritance = ALLOW, namespace = "com.cubeia.game.poker")
 public interface PokerSystemConfig extends Configurable {
 
+    /**
+     * If true, hand results are sent to the wallet asynchronously and the
+     * table starts the next hand before the previous one is confirmed.
+     */
+    @Property(defaultValue = "false")
+    public boolean useAsynchronousHandSettlement();
+
+    /**
+     * Maximum number of unconfirmed hands per table when settling
+     * asynchronously, the next hand waits when reached.
+     */
+    @Property(defaultValue = "3")
+    public int getMaxHandSettlementsInFlight();
+
+    /**
+     * Milliseconds to wait for the wallet to confirm a hand settled asynchronously.
+     * A hand not confirmed in time is handled as having an unknown outcome, it is
+     * logged for reconciliation and the table is crashed.
+     */
+    @Property(defaultValue = "60000")
+    public long getHandSettlementTimeout();
+
+    /**
+     * If true, cash game tables created from now on calculate side pots, rake and
+     * pot distribution on minor units of the currency instead of BigDecimal. Betting
+     * rounds are still calculated on BigDecimal.
+     */
+    @Property(defaultValue = "false")
+    public boolean useFixedPointAmounts();
+
 }
@@ -2,7 +2,6 @@ package com.cubeia.poker.domainevents.impl;
 
 import java.io.IOException;
 import java.math.BigDecimal;
-import java.nio.ByteBuffer;
 import java.util.Map;
 
 import com.cubeia.network.users.firebase.api.UserServiceContract;
@@ -27,9 +26,9 @@ import com.cubeia.firebase.api.service.Service;
 import com.cubeia.firebase.api.service.ServiceContext;
 import com.cubeia.firebase.api.service.clientregistry.PublicClientRegistryService;
 import com.cubeia.firebase.api.service.router.RouterService;
-import com.cubeia.firebase.io.StyxSerializer;
 import com.cubeia.games.poker.common.money.Currency;
 import com.cubeia.games.poker.common.money.Money;
+import com.cubeia.games.poker.io.PokerProtocolCodec;
 import com.cubeia.games.poker.io.protocol.AchievementNotificationPacket;
 import com.cubeia.games.poker.routing.service.io.protocol.PokerProtocolMessage;
 import com.cubeia.poker.domainevents.api.BonusEventWrapper;
@@ -57,8 +56,6 @@ public class DomainEventsServiceImpl implements Service, DomainEventsService, Ev
 	
 	ObjectMapper mapper = new ObjectMapper();
 	
-	/** We only need writing to so injected factory is needed */
-	private StyxSerializer serializer = new StyxSerializer(null);
     private static final String LEVEL_ATTRIBUTE = "level";
 
     public void init(ServiceContext con) throws SystemException {
@@ -147,11 +144,9 @@ public class DomainEventsServiceImpl implements Service, DomainEventsService, Ev
 		notification.playerId = playerId;
 		notification.message = wrapper.event;
 		
-		ByteBuffer notificationData = serializer.pack(notification);
-		PokerProtocolMessage msg = new PokerProtocolMessage(notificationData.array());
-		ByteBuffer msgData = serializer.pack(msg);
+		PokerProtocolMessage msg = new PokerProtocolMessage(PokerProtocolCodec.packArray(notification));
 		
-		ClientServiceAction action = new ClientServiceAction(playerId, 0, msgData.array());
+		ClientServiceAction action = new ClientServiceAction(playerId, 0, PokerProtocolCodec.packArray(msg));
 		log.debug("Send bonus event as client action: "+action);
 		router.getRouter().dispatchToPlayer(playerId, action);
 
@@ -32,6 +32,7 @@ import com.cubeia.firebase.api.service.ServiceRouter;
 import com.cubeia.firebase.api.service.sysstate.PublicSystemStateService;
 import com.cubeia.firebase.io.ProtocolObject;
 import com.cubeia.firebase.io.StyxSerializer;
+import com.cubeia.games.poker.io.PokerProtocolCodec;
 import com.cubeia.games.poker.io.protocol.Enums;
 import com.cubeia.games.poker.routing.service.io.protocol.ProtocolObjectFactory;
 import com.cubeia.games.poker.routing.service.io.protocol.TournamentIdRequest;
@@ -42,6 +43,16 @@ public class PlayerServiceImpl implements com.cubeia.firebase.api.service.Servic
 
     private static final String TOURNAMENT_ROOT = "/tournament";
 
+    /**
+     * Serializers for routing service packets, poker packets are packed by {@link PokerProtocolCodec}
+     */
+    private static final ThreadLocal<StyxSerializer> serializers = new ThreadLocal<StyxSerializer>() {
+        @Override
+        protected StyxSerializer initialValue() {
+            return new StyxSerializer(new ProtocolObjectFactory());
+        }
+    };
+
     protected PublicSystemStateService systemState;
 
     private Logger log = Logger.getLogger(this.getClass());
@@ -69,8 +80,7 @@ public class PlayerServiceImpl implements com.cubeia.firebase.api.service.Servic
 
 	@Override
 	public void onAction(ServiceAction e) {
-        StyxSerializer serializer = new StyxSerializer(new ProtocolObjectFactory());
-        ProtocolObject protocolRequestObject = serializer.unpack(ByteBuffer.wrap(e.getData()));
+        ProtocolObject protocolRequestObject = serializers.get().unpack(ByteBuffer.wrap(e.getData()));
         ProtocolObject protocolResponseObject = null;
 
         if (protocolRequestObject instanceof TournamentIdRequest) {
@@ -82,7 +92,7 @@ public class PlayerServiceImpl implements com.cubeia.firebase.api.service.Servic
         } 
 
         if (protocolResponseObject != null) {
-            byte[] responseData = serializer.pack(protocolResponseObject).array();
+            byte[] responseData = PokerProtocolCodec.packArray(protocolResponseObject);
             ServiceAction action = new ClientServiceAction(e.getPlayerId(), -1, responseData);
             router.dispatchToPlayer(e.getPlayerId(), action);
         }
@@ -39,14 +39,15 @@ import com.cubeia.firebase.api.mtt.model.MttRegisterResponse;
 import com.cubeia.firebase.api.mtt.model.MttRegistrationRequest;
 import com.cubeia.firebase.api.mtt.seating.SeatingContainer;
 import com.cubeia.firebase.api.mtt.support.MTTStateSupport;
-import com.cubeia.firebase.api.mtt.support.tables.Move;
-import com.cubeia.firebase.api.mtt.support.tables.TableBalancer;
 import com.cubeia.firebase.api.service.mttplayerreg.TournamentPlayerRegistry;
 import com.cubeia.firebase.guice.tournament.TournamentAssist;
 import com.cubeia.games.poker.common.lobby.PokerLobbyAttributes;
 import com.cubeia.games.poker.common.money.Money;
 import com.cubeia.games.poker.common.time.SystemTime;
 import com.cubeia.games.poker.io.protocol.TournamentOut;
+import com.cubeia.games.poker.tournament.balancing.BalancingPlan;
+import com.cubeia.games.poker.tournament.balancing.PlayerMove;
+import com.cubeia.games.poker.tournament.balancing.TableBalancingPlanner;
 import com.cubeia.games.poker.tournament.configuration.blinds.Level;
 import com.cubeia.games.poker.tournament.history.HistoryPersister;
 import com.cubeia.games.poker.tournament.messages.*;
@@ -56,6 +57,7 @@ import com.cubeia.games.poker.tournament.rebuy.RebuySupport;
 import com.cubeia.games.poker.tournament.state.PendingBackendRequests;
 import com.cubeia.games.poker.tournament.state.PendingBackendRequests.PendingRequestType;
 import com.cubeia.games.poker.tournament.state.PokerTournamentState;
+import com.cubeia.games.poker.tournament.state.TableSeatingIndex;
 import com.cubeia.games.poker.tournament.status.PokerTournamentStatus;
 import com.cubeia.games.poker.tournament.util.PacketSender;
 import com.cubeia.games.poker.tournament.util.TableNotifier;
@@ -339,6 +341,7 @@ public class PokerTournament implements TableNotifier, Serializable {
         PokerTournamentRoundReport report = (PokerTournamentRoundReport) action.getAttachment();
 
         updateBalances(report);
+        pokerState.setBigBlindOrder(tableId, report.getBigBlindOrder());
         increaseBlindsIfNeeded(report.getCurrentBlindsLevel(), tableId);
         Set<Integer> playersOut = getPlayersOut(report);
         log.debug("Players out of tournament[" + instance.getId() + "] : " + playersOut);
@@ -443,8 +446,9 @@ public class PokerTournament implements TableNotifier, Serializable {
 
     private Set<Integer> tablesWithLonelyPlayer() {
         Set<Integer> tables = newHashSet();
-        for (int tableId : state.getTables()) {
-            if (state.getPlayersAtTable(tableId).size() == 1) {
+        TableSeatingIndex seatingIndex = getSeatingIndex();
+        for (int tableId : seatingIndex.getTables()) {
+            if (seatingIndex.getTableSize(tableId) == 1) {
                 tables.add(tableId);
             }
         }
@@ -463,6 +467,7 @@ public class PokerTournament implements TableNotifier, Serializable {
         }
         if (pokerState.allTablesHaveBeenCreated(state.getTables().size())) {
             mttSupport.seatPlayers(state, createInitialSeating());
+            pokerState.invalidateSeatingIndex();
             scheduleSendStartToTables();
         }
     }
@@ -515,7 +520,6 @@ public class PokerTournament implements TableNotifier, Serializable {
         handlePayouts(playersOut);
         unseatPlayers(tableId, playersOut);
         updatePlayersLeft();
-        pokerState.invalidatePlayerToTableMap();
     }
 
     private void updatePlayersLeft() {
@@ -524,6 +528,10 @@ public class PokerTournament implements TableNotifier, Serializable {
 
     private void unseatPlayers(int tableId, Set<Integer> playersOut) {
         mttSupport.unseatPlayers(state, tableId, playersOut, UnseatPlayersMttAction.Reason.OUT);
+        TableSeatingIndex seatingIndex = getSeatingIndex();
+        for (Integer playerId : playersOut) {
+            seatingIndex.unseat(playerId);
+        }
     }
 
     private void handlePayouts(Set<Integer> playersOut) {
@@ -695,14 +703,30 @@ public class PokerTournament implements TableNotifier, Serializable {
 
     /**
      * Tries to balance the tables by moving one or more players from this table to other
-     * tables.
+     * tables, or breaks this table if the remaining players fit at fewer tables.
      *
      * @return <code>true</code> if the table was closed
      */
     private boolean balanceTables(int tableId) {
-        TableBalancer balancer = new TableBalancer();
-        List<Move> moves = balancer.calculateBalancing(createTableToPlayerMap(), state.getSeats(), tableId);
-        return applyBalancing(moves, tableId);
+        TableSeatingIndex seatingIndex = getSeatingIndex();
+        TableBalancingPlanner planner = new TableBalancingPlanner(state.getSeats());
+        BalancingPlan plan = planner.plan(tableId, seatingIndex.createTableToPlayerMap(), pokerState.getBigBlindOrder(tableId),
+                getPlayersWithPendingRequests(tableId));
+        if (plan.isBreakTable()) {
+            log.debug("Breaking table " + tableId + ", moving " + plan.getMoves().size() + " players to other tables.");
+        }
+        return applyBalancing(plan.getMoves(), tableId);
+    }
+
+    private Set<Integer> getPlayersWithPendingRequests(int tableId) {
+        Set<Integer> players = newHashSet(rebuySupport.getRebuyRequestsForTable(tableId));
+        PendingBackendRequests pendingRequests = pokerState.getPendingRequests();
+        for (Integer playerId : getSeatingIndex().getPlayersAtTable(tableId)) {
+            if (pendingRequests.playerHasPendingRequests(playerId)) {
+                players.add(playerId);
+            }
+        }
+        return players;
     }
 
     /**
@@ -711,21 +735,23 @@ public class PokerTournament implements TableNotifier, Serializable {
      * @param sourceTableId the table we are moving player from
      * @return true if table is closed
      */
-    private boolean applyBalancing(List<Move> moves, int sourceTableId) {
+    private boolean applyBalancing(List<PlayerMove> moves, int sourceTableId) {
         if (moves.isEmpty()) {
             return false; // Nothing to do
         }
         Set<Integer> tablesToStart = new HashSet<Integer>();
+        TableSeatingIndex seatingIndex = getSeatingIndex();
 
-        for (Move move : moves) {
+        for (PlayerMove move : moves) {
             int tableId = move.getDestinationTableId();
             int playerId = move.getPlayerId();
 
-            Collection<Integer> playersAtDestinationTableBeforeMoving = state.getPlayersAtTable(tableId);
+            int playersAtDestinationTableBeforeMoving = seatingIndex.getTableSize(tableId);
             // Move the player, we don't care which seat he gets put at, so set it to -1.
             log.debug("Moving player " + playerId + " from table " + sourceTableId + " to table " + tableId);
             mttSupport.movePlayer(state, playerId, tableId, -1, UnseatPlayersMttAction.Reason.BALANCING, pokerState.getPlayerBalance(playerId));
-            if (playersAtDestinationTableBeforeMoving.size() == 1) {
+            seatingIndex.seat(playerId, tableId);
+            if (playersAtDestinationTableBeforeMoving == 1) {
                 // There was only one player at the table before we moved this player there, start a new round.
                 tablesToStart.add(tableId);
             }
@@ -737,37 +763,22 @@ public class PokerTournament implements TableNotifier, Serializable {
             mttSupport.sendRoundStartActionToTables(state, tablesToStart);
         }
 
-        pokerState.invalidatePlayerToTableMap(); // The table to player map is not valid anymore.
         return closeTableIfEmpty(sourceTableId);
     }
 
     private boolean closeTableIfEmpty(int tableId) {
         if (state.getPlayersAtTable(tableId).isEmpty()) {
             mttSupport.closeTables(state, singleton(tableId));
+            getSeatingIndex().removeTable(tableId);
+            pokerState.removeBigBlindOrder(tableId);
             return true;
         }
 
         return false;
     }
 
-    /**
-     * Creates a map mapping tableId to a collection of playerIds of the players
-     * sitting at the table.
-     *
-     * @return the map
-     */
-    private Map<Integer, Collection<Integer>> createTableToPlayerMap() {
-        Map<Integer, Collection<Integer>> map = new HashMap<Integer, Collection<Integer>>();
-
-        for (Integer tableId : state.getTables()) {
-            List<Integer> players = new ArrayList<Integer>();
-            players.addAll(state.getPlayersAtTable(tableId));
-
-            if (players.size() > 0) {
-                map.put(tableId, players);
-            }
-        }
-        return map;
+    private TableSeatingIndex getSeatingIndex() {
+        return pokerState.getSeatingIndex(state);
     }
 
     private void scheduleTournamentStart() {
@@ -862,7 +873,7 @@ public class PokerTournament implements TableNotifier, Serializable {
         updatePayouts();
         createTables();
         historyPersister.tournamentStarted(state.getName());
-        pokerState.invalidatePlayerToTableMap();
+        pokerState.invalidateSeatingIndex();
     }
 
     private void updatePlayerStatuses(MttPlayerStatus status) {
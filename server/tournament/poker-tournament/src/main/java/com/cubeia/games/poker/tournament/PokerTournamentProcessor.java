@@ -48,6 +48,7 @@ import com.cubeia.games.poker.io.protocol.RequestBlindsStructure;
 import com.cubeia.games.poker.io.protocol.RequestPayoutInfo;
 import com.cubeia.games.poker.io.protocol.RequestTournamentLobbyData;
 import com.cubeia.games.poker.io.protocol.RequestTournamentPlayerList;
+import com.cubeia.games.poker.io.protocol.RequestTournamentPlayerListPage;
 import com.cubeia.games.poker.io.protocol.RequestTournamentRegistrationInfo;
 import com.cubeia.games.poker.io.protocol.RequestTournamentTable;
 import com.cubeia.games.poker.tournament.lobby.TournamentLobby;
@@ -185,6 +186,9 @@ public class PokerTournamentProcessor implements TournamentHandler, PlayerInterc
         int playerId = action.getPlayerId();
         if (packet instanceof RequestTournamentPlayerList) {
             prepareTournamentLobby(instance).sendPlayerListTo(playerId);
+        } else if (packet instanceof RequestTournamentPlayerListPage) {
+            RequestTournamentPlayerListPage request = (RequestTournamentPlayerListPage) packet;
+            prepareTournamentLobby(instance).sendPlayerListPageTo(playerId, request.offset, request.count);
         } else if (packet instanceof RequestBlindsStructure) {
             prepareTournamentLobby(instance).sendBlindsStructureTo(playerId);
         } else if (packet instanceof RequestPayoutInfo) {
@@ -0,0 +1,55 @@
+/**
+ * Copyright (C) 2012 Cubeia Ltd <info@cubeia.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.cubeia.games.poker.tournament.balancing;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The moves to make from a table when balancing. If the table is broken all its
+ * players are moved and the table should be closed.
+ */
+public class BalancingPlan {
+
+    public static final BalancingPlan NO_MOVES = new BalancingPlan(Collections.<PlayerMove>emptyList(), false);
+
+    private final List<PlayerMove> moves;
+
+    private final boolean breakTable;
+
+    public BalancingPlan(List<PlayerMove> moves, boolean breakTable) {
+        this.moves = moves;
+        this.breakTable = breakTable;
+    }
+
+    public List<PlayerMove> getMoves() {
+        return moves;
+    }
+
+    public boolean isBreakTable() {
+        return breakTable;
+    }
+
+    @Override
+    public String toString() {
+        return "BalancingPlan{" +
+                "moves=" + moves +
+                ", breakTable=" + breakTable +
+                '}';
+    }
+}
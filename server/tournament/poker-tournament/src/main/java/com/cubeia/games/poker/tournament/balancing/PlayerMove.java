@@ -0,0 +1,47 @@
+/**
+ * Copyright (C) 2012 Cubeia Ltd <info@cubeia.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.cubeia.games.poker.tournament.balancing;
+
+/**
+ * Moving a player to another table.
+ */
+public class PlayerMove {
+    private final int playerId;
+    private final int destinationTableId;
+
+    public PlayerMove(int playerId, int destinationTableId) {
+        this.playerId = playerId;
+        this.destinationTableId = destinationTableId;
+    }
+
+    public int getPlayerId() {
+        return playerId;
+    }
+
+    public int getDestinationTableId() {
+        return destinationTableId;
+    }
+
+    @Override
+    public String toString() {
+        return "PlayerMove{" +
+                "playerId=" + playerId +
+                ", destinationTableId=" + destinationTableId +
+                '}';
+    }
+}
@@ -0,0 +1,167 @@
+/**
+ * Copyright (C) 2012 Cubeia Ltd <info@cubeia.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.cubeia.games.poker.tournament.balancing;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import static com.google.common.collect.Maps.newHashMap;
+
+/**
+ * Plans table balancing and table breaking for the whole tournament.
+ * <p/>
+ * Only the players at the table whose hand just finished can be moved, since all other tables may
+ * be in the middle of a hand. The plan for that table is made against the seating of all tables:
+ * <ul>
+ * <li>If the tournament has more tables than needed to seat the remaining players, the table is
+ * among the smallest tables and the other tables have room for its players, the table is broken
+ * and all its players are moved. This consolidates tables as early as possible.</li>
+ * <li>Otherwise players are moved to the smallest tables until the table has at most one player
+ * more than the smallest table.</li>
+ * </ul>
+ * Players are moved in the order they will post the big blind, so the player who would pay the
+ * big blind in the next hand is moved first. Players with pending requests (e.g. a rebuy being
+ * processed) are never moved, and a table with such players is never broken.
+ */
+public class TableBalancingPlanner {
+
+    private final int seatsPerTable;
+
+    /**
+     * @param seatsPerTable number of seats at each table, 0 if unknown in which case no tables are broken
+     */
+    public TableBalancingPlanner(int seatsPerTable) {
+        this.seatsPerTable = seatsPerTable;
+    }
+
+    /**
+     * Plans the moves from the given table.
+     *
+     * @param sourceTableId  the table whose hand just finished
+     * @param tableToPlayers the players at each table with players
+     * @param bigBlindOrder  the players at the source table in the order they will post the big blind, may be empty
+     * @param lockedPlayers  players which must not be moved
+     * @return the plan, never null
+     */
+    public BalancingPlan plan(int sourceTableId, Map<Integer, Collection<Integer>> tableToPlayers, List<Integer> bigBlindOrder,
+                              Set<Integer> lockedPlayers) {
+        Collection<Integer> sourcePlayers = tableToPlayers.get(sourceTableId);
+        if (sourcePlayers == null || sourcePlayers.isEmpty() || tableToPlayers.size() < 2) {
+            return BalancingPlan.NO_MOVES;
+        }
+
+        final Map<Integer, Integer> tableSizes = newHashMap();
+        int remainingPlayers = 0;
+        for (Map.Entry<Integer, Collection<Integer>> table : tableToPlayers.entrySet()) {
+            tableSizes.put(table.getKey(), table.getValue().size());
+            remainingPlayers += table.getValue().size();
+        }
+        TreeSet<Integer> smallestFirst = new TreeSet<Integer>(new Comparator<Integer>() {
+            @Override
+            public int compare(Integer table1, Integer table2) {
+                int bySize = tableSizes.get(table1).compareTo(tableSizes.get(table2));
+                return bySize != 0 ? bySize : table1.compareTo(table2);
+            }
+        });
+        smallestFirst.addAll(tableSizes.keySet());
+        smallestFirst.remove(sourceTableId);
+
+        List<Integer> moveOrder = orderPlayers(sourcePlayers, bigBlindOrder);
+        if (shouldBreak(sourceTableId, tableSizes, smallestFirst, remainingPlayers, moveOrder, lockedPlayers)) {
+            return new BalancingPlan(planMoves(moveOrder, sourceTableId, tableSizes, smallestFirst, true), true);
+        }
+
+        List<Integer> movablePlayers = new ArrayList<Integer>(moveOrder);
+        movablePlayers.removeAll(lockedPlayers);
+        return new BalancingPlan(planMoves(movablePlayers, sourceTableId, tableSizes, smallestFirst, false), false);
+    }
+
+    /* ----------------------------------------------------
+      *
+      * 	PRIVATE METHODS
+      *
+      *  ---------------------------------------------------- */
+
+    private boolean shouldBreak(int sourceTableId, Map<Integer, Integer> tableSizes, TreeSet<Integer> otherTables, int remainingPlayers,
+                                List<Integer> players, Set<Integer> lockedPlayers) {
+        if (seatsPerTable <= 0) {
+            return false;
+        }
+        int tablesNeeded = (remainingPlayers + seatsPerTable - 1) / seatsPerTable;
+        int surplusTables = tableSizes.size() - tablesNeeded;
+        if (surplusTables <= 0) {
+            return false;
+        }
+        for (Integer playerId : players) {
+            if (lockedPlayers.contains(playerId)) {
+                return false;
+            }
+        }
+        int sourceSize = tableSizes.get(sourceTableId);
+        int smallerTables = 0;
+        int freeSeats = 0;
+        for (Integer tableId : otherTables) {
+            int size = tableSizes.get(tableId);
+            if (size < sourceSize) {
+                smallerTables++;
+            }
+            freeSeats += Math.max(0, seatsPerTable - size);
+        }
+        // Prefer breaking the smallest tables, they need the fewest moves.
+        return smallerTables < surplusTables && freeSeats >= sourceSize;
+    }
+
+    private List<PlayerMove> planMoves(List<Integer> players, int sourceTableId, Map<Integer, Integer> tableSizes,
+                                       TreeSet<Integer> smallestFirst, boolean breakTable) {
+        List<PlayerMove> moves = new ArrayList<PlayerMove>();
+        for (Integer playerId : players) {
+            int destination = smallestFirst.first();
+            int destinationSize = tableSizes.get(destination);
+            if (!breakTable && tableSizes.get(sourceTableId) - destinationSize <= 1) {
+                break;
+            }
+            if (seatsPerTable > 0 && destinationSize >= seatsPerTable) {
+                break;
+            }
+            moves.add(new PlayerMove(playerId, destination));
+            // Re-insert the destination with its new size to keep the set ordered.
+            smallestFirst.remove(destination);
+            tableSizes.put(destination, destinationSize + 1);
+            smallestFirst.add(destination);
+            tableSizes.put(sourceTableId, tableSizes.get(sourceTableId) - 1);
+        }
+        return moves;
+    }
+
+    private List<Integer> orderPlayers(Collection<Integer> players, List<Integer> bigBlindOrder) {
+        Set<Integer> ordered = new LinkedHashSet<Integer>();
+        for (Integer playerId : bigBlindOrder) {
+            if (players.contains(playerId)) {
+                ordered.add(playerId);
+            }
+        }
+        ordered.addAll(players);
+        return new ArrayList<Integer>(ordered);
+    }
+}
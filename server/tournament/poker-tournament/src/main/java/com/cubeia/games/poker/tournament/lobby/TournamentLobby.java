@@ -27,11 +27,11 @@ import com.cubeia.games.poker.common.time.SystemTime;
 import com.cubeia.games.poker.io.protocol.*;
 import com.cubeia.games.poker.tournament.configuration.blinds.Level;
 import com.cubeia.games.poker.tournament.configuration.payouts.Payouts;
+import com.cubeia.games.poker.tournament.state.ChipLeaderboard;
 import com.cubeia.games.poker.tournament.state.PokerTournamentState;
 import com.cubeia.games.poker.tournament.status.PokerTournamentStatus;
 import com.cubeia.games.poker.tournament.util.PacketSender;
 import com.google.common.annotations.VisibleForTesting;
-import com.google.common.collect.Lists;
 import com.google.inject.assistedinject.Assisted;
 import org.apache.log4j.Logger;
 
@@ -41,11 +41,14 @@ import java.math.RoundingMode;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import static com.cubeia.firebase.api.mtt.model.MttPlayerStatus.OUT;
+import static com.cubeia.firebase.api.mtt.model.MttPlayerStatus.PLAYING;
 import static com.cubeia.games.poker.common.money.MoneyFormatter.format;
 import static com.google.common.collect.Lists.newArrayList;
+import static com.google.common.collect.Maps.newHashMap;
 import static java.util.Collections.reverseOrder;
 import static java.util.Collections.sort;
 
@@ -91,6 +94,10 @@ public class TournamentLobby {
         sendPacketToPlayer(pokerState.getPlayerList(), playerId);
     }
 
+    public void sendPlayerListPageTo(int playerId, int offset, int count) {
+        sendPacketToPlayer(getPlayerListPage(offset, count), playerId);
+    }
+
     public void sendBlindsStructureTo(int playerId) {
         BlindsStructure packet = getBlindsStructurePacket();
         sendPacketToPlayer(packet, playerId);
@@ -166,7 +173,7 @@ public class TournamentLobby {
 
             int position = player.getStatus() == OUT ? player.getPosition() : runningPosition;
 
-            players.add(new TournamentPlayer(player.getScreenname(), format(stackSize), position, format(getWinningsFor(playerId)), getTableFor(playerId), playerId));
+            players.add(createTournamentPlayer(player, stackSize, position));
             lastChipStack = stackSize;
         }
 
@@ -175,6 +182,51 @@ public class TournamentLobby {
         return list;
     }
 
+    /**
+     * Returns a part of the player list. Pages with only playing players are served straight from the
+     * chip leaderboard, without creating the full list.
+     *
+     * @param offset index of the first player
+     * @param count  maximum number of players
+     * @return the page
+     */
+    @VisibleForTesting
+    TournamentPlayerListPage getPlayerListPage(int offset, int count) {
+        int totalPlayers = state.getPlayerRegistry().size();
+        int from = Math.max(0, Math.min(offset, totalPlayers));
+        int to = Math.max(from, (int) Math.min((long) from + count, totalPlayers));
+
+        List<TournamentPlayer> players = getLeaderboardPlayers(from, to);
+        if (players == null) {
+            players = newArrayList(getPlayerList().players.subList(from, to));
+        }
+        return new TournamentPlayerListPage(from, totalPlayers, players);
+    }
+
+    /**
+     * Returns the players at the given indexes if they are all playing and have chips, null otherwise.
+     */
+    private List<TournamentPlayer> getLeaderboardPlayers(int from, int to) {
+        ChipLeaderboard leaderboard = pokerState.getChipLeaderboard();
+        if (to > leaderboard.size()) {
+            return null;
+        }
+        List<TournamentPlayer> players = newArrayList();
+        for (Integer playerId : leaderboard.getPlayers(from, to - from)) {
+            MttPlayer player = pokerState.getTournamentPlayer(playerId, state);
+            if (player == null || player.getStatus() != PLAYING) {
+                return null;
+            }
+            players.add(createTournamentPlayer(player, leaderboard.getStack(playerId), leaderboard.getPlace(playerId)));
+        }
+        return players;
+    }
+
+    private TournamentPlayer createTournamentPlayer(MttPlayer player, BigDecimal stackSize, int position) {
+        int playerId = player.getPlayerId();
+        return new TournamentPlayer(player.getScreenname(), format(stackSize), position, format(getWinningsFor(playerId)), getTableFor(playerId), playerId);
+    }
+
     TournamentTables getTournamentTables() {
         TournamentTables tournamentTables = new TournamentTables();
         Set<Integer> tables = state.getTables();
@@ -196,9 +248,31 @@ public class TournamentLobby {
         return pokerState.getTableFor(playerId, state);
     }
 
+    /**
+     * Sorts the players in the order given by the {@link TournamentPlayerListComparator}, reversed. Playing players
+     * with chips are taken in order from the chip leaderboard, so only the players without chips are sorted.
+     */
     private List<MttPlayer> sortPlayers(Collection<MttPlayer> players) {
-        List<MttPlayer> list = newArrayList(players);
-        sort(list, reverseOrder(new TournamentPlayerListComparator(pokerState)));
+        ChipLeaderboard leaderboard = pokerState.getChipLeaderboard();
+        Map<Integer, MttPlayer> playersWithChips = newHashMap();
+        List<MttPlayer> otherPlayers = newArrayList();
+        for (MttPlayer player : players) {
+            if (player.getStatus() == PLAYING && leaderboard.contains(player.getPlayerId())) {
+                playersWithChips.put(player.getPlayerId(), player);
+            } else {
+                otherPlayers.add(player);
+            }
+        }
+
+        List<MttPlayer> list = new ArrayList<MttPlayer>(players.size());
+        for (Integer playerId : leaderboard.getPlayers(0, leaderboard.size())) {
+            MttPlayer player = playersWithChips.get(playerId);
+            if (player != null) {
+                list.add(player);
+            }
+        }
+        sort(otherPlayers, reverseOrder(new TournamentPlayerListComparator(pokerState)));
+        list.addAll(otherPlayers);
         return list;
     }
 
@@ -218,31 +292,14 @@ public class TournamentLobby {
     }
 
     ChipStatistics getChipStatistics() {
-        BigDecimal smallestStack = new BigDecimal(Integer.MAX_VALUE);
-        BigDecimal biggestStack = BigDecimal.ZERO;
-        BigDecimal totalChips = BigDecimal.ZERO;
+        ChipLeaderboard leaderboard = pokerState.getChipLeaderboard();
+        BigDecimal totalChips = leaderboard.getTotalChips();
         BigDecimal averageStack = BigDecimal.ZERO;
-        for (MttPlayer player : state.getPlayerRegistry().getPlayers()) {
-            BigDecimal chipStack = pokerState.getPlayerBalance(player.getPlayerId());
-            if (chipStack.compareTo(BigDecimal.ZERO) == 0) {
-                continue;
-            }
-            if (chipStack.compareTo(smallestStack) <0 ) {
-                smallestStack = chipStack;
-            }
-            if (chipStack.compareTo(biggestStack) > 0) {
-                biggestStack = chipStack;
-            }
-            totalChips = totalChips.add(chipStack);
-        }
-        if (smallestStack.compareTo(new BigDecimal(Integer.MAX_VALUE)) == 0) {
-            smallestStack = BigDecimal.ZERO;
-        }
         if (state.getRemainingPlayerCount() > 0) {
             averageStack = totalChips.divide(new BigDecimal(state.getRemainingPlayerCount()),0, RoundingMode.DOWN);
         }
         log.debug("Total chips: " + totalChips + " Players still in: " + state.getRemainingPlayerCount() + " Average: " + averageStack);
-        return new ChipStatistics(format(smallestStack), format(biggestStack), format(averageStack));
+        return new ChipStatistics(format(leaderboard.getSmallestStack()), format(leaderboard.getBiggestStack()), format(averageStack));
     }
 
     private PlayersLeft getPlayerLeft() {
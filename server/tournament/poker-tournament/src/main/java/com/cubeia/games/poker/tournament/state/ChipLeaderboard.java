@@ -0,0 +1,274 @@
+/**
+ * Copyright (C) 2012 Cubeia Ltd <info@cubeia.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.cubeia.games.poker.tournament.state;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Players with chips ordered by stack size, biggest stack first. Players with the same stack
+ * are ordered by player id.
+ * <p/>
+ * The players are kept in a treap where each node knows the size of its sub tree, so updating
+ * a stack and looking up places, stacks at a place or a page of the list are all O(log N)
+ * (plus the size of the page). The total number of chips is kept up to date on each change.
+ * <p/>
+ * Players without chips (stack zero or less) are not in the leaderboard.
+ */
+public class ChipLeaderboard {
+
+    private final Map<Integer, BigDecimal> stacks = new HashMap<Integer, BigDecimal>();
+
+    private final Random random = new Random();
+
+    private Node root;
+
+    private BigDecimal totalChips = BigDecimal.ZERO;
+
+    /**
+     * Sets the stack of a player. A stack of zero or less removes the player.
+     *
+     * @param playerId player id
+     * @param stack    the new stack size
+     */
+    public void update(int playerId, BigDecimal stack) {
+        remove(playerId);
+        if (stack != null && stack.signum() > 0) {
+            stacks.put(playerId, stack);
+            Node[] parts = split(root, stack, playerId);
+            root = merge(merge(parts[0], new Node(playerId, stack, random.nextInt())), parts[1]);
+            totalChips = totalChips.add(stack);
+        }
+    }
+
+    public void remove(int playerId) {
+        BigDecimal stack = stacks.remove(playerId);
+        if (stack != null) {
+            Node[] parts = split(root, stack, playerId);
+            root = merge(parts[0], removeFirst(parts[1]));
+            totalChips = totalChips.subtract(stack);
+        }
+    }
+
+    public boolean contains(int playerId) {
+        return stacks.containsKey(playerId);
+    }
+
+    /**
+     * Returns the number of players with chips.
+     */
+    public int size() {
+        return stacks.size();
+    }
+
+    /**
+     * Returns the stack of a player, zero if the player has no chips.
+     */
+    public BigDecimal getStack(int playerId) {
+        BigDecimal stack = stacks.get(playerId);
+        return stack == null ? BigDecimal.ZERO : stack;
+    }
+
+    /**
+     * Returns the place of a player. Players with the same stack share a place and the place
+     * after them is skipped, i.e. 1, 2, 2, 4.
+     *
+     * @param playerId player id
+     * @return the place, starting at 1, or -1 if the player has no chips
+     */
+    public int getPlace(int playerId) {
+        BigDecimal stack = stacks.get(playerId);
+        if (stack == null) {
+            return -1;
+        }
+        // Players with the same stack are ordered by id, so nothing orders before the smallest id
+        return countBefore(stack, Integer.MIN_VALUE) + 1;
+    }
+
+    /**
+     * Returns the index of a player in the leaderboard.
+     *
+     * @param playerId player id
+     * @return the index, starting at 0, or -1 if the player has no chips
+     */
+    public int getIndex(int playerId) {
+        BigDecimal stack = stacks.get(playerId);
+        return stack == null ? -1 : countBefore(stack, playerId);
+    }
+
+    /**
+     * Returns a page of the leaderboard.
+     *
+     * @param offset index of the first player
+     * @param count  maximum number of players to return
+     * @return player ids, biggest stack first
+     */
+    public List<Integer> getPlayers(int offset, int count) {
+        int to = (int) Math.min((long) offset + count, size());
+        List<Integer> players = new ArrayList<Integer>(Math.max(0, to - offset));
+        collect(root, 0, offset, to, players);
+        return players;
+    }
+
+    public BigDecimal getBiggestStack() {
+        Node node = root;
+        if (node == null) {
+            return BigDecimal.ZERO;
+        }
+        while (node.left != null) {
+            node = node.left;
+        }
+        return node.stack;
+    }
+
+    public BigDecimal getSmallestStack() {
+        Node node = root;
+        if (node == null) {
+            return BigDecimal.ZERO;
+        }
+        while (node.right != null) {
+            node = node.right;
+        }
+        return node.stack;
+    }
+
+    public BigDecimal getTotalChips() {
+        return totalChips;
+    }
+
+    /* ----------------------------------------------------
+      *
+      * 	PRIVATE METHODS
+      *
+      *  ---------------------------------------------------- */
+
+    /**
+     * Returns true if the node is ordered before the given stack and player id.
+     */
+    private static boolean isBefore(Node node, BigDecimal stack, int playerId) {
+        int result = node.stack.compareTo(stack);
+        return result > 0 || (result == 0 && node.playerId < playerId);
+    }
+
+    private int countBefore(BigDecimal stack, int playerId) {
+        int count = 0;
+        Node node = root;
+        while (node != null) {
+            if (isBefore(node, stack, playerId)) {
+                count += size(node.left) + 1;
+                node = node.right;
+            } else {
+                node = node.left;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Splits a tree in the nodes ordered before the given stack and player id, and the rest.
+     */
+    private static Node[] split(Node node, BigDecimal stack, int playerId) {
+        if (node == null) {
+            return new Node[2];
+        }
+        if (isBefore(node, stack, playerId)) {
+            Node[] parts = split(node.right, stack, playerId);
+            node.right = parts[0];
+            parts[0] = node.update();
+            return parts;
+        } else {
+            Node[] parts = split(node.left, stack, playerId);
+            node.left = parts[1];
+            parts[1] = node.update();
+            return parts;
+        }
+    }
+
+    /**
+     * Merges two trees where all nodes in the first are ordered before the nodes in the second.
+     */
+    private static Node merge(Node first, Node second) {
+        if (first == null) {
+            return second;
+        }
+        if (second == null) {
+            return first;
+        }
+        if (first.priority > second.priority) {
+            first.right = merge(first.right, second);
+            return first.update();
+        } else {
+            second.left = merge(first, second.left);
+            return second.update();
+        }
+    }
+
+    private static Node removeFirst(Node node) {
+        if (node.left == null) {
+            return node.right;
+        }
+        node.left = removeFirst(node.left);
+        return node.update();
+    }
+
+    private static void collect(Node node, int base, int from, int to, List<Integer> players) {
+        if (node == null || base >= to || base + node.size <= from) {
+            return;
+        }
+        int index = base + size(node.left);
+        collect(node.left, base, from, to, players);
+        if (index >= from && index < to) {
+            players.add(node.playerId);
+        }
+        collect(node.right, index + 1, from, to, players);
+    }
+
+    private static int size(Node node) {
+        return node == null ? 0 : node.size;
+    }
+
+    private static class Node {
+
+        private final int playerId;
+
+        private final BigDecimal stack;
+
+        private final int priority;
+
+        private int size = 1;
+
+        private Node left;
+
+        private Node right;
+
+        private Node(int playerId, BigDecimal stack, int priority) {
+            this.playerId = playerId;
+            this.stack = stack;
+            this.priority = priority;
+        }
+
+        private Node update() {
+            size = 1 + ChipLeaderboard.size(left) + ChipLeaderboard.size(right);
+            return this;
+        }
+    }
+}
@@ -23,8 +23,10 @@ import static org.joda.time.Seconds.secondsBetween;
 
 import java.io.Serializable;
 import java.math.BigDecimal;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -118,11 +120,14 @@ public class PokerTournamentState implements Serializable {
     // Sorted player list which is shown in the tournament lobby. Transient to reduce serialized size.
     private transient TournamentPlayerList playerList;
 
-    // Maps playerId -> tableId where he sits. Transient to reduce serialized size.
-    private transient Map<Integer, Integer> playerToTableMap;
+    // Maps playerId -> tableId where he sits and tableId -> players at the table. Transient to reduce serialized size.
+    private transient TableSeatingIndex seatingIndex;
 
     private transient TournamentStatistics tournamentStatistics;
 
+    // Players with chips ordered by stack size, rebuilt from the balances when needed. Transient to reduce serialized size.
+    private transient ChipLeaderboard chipLeaderboard;
+
     private transient com.cubeia.games.poker.io.protocol.BlindsStructure blindsStructurePacket;
 
     private int templateId;
@@ -135,6 +140,9 @@ public class PokerTournamentState implements Serializable {
 
     private PendingBackendRequests pendingRequests = new PendingBackendRequests();
 
+    /** Maps tableId to the players at the table in the order they will post the big blind, as reported after the last hand. */
+    private Map<Integer, List<Integer>> bigBlindOrder = newHashMap();
+
     private boolean sitAndGo;
 
     private BetStrategyType betStrategy;
@@ -199,6 +207,19 @@ public class PokerTournamentState implements Serializable {
         return pendingRequests;
     }
 
+    public List<Integer> getBigBlindOrder(int tableId) {
+        List<Integer> order = bigBlindOrder.get(tableId);
+        return order == null ? Collections.<Integer>emptyList() : order;
+    }
+
+    public void setBigBlindOrder(int tableId, List<Integer> order) {
+        bigBlindOrder.put(tableId, order);
+    }
+
+    public void removeBigBlindOrder(int tableId) {
+        bigBlindOrder.remove(tableId);
+    }
+
     public BigDecimal getStartingChips() {
         return startingChips;
     }
@@ -268,6 +289,23 @@ public class PokerTournamentState implements Serializable {
 
     public void setBalance(int playerId, BigDecimal balance) {
         balances.put(playerId, balance);
+        if (chipLeaderboard != null) {
+            chipLeaderboard.update(playerId, balance);
+        }
+    }
+
+    public ChipLeaderboard getChipLeaderboard() {
+        if (chipLeaderboard == null) {
+            createChipLeaderboard();
+        }
+        return chipLeaderboard;
+    }
+
+    private void createChipLeaderboard() {
+        chipLeaderboard = new ChipLeaderboard();
+        for (Map.Entry<Integer, BigDecimal> balance : balances.entrySet()) {
+            chipLeaderboard.update(balance.getKey(), balance.getValue());
+        }
     }
 
     public PokerTournamentStatus getStatus() {
@@ -548,24 +586,25 @@ public class PokerTournamentState implements Serializable {
     }
 
     public int getTableFor(int playerId, MTTStateSupport state) {
-        if (playerToTableMap == null) {
-            createPlayerToTableMap(state);
-        }
-        Integer tableId = playerToTableMap.get(playerId);
-        return tableId == null ? -1 : tableId;
+        return getSeatingIndex(state).getTableFor(playerId);
     }
 
-    private void createPlayerToTableMap(MTTStateSupport state) {
-        playerToTableMap = newHashMap();
-        for (Integer tableId : state.getTables()) {
-            for (Integer playerId : state.getPlayersAtTable(tableId)) {
-                playerToTableMap.put(playerId, tableId);
-            }
+    /**
+     * Returns the index of where players sit, created from the given state if needed. The index must be
+     * updated when players are seated, moved or unseated, or invalidated.
+     *
+     * @param state the tournament state
+     * @return the index
+     */
+    public TableSeatingIndex getSeatingIndex(MTTStateSupport state) {
+        if (seatingIndex == null) {
+            seatingIndex = TableSeatingIndex.create(state);
         }
+        return seatingIndex;
     }
 
-    public void invalidatePlayerToTableMap() {
-        playerToTableMap = null;
+    public void invalidateSeatingIndex() {
+        seatingIndex = null;
     }
 
     public TournamentStatistics getTournamentStatistics() {
@@ -0,0 +1,149 @@
+/**
+ * Copyright (C) 2012 Cubeia Ltd <info@cubeia.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.cubeia.games.poker.tournament.state;
+
+import com.cubeia.firebase.api.mtt.support.MTTStateSupport;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+import static com.google.common.collect.Maps.newHashMap;
+
+/**
+ * Index of which player sits at which table, and which players sit at each table.
+ * <p/>
+ * The index is created from the tournament state once and then kept up to date as
+ * players are seated, moved and unseated, so looking up a player's table or the players
+ * at a table never requires scanning all tables. Only tables with players are in the index.
+ */
+public class TableSeatingIndex {
+
+    private final Map<Integer, Integer> playerToTable = newHashMap();
+
+    private final Map<Integer, Set<Integer>> tableToPlayers = newHashMap();
+
+    /**
+     * Creates an index of the players currently seated in the tournament.
+     *
+     * @param state the tournament state
+     * @return the index
+     */
+    public static TableSeatingIndex create(MTTStateSupport state) {
+        TableSeatingIndex index = new TableSeatingIndex();
+        for (Integer tableId : state.getTables()) {
+            for (Integer playerId : state.getPlayersAtTable(tableId)) {
+                index.seat(playerId, tableId);
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Seats a player at a table. If the player is seated at another table he is moved.
+     *
+     * @param playerId player id
+     * @param tableId  table id
+     */
+    public void seat(int playerId, int tableId) {
+        unseat(playerId);
+        playerToTable.put(playerId, tableId);
+        Set<Integer> players = tableToPlayers.get(tableId);
+        if (players == null) {
+            players = new LinkedHashSet<Integer>();
+            tableToPlayers.put(tableId, players);
+        }
+        players.add(playerId);
+    }
+
+    public void unseat(int playerId) {
+        Integer tableId = playerToTable.remove(playerId);
+        if (tableId != null) {
+            Set<Integer> players = tableToPlayers.get(tableId);
+            players.remove(playerId);
+            if (players.isEmpty()) {
+                tableToPlayers.remove(tableId);
+            }
+        }
+    }
+
+    /**
+     * Removes a closed table and unseats all players at it.
+     *
+     * @param tableId table id
+     */
+    public void removeTable(int tableId) {
+        Set<Integer> players = tableToPlayers.remove(tableId);
+        if (players != null) {
+            for (Integer playerId : players) {
+                playerToTable.remove(playerId);
+            }
+        }
+    }
+
+    /**
+     * Returns the table a player sits at.
+     *
+     * @param playerId player id
+     * @return the table id, or -1 if the player is not seated
+     */
+    public int getTableFor(int playerId) {
+        Integer tableId = playerToTable.get(playerId);
+        return tableId == null ? -1 : tableId;
+    }
+
+    /**
+     * Returns the players at a table.
+     *
+     * @param tableId table id
+     * @return a read only view of the players, empty if there are no players at the table
+     */
+    public Collection<Integer> getPlayersAtTable(int tableId) {
+        Set<Integer> players = tableToPlayers.get(tableId);
+        return players == null ? Collections.<Integer>emptySet() : Collections.unmodifiableSet(players);
+    }
+
+    public int getTableSize(int tableId) {
+        Set<Integer> players = tableToPlayers.get(tableId);
+        return players == null ? 0 : players.size();
+    }
+
+    /**
+     * Returns the ids of the tables with players.
+     */
+    public Set<Integer> getTables() {
+        return Collections.unmodifiableSet(tableToPlayers.keySet());
+    }
+
+    /**
+     * Creates a map from table id to the players at the table, for all tables with players.
+     * The map and player collections are copies which may be changed by the caller.
+     *
+     * @return the map
+     */
+    public Map<Integer, Collection<Integer>> createTableToPlayerMap() {
+        Map<Integer, Collection<Integer>> map = newHashMap();
+        for (Map.Entry<Integer, Set<Integer>> table : tableToPlayers.entrySet()) {
+            map.put(table.getKey(), new ArrayList<Integer>(table.getValue()));
+        }
+        return map;
+    }
+}
@@ -50,6 +50,7 @@ import com.cubeia.games.poker.tournament.messages.PokerTournamentRoundReport;
 import com.cubeia.games.poker.tournament.rebuy.RebuySupport;
 import com.cubeia.games.poker.tournament.state.PendingBackendRequests;
 import com.cubeia.games.poker.tournament.state.PokerTournamentState;
+import com.cubeia.games.poker.tournament.state.TableSeatingIndex;
 import com.cubeia.games.poker.tournament.status.PokerTournamentStatus;
 import com.cubeia.games.poker.tournament.util.PacketSender;
 import com.cubeia.network.users.firebase.api.UserServiceContract;
@@ -64,6 +65,8 @@ import org.mockito.ArgumentCaptor;
 import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
 
 import java.math.BigDecimal;
 import java.util.*;
@@ -679,5 +682,12 @@ public class PokerTournamentTest {
         tournament.injectTransientDependencies(instance, support, state, historyService, backend, new DefaultSystemTime(), shutdownService,
                 tournamentPlayerRegistry, sender, userService, domainEventService);
         pokerState.setBlindsStructure(createDefaultBlindsStructure());
+        // The tests change the seating of the mocked state directly, so index it on every lookup.
+        when(mockPokerState.getSeatingIndex(state)).thenAnswer(new Answer<TableSeatingIndex>() {
+            @Override
+            public TableSeatingIndex answer(InvocationOnMock invocation) throws Throwable {
+                return TableSeatingIndex.create(state);
+            }
+        });
     }
 }
@@ -0,0 +1,138 @@
+/**
+ * Copyright (C) 2012 Cubeia Ltd <info@cubeia.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.cubeia.games.poker.tournament.balancing;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static com.google.common.collect.Maps.newHashMap;
+import static java.util.Arrays.asList;
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+
+public class TableBalancingPlannerTest {
+
+    private static final Set<Integer> NO_LOCKED_PLAYERS = Collections.emptySet();
+
+    private static final List<Integer> NO_ORDER = Collections.emptyList();
+
+    private TableBalancingPlanner planner = new TableBalancingPlanner(10);
+
+    @Test
+    public void testMovesToSmallestTable() {
+        Map<Integer, Collection<Integer>> tables = tables(asList(1, 2, 3, 4, 5, 6, 7, 8, 9, 10), asList(11, 12, 13, 14, 15, 16, 17, 18));
+
+        BalancingPlan plan = planner.plan(1, tables, NO_ORDER, NO_LOCKED_PLAYERS);
+
+        assertThat(plan.isBreakTable(), is(false));
+        assertThat(plan.getMoves().size(), is(1));
+        assertThat(plan.getMoves().get(0).getDestinationTableId(), is(2));
+    }
+
+    @Test
+    public void testNoMovesWhenTablesAreBalanced() {
+        Map<Integer, Collection<Integer>> tables = tables(asList(1, 2, 3, 4, 5, 6, 7, 8, 9), asList(11, 12, 13, 14, 15, 16, 17, 18));
+
+        assertThat(planner.plan(1, tables, NO_ORDER, NO_LOCKED_PLAYERS).getMoves().isEmpty(), is(true));
+    }
+
+    @Test
+    public void testPlayerWhoIsNextBigBlindIsMovedFirst() {
+        Map<Integer, Collection<Integer>> tables = tables(asList(1, 2, 3, 4, 5, 6, 7, 8, 9, 10), asList(11, 12, 13, 14, 15, 16, 17));
+
+        BalancingPlan plan = planner.plan(1, tables, asList(7, 8, 9, 10, 1, 2, 3, 4, 5, 6), NO_LOCKED_PLAYERS);
+
+        assertThat(movedPlayers(plan), is(asList(7)));
+    }
+
+    @Test
+    public void testBreaksTableWhenPlayersFitAtFewerTables() {
+        Map<Integer, Collection<Integer>> tables = tables(asList(1, 2, 3), asList(11, 12, 13, 14, 15, 16), asList(21, 22, 23, 24, 25, 26, 27));
+
+        BalancingPlan plan = planner.plan(1, tables, NO_ORDER, NO_LOCKED_PLAYERS);
+
+        assertThat(plan.isBreakTable(), is(true));
+        assertThat(movedPlayers(plan), is(asList(1, 2, 3)));
+        // The smallest table gets players first, ties go to the lowest table id.
+        assertThat(plan.getMoves().get(0).getDestinationTableId(), is(2));
+        assertThat(plan.getMoves().get(1).getDestinationTableId(), is(2));
+        assertThat(plan.getMoves().get(2).getDestinationTableId(), is(3));
+    }
+
+    @Test
+    public void testDoesNotBreakTableWhenSmallerTablesCanBeBroken() {
+        Map<Integer, Collection<Integer>> tables = tables(asList(1, 2, 3, 4, 5, 6), asList(11, 12, 13), asList(21, 22, 23, 24, 25, 26, 27));
+
+        BalancingPlan plan = planner.plan(1, tables, NO_ORDER, NO_LOCKED_PLAYERS);
+
+        assertThat(plan.isBreakTable(), is(false));
+        assertThat(plan.getMoves().size(), is(1));
+        assertThat(plan.getMoves().get(0).getDestinationTableId(), is(2));
+    }
+
+    @Test
+    public void testDoesNotBreakTableWithPendingRequests() {
+        Map<Integer, Collection<Integer>> tables = tables(asList(1, 2, 3), asList(11, 12, 13, 14, 15, 16), asList(21, 22, 23, 24, 25, 26, 27));
+
+        BalancingPlan plan = planner.plan(1, tables, NO_ORDER, Collections.singleton(2));
+
+        assertThat(plan.isBreakTable(), is(false));
+        assertThat(plan.getMoves().isEmpty(), is(true));
+    }
+
+    @Test
+    public void testLockedPlayersAreNotMoved() {
+        Map<Integer, Collection<Integer>> tables = tables(asList(1, 2, 3, 4, 5, 6, 7, 8, 9, 10), asList(11, 12, 13, 14, 15, 16, 17));
+
+        BalancingPlan plan = planner.plan(1, tables, asList(7, 8, 9, 10, 1, 2, 3, 4, 5, 6), Collections.singleton(7));
+
+        assertThat(movedPlayers(plan), is(asList(8)));
+    }
+
+    @Test
+    public void testNoTablesAreBrokenWhenSeatsAreUnknown() {
+        Map<Integer, Collection<Integer>> tables = tables(asList(1), asList(11, 12, 13));
+
+        BalancingPlan plan = new TableBalancingPlanner(0).plan(2, tables, NO_ORDER, NO_LOCKED_PLAYERS);
+
+        assertThat(plan.isBreakTable(), is(false));
+        assertThat(movedPlayers(plan), is(asList(11)));
+    }
+
+    private List<Integer> movedPlayers(BalancingPlan plan) {
+        List<Integer> players = new ArrayList<Integer>();
+        for (PlayerMove move : plan.getMoves()) {
+            players.add(move.getPlayerId());
+        }
+        return players;
+    }
+
+    private Map<Integer, Collection<Integer>> tables(List<Integer>... players) {
+        Map<Integer, Collection<Integer>> tables = newHashMap();
+        for (int i = 0; i < players.length; i++) {
+            tables.put(i + 1, new ArrayList<Integer>(players[i]));
+        }
+        return tables;
+    }
+}
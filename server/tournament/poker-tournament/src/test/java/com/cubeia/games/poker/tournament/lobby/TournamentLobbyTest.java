@@ -28,8 +28,10 @@ import com.cubeia.games.poker.common.time.SystemTime;
 import com.cubeia.games.poker.io.protocol.ChipStatistics;
 import com.cubeia.games.poker.io.protocol.Enums;
 import com.cubeia.games.poker.io.protocol.TournamentPlayerList;
+import com.cubeia.games.poker.io.protocol.TournamentPlayerListPage;
 import com.cubeia.games.poker.tournament.configuration.blinds.BlindsStructure;
 import com.cubeia.games.poker.tournament.configuration.blinds.Level;
+import com.cubeia.games.poker.tournament.state.ChipLeaderboard;
 import com.cubeia.games.poker.tournament.state.PokerTournamentState;
 import com.cubeia.games.poker.tournament.status.PokerTournamentStatus;
 import com.cubeia.games.poker.tournament.util.PacketSender;
@@ -82,10 +84,13 @@ public class TournamentLobbyTest {
     @Mock
     private CashGamesBackendService backend;
 
+    private ChipLeaderboard leaderboard = new ChipLeaderboard();
+
     @Before
     public void setup() {
         initMocks(this);
         when(state.getPlayerRegistry()).thenReturn(playerRegistry);
+        when(pokerState.getChipLeaderboard()).thenReturn(leaderboard);
         lobby = new TournamentLobby(sender, dateFetcher, backend, state, pokerState);
     }
 
@@ -125,9 +130,9 @@ public class TournamentLobbyTest {
     public void testRounding() {
         when(state.getPlayerRegistry()).thenReturn(playerRegistry);
         when(playerRegistry.getPlayers()).thenReturn(players(1, 2, 3));
-        when(pokerState.getPlayerBalance(1)).thenReturn(bd("33"));
-        when(pokerState.getPlayerBalance(2)).thenReturn(bd("33"));
-        when(pokerState.getPlayerBalance(3)).thenReturn(bd("33"));
+        setBalance(1, bd("33"));
+        setBalance(2, bd("33"));
+        setBalance(3, bd("33"));
         when(state.getRemainingPlayerCount()).thenReturn(3);
         ChipStatistics statistics = lobby.getChipStatistics();
         assertThat(statistics.averageStack, is("33"));
@@ -143,14 +148,67 @@ public class TournamentLobbyTest {
     public void testExcludeZeroStacks() {
         when(state.getPlayerRegistry()).thenReturn(playerRegistry);
         when(playerRegistry.getPlayers()).thenReturn(players(1, 2, 3));
-        when(pokerState.getPlayerBalance(1)).thenReturn(bd("33"));
-        when(pokerState.getPlayerBalance(2)).thenReturn(bd("33"));
-        when(pokerState.getPlayerBalance(3)).thenReturn(bd("33"));
+        setBalance(1, bd("33"));
+        setBalance(2, bd("33"));
+        setBalance(3, bd("33"));
         when(state.getRemainingPlayerCount()).thenReturn(3);
         ChipStatistics statistics = lobby.getChipStatistics();
         assertThat(statistics.minStack, is("33"));
     }
 
+    @Test
+    public void testChipStatistics() {
+        when(playerRegistry.getPlayers()).thenReturn(players(1, 2, 3, 4));
+        setBalance(1, bd(500));
+        setBalance(2, bd(300));
+        setBalance(3, bd(700));
+        setBalance(4, bd(0));
+        when(state.getRemainingPlayerCount()).thenReturn(3);
+
+        ChipStatistics statistics = lobby.getChipStatistics();
+
+        assertThat(statistics.minStack, is("300"));
+        assertThat(statistics.maxStack, is("700"));
+        assertThat(statistics.averageStack, is("500"));
+    }
+
+    @Test
+    public void testPlayerListPageFromLeaderboard() {
+        MttPlayer p1 = createPlayer(1, "Adam", 540, -1, PLAYING);
+        MttPlayer p2 = createPlayer(2, "Ben", 520, -1, PLAYING);
+        MttPlayer p3 = createPlayer(3, "Caesar", 520, -1, PLAYING);
+        MttPlayer p4 = createPlayer(4, "Dave", 0, 4, OUT);
+        when(playerRegistry.size()).thenReturn(4);
+        for (MttPlayer player : ImmutableList.of(p1, p2, p3, p4)) {
+            when(pokerState.getTournamentPlayer(player.getPlayerId(), state)).thenReturn(player);
+        }
+
+        TournamentPlayerListPage page = lobby.getPlayerListPage(1, 2);
+
+        assertThat(page.offset, is(1));
+        assertThat(page.totalPlayers, is(4));
+        assertThat(page.players.size(), is(2));
+        assertThat(page.players.get(0).name, is("Ben"));
+        assertThat(page.players.get(0).position, is(2));
+        assertThat(page.players.get(1).name, is("Caesar"));
+        assertThat(page.players.get(1).position, is(2));
+    }
+
+    @Test
+    public void testPlayerListPageIncludingPlayersOut() {
+        MttPlayer p1 = createPlayer(1, "Adam", 540, -1, PLAYING);
+        MttPlayer p2 = createPlayer(2, "Ben", 0, 3, OUT);
+        MttPlayer p3 = createPlayer(3, "Caesar", 0, 2, OUT);
+        when(playerRegistry.getPlayers()).thenReturn(ImmutableList.of(p1, p2, p3));
+        when(playerRegistry.size()).thenReturn(3);
+
+        TournamentPlayerListPage page = lobby.getPlayerListPage(1, 10);
+
+        assertThat(page.players.size(), is(2));
+        assertThat(page.players.get(0).name, is("Caesar"));
+        assertThat(page.players.get(1).name, is("Ben"));
+    }
+
     @Test
     public void testBlindsStructureAmountFormatting() {
         Level level = new Level(bd(10), bd(20), bd(0), 1, false);
@@ -175,8 +233,13 @@ public class TournamentLobbyTest {
         return players;
     }
 
+    private void setBalance(int playerId, BigDecimal balance) {
+        when(pokerState.getPlayerBalance(playerId)).thenReturn(balance);
+        leaderboard.update(playerId, balance);
+    }
+
     public MttPlayer createPlayer(int playerId, String name, int balance, int position, MttPlayerStatus status) {
-        when(pokerState.getPlayerBalance(playerId)).thenReturn(bd(balance));
+        setBalance(playerId, bd(balance));
         MttPlayer player = new MttPlayer(playerId, name);
         player.setStatus(status);
         player.setPosition(position);
@@ -0,0 +1,145 @@
+/**
+ * Copyright (C) 2012 Cubeia Ltd <info@cubeia.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.cubeia.games.poker.tournament.state;
+
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static java.util.Arrays.asList;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+public class ChipLeaderboardTest {
+
+    private ChipLeaderboard leaderboard = new ChipLeaderboard();
+
+    @Test
+    public void testOrderAndSharedPlaces() {
+        leaderboard.update(1, bd(500));
+        leaderboard.update(2, bd(520));
+        leaderboard.update(3, bd(540));
+        leaderboard.update(4, bd(520));
+
+        assertThat(leaderboard.getPlayers(0, 10), is(asList(3, 2, 4, 1)));
+        assertThat(leaderboard.getPlace(3), is(1));
+        assertThat(leaderboard.getPlace(2), is(2));
+        assertThat(leaderboard.getPlace(4), is(2));
+        assertThat(leaderboard.getPlace(1), is(4));
+        assertThat(leaderboard.getIndex(4), is(2));
+    }
+
+    @Test
+    public void testUpdateMovesPlayer() {
+        leaderboard.update(1, bd(500));
+        leaderboard.update(2, bd(400));
+        leaderboard.update(2, bd(900));
+
+        assertThat(leaderboard.getPlayers(0, 10), is(asList(2, 1)));
+        assertThat(leaderboard.size(), is(2));
+        assertThat(leaderboard.getTotalChips(), is(bd(1400)));
+    }
+
+    @Test
+    public void testPlayerWithoutChipsIsRemoved() {
+        leaderboard.update(1, bd(500));
+        leaderboard.update(2, bd(400));
+        leaderboard.update(1, BigDecimal.ZERO);
+
+        assertThat(leaderboard.contains(1), is(false));
+        assertThat(leaderboard.getPlace(1), is(-1));
+        assertThat(leaderboard.getStack(1), is(BigDecimal.ZERO));
+        assertThat(leaderboard.getPlayers(0, 10), is(asList(2)));
+        assertThat(leaderboard.getTotalChips(), is(bd(400)));
+    }
+
+    @Test
+    public void testStatistics() {
+        assertThat(leaderboard.getBiggestStack(), is(BigDecimal.ZERO));
+        assertThat(leaderboard.getSmallestStack(), is(BigDecimal.ZERO));
+
+        leaderboard.update(1, bd(500));
+        leaderboard.update(2, bd(300));
+        leaderboard.update(3, bd(700));
+
+        assertThat(leaderboard.getBiggestStack(), is(bd(700)));
+        assertThat(leaderboard.getSmallestStack(), is(bd(300)));
+        assertThat(leaderboard.getTotalChips(), is(bd(1500)));
+    }
+
+    @Test
+    public void testPages() {
+        for (int playerId = 1; playerId <= 10; playerId++) {
+            leaderboard.update(playerId, bd(playerId * 100));
+        }
+
+        assertThat(leaderboard.getPlayers(0, 3), is(asList(10, 9, 8)));
+        assertThat(leaderboard.getPlayers(8, 5), is(asList(2, 1)));
+        assertThat(leaderboard.getPlayers(10, 5).size(), is(0));
+    }
+
+    /**
+     * Compares the leaderboard to a sorted list after random updates.
+     */
+    @Test
+    public void testAgreesWithSortedList() {
+        Random random = new Random(4711);
+        final Map<Integer, BigDecimal> stacks = new HashMap<Integer, BigDecimal>();
+        for (int i = 0; i < 2000; i++) {
+            int playerId = random.nextInt(300);
+            BigDecimal stack = bd(random.nextInt(50));
+            leaderboard.update(playerId, stack);
+            if (stack.signum() > 0) {
+                stacks.put(playerId, stack);
+            } else {
+                stacks.remove(playerId);
+            }
+        }
+
+        List<Integer> expected = new ArrayList<Integer>(stacks.keySet());
+        Collections.sort(expected, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer first, Integer second) {
+                int result = stacks.get(second).compareTo(stacks.get(first));
+                return result != 0 ? result : first.compareTo(second);
+            }
+        });
+
+        assertThat(leaderboard.getPlayers(0, expected.size()), is(expected));
+        for (int index = 0; index < expected.size(); index++) {
+            int playerId = expected.get(index);
+            assertThat(leaderboard.getIndex(playerId), is(index));
+            int place = 1;
+            while (stacks.get(expected.get(place - 1)).compareTo(stacks.get(playerId)) > 0) {
+                place++;
+            }
+            assertThat(leaderboard.getPlace(playerId), is(place));
+        }
+    }
+
+    private BigDecimal bd(int amount) {
+        return new BigDecimal(amount);
+    }
+}
@@ -0,0 +1,101 @@
+/**
+ * Copyright (C) 2012 Cubeia Ltd <info@cubeia.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.cubeia.games.poker.tournament.state;
+
+import com.cubeia.firebase.api.mtt.support.MTTStateSupport;
+import org.junit.Test;
+
+import java.util.Collection;
+import java.util.Map;
+
+import static com.google.common.collect.ImmutableSet.of;
+import static org.hamcrest.CoreMatchers.hasItems;
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class TableSeatingIndexTest {
+
+    private TableSeatingIndex index = new TableSeatingIndex();
+
+    @Test
+    public void testCreateFromState() {
+        MTTStateSupport state = mock(MTTStateSupport.class);
+        when(state.getTables()).thenReturn(of(1, 2));
+        when(state.getPlayersAtTable(1)).thenReturn(of(10, 11));
+        when(state.getPlayersAtTable(2)).thenReturn(of(20));
+
+        index = TableSeatingIndex.create(state);
+
+        assertThat(index.getTableFor(10), is(1));
+        assertThat(index.getTableFor(20), is(2));
+        assertThat(index.getTableSize(1), is(2));
+        assertThat(index.getTables(), hasItems(1, 2));
+    }
+
+    @Test
+    public void testMovePlayer() {
+        index.seat(10, 1);
+        index.seat(11, 1);
+        index.seat(20, 2);
+
+        index.seat(11, 2);
+
+        assertThat(index.getTableFor(11), is(2));
+        assertThat(index.getTableSize(1), is(1));
+        assertThat(index.getTableSize(2), is(2));
+    }
+
+    @Test
+    public void testTableIsRemovedWhenLastPlayerIsUnseated() {
+        index.seat(10, 1);
+        index.seat(20, 2);
+
+        index.unseat(10);
+
+        assertThat(index.getTableFor(10), is(-1));
+        assertThat(index.getTableSize(1), is(0));
+        assertThat(index.getTables().size(), is(1));
+        assertThat(index.getPlayersAtTable(1).isEmpty(), is(true));
+    }
+
+    @Test
+    public void testRemoveTable() {
+        index.seat(10, 1);
+        index.seat(11, 1);
+
+        index.removeTable(1);
+
+        assertThat(index.getTableFor(10), is(-1));
+        assertThat(index.getTableFor(11), is(-1));
+        assertThat(index.getTables().isEmpty(), is(true));
+    }
+
+    @Test
+    public void testTableToPlayerMapIsACopy() {
+        index.seat(10, 1);
+        index.seat(11, 1);
+
+        Map<Integer, Collection<Integer>> map = index.createTableToPlayerMap();
+        map.get(1).remove(10);
+
+        assertThat(index.getTableSize(1), is(2));
+        assertThat(index.getTableFor(10), is(1));
+    }
+}
@@ -112,6 +112,20 @@ public class HistoricTournamentDao {
         addObjectToCollection(historicId, playerPosition, "positions");
     }
 
+    /**
+     * Appends events to a tournament in one update.
+     */
+    public void addEvents(String historicId, List<TournamentEvent> events) {
+        addObjectsToCollection(historicId, events, "events");
+    }
+
+    /**
+     * Appends player positions to a tournament in one update.
+     */
+    public void addPlayerPositions(String historicId, List<PlayerPosition> playerPositions) {
+        addObjectsToCollection(historicId, playerPositions, "positions");
+    }
+
     /**
      * Finds tournaments that need to be resurrected. A tournament needs to be resurrected if:
      *
@@ -143,6 +157,11 @@ public class HistoricTournamentDao {
         datastore.update(createQuery(historicId), update);
     }
 
+    private void addObjectsToCollection(String historicId, List<?> objects, String collection) {
+        UpdateOperations<HistoricTournament> update = datastore.createUpdateOperations(HistoricTournament.class).addAll(collection, objects, true);
+        datastore.update(createQuery(historicId), update);
+    }
+
     private void removeObjectFromCollection(String historicId, Object object, String collection) {
         UpdateOperations<HistoricTournament> update = datastore.createUpdateOperations(HistoricTournament.class).removeAll(collection, object);
         datastore.update(createQuery(historicId), update);
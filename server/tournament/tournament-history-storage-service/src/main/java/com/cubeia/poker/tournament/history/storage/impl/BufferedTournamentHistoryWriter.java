@@ -0,0 +1,337 @@
+/**
+ * Copyright (C) 2012 Cubeia Ltd <info@cubeia.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.cubeia.poker.tournament.history.storage.impl;
+
+import com.cubeia.poker.tournament.history.api.PlayerPosition;
+import com.cubeia.poker.tournament.history.api.TournamentEvent;
+import com.cubeia.poker.tournament.history.dao.HistoricTournamentDao;
+import org.apache.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Writes tournament events and player positions on a background thread.
+ * <p/>
+ * Appends are queued and the writer thread takes everything queued at once, so all events of
+ * one tournament that were queued together are written with a single push update instead of
+ * one update each. The queue is bounded; when it is full the tournament thread waits for the
+ * writer, which is counted in the metrics.
+ * <p/>
+ * {@link #flush()} waits until everything queued before the call has been written. When the
+ * writer is not started all writes are done directly on the calling thread.
+ * <p/>
+ * {@link #stop()} never interrupts the writer thread, it queues a stop request behind everything
+ * already queued and waits for the writer to get to it, so a batch is never cut off in the middle
+ * of a database write. Appends made once stopping has begun are written on the calling thread.
+ */
+public class BufferedTournamentHistoryWriter implements BufferedTournamentHistoryWriterMBean {
+
+    private static final Logger log = Logger.getLogger(BufferedTournamentHistoryWriter.class);
+
+    private static final long FLUSH_TIMEOUT_MILLIS = 10000;
+
+    /**
+     * Queued last by {@link #stop()}, the writer thread exits after writing the batch containing it.
+     */
+    private static final Entry STOP = new Entry(null, null, null, new CountDownLatch(1));
+
+    private final HistoricTournamentDao dao;
+
+    private final BlockingQueue<Entry> queue;
+
+    private final int queueCapacity;
+
+    private final int maxBatchSize;
+
+    private final AtomicLong writtenEntries = new AtomicLong();
+
+    private final AtomicLong databaseUpdates = new AtomicLong();
+
+    private final AtomicLong blockedWrites = new AtomicLong();
+
+    private final AtomicLong blockedMillis = new AtomicLong();
+
+    private final AtomicLong failedEntries = new AtomicLong();
+
+    /**
+     * Held shared while appending to the queue and exclusively while stopping, so no entry can be
+     * queued behind the stop request and stranded there.
+     */
+    private final ReadWriteLock stateLock = new ReentrantReadWriteLock();
+
+    private volatile boolean running;
+
+    private Thread writerThread;
+
+    /**
+     * @param dao           the dao to write to
+     * @param queueCapacity maximum number of entries waiting to be written
+     * @param maxBatchSize  maximum number of entries taken from the queue at once
+     */
+    public BufferedTournamentHistoryWriter(HistoricTournamentDao dao, int queueCapacity, int maxBatchSize) {
+        this.dao = dao;
+        this.queueCapacity = Math.max(1, queueCapacity);
+        this.maxBatchSize = Math.max(1, maxBatchSize);
+        this.queue = new ArrayBlockingQueue<Entry>(this.queueCapacity);
+    }
+
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        writerThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                writeUntilStopped();
+            }
+        }, "tournament-history-writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    /**
+     * Writes everything queued and stops the writer thread.
+     */
+    public synchronized void stop() {
+        if (!running) {
+            return;
+        }
+        stateLock.writeLock().lock();
+        try {
+            running = false;
+        } finally {
+            stateLock.writeLock().unlock();
+        }
+        try {
+            if (queue.offer(STOP, FLUSH_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+                writerThread.join(FLUSH_TIMEOUT_MILLIS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (writerThread.isAlive()) {
+            log.warn("Tournament history writer did not stop in time, queue size: " + queue.size());
+        }
+        // Whatever the writer did not get to is written by the caller.
+        List<Entry> remaining = new ArrayList<Entry>();
+        queue.drainTo(remaining);
+        remaining.remove(STOP);
+        write(remaining);
+    }
+
+    public void addEvent(String historicId, TournamentEvent event) {
+        enqueue(new Entry(historicId, event, null, null));
+    }
+
+    public void addPlayerPosition(String historicId, PlayerPosition position) {
+        enqueue(new Entry(historicId, null, position, null));
+    }
+
+    /**
+     * Waits until all events and positions queued before this call have been written.
+     */
+    public void flush() {
+        if (!running || Thread.currentThread() == writerThread) {
+            return;
+        }
+        CountDownLatch written = new CountDownLatch(1);
+        enqueue(new Entry(null, null, null, written));
+        try {
+            if (!written.await(FLUSH_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+                log.warn("Timed out waiting for tournament history to be written, queue size: " + queue.size());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public int getQueueSize() {
+        return queue.size();
+    }
+
+    @Override
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    @Override
+    public long getWrittenEntries() {
+        return writtenEntries.get();
+    }
+
+    @Override
+    public long getDatabaseUpdates() {
+        return databaseUpdates.get();
+    }
+
+    @Override
+    public long getBlockedWrites() {
+        return blockedWrites.get();
+    }
+
+    @Override
+    public long getBlockedMillis() {
+        return blockedMillis.get();
+    }
+
+    @Override
+    public long getFailedEntries() {
+        return failedEntries.get();
+    }
+
+    /* ----------------------------------------------------
+      *
+      * 	PRIVATE METHODS
+      *
+      *  ---------------------------------------------------- */
+
+    private void enqueue(Entry entry) {
+        stateLock.readLock().lock();
+        try {
+            if (running && queue.offer(entry)) {
+                return;
+            }
+            if (running) {
+                blockedWrites.incrementAndGet();
+                long start = System.currentTimeMillis();
+                try {
+                    queue.put(entry);
+                    return;
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    blockedMillis.addAndGet(System.currentTimeMillis() - start);
+                }
+            }
+        } finally {
+            stateLock.readLock().unlock();
+        }
+        // Not running (or interrupted while waiting), write directly.
+        List<Entry> entries = new ArrayList<Entry>(1);
+        entries.add(entry);
+        write(entries);
+    }
+
+    private void writeUntilStopped() {
+        List<Entry> batch = new ArrayList<Entry>(maxBatchSize);
+        boolean stopped = false;
+        while (!stopped) {
+            try {
+                batch.add(queue.take());
+            } catch (InterruptedException e) {
+                log.warn("Tournament history writer interrupted, remaining entries are written by stop()");
+                break;
+            }
+            queue.drainTo(batch, maxBatchSize - 1);
+            // Nothing is queued after the stop request, so it is always last in its batch.
+            stopped = batch.contains(STOP);
+            write(batch);
+            batch.clear();
+        }
+    }
+
+    /**
+     * Writes the entries grouped by tournament, keeping the order of the entries of each tournament.
+     * Flush requests are released when everything before them has been written.
+     */
+    private void write(List<Entry> entries) {
+        Map<String, TournamentEntries> byTournament = new LinkedHashMap<String, TournamentEntries>();
+        for (Entry entry : entries) {
+            if (entry.flushed != null) {
+                write(byTournament);
+                byTournament.clear();
+                entry.flushed.countDown();
+                continue;
+            }
+            TournamentEntries tournamentEntries = byTournament.get(entry.historicId);
+            if (tournamentEntries == null) {
+                tournamentEntries = new TournamentEntries();
+                byTournament.put(entry.historicId, tournamentEntries);
+            }
+            if (entry.event != null) {
+                tournamentEntries.events.add(entry.event);
+            } else {
+                tournamentEntries.positions.add(entry.position);
+            }
+        }
+        write(byTournament);
+    }
+
+    private void write(Map<String, TournamentEntries> byTournament) {
+        for (Map.Entry<String, TournamentEntries> tournament : byTournament.entrySet()) {
+            String historicId = tournament.getKey();
+            TournamentEntries entries = tournament.getValue();
+            try {
+                if (!entries.events.isEmpty()) {
+                    dao.addEvents(historicId, entries.events);
+                    databaseUpdates.incrementAndGet();
+                    writtenEntries.addAndGet(entries.events.size());
+                }
+                if (!entries.positions.isEmpty()) {
+                    dao.addPlayerPositions(historicId, entries.positions);
+                    databaseUpdates.incrementAndGet();
+                    writtenEntries.addAndGet(entries.positions.size());
+                }
+            } catch (RuntimeException e) {
+                failedEntries.addAndGet(entries.events.size() + entries.positions.size());
+                log.error("Failed writing " + entries.events.size() + " events and " + entries.positions.size()
+                        + " positions for tournament " + historicId, e);
+            }
+        }
+    }
+
+    /**
+     * An event or position to write, or a flush or stop request.
+     */
+    private static class Entry {
+
+        private final String historicId;
+
+        private final TournamentEvent event;
+
+        private final PlayerPosition position;
+
+        private final CountDownLatch flushed;
+
+        private Entry(String historicId, TournamentEvent event, PlayerPosition position, CountDownLatch flushed) {
+            this.historicId = historicId;
+            this.event = event;
+            this.position = position;
+            this.flushed = flushed;
+        }
+    }
+
+    private static class TournamentEntries {
+
+        private final List<TournamentEvent> events = new ArrayList<TournamentEvent>();
+
+        private final List<PlayerPosition> positions = new ArrayList<PlayerPosition>();
+    }
+}
@@ -0,0 +1,54 @@
+/**
+ * Copyright (C) 2012 Cubeia Ltd <info@cubeia.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.cubeia.poker.tournament.history.storage.impl;
+
+public interface BufferedTournamentHistoryWriterMBean {
+
+    /**
+     * @return number of events and positions waiting to be written
+     */
+    int getQueueSize();
+
+    int getQueueCapacity();
+
+    /**
+     * @return number of events and positions written
+     */
+    long getWrittenEntries();
+
+    /**
+     * @return number of updates sent to the database
+     */
+    long getDatabaseUpdates();
+
+    /**
+     * @return number of times a tournament had to wait because the queue was full
+     */
+    long getBlockedWrites();
+
+    /**
+     * @return total time in milliseconds tournaments have waited because the queue was full
+     */
+    long getBlockedMillis();
+
+    /**
+     * @return number of events and positions that could not be written
+     */
+    long getFailedEntries();
+
+}
@@ -20,6 +20,7 @@ package com.cubeia.poker.tournament.history.storage.impl;
 import com.cubeia.firebase.api.server.SystemException;
 import com.cubeia.firebase.api.service.Service;
 import com.cubeia.firebase.api.service.ServiceContext;
+import com.cubeia.games.poker.common.jmx.JmxUtil;
 import com.cubeia.games.poker.common.mongo.BigDecimalConverter;
 import com.cubeia.games.poker.common.mongo.DatabaseStorageConfiguration;
 import com.cubeia.poker.tournament.history.api.HistoricPlayer;
@@ -44,8 +45,16 @@ public class DatabaseStorageService implements TournamentHistoryPersistenceServi
 
     private static final Logger log = Logger.getLogger(DatabaseStorageService.class);
 
+    private static final String JMX_BIND_NAME = "com.cubeia.poker:type=TournamentHistoryWriter";
+
+    private static final int WRITE_QUEUE_CAPACITY = 10000;
+
+    private static final int MAX_WRITE_BATCH_SIZE = 1000;
+
     private HistoricTournamentDao dao;
 
+    private BufferedTournamentHistoryWriter writer;
+
     @Override
     public String createHistoricTournament(String name, int id, int templateId, boolean isSitAndGo) {
         return dao.createHistoricTournament(name, id, templateId, isSitAndGo);
@@ -53,6 +62,7 @@ public class DatabaseStorageService implements TournamentHistoryPersistenceServi
 
     @Override
     public HistoricTournament getHistoricTournament(String id) {
+        writer.flush();
         return dao.getHistoricTournament(id);
     }
 
@@ -70,6 +80,8 @@ public class DatabaseStorageService implements TournamentHistoryPersistenceServi
     @Override
     public void statusChanged(String status, String historicId, long now) {
         addEvent(historicId, new TournamentEvent(now, "status changed", status));
+        // Write all buffered events before the status, so a finished tournament has its complete history.
+        writer.flush();
         dao.setStatus(historicId, status);
     }
 
@@ -196,11 +208,11 @@ public class DatabaseStorageService implements TournamentHistoryPersistenceServi
     }
 
     private void addEvent(String historicId, TournamentEvent event) {
-        dao.addEvent(historicId, event);
+        writer.addEvent(historicId, event);
     }
 
     private void addPlayerPosition(String historicId, int playerId, int position, BigDecimal payout) {
-        dao.addPlayerPosition(historicId, new PlayerPosition(playerId, position, payout));
+        writer.addPlayerPosition(historicId, new PlayerPosition(playerId, position, payout));
     }
 
     protected DatabaseStorageConfiguration getConfiguration(ServiceContext context) {
@@ -216,6 +228,7 @@ public class DatabaseStorageService implements TournamentHistoryPersistenceServi
             Morphia morphia = new Morphia();
             morphia.getMapper().getConverters().addConverter(BigDecimalConverter.class);
             dao = new HistoricTournamentDao(morphia.createDatastore(mongo, configuration.getDatabaseName()));
+            writer = new BufferedTournamentHistoryWriter(dao, WRITE_QUEUE_CAPACITY, MAX_WRITE_BATCH_SIZE);
         } catch (UnknownHostException e) {
             throw new SystemException("Failed initializing datasource", e);
         }
@@ -224,11 +237,15 @@ public class DatabaseStorageService implements TournamentHistoryPersistenceServi
     @Override
     public void start() {
         log.debug("Starting DatabaseStorageService.");
+        writer.start();
+        new JmxUtil().mountBean(JMX_BIND_NAME, writer);
     }
 
     @Override
     public void stop() {
         log.debug("Stopping DatabaseStorageService.");
+        new JmxUtil().unmountBean(JMX_BIND_NAME);
+        writer.stop();
     }
 
     @Override
@@ -0,0 +1,199 @@
+/**
+ * Copyright (C) 2012 Cubeia Ltd <info@cubeia.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.cubeia.poker.tournament.history.storage.impl;
+
+import com.cubeia.poker.tournament.history.api.PlayerPosition;
+import com.cubeia.poker.tournament.history.api.TournamentEvent;
+import com.cubeia.poker.tournament.history.dao.HistoricTournamentDao;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static java.util.Arrays.asList;
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.anyListOf;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.MockitoAnnotations.initMocks;
+
+public class BufferedTournamentHistoryWriterTest {
+
+    @Mock
+    private HistoricTournamentDao dao;
+
+    private BufferedTournamentHistoryWriter writer;
+
+    private TournamentEvent event1 = new TournamentEvent(1, "event", "1");
+
+    private TournamentEvent event2 = new TournamentEvent(2, "event", "2");
+
+    private TournamentEvent event3 = new TournamentEvent(3, "event", "3");
+
+    private CountDownLatch writing = new CountDownLatch(1);
+
+    private CountDownLatch release = new CountDownLatch(1);
+
+    @Before
+    public void setup() {
+        initMocks(this);
+    }
+
+    @After
+    public void tearDown() {
+        writer.stop();
+    }
+
+    @Test
+    public void testWritesDirectlyWhenNotStarted() {
+        writer = new BufferedTournamentHistoryWriter(dao, 10, 10);
+
+        writer.addEvent("t1", event1);
+
+        verify(dao).addEvents("t1", asList(event1));
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void testEventsQueuedTogetherAreWrittenInOneUpdate() throws Exception {
+        writer = new BufferedTournamentHistoryWriter(dao, 10, 10);
+        blockWrites();
+        writer.start();
+
+        // The first event is taken by the writer, which then waits while more events are queued.
+        writer.addEvent("t1", event1);
+        assertTrue(writing.await(5, TimeUnit.SECONDS));
+        writer.addEvent("t1", event2);
+        writer.addPlayerPosition("t1", new PlayerPosition(1, 2, BigDecimal.ONE));
+        writer.addEvent("t1", event3);
+        writer.addEvent("t2", event1);
+        release.countDown();
+        writer.flush();
+
+        ArgumentCaptor<List> events = ArgumentCaptor.forClass(List.class);
+        verify(dao, times(2)).addEvents(eq("t1"), events.capture());
+        assertThat(events.getAllValues().get(0), is((List) asList(event1)));
+        assertThat(events.getAllValues().get(1), is((List) asList(event2, event3)));
+        verify(dao).addEvents("t2", asList(event1));
+        verify(dao).addPlayerPositions(eq("t1"), anyListOf(PlayerPosition.class));
+        assertThat(writer.getWrittenEntries(), is(5L));
+        assertThat(writer.getDatabaseUpdates(), is(4L));
+    }
+
+    @Test
+    public void testWaitsWhenQueueIsFull() throws Exception {
+        writer = new BufferedTournamentHistoryWriter(dao, 1, 10);
+        blockWrites();
+        writer.start();
+
+        writer.addEvent("t1", event1);
+        assertTrue(writing.await(5, TimeUnit.SECONDS));
+        writer.addEvent("t1", event2);
+        Thread releaser = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                sleep(100);
+                release.countDown();
+            }
+        });
+        releaser.start();
+        // The writer is busy with the first event and the second fills the queue.
+        writer.addEvent("t1", event3);
+        writer.flush();
+
+        // At least the third event had to wait, the flush request may have too.
+        assertTrue(writer.getBlockedWrites() >= 1);
+        assertThat(writer.getWrittenEntries(), is(3L));
+        assertThat(writer.getQueueSize(), is(0));
+    }
+
+    @Test
+    public void testStopLetsTheWriterFinishInsteadOfInterruptingIt() throws Exception {
+        writer = new BufferedTournamentHistoryWriter(dao, 10, 10);
+        blockWrites();
+        writer.start();
+
+        writer.addEvent("t1", event1);
+        assertTrue(writing.await(5, TimeUnit.SECONDS));
+        writer.addEvent("t1", event2);
+        releaseAfter(100);
+        writer.stop();
+
+        // An interrupted write would have failed in the dao.
+        assertThat(writer.getFailedEntries(), is(0L));
+        assertThat(writer.getWrittenEntries(), is(2L));
+        assertThat(writer.getQueueSize(), is(0));
+    }
+
+    @Test
+    public void testWritesDirectlyAfterStop() {
+        writer = new BufferedTournamentHistoryWriter(dao, 10, 10);
+        writer.start();
+        writer.stop();
+
+        writer.addEvent("t1", event1);
+
+        verify(dao).addEvents("t1", asList(event1));
+        assertThat(writer.getQueueSize(), is(0));
+    }
+
+    private void releaseAfter(final long millis) {
+        new Thread(new Runnable() {
+            @Override
+            public void run() {
+                sleep(millis);
+                release.countDown();
+            }
+        }).start();
+    }
+
+    /**
+     * Makes the writer wait in the dao until released.
+     */
+    private void blockWrites() {
+        doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) throws Throwable {
+                writing.countDown();
+                assertTrue(release.await(5, TimeUnit.SECONDS));
+                return null;
+            }
+        }).when(dao).addEvents(anyString(), anyListOf(TournamentEvent.class));
+    }
+
+    private void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
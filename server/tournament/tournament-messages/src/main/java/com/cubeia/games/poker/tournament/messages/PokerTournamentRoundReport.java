@@ -19,7 +19,9 @@ package com.cubeia.games.poker.tournament.messages;
 
 import java.io.Serializable;
 import java.math.BigDecimal;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
@@ -35,6 +37,8 @@ public class PokerTournamentRoundReport implements Serializable {
 
     private Level currentBlindsLevel;
 
+    private List<Integer> bigBlindOrder;
+
     public PokerTournamentRoundReport(Level blindsLevel) {
         currentBlindsLevel = blindsLevel;
     }
@@ -52,6 +56,18 @@ public class PokerTournamentRoundReport implements Serializable {
         return balanceMap.entrySet();
     }
 
+    /**
+     * Returns the players at the table in the order they will post the big blind, starting
+     * with the big blind of the next hand. Empty if the table did not report the order.
+     */
+    public List<Integer> getBigBlindOrder() {
+        return bigBlindOrder == null ? Collections.<Integer>emptyList() : bigBlindOrder;
+    }
+
+    public void setBigBlindOrder(List<Integer> bigBlindOrder) {
+        this.bigBlindOrder = bigBlindOrder;
+    }
+
     public Level getCurrentBlindsLevel() {
         return currentBlindsLevel;
     }
@@ -18,6 +18,7 @@
 package com.cubeia.games.poker.client;
 
 import com.cubeia.firebase.clients.java.connector.text.IOContext;
+import com.cubeia.games.poker.io.MinorUnitAmounts;
 import com.cubeia.games.poker.io.protocol.*;
 
 public class ManualGameHandler implements PacketVisitor {
@@ -26,6 +27,8 @@ public class ManualGameHandler implements PacketVisitor {
 
     private PokerFormatter formatter = new PokerFormatter();
 
+    private int fractionalDigits;
+
     public ManualGameHandler(IOContext context) {
         this.context = context;
     }
@@ -384,4 +387,60 @@ public class ManualGameHandler implements PacketVisitor {
     public void visit(TournamentTables packet) {
     }
 
+    @Override
+    public void visit(RequestTournamentPlayerListPage packet) {
+    }
+
+    @Override
+    public void visit(TournamentPlayerListPage packet) {
+        System.out.println("Received tour player list page: " + packet);
+    }
+
+    @Override
+    public void visit(AmountEncodingRequest packet) {
+    }
+
+    @Override
+    public void visit(AmountEncodingResponse packet) {
+        fractionalDigits = packet.fractionalDigits;
+        System.out.println("Amounts are sent as " + packet.encoding + ", fractional digits: " + packet.fractionalDigits);
+    }
+
+    @Override
+    public void visit(CompactPlayerAction packet) {
+    }
+
+    @Override
+    public void visit(CompactRequestAction packet) {
+        visit(MinorUnitAmounts.expand(packet, fractionalDigits));
+    }
+
+    @Override
+    public void visit(CompactPerformAction packet) {
+        visit(MinorUnitAmounts.expand(packet, fractionalDigits));
+    }
+
+    @Override
+    public void visit(CompactPlayerBalance packet) {
+        visit(MinorUnitAmounts.expand(packet, fractionalDigits));
+    }
+
+    @Override
+    public void visit(CompactPot packet) {
+    }
+
+    @Override
+    public void visit(CompactPotTransfer packet) {
+    }
+
+    @Override
+    public void visit(CompactPotTransfers packet) {
+        visit(MinorUnitAmounts.expand(packet, fractionalDigits));
+    }
+
+    @Override
+    public void visit(CompactInformFutureAllowedActions packet) {
+        visit(MinorUnitAmounts.expand(packet, fractionalDigits));
+    }
+
 }
@@ -30,8 +30,10 @@ import com.cubeia.firebase.io.protocol.LoginRequestPacket;
 import com.cubeia.firebase.io.protocol.MttTransportPacket;
 import com.cubeia.firebase.io.protocol.ServiceTransportPacket;
 import com.cubeia.firebase.io.protocol.Enums.ServiceIdentifier;
+import com.cubeia.games.poker.io.protocol.AmountEncodingRequest;
 import com.cubeia.games.poker.io.protocol.BuyInRequest;
 import com.cubeia.games.poker.io.protocol.Enums.ActionType;
+import com.cubeia.games.poker.io.protocol.Enums.AmountEncoding;
 import com.cubeia.games.poker.io.protocol.PerformAction;
 import com.cubeia.games.poker.io.protocol.PlayerAction;
 import com.cubeia.games.poker.io.protocol.RebuyResponse;
@@ -115,6 +117,11 @@ public class PokerTextClient extends SimpleTextClient {
             RebuyResponse response = new RebuyResponse(true);
             send(tableId, response);
             
+        } else if (args[0].equals("amounts")) {
+            int tableId = Integer.parseInt(args[1]);
+            AmountEncoding encoding = args[2].equals("minor") ? AmountEncoding.MINOR_UNITS : AmountEncoding.DECIMAL_STRING;
+            send(tableId, new AmountEncodingRequest(encoding));
+            
         }  else if (args[0].equals("tournid")) {
         	String name = command.substring("tournid ".length());
             System.out.println("Find tournament id for name " + name);
@@ -270,5 +277,6 @@ public class PokerTextClient extends SimpleTextClient {
         System.out.println("\t fold TID         \t : Fold");
         
         System.out.println("\t tournid NAME         \t : Find tournament ID from name");
+        System.out.println("\t amounts TID minor|decimal \t : Receive amounts in minor units or as decimals");
     }
 }
\ No newline at end of file